@@ -23,6 +23,10 @@ import java.lang.annotation.*;
 /**
  * Identifies a {@link Storable} property as being a member of the partition key.
  * This key is ignored if the underlying repository lacks support for partitioning.
+ * Partitioning is supported by {@link
+ * com.amazon.carbonado.repo.partitioned.PartitionedRepositoryBuilder
+ * partitioned repositories}, which require partition key properties to be
+ * members of the primary key.
  *
  * <p>Example:<pre>
  * &#64;PrimaryKey("userInfoID")
@@ -22,6 +22,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
@@ -260,6 +264,55 @@ public interface Query<S extends Storable> {
      */
     Query<S> orderBy(String... properties) throws FetchException;
 
+    /**
+     * Returns a copy of this query which only needs to load the given
+     * properties. Primary key properties are always loaded, and so they need
+     * not be specified. Properties not selected are left uninitialized when
+     * the repository can avoid loading them, but some repositories may load
+     * them anyway. Load triggers are not run for partially loaded storables.
+     *
+     * <p>Note: Specification of selected properties is not cumulative. Calling
+     * this method will first remove any previous selection. Passing no
+     * properties selects all of them.
+     *
+     * @param properties names of properties to load
+     * @throws FetchException if storage layer throws an exception
+     * @throws IllegalArgumentException if any property is null, is not a
+     * member of type S, or is a join or derived property
+     * @since 1.2.6
+     */
+    Query<S> select(String... properties) throws FetchException;
+
+    /**
+     * Returns a copy of this query which may fetch independent parts of its
+     * results concurrently, using background threads. The sub-queries of a
+     * union are fetched concurrently and merged in order. A full scan is not
+     * split, but it's fetched and filtered ahead of the caller by a single
+     * background thread, preserving its order. The number of background
+     * threads is bounded by a repository-wide budget, and parts which cannot
+     * get a thread are fetched by the caller as usual. Queries within a
+     * transaction are never fetched in parallel.
+     *
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Query<S> parallel() throws FetchException;
+
+    /**
+     * Returns a copy of this query which records execution statistics for
+     * each stage of its plan: rows in and out, time spent opening and
+     * iterating, and bytes spilled by sorting. When a cursor fetched from the
+     * traced query is exhausted or closed, or when a count completes, the
+     * statistics are available as an "explain analyze" tree from {@link
+     * com.amazon.carbonado.qe.QueryTrace#getLastTrace QueryTrace.getLastTrace},
+     * in the same thread, until it starts another traced query. Tracing adds
+     * overhead to every row fetched.
+     *
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Query<S> trace() throws FetchException;
+
     /**
      * Returns a query which fetches results for this query after a given
      * starting point, which is useful for re-opening a cursor. This is only
@@ -386,6 +439,50 @@ public interface Query<S extends Storable> {
      */
     <T extends S> Cursor<S> fetchAfter(T start, Controller controller) throws FetchException;
 
+    /**
+     * Fetches a page of results for this query, continuing from where a
+     * previous page left off. Unlike {@link #fetchSlice fetchSlice}, later
+     * pages are not fetched by skipping over an offset. Instead, the
+     * continuation token of the previous page encodes the ordering property
+     * values of its last result, and the next page is fetched as if by
+     * {@link #after after} that result. The ordering is made total by
+     * appending any missing primary key properties, and so pages never skip
+     * nor repeat results which aren't modified in the meantime.
+     *
+     * <p>Note: Fetching any page is as efficient as fetching the first, if
+     * the query ordering matches the natural ordering of an index or key. A
+     * continuation token is only meaningful to queries with the same filter
+     * and ordering as the one which produced it.
+     *
+     * @param token continuation token from {@link Page#getNextToken}, or
+     * null to fetch the first page
+     * @param size maximum amount of results in the page
+     * @return page of results, never null
+     * @throws IllegalArgumentException if size is not positive, or if token
+     * is malformed or was produced by a differently ordered query
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Page<S> fetchPage(String token, int size) throws FetchException;
+
+    /**
+     * Fetches a page of results for this query, continuing from where a
+     * previous page left off.
+     *
+     * @param token continuation token from {@link Page#getNextToken}, or
+     * null to fetch the first page
+     * @param size maximum amount of results in the page
+     * @param controller optional controller which can abort query operation
+     * @return page of results, never null
+     * @throws IllegalArgumentException if size is not positive, or if token
+     * is malformed or was produced by a differently ordered query
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Page<S> fetchPage(String token, int size, Controller controller) throws FetchException;
+
     /**
      * Attempts to load exactly one matching object. If the number of matching
      * records is zero or exceeds one, then an exception is thrown instead.
@@ -545,6 +642,87 @@ public interface Query<S extends Storable> {
      */
     boolean exists(Controller controller) throws FetchException;
 
+    /**
+     * Computes an aggregate value over a property of all results matched by
+     * this query. Null property values are ignored. The result of {@code MIN}
+     * and {@code MAX} is a property value, and the result of {@code SUM},
+     * {@code AVG} and {@code COUNT_DISTINCT} is described by {@link
+     * Aggregate}.
+     *
+     * @param function aggregate function to compute
+     * @param property name of property to aggregate
+     * @return aggregate result, which is null if no non-null values are
+     * matched, except for {@code COUNT_DISTINCT}
+     * @throws IllegalArgumentException if function is null, if property is
+     * not a member of type S, is a join property, or is not numeric when
+     * required by the function
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Object aggregate(Aggregate function, String property) throws FetchException;
+
+    /**
+     * Computes an aggregate value over a property of all results matched by
+     * this query. Null property values are ignored.
+     *
+     * @param function aggregate function to compute
+     * @param property name of property to aggregate
+     * @param controller optional controller which can abort query operation
+     * @return aggregate result, which is null if no non-null values are
+     * matched, except for {@code COUNT_DISTINCT}
+     * @throws IllegalArgumentException if function is null, if property is
+     * not a member of type S, is a join property, or is not numeric when
+     * required by the function
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Object aggregate(Aggregate function, String property, Controller controller)
+        throws FetchException;
+
+    /**
+     * Computes aggregate values over a property, for each distinct group of
+     * values of the given group-by properties. The returned map is keyed by
+     * lists of group-by property values, and it iterates in ascending group
+     * order. Null property values are ignored by the aggregate function, but
+     * null group-by values form their own group.
+     *
+     * @param function aggregate function to compute
+     * @param property name of property to aggregate
+     * @param groupBy names of properties to group by
+     * @return map of group-by values to aggregate results, never null
+     * @throws IllegalArgumentException if function is null, if any property
+     * is not a member of type S, is a join property, or is not numeric when
+     * required by the function
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                               String[] groupBy)
+        throws FetchException;
+
+    /**
+     * Computes aggregate values over a property, for each distinct group of
+     * values of the given group-by properties.
+     *
+     * @param function aggregate function to compute
+     * @param property name of property to aggregate
+     * @param groupBy names of properties to group by
+     * @param controller optional controller which can abort query operation
+     * @return map of group-by values to aggregate results, never null
+     * @throws IllegalArgumentException if function is null, if any property
+     * is not a member of type S, is a join property, or is not numeric when
+     * required by the function
+     * @throws IllegalStateException if any blank parameters in this query
+     * @throws FetchException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                               String[] groupBy, Controller controller)
+        throws FetchException;
+
     /**
      * Print the native query to standard out, which is useful for performance
      * analysis. Not all repositories have a native query format. An example
@@ -614,6 +792,86 @@ public interface Query<S extends Storable> {
      */
     String toString();
 
+    /**
+     * Aggregate functions supported by {@link Query#aggregate Query.aggregate}
+     * and {@link Query#aggregateGroupBy Query.aggregateGroupBy}.
+     *
+     * @since 1.2.6
+     */
+    public static enum Aggregate {
+        /** Minimum property value, of the same type as the property */
+        MIN,
+
+        /** Maximum property value, of the same type as the property */
+        MAX,
+
+        /**
+         * Sum of numeric property values, as a Long for integral types, a
+         * Double for floating point types, or as a BigInteger or BigDecimal.
+         * An ArithmeticException is thrown if a sum of integral values
+         * exceeds the range of a Long.
+         */
+        SUM,
+
+        /** Average of numeric property values, as a Double */
+        AVG,
+
+        /** Count of distinct non-null property values, as a Long */
+        COUNT_DISTINCT,
+    }
+
+    /**
+     * Page of query results, as returned by {@link Query#fetchPage
+     * Query.fetchPage}.
+     *
+     * @since 1.2.6
+     */
+    public static final class Page<S extends Storable> {
+        private final List<S> mResults;
+        private final String mNextToken;
+
+        /**
+         * @param results results in the page
+         * @param nextToken continuation token for the next page, or null if
+         * this is the last page
+         */
+        public Page(List<S> results, String nextToken) {
+            if (results == null) {
+                throw new IllegalArgumentException("Null results");
+            }
+            mResults = Collections.unmodifiableList(results);
+            mNextToken = nextToken;
+        }
+
+        /**
+         * Returns the results in this page, which is empty only if no
+         * results remain.
+         */
+        public List<S> getResults() {
+            return mResults;
+        }
+
+        /**
+         * Returns an opaque token for fetching the next page, or null if
+         * this is the last page.
+         */
+        public String getNextToken() {
+            return mNextToken;
+        }
+
+        /**
+         * Returns true if another page might follow this one.
+         */
+        public boolean hasNext() {
+            return mNextToken != null;
+        }
+
+        @Override
+        public String toString() {
+            return "Query.Page {size=" + mResults.size() + ", nextToken=" + mNextToken + '}';
+        }
+    }
+
     /**
      * Controller instance can be used to abort query operations.
      *
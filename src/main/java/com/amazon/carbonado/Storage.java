@@ -18,6 +18,9 @@
 
 package com.amazon.carbonado;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.amazon.carbonado.filter.Filter;
 
 /**
@@ -129,6 +132,51 @@ public interface Storage<S extends Storable> {
      */
     void truncate() throws PersistException;
 
+    /**
+     * Inserts the given Storable, or updates the existing Storable which has
+     * the same primary key. The update only alters dirty properties, just
+     * like {@link Storable#update update}, and the insert sets all other
+     * properties to their defaults. The primary key must be fully specified,
+     * unless it is assigned by a sequence, in which case a new Storable is
+     * always inserted.
+     *
+     * <p>If this Storage has any registered triggers which act on inserts or
+     * updates, the Storable is inserted or updated using the regular methods,
+     * within a transaction. Insert triggers run if the Storable was inserted,
+     * and update triggers run if it was updated. Otherwise, the repository
+     * may perform the operation in a single step, such as with a native
+     * upsert statement, and no generated values are reloaded.
+     *
+     * @param storable storable instance prepared by this Storage
+     * @throws UniqueConstraintException if inserting and an alternate key
+     * conflicts with an existing Storable
+     * @throws ConstraintException if inserting and not all required
+     * properties have been set
+     * @throws PersistException if storage layer throws an exception
+     * @since 1.2.6
+     */
+    void upsert(S storable) throws PersistException;
+
+    /**
+     * Loads many Storables by primary key in one operation, which is more
+     * efficient than calling {@link Storable#tryLoad tryLoad} on each of
+     * them. Each Storable which is found is loaded in place, just as if
+     * tryLoad had been called on it, and load triggers run as usual. The
+     * repository may load the Storables in any order, and it may combine
+     * them into fewer round trips, such as by sorting them to match the
+     * clustered index or by issuing a query for many keys at once.
+     * Storables whose primary key isn't fully specified are loaded
+     * individually, by alternate key.
+     *
+     * @param storables storable instances prepared by this Storage
+     * @return the Storables which were not found, in the order given; never null
+     * @throws FetchException if storage layer throws an exception
+     * @throws IllegalStateException if the state of any Storable suggests
+     * that its keys are unspecified
+     * @since 1.2.6
+     */
+    List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException;
+
     /**
      * Register a trigger which will be called for overridden methods in the given
      * trigger implementation. The newly added trigger is invoked before and
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.capability;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Capability of a bounded {@link com.amazon.carbonado.repo.map.MapRepository
+ * MapRepository}, which allows records to be reloaded from elsewhere when
+ * not found. A wrapping repository can use this to treat the MapRepository
+ * as a cache of a larger master repository. Only loads by primary key are
+ * reloaded, and so other queries against the MapRepository don't see
+ * evicted records. This capability is not available when the MapRepository
+ * is unbounded.
+ *
+ * @author Brian S O'Neill
+ * @see com.amazon.carbonado.repo.map.MapRepositoryBuilder#setMaxRecords
+ * @see com.amazon.carbonado.repo.map.MapRepositoryBuilder#setMaxBytes
+ * @see com.amazon.carbonado.repo.map.MapRepositoryBuilder#setTimeToLive
+ * @since 1.2.6
+ */
+public interface MapEvictionCapability extends Capability {
+    /**
+     * Set the reloader which is called when a load by primary key finds no
+     * record of the given type. A reloaded record is stored without
+     * affecting any transaction, and so it isn't rolled back if the
+     * transaction which loaded it exits without committing. Records aren't
+     * reloaded by snapshot transactions.
+     *
+     * @param reloader reloader to use, or null to remove it
+     */
+    <S extends Storable> void setReloader(Class<S> type, Reloader<S> reloader)
+        throws RepositoryException;
+
+    /**
+     * Loads records which aren't held by a bounded MapRepository.
+     */
+    public static interface Reloader<S extends Storable> {
+        /**
+         * Loads all properties of the record whose primary key properties
+         * are set in the given storable.
+         *
+         * @param storable storable to load into; its primary key properties
+         * must not be changed
+         * @return false if record doesn't exist
+         */
+        boolean reload(S storable) throws FetchException;
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.cojen.classfile.ClassFile;
+import org.cojen.classfile.CodeBuilder;
+import org.cojen.classfile.Label;
+import org.cojen.classfile.LocalVariable;
+import org.cojen.classfile.MethodInfo;
+import org.cojen.classfile.Modifiers;
+import org.cojen.classfile.TypeDesc;
+import static org.cojen.classfile.TypeDesc.*;
+
+import org.cojen.util.ClassInjector;
+import org.cojen.util.ThrowUnchecked;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.ChainedProperty;
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableProperty;
+
+import com.amazon.carbonado.util.ConcurrentCache;
+
+/**
+ * Generates Comparator implementations which order storables by a list of
+ * properties. Simple properties are compared by calling the read method
+ * directly, using primitive comparisons where possible. Null ordering and
+ * direction are compiled in, and so the generated comparators don't allocate
+ * anything. Chained properties, arrays and other non-comparable types are
+ * delegated to a {@link org.cojen.util.BeanComparator BeanComparator}.
+ *
+ * <p>Generated comparators are stateless and cached per storable type and
+ * ordering.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see SortedCursor#createComparator(List)
+ */
+class ComparatorGenerator {
+    private static final String DELEGATES_FIELD_NAME = "delegates";
+
+    private static final ConcurrentCache<Class, TypeCache, RuntimeException> cCache;
+
+    static {
+        cCache = new ConcurrentCache<Class, TypeCache, RuntimeException>(true, true) {
+            @Override
+            protected TypeCache create(Class type) {
+                return new TypeCache(type);
+            }
+        };
+    }
+
+    /**
+     * Returns a comparator which orders by the given properties. Properties
+     * with an unspecified direction are ordered ascending.
+     *
+     * @param type type of storable to create comparator for
+     * @param properties list of properties to order by, all of which must
+     * belong to the given type
+     */
+    @SuppressWarnings("unchecked")
+    static <S extends Storable> Comparator<S> getComparator
+        (Class<S> type, List<OrderedProperty<S>> properties)
+    {
+        List<OrderedProperty> key = new ArrayList<OrderedProperty>(properties.size());
+        for (OrderedProperty<S> property : properties) {
+            if (property.getDirection() == Direction.UNSPECIFIED) {
+                property = property.direction(Direction.ASCENDING);
+            }
+            key.add(property);
+        }
+        return (Comparator<S>) cCache.get(type).get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparator generate(Class type, List<OrderedProperty> properties) {
+        // Generate against the same loader as the storable type, allowing
+        // access to its read methods.
+        ClassLoader loader = type.getClassLoader();
+
+        ClassInjector ci = ClassInjector.create(packageName(type) + ".Comparator", loader);
+        ClassFile cf = new ClassFile(ci.getClassName());
+        cf.addInterface(Comparator.class);
+        cf.markSynthetic();
+        cf.setSourceFile(ComparatorGenerator.class.getName());
+        cf.setTarget("1.5");
+
+        TypeDesc comparatorType = TypeDesc.forClass(Comparator.class);
+        TypeDesc comparatorArrayType = comparatorType.toArrayType();
+
+        cf.addField(Modifiers.PRIVATE.toFinal(true), DELEGATES_FIELD_NAME, comparatorArrayType);
+
+        {
+            MethodInfo mi = cf.addConstructor(Modifiers.PUBLIC,
+                                              new TypeDesc[] {comparatorArrayType});
+            CodeBuilder b = new CodeBuilder(mi);
+            b.loadThis();
+            b.invokeSuperConstructor(null);
+            b.loadThis();
+            b.loadLocal(b.getParameter(0));
+            b.storeField(DELEGATES_FIELD_NAME, comparatorArrayType);
+            b.returnVoid();
+        }
+
+        List<Comparator> delegates = new ArrayList<Comparator>();
+
+        {
+            MethodInfo mi = cf.addMethod(Modifiers.PUBLIC, "compare", INT,
+                                         new TypeDesc[] {OBJECT, OBJECT});
+            CodeBuilder b = new CodeBuilder(mi);
+
+            TypeDesc storableType = TypeDesc.forClass(type);
+
+            b.loadLocal(b.getParameter(0));
+            b.checkCast(storableType);
+            LocalVariable aVar = b.createLocalVariable("a", storableType);
+            b.storeLocal(aVar);
+
+            b.loadLocal(b.getParameter(1));
+            b.checkCast(storableType);
+            LocalVariable bVar = b.createLocalVariable("b", storableType);
+            b.storeLocal(bVar);
+
+            // Like BeanComparator, null storables sort high in any direction.
+            {
+                Label notSame = b.createLabel();
+                b.loadLocal(aVar);
+                b.loadLocal(bVar);
+                b.ifEqualBranch(notSame, false);
+                b.loadConstant(0);
+                b.returnValue(INT);
+                notSame.setLocation();
+
+                Label aNotNull = b.createLabel();
+                b.loadLocal(aVar);
+                b.ifNullBranch(aNotNull, false);
+                b.loadConstant(1);
+                b.returnValue(INT);
+                aNotNull.setLocation();
+
+                Label bNotNull = b.createLabel();
+                b.loadLocal(bVar);
+                b.ifNullBranch(bNotNull, false);
+                b.loadConstant(-1);
+                b.returnValue(INT);
+                bNotNull.setLocation();
+            }
+
+            LocalVariable resultVar = b.createLocalVariable("result", INT);
+
+            for (OrderedProperty property : properties) {
+                Label next = b.createLabel();
+                boolean checkResult = true;
+
+                Method readMethod = directReadMethod(type, property.getChainedProperty());
+
+                if (readMethod == null) {
+                    b.loadThis();
+                    b.loadField(DELEGATES_FIELD_NAME, comparatorArrayType);
+                    b.loadConstant(delegates.size());
+                    b.loadFromArray(comparatorType);
+                    b.loadLocal(aVar);
+                    b.loadLocal(bVar);
+                    b.invokeInterface(comparatorType, "compare", INT,
+                                      new TypeDesc[] {OBJECT, OBJECT});
+                    b.storeLocal(resultVar);
+                    delegates.add(SortedCursor.beanComparator(type, property));
+                } else {
+                    // Descending order is achieved by swapping the operands,
+                    // which also places nulls first.
+                    boolean descending = property.getDirection() == Direction.DESCENDING;
+                    LocalVariable leftVar = descending ? bVar : aVar;
+                    LocalVariable rightVar = descending ? aVar : bVar;
+
+                    TypeDesc propertyType = TypeDesc.forClass(readMethod.getReturnType());
+
+                    b.loadLocal(leftVar);
+                    b.invoke(readMethod);
+                    LocalVariable left = b.createLocalVariable(null, propertyType);
+                    b.storeLocal(left);
+
+                    b.loadLocal(rightVar);
+                    b.invoke(readMethod);
+                    LocalVariable right = b.createLocalVariable(null, propertyType);
+                    b.storeLocal(right);
+
+                    switch (propertyType.getTypeCode()) {
+                    case TypeDesc.BOOLEAN_CODE:
+                    case TypeDesc.BYTE_CODE:
+                    case TypeDesc.SHORT_CODE:
+                    case TypeDesc.CHAR_CODE:
+                    case TypeDesc.INT_CODE:
+                    case TypeDesc.LONG_CODE: {
+                        TypeDesc compareType =
+                            propertyType == LONG ? LONG : INT;
+                        b.loadLocal(left);
+                        b.loadLocal(right);
+                        b.ifComparisonBranch(next, "==", compareType);
+                        Label less = b.createLabel();
+                        b.loadLocal(left);
+                        b.loadLocal(right);
+                        b.ifComparisonBranch(less, "<", compareType);
+                        b.loadConstant(1);
+                        b.returnValue(INT);
+                        less.setLocation();
+                        b.loadConstant(-1);
+                        b.returnValue(INT);
+                        checkResult = false;
+                        break;
+                    }
+
+                    case TypeDesc.FLOAT_CODE:
+                    case TypeDesc.DOUBLE_CODE:
+                        // Use the same total ordering as Float.compareTo and
+                        // Double.compareTo, with respect to NaN and -0.0.
+                        b.loadLocal(left);
+                        b.loadLocal(right);
+                        b.invokeStatic(propertyType.toObjectType(), "compare", INT,
+                                       new TypeDesc[] {propertyType, propertyType});
+                        b.storeLocal(resultVar);
+                        break;
+
+                    default: {
+                        b.loadLocal(left);
+                        b.loadLocal(right);
+                        b.ifEqualBranch(next, true);
+
+                        // Nulls are high.
+                        Label leftNull = b.createLabel();
+                        b.loadLocal(left);
+                        b.ifNullBranch(leftNull, true);
+                        Label rightNull = b.createLabel();
+                        b.loadLocal(right);
+                        b.ifNullBranch(rightNull, true);
+
+                        b.loadLocal(left);
+                        b.loadLocal(right);
+                        b.invokeInterface(TypeDesc.forClass(Comparable.class), "compareTo", INT,
+                                          new TypeDesc[] {OBJECT});
+                        b.storeLocal(resultVar);
+
+                        Label compared = b.createLabel();
+                        b.branch(compared);
+
+                        leftNull.setLocation();
+                        b.loadConstant(1);
+                        b.returnValue(INT);
+                        rightNull.setLocation();
+                        b.loadConstant(-1);
+                        b.returnValue(INT);
+
+                        compared.setLocation();
+                        break;
+                    }
+                    }
+                }
+
+                if (checkResult) {
+                    b.loadLocal(resultVar);
+                    b.ifZeroComparisonBranch(next, "==");
+                    b.loadLocal(resultVar);
+                    b.returnValue(INT);
+                }
+
+                next.setLocation();
+            }
+
+            b.loadConstant(0);
+            b.returnValue(INT);
+        }
+
+        Class<?> clazz = ci.defineClass(cf);
+
+        try {
+            Constructor<?> ctor = clazz.getConstructor(Comparator[].class);
+            return (Comparator) ctor.newInstance
+                ((Object) delegates.toArray(new Comparator[delegates.size()]));
+        } catch (Exception e) {
+            ThrowUnchecked.fireDeclaredRootCause(e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the read method to invoke directly from generated code, or null
+     * if the property must be compared by a delegate comparator.
+     */
+    private static Method directReadMethod(Class type, ChainedProperty chained) {
+        if (chained.getChainCount() > 0) {
+            return null;
+        }
+
+        StorableProperty property = chained.getPrimeProperty();
+        Method readMethod = property.getReadMethod();
+
+        if (readMethod == null || readMethod.getExceptionTypes().length > 0) {
+            return null;
+        }
+
+        Class propertyType = readMethod.getReturnType();
+        if (!propertyType.isPrimitive() && !Comparable.class.isAssignableFrom(propertyType)) {
+            return null;
+        }
+
+        if (!Modifier.isPublic(readMethod.getModifiers())) {
+            return null;
+        }
+
+        Class declaringClass = readMethod.getDeclaringClass();
+        if (!Modifier.isPublic(declaringClass.getModifiers())
+            && (declaringClass.getClassLoader() != type.getClassLoader()
+                || !packageName(declaringClass).equals(packageName(type))))
+        {
+            return null;
+        }
+
+        return readMethod;
+    }
+
+    private static String packageName(Class clazz) {
+        String name = clazz.getName();
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+    /**
+     * Caches generated comparators for one storable type, keyed by ordering.
+     */
+    private static class TypeCache
+        extends ConcurrentCache<List<OrderedProperty>, Comparator, RuntimeException>
+    {
+        private final Class mType;
+
+        TypeCache(Class type) {
+            super(false, false);
+            mType = type;
+        }
+
+        @Override
+        protected Comparator create(List<OrderedProperty> properties) {
+            return generate(mType, properties);
+        }
+    }
+}
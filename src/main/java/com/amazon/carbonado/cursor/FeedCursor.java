@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.cursor;
+
+import java.lang.ref.WeakReference;
+
+import java.util.NoSuchElementException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+
+/**
+ * Cursor which gathers the results of source cursors, in no particular
+ * order. Each source is opened, iterated and closed entirely by a background
+ * task, which feeds a bounded queue. Tasks only weakly reference the cursor,
+ * and so they stop if it is discarded without being closed.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see #feed
+ */
+public class FeedCursor<S> extends AbstractCursor<S> {
+    private static final Object END = new Object();
+
+    /**
+     * Translates an exception thrown by a background task, rethrowing it if
+     * unchecked.
+     */
+    public static FetchException toFetchException(Throwable e) {
+        if (e instanceof FetchException) {
+            return (FetchException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new FetchException(e);
+    }
+
+    private final FeedQueue mQueue;
+
+    private int mActive;
+    private S mNext;
+
+    /**
+     * @param capacity maximum number of results to fetch ahead
+     */
+    public FeedCursor(int capacity) {
+        mQueue = new FeedQueue(capacity);
+    }
+
+    /**
+     * Returns a task which feeds this cursor from the given source. Every
+     * task must either run, or else this cursor must be closed.
+     */
+    public Runnable feed(Source<? extends S> source) {
+        mActive++;
+        return new Task<S>(this, mQueue, source);
+    }
+
+    public void close() throws FetchException {
+        mNext = null;
+        mActive = 0;
+        if (!mQueue.mClosed) {
+            mQueue.mClosed = true;
+            // Unblock the background tasks, which observe the closed state.
+            mQueue.clear();
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+        while (mActive > 0) {
+            Object next;
+            try {
+                next = mQueue.take();
+            } catch (InterruptedException e) {
+                close();
+                throw new FetchInterruptedException(e);
+            }
+            if (next == END) {
+                mActive--;
+            } else if (next instanceof Throwable) {
+                close();
+                throw toFetchException((Throwable) next);
+            } else {
+                mNext = (S) next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public S next() throws FetchException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        S next = mNext;
+        mNext = null;
+        return next;
+    }
+
+    /**
+     * Source of results which is opened by a background task.
+     */
+    public static interface Source<S> {
+        Cursor<S> open() throws FetchException;
+    }
+
+    private static class FeedQueue extends ArrayBlockingQueue<Object> {
+        private static final long serialVersionUID = 1L;
+
+        volatile boolean mClosed;
+
+        FeedQueue(int capacity) {
+            super(capacity);
+        }
+    }
+
+    /**
+     * Runs in the background, feeding the queue until the source cursor is
+     * exhausted, or the cursor is closed or discarded.
+     */
+    private static class Task<S> implements Runnable {
+        private final WeakReference<FeedCursor<S>> mCursorRef;
+        private final FeedQueue mQueue;
+        private final Source<? extends S> mSource;
+
+        Task(FeedCursor<S> cursor, FeedQueue queue, Source<? extends S> source) {
+            mCursorRef = new WeakReference<FeedCursor<S>>(cursor);
+            mQueue = queue;
+            mSource = source;
+        }
+
+        public void run() {
+            try {
+                Cursor<? extends S> cursor = mSource.open();
+                try {
+                    while (!mQueue.mClosed && cursor.hasNext()) {
+                        if (!put(cursor.next())) {
+                            break;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } catch (Throwable e) {
+                put(e);
+            } finally {
+                put(END);
+            }
+        }
+
+        private boolean put(Object obj) {
+            try {
+                while (!mQueue.mClosed) {
+                    if (mQueue.offer(obj, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                    if (mCursorRef.get() == null) {
+                        // Cursor was discarded without being closed, and so
+                        // the queue will never be drained.
+                        mQueue.mClosed = true;
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Executor is shutting down.
+            }
+            return false;
+        }
+    }
+}
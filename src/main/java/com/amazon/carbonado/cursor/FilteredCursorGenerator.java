@@ -42,7 +42,6 @@ import static org.cojen.classfile.TypeDesc.*;
 
 import org.cojen.util.ClassInjector;
 import org.cojen.util.ThrowUnchecked;
-import org.cojen.util.WeakIdentityMap;
 
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.Query;
@@ -60,6 +59,7 @@ import com.amazon.carbonado.info.ChainedProperty;
 import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.util.Comparators;
+import com.amazon.carbonado.util.ConcurrentCache;
 import com.amazon.carbonado.util.QuickConstructorGenerator;
 
 import com.amazon.carbonado.gen.CodeBuilderUtil;
@@ -75,7 +75,17 @@ import com.amazon.carbonado.gen.CodeBuilderUtil;
 class FilteredCursorGenerator {
     private static final String SUB_FILTER_INIT_METHOD = "subFilterInit$";
 
-    private static Map cCache = new WeakIdentityMap();
+    private static final ConcurrentCache<Filter, Factory, RuntimeException> cCache;
+
+    static {
+        cCache = new ConcurrentCache<Filter, Factory, RuntimeException>(true, false) {
+            @Override
+            protected Factory create(Filter filter) {
+                Class<Cursor> clazz = generateClass(filter);
+                return QuickConstructorGenerator.getInstance(clazz, Factory.class);
+            }
+        };
+    }
 
     /**
      * Returns a factory for creating new filtered cursor instances.
@@ -89,16 +99,7 @@ class FilteredCursorGenerator {
         if (filter == null) {
             throw new IllegalArgumentException();
         }
-        synchronized (cCache) {
-            Factory<S> factory = (Factory<S>) cCache.get(filter);
-            if (factory != null) {
-                return factory;
-            }
-            Class<Cursor<S>> clazz = generateClass(filter);
-            factory = QuickConstructorGenerator.getInstance(clazz, Factory.class);
-            cCache.put(filter, factory);
-            return factory;
-        }
+        return (Factory<S>) cCache.get(filter);
     }
 
     @SuppressWarnings("unchecked")
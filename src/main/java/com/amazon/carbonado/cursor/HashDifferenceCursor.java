@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.cursor;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Wraps two Cursors and performs a <i>set difference</i> operation by
+ * primary key, producing results of the left cursor which are not in the
+ * right cursor. Unlike {@link DifferenceCursor}, the wrapped cursors need not
+ * return results in any particular order. All primary keys of the right
+ * cursor are loaded into a hash set first, and then results of the left
+ * cursor are produced in its order.
+ *
+ * <p>If the right cursor has more keys than fit in memory, the remainder of
+ * both cursors is spilled into hash partitions on disk, which are then
+ * processed one at a time. Spilling is tuned by system properties prefixed
+ * with "com.amazon.carbonado.cursor.HashedCursor.": "maxKeys" (default
+ * 1000000) and "partitionCount" (default 16).
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see HashIntersectionCursor
+ * @see HashDistinctCursor
+ */
+public class HashDifferenceCursor<S extends Storable> extends HashJoinCursor<S> {
+    /**
+     * @param left cursor to wrap, whose results are produced
+     * @param right cursor to wrap, whose keys are loaded into memory
+     * @throws IllegalArgumentException if either cursor is null
+     */
+    public HashDifferenceCursor(Cursor<S> left, Cursor<S> right) {
+        super(left, right, false);
+    }
+}
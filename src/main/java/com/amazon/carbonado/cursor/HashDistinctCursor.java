@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.cursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Wraps any number of Cursors and performs a <i>set union</i> operation,
+ * removing duplicates by primary key. Unlike {@link UnionCursor}, the wrapped
+ * cursors need not return results in any particular order, but the union
+ * is unordered too. Results are produced as soon as they are read, and only
+ * their primary keys are retained.
+ *
+ * <p>If more keys are seen than fit in memory, remaining results are spilled
+ * into hash partitions on disk, which are made distinct one at a time after
+ * all cursors have been read. Spilling is tuned by system properties
+ * prefixed with "com.amazon.carbonado.cursor.HashedCursor.": "maxKeys"
+ * (default 1000000) and "partitionCount" (default 16).
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see HashIntersectionCursor
+ * @see HashDifferenceCursor
+ */
+public class HashDistinctCursor<S extends Storable> extends HashedCursor<S> {
+    private final List<Cursor<S>> mSources;
+    private int mSourceIndex;
+
+    private Set<Object> mSeen;
+    private Partitions mSpill;
+    private int mPartition;
+    private Cursor<S> mPartitionCursor;
+
+    /**
+     * @param sources cursors to wrap, which are read one after the other
+     * @throws IllegalArgumentException if any cursor is null
+     */
+    public HashDistinctCursor(Cursor<S>... sources) {
+        this(sources == null ? null : Arrays.asList(sources));
+    }
+
+    /**
+     * @param sources cursors to wrap, which are read one after the other
+     * @throws IllegalArgumentException if any cursor is null
+     */
+    public HashDistinctCursor(List<? extends Cursor<S>> sources) {
+        if (sources == null || sources.contains(null)) {
+            throw new IllegalArgumentException();
+        }
+        mSources = new ArrayList<Cursor<S>>(sources);
+        mSeen = new HashSet<Object>();
+    }
+
+    public void close() throws FetchException {
+        mNext = null;
+        mSeen = null;
+        try {
+            while (mSourceIndex < mSources.size()) {
+                mSources.get(mSourceIndex++).close();
+            }
+            if (mPartitionCursor != null) {
+                mPartitionCursor.close();
+            }
+        } finally {
+            mPartitionCursor = null;
+            if (mSpill != null) {
+                mSpill.close();
+                mSpill = null;
+            }
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+        if (mSeen == null) {
+            return false;
+        }
+
+        try {
+            while (mSourceIndex < mSources.size()) {
+                Cursor<S> source = mSources.get(mSourceIndex);
+                while (source.hasNext()) {
+                    S next = source.next();
+                    Object key = keyOf(next);
+                    if (mSpill == null) {
+                        if (mSeen.add(key)) {
+                            if (mSeen.size() >= MAX_KEYS) {
+                                mSpill = new Partitions();
+                            }
+                            mNext = next;
+                            return true;
+                        }
+                    } else if (!mSeen.contains(key)) {
+                        // Duplicates are removed when partition is read.
+                        mSpill.write(key, next);
+                    }
+                }
+                mSourceIndex++;
+                source.close();
+            }
+
+            while (mSpill != null) {
+                if (mPartitionCursor == null) {
+                    if (mPartition >= mSpill.getCount()) {
+                        break;
+                    }
+                    // Keys of each partition are disjoint from all others.
+                    mSeen = new HashSet<Object>();
+                    mPartitionCursor = mSpill.open(mPartition++);
+                }
+                while (mPartitionCursor.hasNext()) {
+                    S next = mPartitionCursor.next();
+                    if (mSeen.add(keyOf(next))) {
+                        mNext = next;
+                        return true;
+                    }
+                }
+                mPartitionCursor.close();
+                mPartitionCursor = null;
+            }
+        } catch (FetchException e) {
+            try {
+                close();
+            } catch (Exception e2) {
+                // Don't care.
+            }
+            throw e;
+        }
+
+        close();
+        return false;
+    }
+}
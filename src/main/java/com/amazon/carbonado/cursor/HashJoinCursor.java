@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.cursor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Base class for hash-based set operations over two cursors. The primary keys
+ * of the right cursor are loaded into a hash set, and then results of the
+ * left cursor are produced depending on whether their keys are in the set.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+abstract class HashJoinCursor<S extends Storable> extends HashedCursor<S> {
+    private final Cursor<S> mLeftCursor;
+    private final Cursor<S> mRightCursor;
+    private final boolean mMatches;
+
+    private Set<Object> mBuild;
+    private boolean mClosed;
+
+    private Partitions mBuildSpill;
+    private Partitions mProbeSpill;
+    private int mPartition;
+    private Cursor<S> mPartitionCursor;
+
+    /**
+     * @param left cursor whose results are produced
+     * @param right cursor whose keys are loaded into memory
+     * @param matches when true, produce left results which match right keys,
+     * and when false, produce left results which don't match
+     */
+    HashJoinCursor(Cursor<S> left, Cursor<S> right, boolean matches) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException();
+        }
+        mLeftCursor = left;
+        mRightCursor = right;
+        mMatches = matches;
+    }
+
+    public void close() throws FetchException {
+        mNext = null;
+        mBuild = null;
+        mClosed = true;
+        try {
+            mLeftCursor.close();
+            mRightCursor.close();
+            if (mPartitionCursor != null) {
+                mPartitionCursor.close();
+            }
+        } finally {
+            mPartitionCursor = null;
+            if (mBuildSpill != null) {
+                mBuildSpill.close();
+                mBuildSpill = null;
+            }
+            if (mProbeSpill != null) {
+                mProbeSpill.close();
+                mProbeSpill = null;
+            }
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+        if (mClosed) {
+            return false;
+        }
+
+        try {
+            if (mBuild == null) {
+                build();
+            }
+
+            while (mLeftCursor.hasNext()) {
+                S next = mLeftCursor.next();
+                Object key = keyOf(next);
+                if (mBuild.contains(key)) {
+                    if (mMatches) {
+                        mNext = next;
+                        return true;
+                    }
+                } else if (mBuildSpill != null) {
+                    // Key might be in a spilled partition.
+                    mProbeSpill.write(key, next);
+                } else if (!mMatches) {
+                    mNext = next;
+                    return true;
+                }
+            }
+
+            while (mBuildSpill != null) {
+                if (mPartitionCursor == null) {
+                    if (mPartition >= mBuildSpill.getCount()) {
+                        break;
+                    }
+                    mBuild = new HashSet<Object>();
+                    Cursor<S> buildCursor = mBuildSpill.open(mPartition);
+                    try {
+                        while (buildCursor.hasNext()) {
+                            mBuild.add(keyOf(buildCursor.next()));
+                        }
+                    } finally {
+                        buildCursor.close();
+                    }
+                    mPartitionCursor = mProbeSpill.open(mPartition++);
+                }
+                while (mPartitionCursor.hasNext()) {
+                    S next = mPartitionCursor.next();
+                    if (mBuild.contains(keyOf(next)) == mMatches) {
+                        mNext = next;
+                        return true;
+                    }
+                }
+                mPartitionCursor.close();
+                mPartitionCursor = null;
+            }
+        } catch (FetchException e) {
+            try {
+                close();
+            } catch (Exception e2) {
+                // Don't care.
+            }
+            throw e;
+        }
+
+        close();
+        return false;
+    }
+
+    private void build() throws FetchException {
+        mBuild = new HashSet<Object>();
+        while (mRightCursor.hasNext()) {
+            S next = mRightCursor.next();
+            Object key = keyOf(next);
+            if (mBuildSpill == null) {
+                mBuild.add(key);
+                if (mBuild.size() >= MAX_KEYS) {
+                    mBuildSpill = new Partitions();
+                    mProbeSpill = new Partitions();
+                }
+            } else {
+                mBuildSpill.write(key, next);
+            }
+        }
+        mRightCursor.close();
+    }
+}
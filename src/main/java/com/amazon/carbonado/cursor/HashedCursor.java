@@ -0,0 +1,274 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.cursor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.SupportException;
+
+import com.amazon.carbonado.info.StorableIntrospector;
+
+/**
+ * Base class for cursors which perform set operations by hashing primary
+ * keys instead of relying on a common ordering. Only keys are held in memory,
+ * and when too many keys are seen, the remaining storables are spilled into
+ * hash partitions on disk, each of which is processed in memory afterwards.
+ *
+ * <p>Tuning is controlled by system properties, prefixed with
+ * "com.amazon.carbonado.cursor.HashedCursor.":
+ *
+ * <pre>
+ * Property                       Notes
+ * ------------------------------ -------------------------------------------------
+ * maxKeys                        Maximum number of keys to hold in memory before
+ *                                spilling. Default is 1000000.
+ *
+ * partitionCount                 Number of hash partitions to spill into. Each
+ *                                partition should fit in memory. Default is 16.
+ * </pre>
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+abstract class HashedCursor<S extends Storable> extends AbstractCursor<S> {
+    static final int MAX_KEYS;
+    static final int PARTITION_COUNT;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    static {
+        String prefix = HashedCursor.class.getName() + '.';
+        MAX_KEYS = Math.max(1, Integer.getInteger(prefix + "maxKeys", 1000000));
+        PARTITION_COUNT = Math.max(1, Integer.getInteger(prefix + "partitionCount", 16));
+    }
+
+    private String[] mKeyProperties;
+
+    S mNext;
+
+    public S next() throws FetchException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        S next = mNext;
+        mNext = null;
+        return next;
+    }
+
+    /**
+     * Returns an object which represents the primary key of the given
+     * storable, suitable for use in a hash set.
+     */
+    Object keyOf(S storable) {
+        String[] names = mKeyProperties;
+        if (names == null) {
+            Class<S> type = (Class<S>) storable.storableType();
+            names = StorableIntrospector.examine(type)
+                .getPrimaryKeyProperties().keySet().toArray(new String[0]);
+            mKeyProperties = names;
+        }
+        if (names.length == 1) {
+            Object value = storable.getPropertyValue(names[0]);
+            if (!(value instanceof byte[])) {
+                return value;
+            }
+        }
+        Object[] values = new Object[names.length];
+        for (int i=0; i<names.length; i++) {
+            values[i] = storable.getPropertyValue(names[i]);
+        }
+        return new Key(values);
+    }
+
+    /**
+     * Closes the given cursors, suppressing exceptions.
+     */
+    static void closeQuietly(Cursor<?>... cursors) {
+        for (Cursor<?> cursor : cursors) {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (Exception e) {
+                    // Don't care.
+                }
+            }
+        }
+    }
+
+    private static class Key {
+        private final Object[] mValues;
+        private final int mHash;
+
+        Key(Object[] values) {
+            mValues = values;
+            mHash = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.deepEquals(mValues, ((Key) obj).mValues);
+        }
+    }
+
+    /**
+     * Set of temp files which storables are spilled into, partitioned by the
+     * hash code of their primary key.
+     */
+    class Partitions {
+        private final WorkFilePool mPool;
+        private final RandomAccessFile[] mFiles;
+        private final SpillOutputStream[] mOut;
+
+        private S mTemplate;
+
+        Partitions() {
+            mPool = WorkFilePool.getInstance(null);
+            mFiles = new RandomAccessFile[PARTITION_COUNT];
+            mOut = new SpillOutputStream[PARTITION_COUNT];
+        }
+
+        int getCount() {
+            return mFiles.length;
+        }
+
+        void write(Object key, S storable) throws FetchException {
+            if (mTemplate == null) {
+                mTemplate = (S) storable.prepare();
+            }
+            int h = key == null ? 0 : key.hashCode();
+            // Spread the bits, since hash sets are partitioned by low bits too.
+            h ^= (h >>> 20) ^ (h >>> 12);
+            h ^= (h >>> 7) ^ (h >>> 4);
+            int p = (h & 0x7fffffff) % mFiles.length;
+            try {
+                SpillOutputStream out = mOut[p];
+                if (out == null) {
+                    mFiles[p] = mPool.acquireWorkFile(null);
+                    mOut[p] = out = new SpillOutputStream
+                        (mFiles[p].getChannel(), BUFFER_SIZE, false);
+                }
+                storable.writeTo(out);
+            } catch (IOException e) {
+                throw new FetchException(e);
+            } catch (SupportException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        /**
+         * Returns a cursor over a partition, which must not be written to
+         * anymore.
+         */
+        Cursor<S> open(int partition) throws FetchException {
+            SpillOutputStream out = mOut[partition];
+            if (out == null) {
+                return EmptyCursor.the();
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new FetchException(e);
+            }
+            mOut[partition] = null;
+            return new PartitionCursor(new SpillInputStream
+                                       (mFiles[partition].getChannel(), BUFFER_SIZE, false));
+        }
+
+        void close() {
+            List<RandomAccessFile> files = new ArrayList<RandomAccessFile>(mFiles.length);
+            for (int i=0; i<mFiles.length; i++) {
+                if (mFiles[i] != null) {
+                    files.add(mFiles[i]);
+                    mFiles[i] = null;
+                }
+                mOut[i] = null;
+            }
+            mPool.releaseWorkFiles(files);
+        }
+
+        private class PartitionCursor extends AbstractCursor<S> {
+            private InputStream mIn;
+            private S mNextRead;
+
+            PartitionCursor(InputStream in) {
+                mIn = in;
+            }
+
+            public void close() {
+                mNextRead = null;
+                if (mIn != null) {
+                    try {
+                        mIn.close();
+                    } catch (IOException e) {
+                        // Don't care.
+                    }
+                    mIn = null;
+                }
+            }
+
+            public boolean hasNext() throws FetchException {
+                if (mNextRead != null) {
+                    return true;
+                }
+                if (mIn == null) {
+                    return false;
+                }
+                try {
+                    S next = (S) mTemplate.prepare();
+                    next.readFrom(mIn);
+                    mNextRead = next;
+                    return true;
+                } catch (EOFException e) {
+                    close();
+                    return false;
+                } catch (IOException e) {
+                    close();
+                    throw new FetchException(e);
+                } catch (SupportException e) {
+                    close();
+                    throw e.toFetchException();
+                }
+            }
+
+            public S next() throws FetchException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                S next = mNextRead;
+                mNextRead = null;
+                return next;
+            }
+        }
+    }
+}
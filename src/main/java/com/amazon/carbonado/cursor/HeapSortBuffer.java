@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+
+/**
+ * Sort buffer which retains only the lowest elements, according to the sort
+ * order, up to a fixed capacity. Elements are kept in a bounded binary heap
+ * whose root is the highest retained element, and so each added element
+ * beyond the capacity costs at most one comparison when it's discarded.
+ * This makes "top-k" queries, which sort a large result and then fetch only
+ * the first k elements, run in memory proportional to k rather than to the
+ * whole result.
+ *
+ * <p>Elements which sort equally are ordered by when they were added, and
+ * so the retained elements and their sorted order are the same as from a
+ * stable sort of all the elements.
+ *
+ * @author Brian S O'Neill
+ * @see SortedCursor
+ * @since 1.2.6
+ */
+public class HeapSortBuffer<S> extends AbstractCollection<S> implements SortBuffer<S> {
+    private final int mCapacity;
+    private final Query.Controller mController;
+
+    private Object[] mElements;
+    // Arrival sequence of each element, which breaks ties.
+    private long[] mSequences;
+    private int mSize;
+    private long mAddCount;
+    private boolean mSorted;
+
+    private Comparator<S> mComparator;
+
+    /**
+     * @param capacity maximum number of elements to retain
+     * @throws IllegalArgumentException if capacity is less than one
+     */
+    public HeapSortBuffer(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity maximum number of elements to retain
+     * @param controller optional controller which can abort query operation
+     * @throws IllegalArgumentException if capacity is less than one
+     */
+    public HeapSortBuffer(int capacity, Query.Controller controller) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        mCapacity = capacity;
+        mElements = new Object[Math.min(capacity, 64)];
+        mSequences = new long[mElements.length];
+        if ((mController = controller) != null) {
+            controller.begin();
+        }
+    }
+
+    /**
+     * Returns the maximum number of elements retained.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public void prepare(Comparator<S> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException();
+        }
+        clear();
+        mComparator = comparator;
+    }
+
+    /**
+     * Adds the element if it sorts lower than the highest retained element,
+     * discarding that one if at capacity.
+     *
+     * @return false if element was discarded
+     */
+    @Override
+    public boolean add(S element) {
+        Comparator<S> comparator = comparator();
+
+        long seq = ++mAddCount;
+        if ((seq & 0xff) == 0) {
+            continueCheck();
+        }
+
+        if (mSorted) {
+            throw new IllegalStateException("Buffer is sorted");
+        }
+
+        Object[] elements = mElements;
+
+        if (mSize < mCapacity) {
+            if (mSize >= elements.length) {
+                int newCap = (int) Math.min((long) mCapacity, elements.length * 2L);
+                Object[] newElements = new Object[newCap];
+                System.arraycopy(elements, 0, newElements, 0, mSize);
+                mElements = newElements;
+                long[] newSequences = new long[newCap];
+                System.arraycopy(mSequences, 0, newSequences, 0, mSize);
+                mSequences = newSequences;
+            }
+            siftUp(mSize++, element, seq, comparator);
+            return true;
+        }
+
+        // An element equal to the root arrived later, and so it's higher.
+        if (comparator.compare(element, (S) elements[0]) >= 0) {
+            return false;
+        }
+
+        siftDown(mSize, element, seq, comparator);
+        return true;
+    }
+
+    @Override
+    public Iterator<S> iterator() {
+        return new Iterator<S>() {
+            private int mPos;
+
+            public boolean hasNext() {
+                return mPos < mSize;
+            }
+
+            public S next() {
+                if (mPos >= mSize) {
+                    throw new NoSuchElementException();
+                }
+                return (S) mElements[mPos++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mElements, 0, mSize, null);
+        mSize = 0;
+        mAddCount = 0;
+        mSorted = false;
+    }
+
+    /**
+     * Sorts the heap in place, by repeatedly moving the highest element past
+     * the end of the shrinking heap.
+     */
+    public void sort() {
+        Comparator<S> comparator = comparator();
+        Object[] elements = mElements;
+        long[] sequences = mSequences;
+        for (int end = mSize; --end > 0; ) {
+            Object element = elements[end];
+            long seq = sequences[end];
+            elements[end] = elements[0];
+            sequences[end] = sequences[0];
+            siftDown(end, (S) element, seq, comparator);
+        }
+        mSorted = true;
+    }
+
+    public void close() {
+        try {
+            clear();
+        } finally {
+            Query.Controller controller = mController;
+            if (controller != null) {
+                controller.close();
+            }
+        }
+    }
+
+    private Comparator<S> comparator() {
+        Comparator<S> comparator = mComparator;
+        if (comparator == null) {
+            throw new IllegalStateException("Buffer was not prepared with a Comparator");
+        }
+        return comparator;
+    }
+
+    private void continueCheck() {
+        Query.Controller controller = mController;
+        if (controller != null) {
+            try {
+                controller.continueCheck();
+            } catch (FetchException e) {
+                close();
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+    }
+
+    /**
+     * Compares elements by the sort order and then by arrival sequence.
+     */
+    private static <S> int compare(S a, long aSeq, S b, long bSeq, Comparator<S> comparator) {
+        int result = comparator.compare(a, b);
+        if (result == 0) {
+            result = aSeq < bSeq ? -1 : (aSeq > bSeq ? 1 : 0);
+        }
+        return result;
+    }
+
+    /**
+     * Inserts an element at the given position of the max-heap, moving it up
+     * towards the root until its parent isn't lower.
+     */
+    private void siftUp(int pos, S element, long seq, Comparator<S> comparator) {
+        Object[] heap = mElements;
+        long[] sequences = mSequences;
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            Object p = heap[parent];
+            long pSeq = sequences[parent];
+            if (compare(element, seq, (S) p, pSeq, comparator) <= 0) {
+                break;
+            }
+            heap[pos] = p;
+            sequences[pos] = pSeq;
+            pos = parent;
+        }
+        heap[pos] = element;
+        sequences[pos] = seq;
+    }
+
+    /**
+     * Replaces the root of the max-heap, whose size is given, with the given
+     * element, moving it down until no child is higher.
+     */
+    private void siftDown(int size, S element, long seq, Comparator<S> comparator) {
+        Object[] heap = mElements;
+        long[] sequences = mSequences;
+        int pos = 0;
+        int half = size >> 1;
+        while (pos < half) {
+            int child = (pos << 1) + 1;
+            Object c = heap[child];
+            long cSeq = sequences[child];
+            int right = child + 1;
+            if (right < size &&
+                compare((S) c, cSeq, (S) heap[right], sequences[right], comparator) < 0)
+            {
+                c = heap[child = right];
+                cSeq = sequences[right];
+            }
+            if (compare(element, seq, (S) c, cSeq, comparator) >= 0) {
+                break;
+            }
+            heap[pos] = c;
+            sequences[pos] = cSeq;
+            pos = child;
+        }
+        heap[pos] = element;
+        sequences[pos] = seq;
+    }
+}
@@ -18,11 +18,8 @@
 
 package com.amazon.carbonado.cursor;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -38,6 +35,8 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchInterruptedException;
 import com.amazon.carbonado.Query;
@@ -45,13 +44,13 @@ import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.SupportException;
 
-import com.amazon.carbonado.spi.RAFInputStream;
-import com.amazon.carbonado.spi.RAFOutputStream;
-
 /**
  * Sort buffer implemented via a merge sort algorithm. If there are too many
  * storables to fit in the reserved memory buffer, they are sorted and
- * serialized to temporary files.
+ * serialized to temporary files. Each storable is written with {@link
+ * Storable#writeTo}, which encodes property values without class or property
+ * name information. Temp files are written and read through file channels
+ * using large buffers, optionally compressing each block.
  *
  * <p>The following system properties can be set to change the default
  * performance characteristics of the merge sort. Each property name must be
@@ -67,8 +66,17 @@ import com.amazon.carbonado.spi.RAFOutputStream;
  *                                merges, but there is an increased risk of
  *                                running out of file descriptors.
  *
- * outputBufferSize    10000      Larger value may improve performance of file
- *                                writing, but not by much.
+ * outputBufferSize    262144     Size of the buffer used for writing, and of
+ *                                each compressed block. Larger value reduces
+ *                                the amount of write calls.
+ *
+ * inputBufferSize     65536      Size of the buffer used for reading each
+ *                                uncompressed file during a merge. One buffer
+ *                                is allocated for each file being merged.
+ *
+ * compress            false      When true, blocks are compressed with the
+ *                                fastest deflate setting. Reduces file I/O at
+ *                                the cost of CPU time.
  *
  * tmpdir                         Merge sort files by default are placed in the
  *                                Java temp directory. Override to place them
@@ -93,7 +101,13 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
 
     // Bigger may improve write performance, but not by much.
     private static final int OUTPUT_BUFFER_SIZE;
-    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 10000;
+    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 262144;
+
+    // Bigger reduces read calls, but each file being merged needs its own buffer.
+    private static final int INPUT_BUFFER_SIZE;
+    private static final int DEFAULT_INPUT_BUFFER_SIZE = 65536;
+
+    private static final boolean COMPRESS;
 
     private static final String TEMP_DIR;
 
@@ -109,6 +123,11 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         OUTPUT_BUFFER_SIZE = Integer.getInteger(prefix + "outputBufferSize",
                                                 DEFAULT_OUTPUT_BUFFER_SIZE);
 
+        INPUT_BUFFER_SIZE = Integer.getInteger(prefix + "inputBufferSize",
+                                               DEFAULT_INPUT_BUFFER_SIZE);
+
+        COMPRESS = Boolean.getBoolean(prefix + "compress");
+
         // Null means use system temp dir.
         String tempDir = System.getProperty(prefix + "tmpdir", null);
 
@@ -135,10 +154,36 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
     private WorkFilePool mWorkFilePool;
     private List<RandomAccessFile> mFilesInUse;
 
+    // Streams opened by merge iterators, which are closed when the buffer is
+    // cleared, in case the iterators weren't exhausted.
+    private List<InputStream> mOpenInputs;
+
     private Comparator<S> mComparator;
 
     private volatile boolean mStop;
 
+    private long mSpillCount;
+    private long mSpillBytes;
+    private long mUncompressedSpillBytes;
+    private long mMergeNanos;
+
+    private static final AtomicLong
+        cSpillCount = new AtomicLong(),
+        cSpillBytes = new AtomicLong(),
+        cUncompressedSpillBytes = new AtomicLong(),
+        cMergeNanos = new AtomicLong();
+
+    /**
+     * Returns metrics accumulated by all MergeSortBuffers since the class was
+     * loaded.
+     *
+     * @since 1.2.6
+     */
+    public static Metrics getTotalMetrics() {
+        return new Metrics(cSpillCount.get(), cSpillBytes.get(),
+                           cUncompressedSpillBytes.get(), cMergeNanos.get());
+    }
+
     /**
      * @since 1.2
      */
@@ -267,8 +312,8 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
             RandomAccessFile raf;
             try {
                 raf = mWorkFilePool.acquireWorkFile(this);
-                OutputStream out =
-                    new BufferedOutputStream(new RAFOutputStream(raf), OUTPUT_BUFFER_SIZE);
+                SpillOutputStream out =
+                    new SpillOutputStream(raf.getChannel(), OUTPUT_BUFFER_SIZE, COMPRESS);
 
                 if (mFilesInUse.size() < (MAX_OPEN_FILE_COUNT - 1)) {
                     mFilesInUse.add(raf);
@@ -316,7 +361,7 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                     raf.setLength(mergedLength);
 
                     byte count = 0;
-                    Iterator<S> it = iterator(filesToMerge);
+                    Iterator<S> it = iterator(filesToMerge, false);
                     while (it.hasNext()) {
                         // Check every so often if should continue.
                         continueCheck(++count);
@@ -329,7 +374,8 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                     mFilesInUse.add(raf);
                 }
 
-                out.flush();
+                out.close();
+                recordSpill(out.getWrittenBytes(), out.getRawBytes());
 
                 // Truncate any data from last time file was used.
                 raf.setLength(raf.getFilePointer());
@@ -356,10 +402,14 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
 
     @Override
     public Iterator<S> iterator() {
-        return iterator(mFilesInUse);
+        return iterator(mFilesInUse, true);
     }
 
-    private Iterator<S> iterator(List<RandomAccessFile> filesToMerge) {
+    /**
+     * @param track when true, streams are closed when the buffer is cleared,
+     * since the iterator might not be exhausted
+     */
+    private Iterator<S> iterator(List<RandomAccessFile> filesToMerge, boolean track) {
         Comparator<S> comparator = comparator();
 
         if (mWorkFilePool == null) {
@@ -378,12 +428,45 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                 throw new UndeclaredThrowableException(e);
             }
 
-            InputStream in = new BufferedInputStream(new RAFInputStream(raf));
+            InputStream in = new SpillInputStream(raf.getChannel(), INPUT_BUFFER_SIZE, COMPRESS);
+
+            if (track) {
+                if (mOpenInputs == null) {
+                    mOpenInputs = new ArrayList<InputStream>();
+                }
+                mOpenInputs.add(in);
+            }
 
             pq.add(new InputIter<S>(comparator, mPreparer, in));
         }
 
-        return new Merger<S>(pq);
+        return new Merger<S>(this, pq);
+    }
+
+    /**
+     * Returns metrics accumulated by this buffer. They are not reset when the
+     * buffer is cleared.
+     *
+     * @since 1.2.6
+     */
+    public Metrics getMetrics() {
+        synchronized (this) {
+            return new Metrics(mSpillCount, mSpillBytes, mUncompressedSpillBytes, mMergeNanos);
+        }
+    }
+
+    private synchronized void recordSpill(long bytes, long uncompressedBytes) {
+        mSpillCount++;
+        mSpillBytes += bytes;
+        mUncompressedSpillBytes += uncompressedBytes;
+        cSpillCount.incrementAndGet();
+        cSpillBytes.addAndGet(bytes);
+        cUncompressedSpillBytes.addAndGet(uncompressedBytes);
+    }
+
+    synchronized void recordMerge(long nanos) {
+        mMergeNanos += nanos;
+        cMergeNanos.addAndGet(nanos);
     }
 
     @Override
@@ -392,6 +475,17 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
             mPreparer = null;
         }
 
+        if (mOpenInputs != null) {
+            for (InputStream in : mOpenInputs) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Don't care.
+                }
+            }
+            mOpenInputs.clear();
+        }
+
         if (mTotalSize > 0) {
             mSize = 0;
             mTotalSize = 0;
@@ -583,6 +677,11 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
                     next.readFrom(mIn);
                     mNext = next;
                 } catch (EOFException e) {
+                    try {
+                        mIn.close();
+                    } catch (IOException e2) {
+                        // Don't care.
+                    }
                     mIn = null;
                 } catch (SupportException e) {
                     throw new UndeclaredThrowableException(e);
@@ -602,28 +701,45 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
     }
 
     private static class Merger<S extends Storable> implements Iterator<S> {
+        private final MergeSortBuffer<S> mBuffer;
         private final PriorityQueue<Iter<S>> mPQ;
 
         private S mNext;
 
-        Merger(PriorityQueue<Iter<S>> pq) {
+        // Merge time not yet recorded, which is recorded in batches.
+        private long mNanos;
+        private int mCount;
+
+        Merger(MergeSortBuffer<S> buffer, PriorityQueue<Iter<S>> pq) {
+            mBuffer = buffer;
             mPQ = pq;
         }
 
         public boolean hasNext() {
             if (mNext == null) {
-                while (true) {
-                    Iter<S> iter = mPQ.poll();
-                    if (iter == null) {
-                        return false;
+                long start = System.nanoTime();
+                boolean exhausted = false;
+                try {
+                    while (true) {
+                        Iter<S> iter = mPQ.poll();
+                        if (iter == null) {
+                            exhausted = true;
+                            return false;
+                        }
+                        if ((mNext = iter.next()) != null) {
+                            // Iter is not exhausted, so put it back in to be
+                            // used again. Adding it back causes it to be
+                            // inserted in the proper order, based on the next
+                            // element it has to offer.
+                            mPQ.add(iter);
+                            return true;
+                        }
                     }
-                    if ((mNext = iter.next()) != null) {
-                        // Iter is not exhausted, so put it back in to be used
-                        // again. Adding it back causes it to be inserted in
-                        // the proper order, based on the next element it has
-                        // to offer.
-                        mPQ.add(iter);
-                        return true;
+                } finally {
+                    mNanos += System.nanoTime() - start;
+                    if (exhausted || (++mCount & 0x3ff) == 0) {
+                        mBuffer.recordMerge(mNanos);
+                        mNanos = 0;
                     }
                 }
             }
@@ -644,6 +760,65 @@ public class MergeSortBuffer<S extends Storable> extends AbstractCollection<S>
         }
     }
 
+    /**
+     * Snapshot of metrics gathered by MergeSortBuffers.
+     *
+     * @since 1.2.6
+     */
+    public static class Metrics {
+        private final long mSpillCount;
+        private final long mSpillBytes;
+        private final long mUncompressedSpillBytes;
+        private final long mMergeNanos;
+
+        Metrics(long spillCount, long spillBytes, long uncompressedSpillBytes, long mergeNanos) {
+            mSpillCount = spillCount;
+            mSpillBytes = spillBytes;
+            mUncompressedSpillBytes = uncompressedSpillBytes;
+            mMergeNanos = mergeNanos;
+        }
+
+        /**
+         * Returns the amount of sorted runs written to temp files, including
+         * those produced by merging files together.
+         */
+        public long getSpillCount() {
+            return mSpillCount;
+        }
+
+        /**
+         * Returns the amount of bytes written to temp files.
+         */
+        public long getSpillBytes() {
+            return mSpillBytes;
+        }
+
+        /**
+         * Returns the amount of bytes written to temp files, before
+         * compression. Without compression, this is the same as the spill
+         * bytes.
+         */
+        public long getUncompressedSpillBytes() {
+            return mUncompressedSpillBytes;
+        }
+
+        /**
+         * Returns the time spent merging temp files, in nanoseconds, which
+         * includes reading and decoding them.
+         */
+        public long getMergeNanos() {
+            return mMergeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "MergeSortBuffer.Metrics {spillCount=" + mSpillCount +
+                ", spillBytes=" + mSpillBytes +
+                ", uncompressedSpillBytes=" + mUncompressedSpillBytes +
+                ", mergeNanos=" + mMergeNanos + '}';
+        }
+    }
+
     private static class ObjectArrayIterator<E> implements Iterator<E> {
         private final E[] mElements;
         private final int mEnd;
@@ -19,6 +19,8 @@
 package com.amazon.carbonado.cursor;
 
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -64,26 +66,30 @@ public class SortedCursor<S> extends AbstractCursor<S> {
      * @throws IllegalArgumentException if any property is null or not a member
      * of storable type
      */
+    @SuppressWarnings("unchecked")
     public static <S> Comparator<S> createComparator(Class<S> type, String... orderProperties) {
-        BeanComparator bc = BeanComparator.forClass(type);
-
         if (Storable.class.isAssignableFrom(type)) {
             StorableInfo info = StorableIntrospector.examine((Class) type);
+            List<OrderedProperty> properties =
+                new ArrayList<OrderedProperty>(orderProperties.length);
             for (String property : orderProperties) {
-                bc = orderBy(bc, OrderedProperty.parse(info, property));
+                properties.add(OrderedProperty.parse(info, property));
             }
-        } else {
-            for (String property : orderProperties) {
-                Class propertyType;
-                {
-                    String name = property;
-                    if (name.startsWith("+") || name.startsWith("-")) {
-                        name = name.substring(1);
-                    }
-                    propertyType = propertyType(type, name);
+            return ComparatorGenerator.getComparator((Class) type, (List) properties);
+        }
+
+        BeanComparator bc = BeanComparator.forClass(type);
+
+        for (String property : orderProperties) {
+            Class propertyType;
+            {
+                String name = property;
+                if (name.startsWith("+") || name.startsWith("-")) {
+                    name = name.substring(1);
                 }
-                bc = orderBy(bc, property, propertyType, Direction.ASCENDING);
+                propertyType = propertyType(type, name);
             }
+            bc = orderBy(bc, property, propertyType, Direction.ASCENDING);
         }
 
         return bc;
@@ -122,18 +128,7 @@ public class SortedCursor<S> extends AbstractCursor<S> {
             throw new IllegalArgumentException();
         }
 
-        Class<S> type = properties[0].getChainedProperty().getPrimeProperty().getEnclosingType();
-
-        BeanComparator bc = BeanComparator.forClass(type);
-
-        for (OrderedProperty<S> property : properties) {
-            if (property == null) {
-                throw new IllegalArgumentException();
-            }
-            bc = orderBy(bc, property);
-        }
-
-        return bc;
+        return createComparator(Arrays.asList(properties));
     }
 
 
@@ -154,16 +149,21 @@ public class SortedCursor<S> extends AbstractCursor<S> {
         Class<S> type =
             properties.get(0).getChainedProperty().getPrimeProperty().getEnclosingType();
 
-        BeanComparator bc = BeanComparator.forClass(type);
-
         for (OrderedProperty<S> property : properties) {
             if (property == null) {
                 throw new IllegalArgumentException();
             }
-            bc = orderBy(bc, property);
         }
 
-        return bc;
+        return ComparatorGenerator.getComparator(type, properties);
+    }
+
+    /**
+     * Returns a reflection based comparator for just one property, which
+     * supports chained properties and array types.
+     */
+    static <S> Comparator<S> beanComparator(Class<S> type, OrderedProperty property) {
+        return orderBy(BeanComparator.forClass(type), property);
     }
 
     private static BeanComparator orderBy(BeanComparator bc, OrderedProperty property) {
@@ -240,6 +240,9 @@ public class SortedCursor<S> extends AbstractCursor<S> {
      */
     private S mNextChunkStart;
 
+    /** Remaining amount of results to produce */
+    private long mRemaining;
+
     /**
      * @param cursor cursor to wrap
      * @param buffer required buffer to hold results
@@ -249,13 +252,31 @@ public class SortedCursor<S> extends AbstractCursor<S> {
      */
     public SortedCursor(Cursor<S> cursor, SortBuffer<S> buffer,
                         Comparator<S> handled, Comparator<S> finisher) {
-        if (cursor == null || finisher == null) {
+        this(cursor, buffer, handled, finisher, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param cursor cursor to wrap
+     * @param buffer required buffer to hold results, which need only retain
+     * the first limit results of each chunk, like {@link HeapSortBuffer}
+     * @param handled optional comparator which represents how the results are
+     * already sorted
+     * @param finisher required comparator which finishes the sort
+     * @param limit maximum amount of results to produce; once reached, no
+     * further chunks are read from the wrapped cursor
+     * @throws IllegalArgumentException if limit is negative
+     * @since 1.2.6
+     */
+    public SortedCursor(Cursor<S> cursor, SortBuffer<S> buffer,
+                        Comparator<S> handled, Comparator<S> finisher, long limit) {
+        if (cursor == null || finisher == null || limit < 0) {
             throw new IllegalArgumentException();
         }
         mCursor = cursor;
         mChunkBuffer =  buffer;
         mChunkMatcher = handled;
         mChunkSorter = finisher;
+        mRemaining = limit;
     }
 
     /**
@@ -271,6 +292,15 @@ public class SortedCursor<S> extends AbstractCursor<S> {
         this(cursor, buffer, null, createComparator(type, orderProperties));
     }
 
+    /**
+     * Returns the buffer which this cursor sorts chunks with.
+     *
+     * @since 1.2.6
+     */
+    public SortBuffer<S> getSortBuffer() {
+        return mChunkBuffer;
+    }
+
     /**
      * Returns a comparator representing the effective sort order of this cursor.
      */
@@ -296,6 +326,10 @@ public class SortedCursor<S> extends AbstractCursor<S> {
     }
 
     public boolean hasNext() throws FetchException {
+        if (mRemaining <= 0) {
+            close();
+            return false;
+        }
         try {
             prepareNextChunk();
             try {
@@ -319,10 +353,16 @@ public class SortedCursor<S> extends AbstractCursor<S> {
     }
 
     public S next() throws FetchException {
+        if (mRemaining <= 0) {
+            close();
+            throw new NoSuchElementException();
+        }
         try {
             prepareNextChunk();
             try {
-                return mChunkIterator.next();
+                S next = mChunkIterator.next();
+                mRemaining--;
+                return next;
             } catch (UndeclaredThrowableException e) {
                 throw toFetchException(e);
             } catch (NoSuchElementException e) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Buffered input stream for {@link MergeSortBuffer} temp files, as written
+ * by {@link SpillOutputStream}. Reads are positional, and so many streams
+ * can read from the start of files which are concurrently being written or
+ * reread elsewhere.
+ *
+ * <p>Closing the stream does not close the channel.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class SpillInputStream extends InputStream {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final FileChannel mChannel;
+    private final Inflater mInflater;
+
+    private ByteBuffer mBuffer;
+    private ByteBuffer mHeader;
+    private byte[] mCompressed;
+
+    private long mPosition;
+
+    /**
+     * @param channel channel to read from, starting at position zero
+     * @param bufferSize size of read buffer, used only when not compressed
+     * @param compressed when true, blocks are read as written by a
+     * compressing SpillOutputStream
+     */
+    SpillInputStream(FileChannel channel, int bufferSize, boolean compressed) {
+        mChannel = channel;
+        if (compressed) {
+            mInflater = new Inflater(true);
+            mBuffer = EMPTY;
+            mHeader = ByteBuffer.allocate(8);
+        } else {
+            mInflater = null;
+            // Heap buffer, because streams aren't pooled and direct memory
+            // is only released by the garbage collector.
+            mBuffer = ByteBuffer.allocate(bufferSize);
+            mBuffer.flip();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!mBuffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return mBuffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        if (!mBuffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int amt = Math.min(len, mBuffer.remaining());
+        mBuffer.get(b, off, amt);
+        return amt;
+    }
+
+    @Override
+    public int available() {
+        return mBuffer.remaining();
+    }
+
+    /**
+     * Releases the decompressor, but leaves the channel open.
+     */
+    @Override
+    public void close() {
+        if (mInflater != null) {
+            mInflater.end();
+        }
+        mBuffer = EMPTY;
+        mHeader = null;
+        mCompressed = null;
+    }
+
+    /**
+     * @return false if EOF
+     */
+    private boolean fill() throws IOException {
+        if (mInflater == null) {
+            ByteBuffer buffer = mBuffer;
+            if (buffer == EMPTY) {
+                return false;
+            }
+            buffer.clear();
+            int amt = mChannel.read(buffer, mPosition);
+            buffer.flip();
+            if (amt <= 0) {
+                return false;
+            }
+            mPosition += amt;
+            return true;
+        }
+
+        ByteBuffer header = mHeader;
+        if (header == null) {
+            // Closed.
+            return false;
+        }
+        header.clear();
+        if (!readFully(header, true)) {
+            return false;
+        }
+        header.flip();
+        int rawLength = header.getInt();
+        int length = header.getInt();
+
+        ByteBuffer buffer = mBuffer;
+        if (buffer.capacity() < rawLength) {
+            mBuffer = buffer = ByteBuffer.allocate(rawLength);
+        }
+        buffer.clear();
+        buffer.limit(rawLength);
+
+        if (length == 0) {
+            readFully(buffer, false);
+        } else {
+            byte[] compressed = mCompressed;
+            if (compressed == null || compressed.length < length) {
+                mCompressed = compressed = new byte[length];
+            }
+            readFully(ByteBuffer.wrap(compressed, 0, length), false);
+
+            Inflater inflater = mInflater;
+            inflater.reset();
+            inflater.setInput(compressed, 0, length);
+            try {
+                int total = 0;
+                while (total < rawLength) {
+                    int amt = inflater.inflate(buffer.array(), total, rawLength - total);
+                    if (amt == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IOException("Corrupt block in sort file");
+                    }
+                    total += amt;
+                }
+            } catch (DataFormatException e) {
+                IOException io = new IOException("Corrupt block in sort file");
+                io.initCause(e);
+                throw io;
+            }
+        }
+
+        buffer.position(0);
+        return true;
+    }
+
+    /**
+     * @param eofAllowed when true, return false if EOF is reached before any
+     * bytes are read
+     */
+    private boolean readFully(ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        boolean any = false;
+        while (buffer.hasRemaining()) {
+            int amt = mChannel.read(buffer, mPosition);
+            if (amt < 0) {
+                if (eofAllowed && !any) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+            if (amt > 0) {
+                any = true;
+                mPosition += amt;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.cursor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.zip.Deflater;
+
+/**
+ * Buffered output stream for {@link MergeSortBuffer} temp files, which
+ * writes large blocks directly to a file channel. When compression is
+ * enabled, each block is deflated with the fastest setting and written with
+ * a header of its raw and compressed lengths. Blocks which don't compress
+ * are stored raw, indicated by a compressed length of zero.
+ *
+ * <p>Closing the stream does not close the channel.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see SpillInputStream
+ */
+class SpillOutputStream extends OutputStream {
+    private final FileChannel mChannel;
+    private final ByteBuffer mBuffer;
+    private final Deflater mDeflater;
+    private final ByteBuffer mHeader;
+
+    private byte[] mCompressed;
+
+    private long mRawBytes;
+    private long mWrittenBytes;
+
+    /**
+     * @param channel channel to write to, starting at its current position
+     * @param blockSize size of buffer and of each compressed block
+     * @param compress when true, deflate each block
+     */
+    SpillOutputStream(FileChannel channel, int blockSize, boolean compress) {
+        mChannel = channel;
+        // Heap buffer, because the deflater requires an array, streams aren't
+        // pooled, and direct memory is only released by the garbage collector.
+        mBuffer = ByteBuffer.allocate(blockSize);
+        if (compress) {
+            mDeflater = new Deflater(Deflater.BEST_SPEED, true);
+            mHeader = ByteBuffer.allocate(8);
+        } else {
+            mDeflater = null;
+            mHeader = null;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!mBuffer.hasRemaining()) {
+            flushBlock();
+        }
+        mBuffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!mBuffer.hasRemaining()) {
+                flushBlock();
+            }
+            int amt = Math.min(len, mBuffer.remaining());
+            mBuffer.put(b, off, amt);
+            off += amt;
+            len -= amt;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBlock();
+    }
+
+    /**
+     * Flushes the stream and releases the compressor, but leaves the channel
+     * open.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            if (mDeflater != null) {
+                mDeflater.end();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of bytes written to the stream.
+     */
+    long getRawBytes() {
+        return mRawBytes;
+    }
+
+    /**
+     * Returns the amount of bytes written to the channel, including block
+     * headers.
+     */
+    long getWrittenBytes() {
+        return mWrittenBytes;
+    }
+
+    private void flushBlock() throws IOException {
+        ByteBuffer buffer = mBuffer;
+        int rawLength = buffer.position();
+        if (rawLength == 0) {
+            return;
+        }
+        mRawBytes += rawLength;
+        buffer.flip();
+
+        if (mDeflater == null) {
+            writeFully(buffer);
+        } else {
+            Deflater deflater = mDeflater;
+            deflater.reset();
+            deflater.setInput(buffer.array(), 0, rawLength);
+            deflater.finish();
+
+            byte[] compressed = mCompressed;
+            if (compressed == null || compressed.length < rawLength) {
+                mCompressed = compressed = new byte[rawLength];
+            }
+
+            int length = 0;
+            while (!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+
+            ByteBuffer header = mHeader;
+            header.clear();
+            header.putInt(rawLength);
+            if (deflater.finished() && length < rawLength) {
+                header.putInt(length);
+                header.flip();
+                writeFully(header);
+                writeFully(ByteBuffer.wrap(compressed, 0, length));
+            } else {
+                // Didn't compress, so store raw.
+                header.putInt(0);
+                header.flip();
+                writeFully(header);
+                writeFully(buffer);
+            }
+        }
+
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mWrittenBytes += mChannel.write(buffer);
+        }
+    }
+}
@@ -31,7 +31,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Used internally by {@link MergeSortBuffer}.
+ * Used internally by {@link MergeSortBuffer} and the hash-based set
+ * operation cursors.
  *
  * @author Brian S O'Neill
  */
@@ -105,9 +106,14 @@ class WorkFilePool {
         mWorkFileUsers = new HashSet<MergeSortBuffer<?>>();
     }
 
+    /**
+     * @param buffer optional buffer to stop on shutdown
+     */
     RandomAccessFile acquireWorkFile(MergeSortBuffer<?> buffer) throws IOException {
-        synchronized (mWorkFileUsers) {
-            mWorkFileUsers.add(buffer);
+        if (buffer != null) {
+            synchronized (mWorkFileUsers) {
+                mWorkFileUsers.add(buffer);
+            }
         }
         synchronized (mWorkFilePool) {
             if (mWorkFilePool.size() > 0) {
@@ -20,13 +20,13 @@ package com.amazon.carbonado.filter;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.cojen.util.WeakCanonicalSet;
-import org.cojen.util.WeakIdentityMap;
 
 import com.amazon.carbonado.MalformedFilterException;
 import com.amazon.carbonado.Storable;
@@ -35,7 +35,7 @@ import com.amazon.carbonado.info.ChainedProperty;
 import com.amazon.carbonado.info.StorableIntrospector;
 
 import com.amazon.carbonado.util.Appender;
-import com.amazon.carbonado.util.SoftValuedCache;
+import com.amazon.carbonado.util.ConcurrentCache;
 
 /**
  * An immutable tree structure representing a query result filter. Filters can
@@ -75,7 +75,16 @@ public abstract class Filter<S extends Storable> implements Serializable, Append
     static WeakCanonicalSet cCanonical = new WeakCanonicalSet();
 
     // Map<(weak)Class<S>, Map<Object, (soft)Filter<S>>>
-    private static Map cCache = new WeakIdentityMap();
+    private static final ConcurrentCache<Class, FilterCache, RuntimeException> cCache;
+
+    static {
+        cCache = new ConcurrentCache<Class, FilterCache, RuntimeException>(true, false) {
+            @Override
+            protected FilterCache create(Class type) {
+                return new FilterCache(type);
+            }
+        };
+    }
 
     /**
      * Returns a cached filter instance that operates on the given type and
@@ -88,15 +97,10 @@ public abstract class Filter<S extends Storable> implements Serializable, Append
      * @throws MalformedFilterException if filter expression is malformed
      */
     public static <S extends Storable> Filter<S> filterFor(Class<S> type, String expression) {
-        SoftValuedCache<Object, Filter<S>> filterCache = getFilterCache(type);
-        synchronized (filterCache) {
-            Filter<S> filter = filterCache.get(expression);
-            if (filter == null) {
-                filter = new FilterParser<S>(type, expression).parseRoot();
-                filterCache.put(expression, filter);
-            }
-            return filter;
+        if (expression == null) {
+            throw new IllegalArgumentException("Query filter must not be null");
         }
+        return getFilterCache(type).get(expression);
     }
 
     /**
@@ -108,15 +112,7 @@ public abstract class Filter<S extends Storable> implements Serializable, Append
      * @see OpenFilter
      */
     public static <S extends Storable> OpenFilter<S> getOpenFilter(Class<S> type) {
-        SoftValuedCache<Object, Filter<S>> filterCache = getFilterCache(type);
-        synchronized (filterCache) {
-            Filter<S> filter = filterCache.get(OPEN_KEY);
-            if (filter == null) {
-                filter = OpenFilter.getCanonical(type);
-                filterCache.put(OPEN_KEY, filter);
-            }
-            return (OpenFilter<S>) filter;
-        }
+        return (OpenFilter<S>) getFilterCache(type).get(OPEN_KEY);
     }
 
     /**
@@ -128,29 +124,42 @@ public abstract class Filter<S extends Storable> implements Serializable, Append
      * @see ClosedFilter
      */
     public static <S extends Storable> ClosedFilter<S> getClosedFilter(Class<S> type) {
-        SoftValuedCache<Object, Filter<S>> filterCache = getFilterCache(type);
-        synchronized (filterCache) {
-            Filter<S> filter = filterCache.get(CLOSED_KEY);
-            if (filter == null) {
-                filter = ClosedFilter.getCanonical(type);
-                filterCache.put(CLOSED_KEY, filter);
-            }
-            return (ClosedFilter<S>) filter;
-        }
+        return (ClosedFilter<S>) getFilterCache(type).get(CLOSED_KEY);
     }
 
     @SuppressWarnings("unchecked")
-    private static <S extends Storable> SoftValuedCache<Object, Filter<S>>
-        getFilterCache(Class<S> type)
+    private static <S extends Storable> FilterCache<S> getFilterCache(Class<S> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Storable type must not be null");
+        }
+        return (FilterCache<S>) cCache.get(type);
+    }
+
+    /**
+     * Softly maps filter expressions and special keys to filters of one type.
+     */
+    private static class FilterCache<S extends Storable>
+        extends ConcurrentCache<Object, Filter<S>, RuntimeException>
     {
-        synchronized (cCache) {
-            SoftValuedCache<Object, Filter<S>> filterCache =
-                (SoftValuedCache<Object, Filter<S>>) cCache.get(type);
-            if (filterCache == null) {
-                filterCache = SoftValuedCache.newCache(11);
-                cCache.put(type, filterCache);
+        // Weakly referenced to allow type to be unloaded.
+        private final WeakReference<Class<S>> mTypeRef;
+
+        FilterCache(Class<S> type) {
+            super(false, true);
+            mTypeRef = new WeakReference<Class<S>>(type);
+        }
+
+        @Override
+        protected Filter<S> create(Object key) {
+            // Type is strongly reachable, since caller passed it in.
+            Class<S> type = mTypeRef.get();
+            if (key == OPEN_KEY) {
+                return OpenFilter.getCanonical(type);
+            } else if (key == CLOSED_KEY) {
+                return ClosedFilter.getCanonical(type);
+            } else {
+                return new FilterParser<S>(type, (String) key).parseRoot();
             }
-            return filterCache;
         }
     }
 
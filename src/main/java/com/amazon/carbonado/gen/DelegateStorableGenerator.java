@@ -18,7 +18,9 @@
 
 package com.amazon.carbonado.gen;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 
 import org.cojen.classfile.ClassFile;
@@ -28,12 +30,11 @@ import org.cojen.classfile.Modifiers;
 import org.cojen.classfile.TypeDesc;
 
 import org.cojen.util.ClassInjector;
-import org.cojen.util.KeyFactory;
 
 import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.SupportException;
 
-import com.amazon.carbonado.util.SoftValuedCache;
+import com.amazon.carbonado.util.ConcurrentCache;
 
 /**
  * Generates and caches concrete implementations of {@link Storable} types
@@ -44,10 +45,25 @@ import com.amazon.carbonado.util.SoftValuedCache;
  * @since 1.2
  */
 public class DelegateStorableGenerator<S extends Storable> {
-    private static final SoftValuedCache<Object, Class> cCache;
+    private static final String PREGENERATED_KIND_PREFIX = "Delegate";
+
+    private static final ConcurrentCache<List<Object>, Class, SupportException> cCache;
 
     static {
-        cCache = SoftValuedCache.newCache(11);
+        cCache = new ConcurrentCache<List<Object>, Class, SupportException>(false, true) {
+            @Override
+            protected Class create(List<Object> key) throws SupportException {
+                Class type = (Class) key.get(0);
+                EnumSet<MasterFeature> features = (EnumSet<MasterFeature>) key.get(1);
+                Class generatedClass = PregeneratedClasses.find
+                    (type, PregeneratedClasses.kind(PREGENERATED_KIND_PREFIX, features));
+                if (generatedClass == null) {
+                    generatedClass = new DelegateStorableGenerator(type, features)
+                        .generateAndInjectClass();
+                }
+                return generatedClass;
+            }
+        };
     }
 
     /**
@@ -67,18 +83,10 @@ public class DelegateStorableGenerator<S extends Storable> {
             features = EnumSet.noneOf(MasterFeature.class);
         }
 
-        Object key = KeyFactory.createKey(new Object[] {type, features});
+        // Copy features, since they're used as part of the cache key.
+        List<Object> key = Arrays.<Object>asList(type, features.clone());
 
-        synchronized (cCache) {
-            Class<? extends S> generatedClass = (Class<? extends S>) cCache.get(key);
-            if (generatedClass != null) {
-                return generatedClass;
-            }
-            generatedClass = new DelegateStorableGenerator<S>(type, features)
-                .generateAndInjectClass();
-            cCache.put(key, generatedClass);
-            return generatedClass;
-        }
+        return (Class<? extends S>) cCache.get(key);
     }
 
     private final Class<S> mStorableType;
@@ -94,8 +102,9 @@ public class DelegateStorableGenerator<S extends Storable> {
         final Class<? extends S> abstractClass =
             MasterStorableGenerator.getAbstractClass(mStorableType, features);
 
-        mClassInjector = ClassInjector.create(mStorableType.getName(),
-                                              abstractClass.getClassLoader());
+        mClassInjector = PregeneratedClasses.createInjector
+            (mStorableType, PregeneratedClasses.kind(PREGENERATED_KIND_PREFIX, features),
+             abstractClass.getClassLoader());
 
         mClassFile = new ClassFile(mClassInjector.getClassName(), abstractClass);
         mClassFile.markSynthetic();
@@ -131,6 +140,7 @@ public class DelegateStorableGenerator<S extends Storable> {
         generateDelegatedMethod
             (MasterStorableGenerator.DO_TRY_DELETE_MASTER_METHOD_NAME, "doTryDelete");
 
+        PregeneratedClasses.record(mClassFile, mStorableType);
         Class<? extends S> generatedClass = mClassInjector.defineClass(mClassFile);
 
         return generatedClass;
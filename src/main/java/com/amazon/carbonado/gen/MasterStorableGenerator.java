@@ -23,6 +23,7 @@ import java.lang.reflect.Method;
 import java.math.BigDecimal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -37,7 +38,6 @@ import org.cojen.classfile.Modifiers;
 import org.cojen.classfile.Opcode;
 import org.cojen.classfile.TypeDesc;
 import org.cojen.util.ClassInjector;
-import org.cojen.util.KeyFactory;
 
 import com.amazon.carbonado.ConstraintException;
 import com.amazon.carbonado.IsolationLevel;
@@ -54,7 +54,7 @@ import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.sequence.SequenceValueProducer;
 
-import com.amazon.carbonado.util.SoftValuedCache;
+import com.amazon.carbonado.util.ConcurrentCache;
 
 import static com.amazon.carbonado.gen.CommonMethodNames.*;
 
@@ -88,9 +88,32 @@ public final class MasterStorableGenerator<S extends Storable> {
     private static final String UPDATE_OP = "Update";
     private static final String DELETE_OP = "Delete";
 
+    private static final String PREGENERATED_KIND_PREFIX = "Master";
+
     // Cache of generated abstract classes.
-    private static SoftValuedCache<Object, Class<? extends Storable>> cCache =
-        SoftValuedCache.newCache(11);
+    private static final ConcurrentCache<List<Object>, Class<? extends Storable>, SupportException>
+        cCache;
+
+    static {
+        cCache = new ConcurrentCache<List<Object>, Class<? extends Storable>, SupportException>
+            (false, true)
+        {
+            @Override
+            protected Class<? extends Storable> create(List<Object> key)
+                throws SupportException
+            {
+                Class type = (Class) key.get(0);
+                EnumSet<MasterFeature> features = (EnumSet<MasterFeature>) key.get(1);
+                Class<? extends Storable> abstractClass = PregeneratedClasses.find
+                    (type, PregeneratedClasses.kind(PREGENERATED_KIND_PREFIX, features));
+                if (abstractClass == null) {
+                    abstractClass =
+                        new MasterStorableGenerator(type, features).generateAndInjectClass();
+                }
+                return abstractClass;
+            }
+        };
+    }
 
     /**
      * Returns an abstract implementation of the given Storable type, which
@@ -217,18 +240,9 @@ public final class MasterStorableGenerator<S extends Storable> {
             features.add(MasterFeature.DELETE_TXN_FOR_UPDATE);
         }
 
-        Object key = KeyFactory.createKey(new Object[] {type, features});
+        List<Object> key = Arrays.<Object>asList(type, features);
 
-        synchronized (cCache) {
-            Class<? extends S> abstractClass = (Class<? extends S>) cCache.get(key);
-            if (abstractClass != null) {
-                return abstractClass;
-            }
-            abstractClass =
-                new MasterStorableGenerator<S>(type, features).generateAndInjectClass();
-            cCache.put(key, abstractClass);
-            return abstractClass;
-        }
+        return (Class<? extends S>) cCache.get(key);
     }
 
     private final EnumSet<MasterFeature> mFeatures;
@@ -245,8 +259,9 @@ public final class MasterStorableGenerator<S extends Storable> {
 
         final Class<? extends S> abstractClass = StorableGenerator.getAbstractClass(storableType);
 
-        mClassInjector = ClassInjector.create
-            (storableType.getName(), abstractClass.getClassLoader());
+        mClassInjector = PregeneratedClasses.createInjector
+            (storableType, PregeneratedClasses.kind(PREGENERATED_KIND_PREFIX, features),
+             abstractClass.getClassLoader());
 
         mClassFile = new ClassFile(mClassInjector.getClassName(), abstractClass);
         mClassFile.setModifiers(mClassFile.getModifiers().toAbstract(true));
@@ -257,6 +272,7 @@ public final class MasterStorableGenerator<S extends Storable> {
 
     private Class<? extends S> generateAndInjectClass() throws SupportException {
         generateClass();
+        PregeneratedClasses.record(mClassFile, mInfo.getStorableType());
         Class abstractClass = mClassInjector.defineClass(mClassFile);
         return (Class<? extends S>) abstractClass;
     }
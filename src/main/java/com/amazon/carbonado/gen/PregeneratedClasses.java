@@ -0,0 +1,377 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.gen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.LogFactory;
+
+import org.cojen.classfile.ClassFile;
+import org.cojen.classfile.Modifiers;
+import org.cojen.classfile.TypeDesc;
+import org.cojen.util.ClassInjector;
+import org.cojen.util.WeakIdentityMap;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Supports loading Storable implementation classes which were generated at
+ * build time, avoiding the cost of generating them when the application
+ * starts. Classes are pregenerated by running the {@link #main main} method,
+ * which writes class files for the given Storable types into a directory. The
+ * directory can then be packaged along with the Storable types.
+ *
+ * <p>Each pregenerated class records a fingerprint of the Storable type, the
+ * types it joins to, and the code generators. If the fingerprint doesn't
+ * match at runtime, the pregenerated class is ignored and the class is
+ * generated as usual. Pregenerated classes are found using the class loader
+ * of the Storable type.
+ *
+ * <p>For example, classes can be pregenerated with Maven by running the
+ * exec-maven-plugin "java" goal in the "process-classes" phase, passing the
+ * output directory and the Storable type names as arguments. Loading of
+ * pregenerated classes can be disabled by setting the system property
+ * "com.amazon.carbonado.gen.PregeneratedClasses.disabled" to "true".
+ *
+ * <p>Classes generated by {@link StorableGenerator}, {@link
+ * MasterStorableGenerator}, {@link DelegateStorableGenerator} and {@link
+ * com.amazon.carbonado.raw.RawStorableGenerator RawStorableGenerator} can be
+ * pregenerated. Classes which depend on database metadata or on stored
+ * layouts are always generated at runtime.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class PregeneratedClasses {
+    /** Name of public static String field which holds the fingerprint */
+    public static final String FINGERPRINT_FIELD_NAME = "fingerprint$";
+
+    private static final String NAME_SEPARATOR = "$$Pregen$";
+
+    private static final boolean cDisabled;
+
+    static {
+        String value = System.getProperty(PregeneratedClasses.class.getName() + ".disabled");
+        cDisabled = value != null && value.equals("true");
+    }
+
+    // Is non-null only when pregenerating classes.
+    private static volatile File cOutputDir;
+
+    private static Map<Class, String> cFingerprints;
+
+    static {
+        cFingerprints = new WeakIdentityMap();
+    }
+
+    /**
+     * Pregenerates classes for the given Storable types. The first argument
+     * is the output directory, and the rest are Storable type names. A type
+     * name argument which starts with '@' names a file which lists types, one
+     * per line.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: <output directory> <storable type name>...");
+            System.out.println("       <output directory> @<file of type names>...");
+            System.exit(1);
+        }
+
+        File outputDir = new File(args[0]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + outputDir);
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (int i=1; i<args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("@")) {
+                names.add(arg);
+                continue;
+            }
+            BufferedReader in = new BufferedReader(new FileReader(arg.substring(1)));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#")) {
+                        names.add(line);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        cOutputDir = outputDir;
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            for (String name : names) {
+                Class<? extends Storable> type =
+                    Class.forName(name, false, loader).asSubclass(Storable.class);
+                pregenerate(type);
+                System.out.println("Pregenerated classes for " + name);
+            }
+        } finally {
+            cOutputDir = null;
+        }
+    }
+
+    /**
+     * Generates the classes which the standard repositories require for the
+     * given type, using the same features that they do.
+     */
+    private static <S extends Storable> void pregenerate(Class<S> type) throws Exception {
+        StorableGenerator.getAbstractClass(type);
+
+        // Flavors used by BDB repositories.
+        com.amazon.carbonado.raw.RawStorableGenerator.getAbstractClass(type, true);
+        com.amazon.carbonado.raw.RawStorableGenerator.getAbstractClass(type, false);
+
+        // Flavors used by map repositories.
+        DelegateStorableGenerator.getDelegateClass
+            (type, EnumSet.of(MasterFeature.INSERT_CHECK_REQUIRED,
+                              MasterFeature.NORMALIZE,
+                              MasterFeature.VERSIONING,
+                              MasterFeature.INSERT_SEQUENCES));
+        DelegateStorableGenerator.getDelegateClass
+            (type, EnumSet.of(MasterFeature.INSERT_CHECK_REQUIRED,
+                              MasterFeature.NORMALIZE));
+    }
+
+    /**
+     * Returns a pregenerated class, or null if not found or if it doesn't
+     * match the given type.
+     *
+     * @param type Storable type
+     * @param kind kind of generated class, which is encoded in the class name
+     */
+    public static <S extends Storable> Class<? extends S> find(Class<S> type, String kind) {
+        if (cDisabled || cOutputDir != null) {
+            return null;
+        }
+
+        ClassLoader loader = type.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+
+        String name = className(type, kind);
+        if (loader.getResource(name.replace('.', '/') + ".class") == null) {
+            return null;
+        }
+
+        try {
+            Class<?> clazz = Class.forName(name, true, loader);
+            if (type.isAssignableFrom(clazz)) {
+                Object fingerprint = clazz.getField(FINGERPRINT_FIELD_NAME).get(null);
+                if (fingerprint != null && fingerprint.equals(fingerprint(type))) {
+                    return clazz.asSubclass(type);
+                }
+            }
+            LogFactory.getLog(PregeneratedClasses.class).info
+                ("Pregenerated class doesn't match and is ignored: " + name);
+        } catch (Throwable e) {
+            LogFactory.getLog(PregeneratedClasses.class).warn
+                ("Unable to load pregenerated class: " + name, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a kind which includes the given features.
+     */
+    public static String kind(String prefix, EnumSet<MasterFeature> features) {
+        long mask = 0;
+        for (MasterFeature feature : features) {
+            mask |= 1L << feature.ordinal();
+        }
+        return prefix + Long.toHexString(mask);
+    }
+
+    /**
+     * Returns an injector for a class of the given kind. When pregenerating,
+     * the class name is exactly the name that {@link #find find} looks for.
+     *
+     * @param loader parent class loader for injector
+     */
+    public static ClassInjector createInjector(Class<?> type, String kind, ClassLoader loader) {
+        if (cOutputDir == null) {
+            return ClassInjector.create(type.getName(), loader);
+        }
+        return ClassInjector.createExplicit(className(type, kind), loader);
+    }
+
+    /**
+     * When pregenerating, adds the fingerprint to the given class and writes
+     * it to the output directory. Call before defining the class.
+     */
+    public static void record(ClassFile cf, Class<?> type) {
+        File outputDir = cOutputDir;
+        if (outputDir == null) {
+            return;
+        }
+
+        String fingerprint = fingerprint(type);
+        if (fingerprint == null) {
+            throw new IllegalStateException
+                ("Unable to read class files for type: " + type.getName());
+        }
+
+        cf.addField(Modifiers.PUBLIC_STATIC.toFinal(true),
+                    FINGERPRINT_FIELD_NAME, TypeDesc.STRING).setConstantValue(fingerprint);
+
+        File file = new File(outputDir, cf.getClassName().replace('.', File.separatorChar)
+                             + ".class");
+        file.getParentFile().mkdirs();
+
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                cf.writeTo(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write class file: " + file, e);
+        }
+    }
+
+    private static String className(Class<?> type, String kind) {
+        return type.getName() + NAME_SEPARATOR + kind;
+    }
+
+    /**
+     * Returns a digest of the class files which affect generated code, or
+     * null if any cannot be read.
+     */
+    private static String fingerprint(Class<?> type) {
+        synchronized (cFingerprints) {
+            String fingerprint = cFingerprints.get(type);
+            if (fingerprint == null && !cFingerprints.containsKey(type)) {
+                fingerprint = computeFingerprint(type);
+                cFingerprints.put(type, fingerprint);
+            }
+            return fingerprint;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String computeFingerprint(Class<?> type) {
+        // Sorted by name, to ensure stable digest.
+        Map<String, Class<?>> classes = new TreeMap<String, Class<?>>();
+
+        classes.put(StorableGenerator.class.getName(), StorableGenerator.class);
+        classes.put(MasterStorableGenerator.class.getName(), MasterStorableGenerator.class);
+        classes.put(DelegateStorableGenerator.class.getName(), DelegateStorableGenerator.class);
+        classes.put(CodeBuilderUtil.class.getName(), CodeBuilderUtil.class);
+        classes.put(com.amazon.carbonado.raw.RawStorableGenerator.class.getName(),
+                    com.amazon.carbonado.raw.RawStorableGenerator.class);
+
+        addHierarchy(classes, type);
+
+        if (Storable.class.isAssignableFrom(type)) {
+            StorableInfo<?> info = StorableIntrospector.examine((Class<Storable>) type);
+            for (StorableProperty<?> property : info.getAllProperties().values()) {
+                if (property.isJoin()) {
+                    addHierarchy(classes, property.getJoinedType());
+                }
+            }
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+
+        byte[] buf = new byte[4096];
+        for (Class<?> clazz : classes.values()) {
+            ClassLoader loader = clazz.getClassLoader();
+            if (loader == null) {
+                loader = ClassLoader.getSystemClassLoader();
+            }
+            InputStream in = loader.getResourceAsStream
+                (clazz.getName().replace('.', '/') + ".class");
+            if (in == null) {
+                return null;
+            }
+            try {
+                try {
+                    int amt;
+                    while ((amt = in.read(buf)) > 0) {
+                        md.update(buf, 0, amt);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        StringBuilder b = new StringBuilder();
+        for (byte d : md.digest()) {
+            b.append(Character.forDigit((d >> 4) & 0xf, 16));
+            b.append(Character.forDigit(d & 0xf, 16));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Adds the given class and all of its superclasses and interfaces, except
+     * for those loaded by the bootstrap class loader.
+     */
+    private static void addHierarchy(Map<String, Class<?>> classes, Class<?> clazz) {
+        if (clazz == null || clazz.getClassLoader() == null ||
+            classes.containsKey(clazz.getName()))
+        {
+            return;
+        }
+        classes.put(clazz.getName(), clazz);
+        addHierarchy(classes, clazz.getSuperclass());
+        for (Class<?> iface : clazz.getInterfaces()) {
+            addHierarchy(classes, iface);
+        }
+    }
+
+    private PregeneratedClasses() {
+    }
+}
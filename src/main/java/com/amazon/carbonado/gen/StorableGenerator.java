@@ -21,8 +21,6 @@ package com.amazon.carbonado.gen;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -40,7 +38,6 @@ import org.cojen.classfile.Modifiers;
 import org.cojen.classfile.Opcode;
 import org.cojen.classfile.TypeDesc;
 import org.cojen.util.ClassInjector;
-import org.cojen.util.WeakIdentityMap;
 
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchNoneException;
@@ -72,6 +69,8 @@ import com.amazon.carbonado.raw.DataDecoder;
 import com.amazon.carbonado.raw.DataEncoder;
 import com.amazon.carbonado.raw.GenericEncodingStrategy;
 
+import com.amazon.carbonado.util.ConcurrentCache;
+
 import static com.amazon.carbonado.gen.CommonMethodNames.*;
 
 /**
@@ -192,10 +191,23 @@ public final class StorableGenerator<S extends Storable> {
     private static final String PRIVATE_DELETE_METHOD_NAME = "delete$";
 
     // Cache of generated abstract classes.
-    private static Map<Class, Reference<Class<? extends Storable>>> cAbstractCache;
+    private static final ConcurrentCache<Class, Class<? extends Storable>, RuntimeException>
+        cAbstractCache;
 
     static {
-        cAbstractCache = new WeakIdentityMap();
+        cAbstractCache = new ConcurrentCache<Class, Class<? extends Storable>, RuntimeException>
+            (true, true)
+        {
+            @Override
+            protected Class<? extends Storable> create(Class type) {
+                Class<? extends Storable> abstractClass =
+                    PregeneratedClasses.find(type, PREGENERATED_KIND);
+                if (abstractClass == null) {
+                    abstractClass = new StorableGenerator(type).generateAndInjectClass();
+                }
+                return abstractClass;
+            }
+        };
     }
 
     // When true, calls to get uninitialized properties throw an
@@ -215,6 +227,8 @@ public final class StorableGenerator<S extends Storable> {
 
     private static final String UNCAUGHT_METHOD_NAME = "uncaught$";
 
+    private static final String PREGENERATED_KIND = "Abstract";
+
     private static final String INSERT_OP = "Insert";
     private static final String UPDATE_OP = "Update";
     private static final String DELETE_OP = "Delete";
@@ -322,19 +336,7 @@ public final class StorableGenerator<S extends Storable> {
     public static <S extends Storable> Class<? extends S> getAbstractClass(Class<S> type)
         throws IllegalArgumentException
     {
-        synchronized (cAbstractCache) {
-            Class<? extends S> abstractClass;
-            Reference<Class<? extends Storable>> ref = cAbstractCache.get(type);
-            if (ref != null) {
-                abstractClass = (Class<? extends S>) ref.get();
-                if (abstractClass != null) {
-                    return abstractClass;
-                }
-            }
-            abstractClass = new StorableGenerator<S>(type).generateAndInjectClass();
-            cAbstractCache.put(type, new SoftReference<Class<? extends Storable>>(abstractClass));
-            return abstractClass;
-        }
+        return (Class<? extends S>) cAbstractCache.get(type);
     }
 
     private final Class<S> mStorableType;
@@ -351,8 +353,8 @@ public final class StorableGenerator<S extends Storable> {
         mInfo = StorableIntrospector.examine(storableType);
         mAllProperties = mInfo.getAllProperties();
 
-        mClassInjector = ClassInjector.create
-            (storableType.getName(), storableType.getClassLoader());
+        mClassInjector = PregeneratedClasses.createInjector
+            (storableType, PREGENERATED_KIND, storableType.getClassLoader());
         mClassFile = CodeBuilderUtil.createStorableClassFile
             (mClassInjector, storableType, true,
              StorableGenerator.class.getName());
@@ -360,6 +362,7 @@ public final class StorableGenerator<S extends Storable> {
 
     private Class<? extends S> generateAndInjectClass() {
         generateClass();
+        PregeneratedClasses.record(mClassFile, mStorableType);
         Class abstractClass = mClassInjector.defineClass(mClassFile);
         return abstractClass;
     }
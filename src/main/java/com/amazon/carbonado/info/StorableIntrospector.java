@@ -23,8 +23,6 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.lang.annotation.Annotation;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.TypeVariable;
@@ -51,7 +49,6 @@ import org.cojen.util.BeanComparator;
 import org.cojen.util.BeanProperty;
 import org.cojen.util.BeanIntrospector;
 import org.cojen.util.ThrowUnchecked;
-import org.cojen.util.WeakIdentityMap;
 
 import com.amazon.carbonado.Alias;
 import com.amazon.carbonado.AlternateKeys;
@@ -76,6 +73,7 @@ import com.amazon.carbonado.Version;
 import com.amazon.carbonado.adapter.AdapterDefinition;
 import com.amazon.carbonado.constraint.ConstraintDefinition;
 import com.amazon.carbonado.lob.Lob;
+import com.amazon.carbonado.util.ConcurrentCache;
 import com.amazon.carbonado.util.ConversionComparator;
 
 /**
@@ -91,8 +89,18 @@ import com.amazon.carbonado.util.ConversionComparator;
  */
 public class StorableIntrospector {
     // Weakly maps Class objects to softly referenced StorableInfo objects.
-    @SuppressWarnings("unchecked")
-    private static Map<Class<?>, Reference<StorableInfo<?>>> cCache = new WeakIdentityMap();
+    private static final ConcurrentCache<Class<?>, StorableInfo<?>, RuntimeException> cCache =
+        new ConcurrentCache<Class<?>, StorableInfo<?>, RuntimeException>(true, true);
+
+    // Examination is serialized by a common lock instead of per-type locks,
+    // because join properties can refer to each other in cycles. StorableInfo
+    // objects being examined are only visible to the examining thread, until
+    // the outermost examination has resolved all joins. Then all the types it
+    // examined are published together.
+    private static final Object cExamineLock = new Object();
+    private static final Map<Class<?>, StorableInfo<?>> cInProgress =
+        new HashMap<Class<?>, StorableInfo<?>>();
+    private static int cExamineDepth;
 
     private static final Class[] EMPTY_CLASSES_ARRAY = new Class[0];
 
@@ -159,225 +167,254 @@ public class StorableIntrospector {
         if (type == null) {
             throw new IllegalArgumentException("Storable type must not be null");
         }
-        synchronized (cCache) {
-            StorableInfo<S> info;
-            Reference<StorableInfo<?>> ref = cCache.get(type);
-            if (ref != null) {
-                info = (StorableInfo<S>) ref.get();
-                if (info != null) {
-                    return info;
+        StorableInfo<S> info = (StorableInfo<S>) cCache.peek(type);
+        if (info != null) {
+            return info;
+        }
+
+        synchronized (cExamineLock) {
+            info = (StorableInfo<S>) cCache.peek(type);
+            if (info == null) {
+                info = (StorableInfo<S>) cInProgress.get(type);
+                if (info == null) {
+                    cExamineDepth++;
+                    boolean success = false;
+                    try {
+                        info = examineUncached(type);
+                        success = true;
+                    } finally {
+                        if (!success) {
+                            cInProgress.remove(type);
+                        }
+                        if (--cExamineDepth == 0) {
+                            if (success) {
+                                for (Map.Entry<Class<?>, StorableInfo<?>> entry :
+                                         cInProgress.entrySet())
+                                {
+                                    cCache.put(entry.getKey(), entry.getValue());
+                                }
+                            }
+                            cInProgress.clear();
+                        }
+                    }
                 }
             }
+            return info;
+        }
+    }
 
-            List<String> errorMessages = new ArrayList<String>();
+    /**
+     * Caller must hold cExamineLock.
+     */
+    @SuppressWarnings("unchecked")
+    private static <S extends Storable> StorableInfo<S> examineUncached(Class<S> type) {
+        List<String> errorMessages = new ArrayList<String>();
 
-            // Pull these annotations out but finish processing later.
-            List<NameAndDirection> primaryKeyProps;
-            List<List<NameAndDirection>> alternateKeyProps;
-            List<List<NameAndDirection>> indexProps;
-            List<NameAndDirection> partitionKeyProps;
+        // Pull these annotations out but finish processing later.
+        List<NameAndDirection> primaryKeyProps;
+        List<List<NameAndDirection>> alternateKeyProps;
+        List<List<NameAndDirection>> indexProps;
+        List<NameAndDirection> partitionKeyProps;
 
-            {
-                try {
-                    primaryKeyProps = gatherListProperties(errorMessages,
-                                                           type.getAnnotation(PrimaryKey.class));
-                } catch (IndexOutOfBoundsException e) {
-                    errorMessages.add("No primary key defined");
-                    primaryKeyProps = Collections.emptyList();
-                }
+        {
+            try {
+                primaryKeyProps = gatherListProperties(errorMessages,
+                                                       type.getAnnotation(PrimaryKey.class));
+            } catch (IndexOutOfBoundsException e) {
+                errorMessages.add("No primary key defined");
+                primaryKeyProps = Collections.emptyList();
+            }
 
-                alternateKeyProps = gatherListProperties(errorMessages,
-                                                         type.getAnnotation(AlternateKeys.class));
+            alternateKeyProps = gatherListProperties(errorMessages,
+                                                     type.getAnnotation(AlternateKeys.class));
 
-                indexProps = gatherListProperties(errorMessages,
-                                                  type.getAnnotation(Indexes.class));
+            indexProps = gatherListProperties(errorMessages,
+                                              type.getAnnotation(Indexes.class));
 
-                partitionKeyProps = gatherListProperties(errorMessages,
-                                                         type.getAnnotation(PartitionKey.class));
-            }
+            partitionKeyProps = gatherListProperties(errorMessages,
+                                                     type.getAnnotation(PartitionKey.class));
+        }
 
-            // Get all the properties.
-            Map<String, StorableProperty<S>> properties =
-                examineProperties(type, primaryKeyProps, alternateKeyProps, partitionKeyProps);
+        // Get all the properties.
+        Map<String, StorableProperty<S>> properties =
+            examineProperties(type, primaryKeyProps, alternateKeyProps, partitionKeyProps);
 
-            // Resolve keys and indexes.
+        // Resolve keys and indexes.
 
-            StorableKey<S> primaryKey;
-            {
+        StorableKey<S> primaryKey;
+        {
+            Set<OrderedProperty<S>> propSet =
+                resolveKey(errorMessages, type, properties, "primary key", primaryKeyProps);
+            primaryKey = new SKey<S>(true, propSet);
+        }
+
+        StorableKey<S>[] alternateKeys;
+        {
+            alternateKeys = new StorableKey[alternateKeyProps.size()];
+            int i = 0;
+            for (List<NameAndDirection> nameAndDirs : alternateKeyProps) {
                 Set<OrderedProperty<S>> propSet =
-                    resolveKey(errorMessages, type, properties, "primary key", primaryKeyProps);
-                primaryKey = new SKey<S>(true, propSet);
+                    resolveKey(errorMessages, type, properties, "alternate key", nameAndDirs);
+                alternateKeys[i++] = new SKey<S>(false, propSet);
             }
+        }
 
-            StorableKey<S>[] alternateKeys;
-            {
-                alternateKeys = new StorableKey[alternateKeyProps.size()];
-                int i = 0;
-                for (List<NameAndDirection> nameAndDirs : alternateKeyProps) {
-                    Set<OrderedProperty<S>> propSet =
-                        resolveKey(errorMessages, type, properties, "alternate key", nameAndDirs);
-                    alternateKeys[i++] = new SKey<S>(false, propSet);
-                }
-            }
+        StorableKey<S> partitionKey = null;
+        if (partitionKeyProps != null) {
+            Set<OrderedProperty<S>> propSet =
+                resolveKey(errorMessages, type, properties, "partition key", partitionKeyProps);
+            partitionKey = new SKey<S>(false, propSet);
+        }
 
-            StorableKey<S> partitionKey = null;
-            if (partitionKeyProps != null) {
+        StorableIndex<S>[] indexes;
+        {
+            indexes = new StorableIndex[indexProps.size()];
+            int i = 0;
+            for (List<NameAndDirection> nameAndDirs : indexProps) {
+                int errorCount = errorMessages.size();
                 Set<OrderedProperty<S>> propSet =
-                    resolveKey(errorMessages, type, properties, "partition key", partitionKeyProps);
-                partitionKey = new SKey<S>(false, propSet);
-            }
-
-            StorableIndex<S>[] indexes;
-            {
-                indexes = new StorableIndex[indexProps.size()];
-                int i = 0;
-                for (List<NameAndDirection> nameAndDirs : indexProps) {
-                    int errorCount = errorMessages.size();
-                    Set<OrderedProperty<S>> propSet =
-                        resolveKey(errorMessages, type, properties, "index", nameAndDirs);
-                    if (errorMessages.size() <= errorCount) {
-                        // If index property not found, error message has been
-                        // added to list, but propSet might end up being
-                        // empty. Rather than get an exception thrown from the
-                        // StorableIndex constructor, just don't try to define
-                        // the bogus index at all.
-                        OrderedProperty<S>[] propArray = new OrderedProperty[propSet.size()];
-                        propSet.toArray(propArray);
-                        indexes[i] = new StorableIndex<S>(propArray, null);
-                    }
-                    i++;
+                    resolveKey(errorMessages, type, properties, "index", nameAndDirs);
+                if (errorMessages.size() <= errorCount) {
+                    // If index property not found, error message has been
+                    // added to list, but propSet might end up being
+                    // empty. Rather than get an exception thrown from the
+                    // StorableIndex constructor, just don't try to define
+                    // the bogus index at all.
+                    OrderedProperty<S>[] propArray = new OrderedProperty[propSet.size()];
+                    propSet.toArray(propArray);
+                    indexes[i] = new StorableIndex<S>(propArray, null);
                 }
+                i++;
             }
+        }
 
-            // Sort properties by name, grouped with primary keys first. This
-            // ensures a consistent arrangement, even if methods move around in
-            // the class file.
-            {
-                // Store results in a LinkedHashMap to preserve sort order.
-                Map<String, StorableProperty<S>> arrangedProperties =
-                    new LinkedHashMap<String, StorableProperty<S>>();
+        // Sort properties by name, grouped with primary keys first. This
+        // ensures a consistent arrangement, even if methods move around in
+        // the class file.
+        {
+            // Store results in a LinkedHashMap to preserve sort order.
+            Map<String, StorableProperty<S>> arrangedProperties =
+                new LinkedHashMap<String, StorableProperty<S>>();
 
-                // First dump in primary key properties, in their proper order.
-                for (OrderedProperty<S> orderedProp : primaryKey.getProperties()) {
-                    StorableProperty<S> prop = orderedProp.getChainedProperty().getPrimeProperty();
-                    arrangedProperties.put(prop.getName(), prop);
-                }
+            // First dump in primary key properties, in their proper order.
+            for (OrderedProperty<S> orderedProp : primaryKey.getProperties()) {
+                StorableProperty<S> prop = orderedProp.getChainedProperty().getPrimeProperty();
+                arrangedProperties.put(prop.getName(), prop);
+            }
 
-                // Gather all remaining properties, and then sort them.
-                List<StorableProperty<S>> nonPkProperties = new ArrayList<StorableProperty<S>>();
+            // Gather all remaining properties, and then sort them.
+            List<StorableProperty<S>> nonPkProperties = new ArrayList<StorableProperty<S>>();
 
-                for (StorableProperty<S> prop : properties.values()) {
-                    if (!arrangedProperties.containsKey(prop.getName())) {
-                        nonPkProperties.add(prop);
-                    }
+            for (StorableProperty<S> prop : properties.values()) {
+                if (!arrangedProperties.containsKey(prop.getName())) {
+                    nonPkProperties.add(prop);
                 }
+            }
 
-                Collections.sort(nonPkProperties,
-                                 BeanComparator.forClass(StorableProperty.class).orderBy("name"));
+            Collections.sort(nonPkProperties,
+                             BeanComparator.forClass(StorableProperty.class).orderBy("name"));
 
-                for (StorableProperty<S> prop : nonPkProperties) {
-                    arrangedProperties.put(prop.getName(), prop);
-                }
-
-                properties = Collections.unmodifiableMap(arrangedProperties);
+            for (StorableProperty<S> prop : nonPkProperties) {
+                arrangedProperties.put(prop.getName(), prop);
             }
 
-            // Process type aliases
+            properties = Collections.unmodifiableMap(arrangedProperties);
+        }
 
-            String[] aliases;
-            Alias alias = type.getAnnotation(Alias.class);
-            if (alias == null) {
-                aliases = null;
-            } else {
-                aliases = alias.value();
-                if (aliases.length == 0) {
-                    errorMessages.add("Alias list is empty");
-                }
+        // Process type aliases
+
+        String[] aliases;
+        Alias alias = type.getAnnotation(Alias.class);
+        if (alias == null) {
+            aliases = null;
+        } else {
+            aliases = alias.value();
+            if (aliases.length == 0) {
+                errorMessages.add("Alias list is empty");
             }
+        }
 
-            info = new Info<S>(type, aliases, indexes, properties,
-                               primaryKey, alternateKeys, partitionKey,
-                               type.getAnnotation(Independent.class) != null,
-                               type.getAnnotation(Authoritative.class) != null);
+        StorableInfo<S> info = new Info<S>(type, aliases, indexes, properties,
+                           primaryKey, alternateKeys, partitionKey,
+                           type.getAnnotation(Independent.class) != null,
+                           type.getAnnotation(Authoritative.class) != null);
 
-            cCache.put(type, new SoftReference<StorableInfo<?>>(info));
+        cInProgress.put(type, info);
 
-            // Now that the StorableInfo object has been constructed, assign it
-            // to all properties to prevent it from being prematurely uncached.
-            // Also assign number now that properties have been sorted.
-            {
-                int number = 0;
-                for (StorableProperty property : properties.values()) {
-                    if (property instanceof SimpleProperty) {
-                        SimpleProperty sp = (SimpleProperty) property;
-                        sp.setEnclosingInfo(info);
-                        sp.setNumber(number);
-                    }
-                    number++;
+        // Now that the StorableInfo object has been constructed, assign it
+        // to all properties to prevent it from being prematurely uncached.
+        // Also assign number now that properties have been sorted.
+        {
+            int number = 0;
+            for (StorableProperty property : properties.values()) {
+                if (property instanceof SimpleProperty) {
+                    SimpleProperty sp = (SimpleProperty) property;
+                    sp.setEnclosingInfo(info);
+                    sp.setNumber(number);
                 }
+                number++;
             }
+        }
 
-            // Finish resolving join properties, after properties have been
-            // added to cache. This makes it possible for joins to (directly or
-            // indirectly) reference their own enclosing type. If not resolved
-            // late, then there would be a stack overflow.
-            for (StorableProperty property : properties.values()) {
-                if (property instanceof JoinProperty) {
-                    ((JoinProperty)property).resolveJoin(errorMessages);
-                }
+        // Finish resolving join properties, after properties have been
+        // added to cache. This makes it possible for joins to (directly or
+        // indirectly) reference their own enclosing type. If not resolved
+        // late, then there would be a stack overflow.
+        for (StorableProperty property : properties.values()) {
+            if (property instanceof JoinProperty) {
+                ((JoinProperty)property).resolveJoin(errorMessages);
             }
+        }
 
-            // Resolve derived properties after join properties, since they may
-            // depend on them.
-            boolean anyDerived = false;
-            for (StorableProperty<S> property : properties.values()) {
-                if (property instanceof SimpleProperty && property.isDerived()) {
-                    anyDerived = true;
-                    ((SimpleProperty)property).resolveDerivedFrom(errorMessages);
-                }
+        // Resolve derived properties after join properties, since they may
+        // depend on them.
+        boolean anyDerived = false;
+        for (StorableProperty<S> property : properties.values()) {
+            if (property instanceof SimpleProperty && property.isDerived()) {
+                anyDerived = true;
+                ((SimpleProperty)property).resolveDerivedFrom(errorMessages);
             }
+        }
 
-            if (anyDerived && errorMessages.size() == 0) {
-                // Make sure that any indexes which refer to derived properties
-                // throwing FetchException have derived-from properties
-                // listed. Why? The exception likely indicates that a join
-                // property is being fetched.
+        if (anyDerived && errorMessages.size() == 0) {
+            // Make sure that any indexes which refer to derived properties
+            // throwing FetchException have derived-from properties
+            // listed. Why? The exception likely indicates that a join
+            // property is being fetched.
 
-                for (StorableIndex<S> index : indexes) {
-                    for (StorableProperty<S> property : index.getProperties()) {
-                        if (property.isDerived() && property.getReadMethod() != null &&
-                            property.getDerivedFromProperties().length == 0)
-                        {
-                            Class exceptionType = FetchException.class;
-
-                            Class<?>[] exceptions = property.getReadMethod().getExceptionTypes();
-                            boolean fetches = false;
-                            for (int i=exceptions.length; --i>=0; ) {
-                                if (exceptions[i].isAssignableFrom(exceptionType)) {
-                                    fetches = true;
-                                    break;
-                                }
+            for (StorableIndex<S> index : indexes) {
+                for (StorableProperty<S> property : index.getProperties()) {
+                    if (property.isDerived() && property.getReadMethod() != null &&
+                        property.getDerivedFromProperties().length == 0)
+                    {
+                        Class exceptionType = FetchException.class;
+
+                        Class<?>[] exceptions = property.getReadMethod().getExceptionTypes();
+                        boolean fetches = false;
+                        for (int i=exceptions.length; --i>=0; ) {
+                            if (exceptions[i].isAssignableFrom(exceptionType)) {
+                                fetches = true;
+                                break;
                             }
+                        }
 
-                            if (fetches) {
-                                errorMessages.add
-                                    ("Index refers to a derived property which declares " +
-                                     "throwing a FetchException, but property does not " +
-                                     "list any derived-from properties: \"" +
-                                     property.getName() + "'");
-                            }
+                        if (fetches) {
+                            errorMessages.add
+                                ("Index refers to a derived property which declares " +
+                                 "throwing a FetchException, but property does not " +
+                                 "list any derived-from properties: \"" +
+                                 property.getName() + "'");
                         }
                     }
                 }
             }
+        }
 
-            if (errorMessages.size() > 0) {
-                cCache.remove(type);
-                throw new MalformedTypeException(type, errorMessages);
-            }
-
-            return info;
+        if (errorMessages.size() > 0) {
+            throw new MalformedTypeException(type, errorMessages);
         }
+
+        return info;
     }
 
     /**
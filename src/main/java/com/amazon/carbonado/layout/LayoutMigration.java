@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.layout;
+
+import java.util.Map;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Re-encodes stored records of older layout generations into the current
+ * layout, in key order. Each batch of records is migrated in its own
+ * transaction, and the key of the last record examined is retained, allowing
+ * an interrupted migration to be resumed later. Triggers are not run, since
+ * the property values of migrated records don't change.
+ *
+ * <p>When a migration finishes, decoders for older generations are discarded.
+ *
+ * @author Brian S O'Neill
+ * @see LayoutMigrationCapability
+ * @since 1.2.6
+ */
+public interface LayoutMigration<S extends Storable> extends Runnable {
+    /**
+     * Returns the type of storable being migrated.
+     */
+    Class<S> getStorableType();
+
+    /**
+     * Returns the layout generation which records are migrated to.
+     */
+    int getCurrentGeneration();
+
+    /**
+     * Set the desired speed of the migration when run, which is 1.0 by
+     * default.
+     *
+     * @param desiredSpeed throttling parameter - 1.0 = full speed, 0.5 = half
+     * speed, 0.1 = one-tenth speed, etc
+     * @throws IllegalArgumentException if speed is not positive
+     */
+    void setDesiredSpeed(double desiredSpeed);
+
+    /**
+     * Set the maximum amount of records examined in each batch, which is 100
+     * by default.
+     *
+     * @throws IllegalArgumentException if size is less than one
+     */
+    void setBatchSize(int size);
+
+    /**
+     * Set the key to resume migration after, as returned by a prior call to
+     * {@link #getResumeKey}. Migration is resumed at the first record whose
+     * key is greater than the given key.
+     *
+     * @param key resume key, or null to start at the first record
+     */
+    void setResumeKey(byte[] key);
+
+    /**
+     * Returns the encoded key of the last record examined, or null if none
+     * examined yet. The key should be persisted by the caller if the
+     * migration must be resumable.
+     */
+    byte[] getResumeKey();
+
+    /**
+     * Migrates the next batch of records in a single transaction. This method
+     * doesn't throttle.
+     *
+     * @return false if migration has finished
+     */
+    boolean migrateBatch() throws RepositoryException;
+
+    /**
+     * Migrates all remaining records, throttled at the desired speed, until
+     * finished or stopped. Any exception is logged, and it stops the
+     * migration.
+     */
+    void run();
+
+    /**
+     * Requests that a running migration stop after the current batch. It can
+     * be resumed by calling run again.
+     */
+    void stop();
+
+    /**
+     * Returns true if all records have been examined.
+     */
+    boolean isFinished();
+
+    /**
+     * Returns the total amount of records examined so far.
+     */
+    long getExaminedCount();
+
+    /**
+     * Returns the total amount of records re-encoded so far.
+     */
+    long getMigratedCount();
+
+    /**
+     * Returns the amount of records re-encoded so far, keyed by the layout
+     * generation they were originally written with.
+     */
+    Map<Integer, Long> getMigratedCountsByGeneration();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.layout;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Capability to migrate stored records of older layout generations into the
+ * current layout. Records written under older generations can always be
+ * read, but decoding them is slower than decoding records of the current
+ * generation.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public interface LayoutMigrationCapability extends LayoutCapability {
+    /**
+     * Returns a new migration for the given type, which has not been
+     * started. Migrations are intended to be run in a background thread, and
+     * they don't block concurrent access to the storage.
+     *
+     * @param type type of storable to migrate
+     */
+    <S extends Storable> LayoutMigration<S> layoutMigration(Class<S> type)
+        throws RepositoryException;
+}
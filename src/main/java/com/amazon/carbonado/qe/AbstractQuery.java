@@ -21,6 +21,9 @@ package com.amazon.carbonado.qe;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
 
+import java.util.List;
+import java.util.Map;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchMultipleException;
@@ -135,6 +138,35 @@ public abstract class AbstractQuery<S extends Storable> implements Query<S>, App
         }
     }
 
+    @Override
+    public Object aggregate(Aggregate function, String property) throws FetchException {
+        return aggregate(function, property, (Controller) null);
+    }
+
+    @Override
+    public Object aggregate(Aggregate function, String property, Controller controller)
+        throws FetchException
+    {
+        return new QueryAggregator<S>(this, function, property).aggregate(controller);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy)
+        throws FetchException
+    {
+        return aggregateGroupBy(function, property, groupBy, null);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy, Controller controller)
+        throws FetchException
+    {
+        return new QueryAggregator<S>(this, function, property, groupBy)
+            .aggregateGroups(controller);
+    }
+
     @Override
     public boolean printNative() {
         try {
@@ -20,6 +20,8 @@ package com.amazon.carbonado.qe;
 
 import java.io.IOException;
 
+import java.util.Set;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.Query;
@@ -66,6 +68,23 @@ public class DelegatedQueryExecutor<S extends Storable> implements QueryExecutor
     public DelegatedQueryExecutor(Storage<S> rootStorage,
                                   Filter<S> filter, OrderingList<S> ordering)
         throws FetchException
+    {
+        this(rootStorage, filter, ordering, null);
+    }
+
+    /**
+     * @param rootStorage root storage to query
+     * @param filter optional query filter
+     * @param ordering optional ordering
+     * @param hints optional hints, of which only the projection and parallel
+     * hints are applied
+     * @throws IllegalArgumentException if rootStorage is null
+     * @since 1.2.6
+     */
+    public DelegatedQueryExecutor(Storage<S> rootStorage,
+                                  Filter<S> filter, OrderingList<S> ordering,
+                                  QueryHints hints)
+        throws FetchException
     {
         check(rootStorage);
 
@@ -82,6 +101,19 @@ public class DelegatedQueryExecutor<S extends Storable> implements QueryExecutor
             query = query.orderBy(ordering.asStringArray());
         }
 
+        if (hints != null) {
+            Set<String> projection = (Set<String>) hints.get(QueryHint.PROJECTION);
+            if (projection != null) {
+                query = query.select(projection.toArray(new String[projection.size()]));
+            }
+            if (hints.contains(QueryHint.PARALLEL)) {
+                query = query.parallel();
+            }
+            if (hints.contains(QueryHint.TRACE)) {
+                query = query.trace();
+            }
+        }
+
         mFilter = filter;
         mOrdering = ordering;
         mQuery = query;
@@ -46,6 +46,6 @@ public class DelegatedQueryExecutorFactory<S extends Storable> implements QueryE
     public QueryExecutor<S> executor(Filter<S> filter, OrderingList<S> ordering, QueryHints hints)
         throws FetchException
     {
-        return new DelegatedQueryExecutor<S>(mStorage, filter, ordering);
+        return new DelegatedQueryExecutor<S>(mStorage, filter, ordering, hints);
     }
 }
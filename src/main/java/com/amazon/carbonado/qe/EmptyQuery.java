@@ -20,6 +20,9 @@ package com.amazon.carbonado.qe;
 
 import java.io.IOException;
 
+import java.util.Collections;
+import java.util.Map;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.PersistNoneException;
@@ -31,6 +34,9 @@ import com.amazon.carbonado.cursor.EmptyCursor;
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
 /**
  * Special query implementation that fetches nothing.
  *
@@ -224,11 +230,63 @@ public final class EmptyQuery<S extends Storable> extends AbstractQuery<S> {
         return new EmptyQuery<S>(mFactory, properties);
     }
 
+    /**
+     * Returns this query, since nothing is ever loaded.
+     */
+    @Override
+    public Query<S> select(String... properties) {
+        if (properties != null) {
+            Map<String, ? extends StorableProperty<S>> all =
+                StorableIntrospector.examine(getStorableType()).getAllProperties();
+            for (String name : properties) {
+                if (name == null || !all.containsKey(name)) {
+                    throw new IllegalArgumentException("Property not found: " + name);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns this query, since nothing is ever fetched.
+     */
+    @Override
+    public Query<S> parallel() {
+        return this;
+    }
+
+    /**
+     * Returns this query, since nothing is ever fetched.
+     */
+    @Override
+    public Query<S> trace() {
+        return this;
+    }
+
     @Override
     public <T extends S> Query<S> after(T start) {
         return this;
     }
 
+    /**
+     * Always returns an empty last page.
+     */
+    @Override
+    public Page<S> fetchPage(String token, int size) {
+        return fetchPage(token, size, null);
+    }
+
+    /**
+     * Always returns an empty last page.
+     */
+    @Override
+    public Page<S> fetchPage(String token, int size, Controller controller) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        return new Page<S>(Collections.<S>emptyList(), null);
+    }
+
     /**
      * Always returns an {@link EmptyCursor}.
      */
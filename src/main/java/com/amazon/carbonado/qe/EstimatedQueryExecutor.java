@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.io.IOException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+import com.amazon.carbonado.info.StorableIndex;
+
+/**
+ * QueryExecutor which wraps another and annotates its query plan with the
+ * row and cost estimates derived from {@link IndexStatistics}. Estimates are
+ * recomputed for the filter values given to printPlan, allowing histograms
+ * to be consulted for values which weren't known when the plan was chosen.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class EstimatedQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    private final QueryExecutor<S> mExecutor;
+    private final IndexStatistics<S> mStats;
+    private final StorableIndex<S> mIndex;
+    private final CompositeScore<S> mScore;
+
+    /**
+     * @param executor executor to wrap
+     * @param stats statistics to estimate with
+     * @param index index scanned by the executor, or null for a full scan
+     * @param score score of the index, which for a full scan has no matches
+     * @throws IllegalArgumentException if executor, stats or score is null
+     */
+    public EstimatedQueryExecutor(QueryExecutor<S> executor, IndexStatistics<S> stats,
+                                  StorableIndex<S> index, CompositeScore<S> score)
+    {
+        if (executor == null || stats == null || score == null) {
+            throw new IllegalArgumentException();
+        }
+        mExecutor = executor;
+        mStats = stats;
+        mIndex = index;
+        mScore = score;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mExecutor.getStorableType();
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
+        return mExecutor.fetch(values);
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
+        throws FetchException
+    {
+        return mExecutor.fetch(values, controller);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        return mExecutor.fetchSlice(values, from, to);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        return mExecutor.fetchSlice(values, from, to, controller);
+    }
+
+    @Override
+    public long count(FilterValues<S> values) throws FetchException {
+        return mExecutor.count(values);
+    }
+
+    @Override
+    public long count(FilterValues<S> values, Query.Controller controller) throws FetchException {
+        return mExecutor.count(values, controller);
+    }
+
+    public Filter<S> getFilter() {
+        return mExecutor.getFilter();
+    }
+
+    public OrderingList<S> getOrdering() {
+        return mExecutor.getOrdering();
+    }
+
+    /**
+     * Returns the estimated number of rows read by the wrapped executor.
+     *
+     * @param values optional filter values
+     */
+    public double getEstimatedRows(FilterValues<S> values) {
+        return mStats.estimateScannedRows(mIndex, mScore.getFilteringScore(), values);
+    }
+
+    /**
+     * Returns the estimated cost of the wrapped executor.
+     *
+     * @param values optional filter values
+     */
+    public double getEstimatedCost(FilterValues<S> values) {
+        return mStats.estimateCost(mIndex, mScore, values);
+    }
+
+    /**
+     * Prints native query of the wrapped executor.
+     */
+    @Override
+    public boolean printNative(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        return mExecutor.printNative(app, indentLevel, values);
+    }
+
+    public boolean printPlan(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        double scanned = getEstimatedRows(values);
+        double matched = scanned * mStats.selectivity
+            (mScore.getFilteringScore().getRemainderFilter(), values);
+
+        indent(app, indentLevel);
+        app.append("estimate: ");
+        app.append(String.valueOf(Math.round(scanned)));
+        app.append(" rows read, ");
+        app.append(String.valueOf(Math.round(matched)));
+        app.append(" rows matched, cost ");
+        app.append(String.valueOf(Math.round(getEstimatedCost(values))));
+        newline(app);
+        indent(app, indentLevel);
+        app.append("...statistics: ");
+        app.append(String.valueOf(mStats.getRowCount()));
+        app.append(" rows, ");
+        app.append(String.valueOf(mStats.getSampleSize()));
+        app.append(" sampled");
+        newline(app);
+        mExecutor.printPlan(app, increaseIndent(indentLevel), values);
+        return true;
+    }
+}
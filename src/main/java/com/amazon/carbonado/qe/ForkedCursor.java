@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.qe;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.FeedCursor;
+
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * Cursor whose results are fetched by a single background thread.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see ParallelQueryExecutor
+ */
+class ForkedCursor<S extends Storable> extends FeedCursor<S> {
+    private final Runnable mTask;
+
+    /**
+     * @param executor executor to fetch from in the background
+     * @param values optional filter values
+     * @param from zero-based {@code from} argument of a slice
+     * @param to optional zero-based {@code to} argument of a slice
+     * @param controller optional controller which can abort query operation
+     * @param capacity maximum number of results to fetch ahead
+     */
+    ForkedCursor(QueryExecutor<S> executor, FilterValues<S> values, long from, Long to,
+                 Query.Controller controller, int capacity)
+    {
+        super(capacity);
+        mTask = new Traced(feed(new Fetch<S>(executor, values, from, to, controller)),
+                           QueryTrace.current());
+    }
+
+    /**
+     * Starts the background thread, returning false if the budget has no
+     * permit available.
+     */
+    boolean fork(ParallelExecution budget) {
+        return budget.tryExecute(mTask);
+    }
+
+    private static class Fetch<S extends Storable> implements FeedCursor.Source<S> {
+        private final QueryExecutor<S> mExecutor;
+        private final FilterValues<S> mValues;
+        private final long mFrom;
+        private final Long mTo;
+        private final Query.Controller mController;
+
+        Fetch(QueryExecutor<S> executor, FilterValues<S> values, long from, Long to,
+              Query.Controller controller)
+        {
+            mExecutor = executor;
+            mValues = values;
+            mFrom = from;
+            mTo = to;
+            mController = controller;
+        }
+
+        public Cursor<S> open() throws FetchException {
+            if (mFrom == 0 && mTo == null) {
+                return mController == null ? mExecutor.fetch(mValues)
+                    : mExecutor.fetch(mValues, mController);
+            }
+            return mController == null ? mExecutor.fetchSlice(mValues, mFrom, mTo)
+                : mExecutor.fetchSlice(mValues, mFrom, mTo, mController);
+        }
+    }
+
+    /**
+     * Runs a task such that stages it opens belong to the trace of the stage
+     * which forked the cursor, if any.
+     */
+    private static class Traced implements Runnable {
+        private final Runnable mTask;
+        private final QueryTrace mTrace;
+
+        Traced(Runnable task, QueryTrace trace) {
+            mTask = task;
+            mTrace = trace;
+        }
+
+        public void run() {
+            QueryTrace previous = QueryTrace.enter(mTrace);
+            try {
+                mTask.run();
+            } finally {
+                QueryTrace.exit(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.qe;
+
+import java.io.IOException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.HashIntersectionCursor;
+import com.amazon.carbonado.cursor.TransformedCursor;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * QueryExecutor which scans the entries of two indexes, intersects their
+ * primary keys, and then loads only the matching Storables. Neither index
+ * scan loads any master Storables. Results are in the order of the first
+ * index, and the primary keys of the second index are held in memory.
+ *
+ * <p>Index entries might be inconsistent with the loaded Storables, and so
+ * the full query filter should be applied to the results.
+ *
+ * <p>Both indexes must be unclustered, with entries stored apart from the
+ * Storables, such as the indexes maintained by an {@link
+ * com.amazon.carbonado.repo.indexed.IndexedRepositoryBuilder indexed
+ * repository}. Scanning a clustered index loads the Storables themselves,
+ * and so {@link IndexedQueryAnalyzer} never intersects clustered indexes.
+ * A MapRepository only has clustered indexes, and so its queries never use
+ * this executor.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see HashIntersectionCursor
+ */
+public class IndexIntersectionQueryExecutor<S extends Storable>
+    extends AbstractQueryExecutor<S>
+{
+    private final IndexedQueryExecutor<S> mFirst;
+    private final IndexedQueryExecutor<S> mSecond;
+
+    /**
+     * @param first partial executor for the first index, whose order is preserved
+     * @param second partial executor for the second index, which should
+     * produce fewer results
+     * @throws IllegalArgumentException if either executor is null or not partial
+     */
+    public IndexIntersectionQueryExecutor(IndexedQueryExecutor<S> first,
+                                          IndexedQueryExecutor<S> second)
+    {
+        if (first == null || second == null || !first.isPartial() || !second.isPartial()) {
+            throw new IllegalArgumentException();
+        }
+        mFirst = first;
+        mSecond = second;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mFirst.getStorableType();
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
+        return fetch(values, null);
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
+        throws FetchException
+    {
+        Cursor<S> first = mFirst.fetch(values, controller);
+        Cursor<S> second;
+        try {
+            second = mSecond.fetch(values, controller);
+        } catch (FetchException e) {
+            first.close();
+            throw e;
+        }
+
+        return new TransformedCursor<S, S>(new HashIntersectionCursor<S>(first, second)) {
+            @Override
+            protected S transform(S partial) throws FetchException {
+                S master = (S) partial.prepare();
+                partial.copyPrimaryKeyProperties(master);
+                // Skip if deleted since the index entry was read.
+                return master.tryLoad() ? master : null;
+            }
+        };
+    }
+
+    /**
+     * Returns the combined filter of the index scans.
+     */
+    public Filter<S> getFilter() {
+        return mFirst.getFilter().and(mSecond.getFilter());
+    }
+
+    /**
+     * Returns the ordering of the first index scan.
+     */
+    public OrderingList<S> getOrdering() {
+        return mFirst.getOrdering();
+    }
+
+    public boolean printPlan(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        indent(app, indentLevel);
+        app.append("index intersection");
+        newline(app);
+        mFirst.printPlan(app, increaseIndent(indentLevel), values);
+        mSecond.printPlan(app, increaseIndent(indentLevel), values);
+        return true;
+    }
+}
@@ -0,0 +1,662 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+import com.amazon.carbonado.filter.PropertyFilter;
+import com.amazon.carbonado.filter.RelOp;
+
+import com.amazon.carbonado.info.StorableIndex;
+
+/**
+ * Collected statistics over the indexes of a storable type, used by {@link
+ * IndexedQueryAnalyzer} to estimate how many rows a plan reads and to pick
+ * the cheapest one. Statistics are gathered by {@link IndexStatisticsSampler}
+ * and are {@link #publish published} for a repository, after which query
+ * plans built for that repository are costed instead of being chosen by the
+ * rule-based scores alone.
+ *
+ * <p>Costs are expressed in relative units, where reading one row from a
+ * clustered index or from a full scan costs one unit.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class IndexStatistics<S extends Storable> {
+    /** Cost of reading one row through an index which isn't clustered */
+    public static final double UNCLUSTERED_ROW_COST = 2.0;
+
+    /**
+     * Cost of reading one index entry without loading its row
+     *
+     * @since 1.2.6
+     */
+    public static final double INDEX_ENTRY_COST = 0.5;
+
+    /** Cost of one comparison performed by a sort */
+    public static final double SORT_COMPARE_COST = 0.1;
+
+    /** Default selectivity of an open range, used when no histogram applies */
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    /** Default selectivity of a closed range, used when no histogram applies */
+    public static final double DEFAULT_BETWEEN_SELECTIVITY = 1.0 / 4;
+
+    /** Default selectivity of an equality test on a property with no statistics */
+    public static final double DEFAULT_EQUALITY_SELECTIVITY = 1.0 / 10;
+
+    private static final Map<Repository, Map<Class<?>, IndexStatistics<?>>> cPublished =
+        new WeakHashMap<Repository, Map<Class<?>, IndexStatistics<?>>>();
+
+    /**
+     * Makes the given statistics available to query planners of the given
+     * repository, replacing any statistics previously published for the
+     * same type. Cached query plans aren't affected until they are rebuilt.
+     *
+     * @param repo root repository
+     * @param stats statistics to publish
+     */
+    public static void publish(Repository repo, IndexStatistics<?> stats) {
+        if (repo == null || stats == null) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (cPublished) {
+            Map<Class<?>, IndexStatistics<?>> map = cPublished.get(repo);
+            if (map == null) {
+                map = new HashMap<Class<?>, IndexStatistics<?>>();
+                cPublished.put(repo, map);
+            }
+            map.put(stats.getStorableType(), stats);
+        }
+    }
+
+    /**
+     * Removes any statistics published for the given type, restoring
+     * rule-based query planning for it.
+     *
+     * @param repo root repository
+     * @param type storable type
+     */
+    public static void unpublish(Repository repo, Class<?> type) {
+        synchronized (cPublished) {
+            Map<Class<?>, IndexStatistics<?>> map = cPublished.get(repo);
+            if (map != null) {
+                map.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics published for the given type, or null if none.
+     *
+     * @param repo root repository
+     * @param type storable type
+     */
+    public static <S extends Storable> IndexStatistics<S> lookup(Repository repo, Class<S> type) {
+        synchronized (cPublished) {
+            Map<Class<?>, IndexStatistics<?>> map = cPublished.get(repo);
+            return map == null ? null : (IndexStatistics<S>) map.get(type);
+        }
+    }
+
+    /**
+     * Returns the name under which statistics for the given index are kept,
+     * which is the comma separated list of its property names. Directions
+     * and other index features have no bearing on the statistics.
+     */
+    public static String indexName(StorableIndex<?> index) {
+        StringBuilder b = new StringBuilder();
+        for (int i=0; i<index.getPropertyCount(); i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append(index.getProperty(i).getName());
+        }
+        return b.toString();
+    }
+
+    private final Class<S> mType;
+    private final long mRowCount;
+    private final int mSampleSize;
+    private final long mSampleTime;
+    private final Map<String, Entry> mEntries;
+
+    /**
+     * @param type storable type
+     * @param rowCount total number of rows
+     * @param sampleSize number of rows the statistics were computed from
+     * @param sampleTime time at which the sample was taken, in milliseconds
+     * @param entries maps {@link #indexName index names} to entries
+     */
+    public IndexStatistics(Class<S> type, long rowCount, int sampleSize, long sampleTime,
+                           Map<String, Entry> entries)
+    {
+        if (type == null || rowCount < 0) {
+            throw new IllegalArgumentException();
+        }
+        mType = type;
+        mRowCount = rowCount;
+        mSampleSize = sampleSize;
+        mSampleTime = sampleTime;
+        mEntries = entries == null ? Collections.<String, Entry>emptyMap()
+            : Collections.unmodifiableMap(new HashMap<String, Entry>(entries));
+    }
+
+    public Class<S> getStorableType() {
+        return mType;
+    }
+
+    /**
+     * Returns the total number of rows at the time the sample was taken.
+     */
+    public long getRowCount() {
+        return mRowCount;
+    }
+
+    public int getSampleSize() {
+        return mSampleSize;
+    }
+
+    /**
+     * Returns the time at which the sample was taken, in milliseconds.
+     */
+    public long getSampleTime() {
+        return mSampleTime;
+    }
+
+    /**
+     * Returns all entries, keyed by {@link #indexName index name}.
+     */
+    public Map<String, Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Returns the entry for the given index, or null if none.
+     */
+    public Entry getEntry(StorableIndex<?> index) {
+        return mEntries.get(indexName(index));
+    }
+
+    /**
+     * Estimates the number of rows read by scanning the given index with the
+     * filtering described by the given score. If the index is null, a full
+     * scan is estimated.
+     *
+     * @param index index to scan, or null for a full scan
+     * @param score filtering score for the index
+     * @param values optional filter values, used for consulting histograms
+     */
+    public double estimateScannedRows(StorableIndex<S> index, FilteringScore<S> score,
+                                      FilterValues<S> values)
+    {
+        if (index == null || score == null) {
+            return mRowCount;
+        }
+        if (score.isKeyMatch()) {
+            return Math.min(1, mRowCount);
+        }
+
+        double selectivity = 1.0;
+        Entry entry = getEntry(index);
+
+        int identityCount = score.getIdentityCount();
+        if (identityCount > 0) {
+            if (entry != null) {
+                selectivity = 1.0 / Math.max(1, entry.getCardinality(identityCount));
+                PropertyFilter<S> leading = score.getIdentityFilters().get(0);
+                double eq = entry.equalitySelectivity(value(leading, values));
+                if (!Double.isNaN(eq)) {
+                    // Histogram knows the leading value. Scale by the
+                    // conditional selectivity of the remaining properties.
+                    selectivity = eq * entry.getCardinality(1)
+                        / Math.max(1, entry.getCardinality(identityCount));
+                }
+            } else {
+                selectivity = Math.pow(DEFAULT_EQUALITY_SELECTIVITY, identityCount);
+            }
+        }
+
+        if (score.hasRangeMatch()) {
+            double range = Double.NaN;
+            if (identityCount == 0 && entry != null) {
+                range = entry.rangeSelectivity
+                    (score.getRangeStartFilters(), score.getRangeEndFilters(), values);
+            }
+            if (Double.isNaN(range)) {
+                range = (score.hasRangeStart() && score.hasRangeEnd())
+                    ? DEFAULT_BETWEEN_SELECTIVITY : DEFAULT_RANGE_SELECTIVITY;
+            }
+            selectivity *= range;
+        }
+
+        return mRowCount * selectivity;
+    }
+
+    /**
+     * Estimates the number of rows which pass the given filter, which may
+     * be null.
+     *
+     * @param filter optional filter
+     * @param values optional filter values, used for consulting histograms
+     */
+    public double estimateMatchedRows(Filter<S> filter, FilterValues<S> values) {
+        return mRowCount * selectivity(filter, values);
+    }
+
+    /**
+     * Estimates the cost of executing a plan which scans the given index
+     * according to the given score, applies any remainder filter, and sorts
+     * by any remainder ordering.
+     *
+     * @param index index to scan, or null for a full scan
+     * @param score score for the index, whose remainder filter and ordering
+     * are applied after the scan
+     * @param values optional filter values, used for consulting histograms
+     */
+    public double estimateCost(StorableIndex<S> index, CompositeScore<S> score,
+                               FilterValues<S> values)
+    {
+        FilteringScore<S> fScore = score.getFilteringScore();
+        double scanned = estimateScannedRows(index, fScore, values);
+
+        double cost = scanned;
+        if (index != null && !index.isClustered() && !fScore.isKeyMatch()) {
+            cost *= UNCLUSTERED_ROW_COST;
+        }
+
+        if (score.getOrderingScore().getRemainderCount() > 0) {
+            double matched = scanned * selectivity(fScore.getRemainderFilter(), values);
+            if (matched > 1) {
+                cost += matched * (Math.log(matched) / Math.log(2)) * SORT_COMPARE_COST;
+            }
+        }
+
+        return cost;
+    }
+
+    /**
+     * Estimates the cost of a plan which scans the entries of two indexes,
+     * intersects their primary keys, and then loads only the matching rows.
+     * Matches are estimated by assuming that the two index filters are
+     * independent. Ordering is provided by the first index.
+     *
+     * @param first first index to scan, whose order is preserved
+     * @param score score for the first index, whose remainder filter and
+     * ordering are applied after loading
+     * @param second second index to scan
+     * @param secondScore filtering score for the second index
+     * @param values optional filter values, used for consulting histograms
+     * @since 1.2.6
+     */
+    public double estimateIntersectionCost(StorableIndex<S> first, CompositeScore<S> score,
+                                           StorableIndex<S> second,
+                                           FilteringScore<S> secondScore,
+                                           FilterValues<S> values)
+    {
+        FilteringScore<S> fScore = score.getFilteringScore();
+        double firstScanned = estimateScannedRows(first, fScore, values);
+        double secondScanned = estimateScannedRows(second, secondScore, values);
+
+        double matched = mRowCount <= 0 ? 0
+            : firstScanned * (secondScanned / mRowCount);
+
+        // Index entries are read in order, but matched rows are loaded randomly.
+        double cost = (firstScanned + secondScanned) * INDEX_ENTRY_COST
+            + matched * UNCLUSTERED_ROW_COST;
+
+        if (score.getOrderingScore().getRemainderCount() > 0) {
+            matched *= selectivity(secondScore.getRemainderFilter(), values);
+            if (matched > 1) {
+                cost += matched * (Math.log(matched) / Math.log(2)) * SORT_COMPARE_COST;
+            }
+        }
+
+        return cost;
+    }
+
+    /**
+     * Returns the estimated fraction of rows which pass the given filter.
+     */
+    double selectivity(Filter<S> filter, FilterValues<S> values) {
+        if (filter == null || filter.isOpen()) {
+            return 1.0;
+        }
+        if (filter.isClosed()) {
+            return 0.0;
+        }
+        double selectivity = 1.0;
+        for (Filter<S> conjunct : filter.conjunctiveNormalFormSplit()) {
+            if (conjunct instanceof PropertyFilter) {
+                selectivity *= selectivity((PropertyFilter<S>) conjunct, values);
+            } else {
+                // Disjunction or exists test, for which nothing is known.
+                selectivity *= 0.5;
+            }
+        }
+        return selectivity;
+    }
+
+    private double selectivity(PropertyFilter<S> filter, FilterValues<S> values) {
+        Entry entry = null;
+        if (filter.getChainedProperty().getChainCount() == 0) {
+            entry = leadingEntry(filter.getChainedProperty().getPrimeProperty().getName());
+        }
+
+        RelOp op = filter.getOperator();
+        if (op == RelOp.EQ || op == RelOp.NE) {
+            double eq = DEFAULT_EQUALITY_SELECTIVITY;
+            if (entry != null) {
+                eq = entry.equalitySelectivity(value(filter, values));
+                if (Double.isNaN(eq)) {
+                    eq = 1.0 / Math.max(1, entry.getCardinality(1));
+                }
+            }
+            return op == RelOp.EQ ? eq : 1.0 - eq;
+        }
+
+        if (entry != null) {
+            double range;
+            if (op == RelOp.GT || op == RelOp.GE) {
+                range = entry.rangeSelectivity
+                    (Collections.singletonList(filter), null, values);
+            } else {
+                range = entry.rangeSelectivity
+                    (null, Collections.singletonList(filter), values);
+            }
+            if (!Double.isNaN(range)) {
+                return range;
+            }
+        }
+
+        return DEFAULT_RANGE_SELECTIVITY;
+    }
+
+    /**
+     * Returns an entry for an index whose leading property is the one given,
+     * preferring the entry with the most properties.
+     */
+    private Entry leadingEntry(String propertyName) {
+        Entry best = null;
+        for (Map.Entry<String, Entry> e : mEntries.entrySet()) {
+            String name = e.getKey();
+            if (name.equals(propertyName) || name.startsWith(propertyName.concat(","))) {
+                Entry entry = e.getValue();
+                if (best == null || entry.getHistogram() != null && best.getHistogram() == null) {
+                    best = entry;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the value a property filter tests against, or NO_VALUE if not
+     * known.
+     */
+    private Object value(PropertyFilter<S> filter, FilterValues<S> values) {
+        if (filter.isConstant()) {
+            return filter.constant();
+        }
+        if (values != null && values.isAssigned(filter)) {
+            return values.getValue(filter);
+        }
+        return Entry.NO_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexStatistics {type=" + mType.getName() + ", rowCount=" + mRowCount +
+            ", sampleSize=" + mSampleSize + ", entries=" + mEntries + '}';
+    }
+
+    /**
+     * Statistics for a single index.
+     */
+    public static class Entry {
+        static final Object NO_VALUE = new Object();
+
+        private final long[] mCardinalities;
+        private final double mNullFraction;
+        private final Object[] mHistogram;
+
+        /**
+         * @param cardinalities estimated number of distinct values of each
+         * leading prefix of the index properties; element zero is for the
+         * first property alone, element one is for the first two, and so on
+         * @param nullFraction fraction of rows whose first property is null
+         * @param histogram optional equi-depth histogram bounds over the
+         * non-null values of the first property, in ascending natural order.
+         * Each pair of adjacent bounds delimits an equal share of the rows.
+         */
+        public Entry(long[] cardinalities, double nullFraction, Object[] histogram) {
+            if (cardinalities == null || cardinalities.length == 0) {
+                throw new IllegalArgumentException();
+            }
+            mCardinalities = cardinalities.clone();
+            mNullFraction = nullFraction;
+            mHistogram = (histogram == null || histogram.length < 2) ? null : histogram.clone();
+        }
+
+        /**
+         * Returns the number of index properties statistics were kept for.
+         */
+        public int getPropertyCount() {
+            return mCardinalities.length;
+        }
+
+        /**
+         * Returns the estimated number of distinct values of the given
+         * number of leading index properties.
+         *
+         * @param prefixLength number of leading properties, at least one
+         */
+        public long getCardinality(int prefixLength) {
+            return mCardinalities[Math.min(prefixLength, mCardinalities.length) - 1];
+        }
+
+        public double getNullFraction() {
+            return mNullFraction;
+        }
+
+        /**
+         * Returns a copy of the histogram bounds, or null if none.
+         */
+        public Object[] getHistogram() {
+            return mHistogram == null ? null : mHistogram.clone();
+        }
+
+        /**
+         * Returns the fraction of rows whose first property equals the given
+         * value, or NaN if not known.
+         */
+        double equalitySelectivity(Object value) {
+            if (value == NO_VALUE) {
+                return Double.NaN;
+            }
+            if (value == null) {
+                return mNullFraction;
+            }
+            if (mHistogram == null) {
+                return Double.NaN;
+            }
+            int buckets = mHistogram.length - 1;
+            int matches = 0;
+            for (Object bound : mHistogram) {
+                int c = compare(bound, value);
+                if (c == Integer.MIN_VALUE) {
+                    return Double.NaN;
+                }
+                if (c == 0) {
+                    matches++;
+                }
+            }
+            double nonNull = 1.0 - mNullFraction;
+            if (matches >= 2) {
+                // Frequent value which spans buckets.
+                return nonNull * (matches - 1) / buckets;
+            }
+            if (compare(mHistogram[0], value) > 0 || compare(mHistogram[buckets], value) < 0) {
+                // Outside the sampled range.
+                return nonNull / Math.max(1, getCardinality(1)) / 2;
+            }
+            return nonNull / Math.max(1, getCardinality(1));
+        }
+
+        /**
+         * Returns the fraction of rows whose first property falls within the
+         * given range, or NaN if not known.
+         */
+        <S extends Storable> double rangeSelectivity(List<PropertyFilter<S>> start,
+                                                     List<PropertyFilter<S>> end,
+                                                     FilterValues<S> values)
+        {
+            if (mHistogram == null) {
+                return Double.NaN;
+            }
+
+            double low = 0.0;
+            if (start != null) {
+                for (PropertyFilter<S> filter : start) {
+                    double f = fractionBelow(filter, values, filter.getOperator() == RelOp.GT);
+                    if (Double.isNaN(f)) {
+                        return Double.NaN;
+                    }
+                    low = Math.max(low, f);
+                }
+            }
+
+            double high = 1.0;
+            if (end != null) {
+                for (PropertyFilter<S> filter : end) {
+                    double f = fractionBelow(filter, values, filter.getOperator() == RelOp.LE);
+                    if (Double.isNaN(f)) {
+                        return Double.NaN;
+                    }
+                    high = Math.min(high, f);
+                }
+            }
+
+            // A narrow range still matches at least one distinct value.
+            return (1.0 - mNullFraction)
+                * Math.max(1.0 / Math.max(1, getCardinality(1)), high - low);
+        }
+
+        /**
+         * Returns the fraction of non-null values below the filter value,
+         * optionally including values equal to it.
+         */
+        private <S extends Storable> double fractionBelow(PropertyFilter<S> filter,
+                                                          FilterValues<S> values,
+                                                          boolean inclusive)
+        {
+            Object value;
+            if (filter.isConstant()) {
+                value = filter.constant();
+            } else if (values != null && values.isAssigned(filter)) {
+                value = values.getValue(filter);
+            } else {
+                return Double.NaN;
+            }
+            if (value == null) {
+                return Double.NaN;
+            }
+
+            int buckets = mHistogram.length - 1;
+            int below = 0;
+            int equal = 0;
+            for (Object bound : mHistogram) {
+                int c = compare(bound, value);
+                if (c == Integer.MIN_VALUE) {
+                    return Double.NaN;
+                }
+                if (c < 0) {
+                    below++;
+                } else if (c == 0) {
+                    equal++;
+                }
+            }
+
+            double fraction;
+            if (below == 0) {
+                fraction = 0.0;
+            } else if (below > buckets) {
+                fraction = 1.0;
+            } else {
+                // Value falls within bucket below - 1. Interpolate numbers,
+                // and otherwise assume half of the bucket.
+                double within = 0.5;
+                Object lo = mHistogram[below - 1];
+                Object hi = mHistogram[below];
+                if (value instanceof Number && lo instanceof Number && hi instanceof Number) {
+                    double span = ((Number) hi).doubleValue() - ((Number) lo).doubleValue();
+                    if (span > 0) {
+                        within = (((Number) value).doubleValue()
+                                  - ((Number) lo).doubleValue()) / span;
+                    }
+                }
+                fraction = (below - 1 + within) / buckets;
+            }
+
+            if (inclusive) {
+                fraction += equal >= 2 ? (double) (equal - 1) / buckets
+                    : 1.0 / Math.max(1, getCardinality(1));
+            } else if (equal >= 2) {
+                fraction = (double) below / buckets;
+            }
+
+            return Math.min(1.0, fraction);
+        }
+
+        /**
+         * Returns Integer.MIN_VALUE if values cannot be compared.
+         */
+        private static int compare(Object a, Object b) {
+            try {
+                int c = ((Comparable) a).compareTo(b);
+                return c < 0 ? -1 : (c > 0 ? 1 : 0);
+            } catch (ClassCastException e) {
+                return Integer.MIN_VALUE;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder();
+            b.append("{cardinalities=");
+            b.append(Arrays.toString(mCardinalities));
+            b.append(", nullFraction=").append(mNullFraction);
+            if (mHistogram != null) {
+                b.append(", buckets=").append(mHistogram.length - 1);
+            }
+            return b.append('}').toString();
+        }
+    }
+}
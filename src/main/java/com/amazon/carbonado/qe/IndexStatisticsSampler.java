@@ -0,0 +1,464 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.capability.IndexInfo;
+import com.amazon.carbonado.capability.IndexInfoCapability;
+
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+
+/**
+ * Gathers {@link IndexStatistics} by sampling the rows of a storable type,
+ * stores them as {@link StoredIndexStatistics} in the repository, and
+ * publishes them to the query planner. Each refresh scans all the rows to
+ * count them, but only a fixed size reservoir sample is retained for
+ * estimating the cardinality of each index prefix and for building an
+ * equi-depth histogram of each leading index property.
+ *
+ * <p>Statistics are published for the repository given to the sampler,
+ * which should be the root repository. Cached query plans are rebuilt after
+ * each refresh when the repository exposes its query engines, and otherwise
+ * pick up the statistics when they are next rebuilt.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class IndexStatisticsSampler {
+    public static final int DEFAULT_SAMPLE_SIZE = 10000;
+
+    public static final int DEFAULT_BUCKET_COUNT = 20;
+
+    private final Repository mRepository;
+    private final int mSampleSize;
+    private final int mBucketCount;
+
+    private final Random mRandom = new Random();
+
+    private final List<Thread> mRefreshers = new ArrayList<Thread>();
+
+    /**
+     * @param repo root repository to sample and to store statistics in
+     */
+    public IndexStatisticsSampler(Repository repo) {
+        this(repo, DEFAULT_SAMPLE_SIZE, DEFAULT_BUCKET_COUNT);
+    }
+
+    /**
+     * @param repo root repository to sample and to store statistics in
+     * @param sampleSize maximum number of rows to sample
+     * @param bucketCount number of histogram buckets per leading index property
+     */
+    public IndexStatisticsSampler(Repository repo, int sampleSize, int bucketCount) {
+        if (repo == null || sampleSize <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+        mRepository = repo;
+        mSampleSize = sampleSize;
+        mBucketCount = bucketCount;
+    }
+
+    /**
+     * Samples the rows of the given type, stores and publishes the resulting
+     * statistics, and rebuilds cached query plans.
+     *
+     * @return the new statistics
+     */
+    public <S extends Storable> IndexStatistics<S> refresh(Class<S> type)
+        throws RepositoryException
+    {
+        long sampleTime = System.currentTimeMillis();
+
+        List<S> sample = new ArrayList<S>();
+        long rowCount = 0;
+
+        Cursor<S> cursor = mRepository.storageFor(type).query().fetch();
+        try {
+            Random rnd = mRandom;
+            while (cursor.hasNext()) {
+                S row = cursor.next();
+                // Reservoir sampling retains each row with equal probability.
+                if (rowCount < mSampleSize) {
+                    sample.add(row);
+                } else {
+                    long slot = (long) (rnd.nextDouble() * (rowCount + 1));
+                    if (slot < mSampleSize) {
+                        sample.set((int) slot, row);
+                    }
+                }
+                rowCount++;
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<String, IndexStatistics.Entry> entries =
+            new LinkedHashMap<String, IndexStatistics.Entry>();
+        for (StorableIndex<S> index : indexesFor(type)) {
+            String name = IndexStatistics.indexName(index);
+            if (!entries.containsKey(name)) {
+                entries.put(name, analyze(index, sample, rowCount));
+            }
+        }
+
+        IndexStatistics<S> stats =
+            new IndexStatistics<S>(type, rowCount, sample.size(), sampleTime, entries);
+
+        store(stats);
+        publish(stats);
+
+        return stats;
+    }
+
+    /**
+     * Loads previously stored statistics for the given type and publishes
+     * them, returning null if none are stored.
+     */
+    public <S extends Storable> IndexStatistics<S> load(Class<S> type)
+        throws RepositoryException
+    {
+        Cursor<StoredIndexStatistics> cursor = mRepository.storageFor(StoredIndexStatistics.class)
+            .query("storableType = ?").with(type.getName()).fetch();
+
+        Map<String, IndexStatistics.Entry> entries =
+            new LinkedHashMap<String, IndexStatistics.Entry>();
+        long rowCount = 0;
+        int sampleSize = 0;
+        long sampleTime = 0;
+
+        try {
+            while (cursor.hasNext()) {
+                StoredIndexStatistics stored = cursor.next();
+                rowCount = stored.getRowCount();
+                sampleSize = stored.getSampleSize();
+                sampleTime = stored.getSampleTime();
+                entries.put(stored.getIndexName(), decode(stored));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        IndexStatistics<S> stats =
+            new IndexStatistics<S>(type, rowCount, sampleSize, sampleTime, entries);
+
+        publish(stats);
+
+        return stats;
+    }
+
+    /**
+     * Starts a background thread which refreshes statistics for the given
+     * type at a fixed period, until {@link #close closed}. Failed refreshes
+     * are logged and retried at the next period.
+     */
+    public synchronized void scheduleRefresh(final Class<? extends Storable> type,
+                                             long period, TimeUnit unit)
+    {
+        final long millis = unit.toMillis(period);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+
+        Thread t = new Thread(getClass().getSimpleName() + " (" + type.getName() + ')') {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(millis);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    try {
+                        refresh(type);
+                    } catch (ThreadDeath e) {
+                        break;
+                    } catch (Throwable e) {
+                        if (isInterrupted()) {
+                            break;
+                        }
+                        LogFactory.getLog(IndexStatisticsSampler.class)
+                            .error("Index statistics refresh failed", e);
+                    }
+                }
+            }
+        };
+
+        t.setDaemon(true);
+        mRefreshers.add(t);
+        t.start();
+    }
+
+    /**
+     * Stops all scheduled refreshes. Published statistics remain in effect.
+     */
+    public synchronized void close() {
+        for (Thread t : mRefreshers) {
+            t.interrupt();
+        }
+        mRefreshers.clear();
+    }
+
+    private <S extends Storable> Collection<StorableIndex<S>> indexesFor(Class<S> type)
+        throws RepositoryException
+    {
+        Set<StorableIndex<S>> indexes = new LinkedHashSet<StorableIndex<S>>();
+
+        StorableInfo<S> info = StorableIntrospector.examine(type);
+        indexes.add(new StorableIndex<S>(info.getPrimaryKey(), Direction.ASCENDING));
+
+        if (mRepository instanceof RepositoryAccess) {
+            indexes.addAll(((RepositoryAccess) mRepository).storageAccessFor(type)
+                           .getAllIndexes());
+        } else {
+            IndexInfoCapability cap = mRepository.getCapability(IndexInfoCapability.class);
+            if (cap != null) {
+                for (IndexInfo indexInfo : cap.getIndexInfo(type)) {
+                    indexes.add(new StorableIndex<S>(type, indexInfo));
+                }
+            }
+        }
+
+        return indexes;
+    }
+
+    private <S extends Storable> IndexStatistics.Entry analyze(StorableIndex<S> index,
+                                                               List<S> sample,
+                                                               long rowCount)
+    {
+        int propertyCount = index.getPropertyCount();
+        long[] cardinalities = new long[propertyCount];
+
+        for (int prefix = 1; prefix <= propertyCount; prefix++) {
+            Map<List<Object>, Integer> counts = new HashMap<List<Object>, Integer>();
+            for (S row : sample) {
+                List<Object> key = new ArrayList<Object>(prefix);
+                for (int i=0; i<prefix; i++) {
+                    key.add(keyValue(row.getPropertyValue(index.getProperty(i).getName())));
+                }
+                Integer count = counts.get(key);
+                counts.put(key, count == null ? 1 : (count + 1));
+            }
+
+            int distinct = counts.size();
+            int singletons = 0;
+            for (Integer count : counts.values()) {
+                if (count == 1) {
+                    singletons++;
+                }
+            }
+
+            cardinalities[prefix - 1] = estimateDistinct(sample.size(), rowCount,
+                                                         distinct, singletons);
+        }
+
+        String leading = index.getProperty(0).getName();
+        List<Comparable> values = new ArrayList<Comparable>(sample.size());
+        int nulls = 0;
+        for (S row : sample) {
+            Object value = row.getPropertyValue(leading);
+            if (value == null) {
+                nulls++;
+            } else if (values != null) {
+                if (value instanceof Comparable) {
+                    values.add((Comparable) value);
+                } else {
+                    // Histograms require a natural ordering.
+                    values = null;
+                }
+            }
+        }
+
+        double nullFraction = sample.isEmpty() ? 0.0 : ((double) nulls) / sample.size();
+
+        Object[] histogram = null;
+        if (values != null && values.size() >= 2) {
+            Comparable[] sorted = values.toArray(new Comparable[values.size()]);
+            Arrays.sort(sorted);
+            int buckets = Math.min(mBucketCount, sorted.length - 1);
+            histogram = new Object[buckets + 1];
+            for (int i=0; i<=buckets; i++) {
+                histogram[i] = sorted[(int) (((long) i * (sorted.length - 1)) / buckets)];
+            }
+        }
+
+        return new IndexStatistics.Entry(cardinalities, nullFraction, histogram);
+    }
+
+    /**
+     * Estimates the number of distinct values in the full population, using
+     * the Duj1 estimator of Haas et al. It is exact when the sample contains
+     * all rows.
+     */
+    private static long estimateDistinct(int sampleSize, long rowCount,
+                                         int distinct, int singletons)
+    {
+        if (sampleSize == 0 || rowCount <= sampleSize) {
+            return distinct;
+        }
+        double n = sampleSize;
+        double denominator = n - singletons + singletons * n / rowCount;
+        long estimate = Math.round(n * distinct / denominator);
+        return Math.max(distinct, Math.min(rowCount, estimate));
+    }
+
+    private static Object keyValue(Object value) {
+        // Arrays don't define equality by content.
+        return value instanceof byte[] ? ByteBuffer.wrap((byte[]) value) : value;
+    }
+
+    private <S extends Storable> void store(IndexStatistics<S> stats)
+        throws RepositoryException
+    {
+        Storage<StoredIndexStatistics> storage =
+            mRepository.storageFor(StoredIndexStatistics.class);
+        String typeName = stats.getStorableType().getName();
+
+        Transaction txn = mRepository.enterTransaction();
+        try {
+            storage.query("storableType = ?").with(typeName).deleteAll();
+
+            for (Map.Entry<String, IndexStatistics.Entry> e : stats.getEntries().entrySet()) {
+                IndexStatistics.Entry entry = e.getValue();
+
+                StoredIndexStatistics stored = storage.prepare();
+                stored.setStorableType(typeName);
+                stored.setIndexName(e.getKey());
+                stored.setRowCount(stats.getRowCount());
+                stored.setSampleSize(stats.getSampleSize());
+                stored.setSampleTime(stats.getSampleTime());
+
+                StringBuilder b = new StringBuilder();
+                for (int i=1; i<=entry.getPropertyCount(); i++) {
+                    if (i > 1) {
+                        b.append(',');
+                    }
+                    b.append(entry.getCardinality(i));
+                }
+                stored.setCardinalities(b.toString());
+                stored.setNullFraction(entry.getNullFraction());
+                stored.setHistogram(encodeHistogram(entry.getHistogram()));
+
+                stored.insert();
+            }
+
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+    }
+
+    private void publish(IndexStatistics<?> stats) throws RepositoryException {
+        IndexStatistics.publish(mRepository, stats);
+
+        if (mRepository instanceof RepositoryAccess) {
+            QueryExecutorFactory<?> factory = ((RepositoryAccess) mRepository)
+                .storageAccessFor(stats.getStorableType()).getQueryExecutorFactory();
+            if (factory instanceof StandardQueryFactory) {
+                ((StandardQueryFactory<?>) factory).resetExecutors();
+            }
+        }
+    }
+
+    /**
+     * @return null if histogram is null or contains values which cannot be encoded
+     */
+    private static byte[] encodeHistogram(Object[] histogram) {
+        if (histogram == null) {
+            return null;
+        }
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bout);
+            out.writeInt(histogram.length);
+            for (Object bound : histogram) {
+                QueryPaginator.writeValue(out, bound);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Unsupported property type. Estimates fall back to cardinality.
+            return null;
+        }
+        return bout.toByteArray();
+    }
+
+    private static IndexStatistics.Entry decode(StoredIndexStatistics stored)
+        throws CorruptEncodingException
+    {
+        String[] split = stored.getCardinalities().split(",");
+        long[] cardinalities = new long[split.length];
+        Object[] histogram = null;
+
+        try {
+            for (int i=0; i<split.length; i++) {
+                cardinalities[i] = Long.parseLong(split[i]);
+            }
+
+            byte[] encoded = stored.getHistogram();
+            if (encoded != null) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+                histogram = new Object[in.readInt()];
+                for (int i=0; i<histogram.length; i++) {
+                    histogram[i] = QueryPaginator.readValue(in);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new CorruptEncodingException("Malformed index statistics: " + stored, e);
+        } catch (IOException e) {
+            throw new CorruptEncodingException("Malformed index statistics: " + stored, e);
+        }
+
+        return new IndexStatistics.Entry(cardinalities, stored.getNullFraction(), histogram);
+    }
+}
@@ -23,8 +23,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.RepositoryException;
@@ -32,13 +34,16 @@ import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.SupportException;
 
+import com.amazon.carbonado.filter.ExistsFilter;
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.PropertyFilter;
 import com.amazon.carbonado.filter.RelOp;
+import com.amazon.carbonado.filter.Visitor;
 
 import com.amazon.carbonado.info.ChainedProperty;
 import com.amazon.carbonado.info.OrderedProperty;
 import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableIntrospector;
 import com.amazon.carbonado.info.StorableProperty;
 
 /**
@@ -50,6 +55,11 @@ import com.amazon.carbonado.info.StorableProperty;
  * particular Storable type can be cached, avoiding repeated construction
  * cost. In addition, the analyzer caches learned foreign indexes.
  *
+ * <p>When {@link IndexStatistics} have been published for the Storable
+ * type, local indexes are selected by estimated cost instead, and a full
+ * scan is selected if it's estimated to be cheaper than any index. Rule-based
+ * selection is still used for queries which intend to consume a slice.
+ *
  * @author Brian S O'Neill
  * @see UnionQueryAnalyzer
  */
@@ -97,17 +107,28 @@ public class IndexedQueryAnalyzer<S extends Storable> {
 
         final Comparator<CompositeScore<?>> fullComparator = CompositeScore.fullComparator(hints);
 
+        final IndexStatistics<S> stats = statistics(hints);
+        double bestLocalCost = 0;
+
         Collection<StorableIndex<S>> localIndexes = indexesFor(getStorableType());
         if (localIndexes != null) {
             for (StorableIndex<S> index : localIndexes) {
                 CompositeScore<S> candidateScore =
                     CompositeScore.evaluate(index, filter, ordering);
 
+                double candidateCost = 0;
+                if (stats != null) {
+                    candidateCost = stats.estimateCost(index, candidateScore, null);
+                }
+
                 if (bestLocalScore == null
-                    || fullComparator.compare(candidateScore, bestLocalScore) < 0)
+                    || candidateCost < bestLocalCost
+                    || (candidateCost == bestLocalCost
+                        && fullComparator.compare(candidateScore, bestLocalScore) < 0))
                 {
                     bestLocalScore = candidateScore;
                     bestLocalIndex = index;
+                    bestLocalCost = candidateCost;
                 }
             }
         }
@@ -175,6 +196,20 @@ public class IndexedQueryAnalyzer<S extends Storable> {
         CompositeScore bestScore;
 
         if (bestLocalScore != null) {
+            if (stats != null) {
+                Result intersection = intersection
+                    (filter, hints, stats, localIndexes, bestLocalIndex, bestLocalScore,
+                     bestLocalCost);
+                double cost = intersection == null
+                    ? bestLocalCost : intersection.getEstimatedCost();
+                Result full = fullScan(filter, ordering, hints);
+                if (full.getEstimatedCost() < cost) {
+                    return full;
+                }
+                if (intersection != null) {
+                    return intersection;
+                }
+            }
             bestScore = bestLocalScore;
             bestForeignIndex = null;
             bestForeignProperty = null;
@@ -187,6 +222,75 @@ public class IndexedQueryAnalyzer<S extends Storable> {
             (filter, bestScore, bestLocalIndex, bestForeignIndex, bestForeignProperty, hints);
     }
 
+    /**
+     * Returns a result which intersects the given index with another one
+     * which handles some of its remainder filter, or null if no intersection
+     * is estimated to be cheaper. Only unclustered indexes whose entries can
+     * be scanned without loading master Storables are considered, and so
+     * intersections are only planned for indexes maintained by an {@link
+     * com.amazon.carbonado.repo.indexed.IndexedRepositoryBuilder indexed
+     * repository}. A MapRepository, for example, only has clustered indexes.
+     */
+    private Result intersection(Filter<S> filter, QueryHints hints, IndexStatistics<S> stats,
+                                Collection<StorableIndex<S>> indexes,
+                                StorableIndex<S> index, CompositeScore<S> score, double cost)
+        throws SupportException, RepositoryException
+    {
+        FilteringScore<S> fScore = score.getFilteringScore();
+        Filter<S> remainder = fScore.getRemainderFilter();
+        if (remainder == null || !fScore.hasAnyMatches() || fScore.isKeyMatch()) {
+            return null;
+        }
+
+        StorageAccess<S> access = mRepoAccess.storageAccessFor(mType);
+        if (!hasIndexEntries(access, index)) {
+            return null;
+        }
+
+        StorableIndex<S> bestIndex = null;
+        CompositeScore<S> bestScore = null;
+
+        for (StorableIndex<S> candidate : indexes) {
+            if (candidate.equals(index)) {
+                continue;
+            }
+            // Evaluate against the remainder, to only handle what the first
+            // index doesn't.
+            CompositeScore<S> candidateScore = CompositeScore.evaluate(candidate, remainder, null);
+            if (!candidateScore.getFilteringScore().hasAnyMatches()
+                || !hasIndexEntries(access, candidate))
+            {
+                continue;
+            }
+            double candidateCost = stats.estimateIntersectionCost
+                (index, score, candidate, candidateScore.getFilteringScore(), null);
+            if (candidateCost < cost) {
+                bestIndex = candidate;
+                bestScore = candidateScore;
+                cost = candidateCost;
+            }
+        }
+
+        if (bestIndex == null) {
+            return null;
+        }
+
+        return new Result(filter, score, index, null, null, hints, bestIndex, bestScore);
+    }
+
+    /**
+     * Returns true if the index is unclustered and is scanned through
+     * separate index entries, as opposed to being delegated to the storage
+     * of the Storables.
+     */
+    private static <S extends Storable> boolean hasIndexEntries(StorageAccess<S> access,
+                                                               StorableIndex<S> index)
+        throws FetchException
+    {
+        return !index.isClustered()
+            && access.storageDelegate(index) == null && access.indexEntryQuery(index) != null;
+    }
+
     /**
      * @return null if no foreign indexes for property
      */
@@ -284,6 +388,59 @@ public class IndexedQueryAnalyzer<S extends Storable> {
         return mRepoAccess.storageAccessFor(type).getAllIndexes();
     }
 
+    /**
+     * Returns a result which performs a full scan, applying the entire filter
+     * and ordering to every row.
+     *
+     * @param filter optional filter, which may contain logical 'or' operations
+     * @param ordering optional properties which define desired ordering
+     * @param hints optional query hints
+     * @since 1.2.6
+     */
+    public Result fullScan(Filter<S> filter, OrderingList<S> ordering, QueryHints hints) {
+        // Score against an index with no properties, which handles nothing.
+        // The filter is only passed along when it's a simple conjunction,
+        // allowing orderings on identity properties to be dropped.
+        Filter<S> scoreFilter = null;
+        if (filter != null) {
+            List<Filter<S>> split = filter.disjunctiveNormalFormSplit();
+            if (split.size() == 1) {
+                scoreFilter = split.get(0);
+            }
+        }
+
+        CompositeScore<S> score = CompositeScore.evaluate
+            ((OrderedProperty<S>[]) new OrderedProperty[0], false, false, scoreFilter, ordering);
+
+        if (filter != null) {
+            score = score.withRemainderFilter(filter);
+        }
+
+        return new Result(filter, score, null, null, null, hints);
+    }
+
+    /**
+     * Returns the statistics published for the Storable type, or null if none
+     * or if the hints call for rule-based index selection.
+     */
+    IndexStatistics<S> statistics(QueryHints hints) {
+        if (hints != null && hints.contains(QueryHint.CONSUME_SLICE)) {
+            return null;
+        }
+        return IndexStatistics.lookup(mRepoAccess.getRootRepository(), mType);
+    }
+
+    /**
+     * Returns the repository-wide parallelism budget, or null if the hints
+     * don't call for parallel execution.
+     */
+    ParallelExecution parallelism(QueryHints hints) {
+        if (hints == null || !hints.contains(QueryHint.PARALLEL)) {
+            return null;
+        }
+        return ParallelExecution.forRepository(mRepoAccess.getRootRepository());
+    }
+
     public class Result {
         private final Filter<S> mFilter;
 
@@ -293,12 +450,27 @@ public class IndexedQueryAnalyzer<S extends Storable> {
         private final ChainedProperty<S> mForeignProperty;
         private final QueryHints mHints;
 
+        private final StorableIndex<S> mIntersectedIndex;
+        private final CompositeScore<S> mIntersectedScore;
+
         Result(Filter<S> filter,
                CompositeScore<S> score,
                StorableIndex<S> localIndex,
                StorableIndex<?> foreignIndex,
                ChainedProperty<S> foreignProperty,
                QueryHints hints)
+        {
+            this(filter, score, localIndex, foreignIndex, foreignProperty, hints, null, null);
+        }
+
+        Result(Filter<S> filter,
+               CompositeScore<S> score,
+               StorableIndex<S> localIndex,
+               StorableIndex<?> foreignIndex,
+               ChainedProperty<S> foreignProperty,
+               QueryHints hints,
+               StorableIndex<S> intersectedIndex,
+               CompositeScore<S> intersectedScore)
         {
             mFilter = filter;
             mScore = score;
@@ -306,6 +478,8 @@ public class IndexedQueryAnalyzer<S extends Storable> {
             mForeignIndex = foreignIndex;
             mForeignProperty = foreignProperty;
             mHints = hints;
+            mIntersectedIndex = intersectedIndex;
+            mIntersectedScore = intersectedScore;
         }
 
         /**
@@ -362,6 +536,17 @@ public class IndexedQueryAnalyzer<S extends Storable> {
             return mLocalIndex;
         }
 
+        /**
+         * Returns the index whose primary keys are intersected with those of
+         * the local index, or null if none. The intersected index handles
+         * part of the local index's remainder filter.
+         *
+         * @since 1.2.6
+         */
+        public StorableIndex<S> getIntersectedIndex() {
+            return mIntersectedIndex;
+        }
+
         /**
          * Returns the foreign index that was selected, or null if a local
          * index was selected. If a foreign index has been selected, then a
@@ -390,6 +575,25 @@ public class IndexedQueryAnalyzer<S extends Storable> {
                 || (mForeignIndex != null && mForeignIndex.isClustered());
         }
 
+        /**
+         * Returns the estimated cost of executing this result, or NaN if no
+         * {@link IndexStatistics} apply. Foreign index costs are not estimated.
+         *
+         * @since 1.2.6
+         */
+        public double getEstimatedCost() {
+            IndexStatistics<S> stats = statistics(mHints);
+            if (stats == null || mForeignIndex != null) {
+                return Double.NaN;
+            }
+            if (mIntersectedIndex != null) {
+                return stats.estimateIntersectionCost
+                    (mLocalIndex, mScore, mIntersectedIndex,
+                     mIntersectedScore.getFilteringScore(), null);
+            }
+            return stats.estimateCost(handlesAnything() ? mLocalIndex : null, mScore, null);
+        }
+
         /**
          * Returns true if the given result uses the same index as this, and in
          * the same way. The only allowed differences are in the remainder
@@ -504,10 +708,13 @@ public class IndexedQueryAnalyzer<S extends Storable> {
             if (localIndex != null) {
                 Storage<S> delegate = localAccess.storageDelegate(localIndex);
                 if (delegate != null) {
-                    return new DelegatedQueryExecutor<S>(delegate, getFilter(), getOrdering());
+                    return new DelegatedQueryExecutor<S>
+                        (delegate, getFilter(), getOrdering(), mHints);
                 }
             }
 
+            localAccess = projectedAccess(localAccess);
+
             Filter<S> remainderFilter = getRemainderFilter();
 
             QueryExecutor<S> executor;
@@ -515,25 +722,50 @@ public class IndexedQueryAnalyzer<S extends Storable> {
                 executor = new FullScanQueryExecutor<S>(localAccess);
             } else if (localIndex == null) {
                 // Use foreign executor.
-                return JoinedQueryExecutor.build
-                    (mRepoAccess, getForeignProperty(), getFilter(), getOrdering(), mHints);
+                return TracingQueryExecutor.wrap
+                    (JoinedQueryExecutor.build
+                     (mRepoAccess, getForeignProperty(), getFilter(), getOrdering(), mHints),
+                     mHints);
             } else {
                 CompositeScore<S> score = getCompositeScore();
                 FilteringScore<S> fScore = score.getFilteringScore();
                 if (fScore.isKeyMatch()) {
                     executor = new KeyQueryExecutor<S>(localAccess, localIndex, fScore);
+                } else if (mIntersectedIndex != null) {
+                    executor = new IndexIntersectionQueryExecutor<S>
+                        (new IndexedQueryExecutor<S>(localAccess, localIndex, score, true),
+                         new IndexedQueryExecutor<S>
+                         (localAccess, mIntersectedIndex, mIntersectedScore, true));
+                    // Index entries aren't checked for consistency, so check
+                    // everything against the loaded Storables.
+                    remainderFilter = getFilter();
                 } else {
                     IndexedQueryExecutor ixExecutor =
                         new IndexedQueryExecutor<S>(localAccess, localIndex, score);
-                    executor = ixExecutor;
                     if (ixExecutor.getCoveringFilter() != null) {
                         remainderFilter = fScore.getCoveringRemainderFilter();
                     }
+                    if (isProjectionCovered(localIndex, remainderFilter)) {
+                        ixExecutor = new IndexedQueryExecutor<S>
+                            (localAccess, localIndex, score, true);
+                    }
+                    executor = ixExecutor;
                 }
             }
 
+            boolean keyMatch = executor instanceof KeyQueryExecutor;
+            executor = TracingQueryExecutor.wrap(executor, mHints);
+
             if (remainderFilter != null) {
                 executor = new FilteredQueryExecutor<S>(executor, remainderFilter);
+                executor = TracingQueryExecutor.wrap(executor, mHints);
+            }
+
+            if (isScanParallel()) {
+                // Scan and filter in one background thread, ahead of any
+                // sort. The scan isn't split, since its order must be kept.
+                executor = new ParallelQueryExecutor<S>(executor, parallelism());
+                executor = TracingQueryExecutor.wrap(executor, mHints);
             }
 
             OrderingList<S> remainderOrdering = getRemainderOrdering();
@@ -543,18 +775,175 @@ public class IndexedQueryAnalyzer<S extends Storable> {
                      executor,
                      getCompositeScore().getOrderingScore().getHandledOrdering(),
                      remainderOrdering);
+                executor = TracingQueryExecutor.wrap(executor, mHints);
+            }
+
+            IndexStatistics<S> stats = statistics(mHints);
+            if (stats != null && !keyMatch && mIntersectedIndex == null) {
+                executor = new EstimatedQueryExecutor<S>
+                    (executor, stats, handlesAnything() ? localIndex : null, getCompositeScore());
             }
 
             return executor;
         }
 
+        /**
+         * Returns the parallelism budget if the hints call for parallel
+         * execution, or else null.
+         */
+        ParallelExecution parallelism() {
+            return IndexedQueryAnalyzer.this.parallelism(mHints);
+        }
+
+        /**
+         * Returns true if the executor created by this result already scans
+         * in a background thread, in which case it must not be wrapped again.
+         */
+        boolean isScanParallel() {
+            return parallelism() != null
+                && !getCompositeScore().getFilteringScore().hasAnyMatches();
+        }
+
+        /**
+         * Returns the hints this result was analyzed with, which may be null.
+         */
+        QueryHints hints() {
+            return mHints;
+        }
+
+        /**
+         * Returns access which only loads the projected properties and the
+         * properties needed for filtering and ordering, if the query has a
+         * projection hint.
+         */
+        private StorageAccess<S> projectedAccess(StorageAccess<S> access) {
+            if (mHints == null) {
+                return access;
+            }
+            Set<String> projection = (Set<String>) mHints.get(QueryHint.PROJECTION);
+            if (projection == null) {
+                return access;
+            }
+
+            final Set<String> loaded = new HashSet<String>(projection);
+
+            for (OrderedProperty<S> property : getOrdering()) {
+                if (!addLoaded(loaded, property.getChainedProperty())) {
+                    return access;
+                }
+            }
+
+            Filter<S> filter = getFilter();
+            if (filter != null) {
+                final boolean[] supported = {true};
+                filter.accept(new Visitor<S, Object, Object>() {
+                    @Override
+                    public Object visit(PropertyFilter<S> filter, Object param) {
+                        if (!addLoaded(loaded, filter.getChainedProperty())) {
+                            supported[0] = false;
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Object visit(ExistsFilter<S> filter, Object param) {
+                        supported[0] = false;
+                        return null;
+                    }
+                }, null);
+                if (!supported[0]) {
+                    return access;
+                }
+            }
+
+            return access.projectedAccess(Collections.unmodifiableSet(loaded));
+        }
+
+        /**
+         * Adds the property to the set of loaded properties, returning false
+         * if it depends on properties which cannot be determined.
+         */
+        private boolean addLoaded(Set<String> loaded, ChainedProperty<S> property) {
+            StorableProperty<S> prime = property.getPrimeProperty();
+            if (property.getChainCount() > 0 || prime.isDerived() || prime.isJoin()) {
+                return false;
+            }
+            loaded.add(prime.getName());
+            return true;
+        }
+
+        /**
+         * Returns true if the query has a projection hint, and the projected
+         * properties, remainder filter and remainder ordering only refer to
+         * properties which are available from the given index.
+         */
+        private boolean isProjectionCovered(StorableIndex<S> index, Filter<S> remainderFilter) {
+            if (mHints == null) {
+                return false;
+            }
+            Set<String> projection = (Set<String>) mHints.get(QueryHint.PROJECTION);
+            if (projection == null) {
+                return false;
+            }
+
+            final Set<String> available = new HashSet<String>();
+            for (int i=index.getPropertyCount(); --i>=0; ) {
+                StorableProperty<S> property = index.getProperty(i);
+                if (!property.isDerived()) {
+                    available.add(property.getName());
+                }
+            }
+            available.addAll(StorableIntrospector.examine(index.getStorableType())
+                             .getPrimaryKeyProperties().keySet());
+
+            if (!available.containsAll(projection)) {
+                return false;
+            }
+
+            for (OrderedProperty<S> property : getRemainderOrdering()) {
+                if (!isAvailable(available, property.getChainedProperty())) {
+                    return false;
+                }
+            }
+
+            if (remainderFilter != null) {
+                final boolean[] covered = {true};
+                remainderFilter.accept(new Visitor<S, Object, Object>() {
+                    @Override
+                    public Object visit(PropertyFilter<S> filter, Object param) {
+                        if (!isAvailable(available, filter.getChainedProperty())) {
+                            covered[0] = false;
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Object visit(ExistsFilter<S> filter, Object param) {
+                        covered[0] = false;
+                        return null;
+                    }
+                }, null);
+                if (!covered[0]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isAvailable(Set<String> available, ChainedProperty<S> property) {
+            return property.getChainCount() == 0
+                && available.contains(property.getPrimeProperty().getName());
+        }
+
         @Override
         public String toString() {
             return "IndexedQueryAnalyzer.Result {score="
                 + getCompositeScore() + ", localIndex="
                 + getLocalIndex() + ", foreignIndex="
                 + getForeignIndex() + ", foreignProperty="
-                + getForeignProperty() + ", remainderFilter="
+                + getForeignProperty() + ", intersectedIndex="
+                + getIntersectedIndex() + ", remainderFilter="
                 + getRemainderFilter() + ", remainderOrdering="
                 + getRemainderOrdering() + '}';
         }
@@ -21,12 +21,15 @@ package com.amazon.carbonado.qe;
 import java.io.IOException;
 
 import java.util.List;
+import java.util.Set;
 
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Storable;
 
+import com.amazon.carbonado.cursor.FilteredCursor;
+
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 import com.amazon.carbonado.filter.PropertyFilter;
@@ -34,6 +37,7 @@ import com.amazon.carbonado.filter.RelOp;
 
 import com.amazon.carbonado.info.Direction;
 import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableIntrospector;
 
 /**
  * QueryExecutor which utilizes an index.
@@ -64,6 +68,9 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
 
     private final Filter<S> mCoveringFilter;
 
+    // When true, only index entry properties need to be loaded.
+    private final boolean mPartial;
+
     // Total of nine start and end boundary type permutations.
     private final Query<?>[] mIndexEntryQueryCache;
 
@@ -76,6 +83,23 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
                                 StorableIndex<S> index,
                                 CompositeScore<S> score)
         throws FetchException
+    {
+        this(support, index, score, false);
+    }
+
+    /**
+     * @param index index to use, which may be a primary key index
+     * @param score score determines how best to utilize the index
+     * @param partial when true, fetched Storables need only have the
+     * properties of the index and primary key loaded
+     * @throws IllegalArgumentException if any parameter is null
+     * @since 1.2.6
+     */
+    public IndexedQueryExecutor(Support<S> support,
+                                StorableIndex<S> index,
+                                CompositeScore<S> score,
+                                boolean partial)
+        throws FetchException
     {
         if (support == null && this instanceof Support) {
             support = (Support<S>) this;
@@ -104,10 +128,14 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
 
         Query<?> indexEntryQuery = support.indexEntryQuery(index);
         if (indexEntryQuery == null) {
-            mCoveringFilter = null;
+            // A covering filter over the primary key can be evaluated against
+            // the keys of a raw index scan, before values are loaded.
+            mCoveringFilter = isPrimaryKey(index) ? fScore.getCoveringFilter() : null;
+            mPartial = false;
             mIndexEntryQueryCache = null;
         } else {
             mCoveringFilter = fScore.getCoveringFilter();
+            mPartial = partial;
             mIndexEntryQueryCache = new Query[9]; // Nine start and end boundary permutations
         }
     }
@@ -184,12 +212,28 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
 
         Query<?> indexEntryQuery = getIndexEntryQuery(rangeStartBoundary, rangeEndBoundary);
         if (indexEntryQuery == null) {
-            return mSupport.fetchSubset(mIndex, identityValues,
-                                        rangeStartBoundary, rangeStartValue,
-                                        rangeEndBoundary, rangeEndValue,
-                                        mReverseRange,
-                                        mReverseOrder,
-                                        controller);
+            if (mCoveringFilter != null) {
+                Cursor<S> cursor = mSupport.fetchSubset(mIndex, identityValues,
+                                                        rangeStartBoundary, rangeStartValue,
+                                                        rangeEndBoundary, rangeEndValue,
+                                                        mReverseRange,
+                                                        mReverseOrder,
+                                                        mCoveringFilter, values,
+                                                        controller);
+                if (cursor != null) {
+                    return cursor;
+                }
+            }
+            Cursor<S> cursor = mSupport.fetchSubset(mIndex, identityValues,
+                                                    rangeStartBoundary, rangeStartValue,
+                                                    rangeEndBoundary, rangeEndValue,
+                                                    mReverseRange,
+                                                    mReverseOrder,
+                                                    controller);
+            if (mCoveringFilter != null) {
+                cursor = FilteredCursor.applyFilter(mCoveringFilter, values, cursor);
+            }
+            return cursor;
         } else {
             indexEntryQuery = indexEntryQuery.withValues(identityValues);
             if (rangeStartBoundary != BoundaryType.OPEN) {
@@ -201,10 +245,27 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
             if (mCoveringFilter != null && values != null) {
                 indexEntryQuery = indexEntryQuery.withValues(values.getValuesFor(mCoveringFilter));
             }
+            if (mPartial) {
+                Cursor<S> cursor = mSupport.fetchPartialFromIndexEntryQuery
+                    (mIndex, indexEntryQuery, controller);
+                if (cursor != null) {
+                    return cursor;
+                }
+            }
             return mSupport.fetchFromIndexEntryQuery(mIndex, indexEntryQuery, controller);
         }
     }
 
+    /**
+     * Returns true if fetched Storables need only have the properties of the
+     * index and primary key loaded.
+     *
+     * @since 1.2.6
+     */
+    public boolean isPartial() {
+        return mPartial;
+    }
+
     /**
      * @return null if executor doesn't support or use a covering index
      */
@@ -315,10 +376,29 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
         }
         if (mCoveringFilter != null) {
             indent(app, indentLevel);
-            app.append("...covering filter: ");
+            app.append(mIndexEntryQueryCache == null ? "...key filter: " : "...covering filter: ");
             mCoveringFilter.appendTo(app, values);
             newline(app);
         }
+        if (mPartial) {
+            indent(app, indentLevel);
+            app.append("...covering projection");
+            newline(app);
+        }
+        return true;
+    }
+
+    private static <S extends Storable> boolean isPrimaryKey(StorableIndex<S> index) {
+        Set<String> keyNames = StorableIntrospector.examine(index.getStorableType())
+            .getPrimaryKeyProperties().keySet();
+        if (index.getPropertyCount() != keyNames.size()) {
+            return false;
+        }
+        for (int i=0; i<index.getPropertyCount(); i++) {
+            if (!keyNames.contains(index.getProperty(i).getName())) {
+                return false;
+            }
+        }
         return true;
     }
 
@@ -435,6 +515,25 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
                                            Query.Controller controller)
             throws FetchException;
 
+        /**
+         * Fetch partially loaded Storables referenced by the given index entry
+         * query. Only the primary key and index properties need to be loaded,
+         * and all other properties can be left uninitialized. This method is
+         * only called if index supports query access.
+         *
+         * @param index index to open
+         * @param indexEntryQuery query with no blank parameters, derived from
+         * the query returned by indexEntryQuery
+         * @param controller optional controller which can abort query operation
+         * @return null if not supported, in which case fully loaded Storables
+         * are fetched instead
+         * @since 1.2.6
+         */
+        Cursor<S> fetchPartialFromIndexEntryQuery(StorableIndex<S> index,
+                                                  Query<?> indexEntryQuery,
+                                                  Query.Controller controller)
+            throws FetchException;
+
         /**
          * Perform an index scan of a subset of Storables referenced by an
          * index. The identity values are aligned with the index properties at
@@ -500,5 +599,47 @@ public class IndexedQueryExecutor<S extends Storable> extends AbstractQueryExecu
                               boolean reverseOrder,
                               Query.Controller controller)
             throws FetchException;
+
+        /**
+         * Perform an index scan of a subset of Storables referenced by an
+         * index, skipping over entries whose keys are rejected by a key
+         * filter. The key filter only references primary key properties, and
+         * it should be evaluated before Storable values are loaded.
+         *
+         * <p>This method is only called if no index entry query was provided
+         * for the given index, and the index is a primary key index.
+         *
+         * @param index index to open, which is a primary key index
+         * @param identityValues optional list of exactly matching values to apply to index
+         * @param rangeStartBoundary start boundary type
+         * @param rangeStartValue value to start at if boundary is not open
+         * @param rangeEndBoundary end boundary type
+         * @param rangeEndValue value to end at if boundary is not open
+         * @param reverseRange indicates that range operates on a property whose
+         * natural order is descending. Only the code that opens the physical
+         * cursor should examine this parameter. If true, then the range start and
+         * end parameter pairs need to be swapped.
+         * @param reverseOrder when true, iteration should be reversed from its
+         * natural order
+         * @param keyFilter filter which only references primary key properties
+         * @param keyFilterValues values for key filter, which may be null if
+         * filter has no parameters
+         * @param controller optional controller which can abort query operation
+         * @return null if key filtering is not supported, in which case the
+         * key filter is applied to fully loaded Storables instead
+         * @since 1.2.6
+         */
+        Cursor<S> fetchSubset(StorableIndex<S> index,
+                              Object[] identityValues,
+                              BoundaryType rangeStartBoundary,
+                              Object rangeStartValue,
+                              BoundaryType rangeEndBoundary,
+                              Object rangeEndValue,
+                              boolean reverseRange,
+                              boolean reverseOrder,
+                              Filter<S> keyFilter,
+                              FilterValues<S> keyFilterValues,
+                              Query.Controller controller)
+            throws FetchException;
     }
 }
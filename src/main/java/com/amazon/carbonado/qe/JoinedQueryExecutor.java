@@ -98,6 +98,7 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
 
         QueryExecutor<T> executor =
             buildJoin(repoAccess, targetToSourceProperty, targetFilter, targetOrdering, hints);
+        executor = TracingQueryExecutor.wrap(executor, hints);
 
         OrderingList<T> handledOrdering = executor.getOrdering();
 
@@ -112,6 +113,7 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
                 .storageAccessFor(targetToSourceProperty.getPrimeProperty().getEnclosingType());
             executor = new SortedQueryExecutor<T>
                 (support, executor, handledOrdering, remainderOrdering);
+            executor = TracingQueryExecutor.wrap(executor, hints);
         }
 
         return executor;
@@ -144,8 +146,9 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
         QueryExecutor outerLoopExecutor;
         if (targetToSourceProperty.getChainCount() > 0) {
             ChainedProperty tailProperty = targetToSourceProperty.tail();
-            outerLoopExecutor = buildJoin
-                (repoAccess, tailProperty, tailFilter, outerLoopOrdering, hints);
+            outerLoopExecutor = TracingQueryExecutor.wrap
+                (buildJoin(repoAccess, tailProperty, tailFilter, outerLoopOrdering, hints),
+                 hints);
         } else {
             Class sourceType = targetToSourceProperty.getType();
 
@@ -186,7 +189,8 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
                                                     primeTarget,
                                                     targetFilter,
                                                     targetOrdering,
-                                                    targetAccess);
+                                                    targetAccess,
+                                                    hints);
     }
 
     private static final String INNER_LOOP_EX_FIELD_NAME = "innerLoopExecutor";
@@ -481,6 +485,7 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
      * <i>target</i> executor
      * @param targetAccess used with target ordering to determine actual
      * ordering which an index provides for free
+     * @param hints optional hints, which are only used to trace the inner loop
      * @throws IllegalArgumentException if any parameter is null or if join
      * property is not of <i>source</i> type
      * @throws RepositoryException from innerLoopExecutorFactory
@@ -490,7 +495,8 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
                                 StorableProperty<T> targetToSourceProperty,
                                 Filter<T> targetFilter,
                                 OrderingList<T> targetOrdering,
-                                StorageAccess<T> targetAccess)
+                                StorageAccess<T> targetAccess,
+                                QueryHints hints)
         throws RepositoryException
     {
         if (targetToSourceProperty == null || outerLoopExecutor == null) {
@@ -554,8 +560,9 @@ public class JoinedQueryExecutor<S extends Storable, T extends Storable>
             }
         }
 
-        mInnerLoopExecutor = innerLoopExecutorFactory
-            .executor(innerLoopExecutorFilter, targetOrdering, null);
+        mInnerLoopExecutor = TracingQueryExecutor.wrap
+            (innerLoopExecutorFactory.executor(innerLoopExecutorFilter, targetOrdering, null),
+             hints);
 
         Filter<T> filter = outerLoopExecutor.getFilter()
             .asJoinedFrom(ChainedProperty.get(targetToSourceProperty));
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.qe;
+
+import java.lang.ref.WeakReference;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazon.carbonado.Repository;
+
+/**
+ * Repository-wide budget for {@link com.amazon.carbonado.Query#parallel
+ * parallel} query execution. Each background thread which drives a query
+ * operation holds a permit from the budget, and operations for which no
+ * permit is available run in the calling thread instead. Operations also
+ * run in the calling thread when it is in a transaction, since background
+ * threads cannot participate in it.
+ *
+ * <p>The default parallelism is the number of available processors, and it
+ * can be changed with the system property
+ * "com.amazon.carbonado.qe.ParallelExecution.parallelism".
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class ParallelExecution {
+    private static final int DEFAULT_PARALLELISM =
+        Integer.getInteger(ParallelExecution.class.getName() + ".parallelism",
+                           Runtime.getRuntime().availableProcessors());
+
+    private static final Map<Repository, ParallelExecution> cBudgets =
+        new WeakHashMap<Repository, ParallelExecution>();
+
+    /**
+     * Returns the budget shared by all queries against the given repository,
+     * creating it if necessary.
+     *
+     * @param repo root repository
+     * @throws IllegalArgumentException if repo is null
+     */
+    public static ParallelExecution forRepository(Repository repo) {
+        if (repo == null) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (cBudgets) {
+            ParallelExecution budget = cBudgets.get(repo);
+            if (budget == null) {
+                budget = new ParallelExecution(repo, DEFAULT_PARALLELISM);
+                cBudgets.put(repo, budget);
+            }
+            return budget;
+        }
+    }
+
+    // Weakly referenced, since registry values must not keep keys alive.
+    private final WeakReference<Repository> mRepository;
+    private final ExecutorService mExecutor;
+    private final Permits mPermits;
+
+    private int mParallelism;
+
+    private ParallelExecution(Repository repo, int parallelism) {
+        mRepository = new WeakReference<Repository>(repo);
+        mExecutor = Executors.newCachedThreadPool(new Factory(repo.getName()));
+        mPermits = new Permits(Math.max(0, parallelism));
+        mParallelism = Math.max(0, parallelism);
+    }
+
+    /**
+     * Returns the maximum number of background threads which may be driving
+     * query operations at any time.
+     */
+    public synchronized int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Changes the maximum number of background threads which may be driving
+     * query operations at any time. Operations which are already running are
+     * not affected. Set to zero to disable parallel execution.
+     *
+     * @throws IllegalArgumentException if parallelism is negative
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism is negative: " + parallelism);
+        }
+        int delta = parallelism - mParallelism;
+        if (delta > 0) {
+            mPermits.release(delta);
+        } else if (delta < 0) {
+            // Permits currently held are retired as they are released.
+            mPermits.reduce(-delta);
+        }
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of background threads which may be started right now.
+     */
+    public int getAvailable() {
+        return mPermits.availablePermits();
+    }
+
+    /**
+     * Attempts to run the given task in a background thread, returning false
+     * if no permit is available or if the current thread is in a transaction.
+     * The permit is released when the task finishes.
+     */
+    boolean tryExecute(final Runnable task) {
+        Repository repo = mRepository.get();
+        if (repo == null || repo.getTransactionIsolationLevel() != null) {
+            return false;
+        }
+        if (!mPermits.tryAcquire()) {
+            return false;
+        }
+        try {
+            mExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        mPermits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            mPermits.release();
+            return false;
+        }
+        return true;
+    }
+
+    private static class Permits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        Permits(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+    private static class Factory implements ThreadFactory {
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        Factory(String name) {
+            mPrefix = "ParallelExecution-" + name + '-';
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, mPrefix + mCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.qe;
+
+import java.io.IOException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * QueryExecutor which wraps another and drives it from a background thread,
+ * which fetches ahead into a bounded queue. Under a {@link
+ * UnionQueryExecutor}, this allows all sub-cursors to be fetched concurrently
+ * while the union merges them in order. Over a full scan, one background
+ * thread scans and filters ahead of the caller, but the scan itself is not
+ * split into key ranges, since its order must be kept. If the {@link
+ * ParallelExecution} budget has no permits available, the wrapped executor
+ * is fetched in the calling thread instead.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see ParallelExecution
+ */
+public class ParallelQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    /**
+     * Maximum number of results which are fetched ahead by each background
+     * thread. Can be changed with the system property
+     * "com.amazon.carbonado.qe.ParallelQueryExecutor.queueCapacity".
+     */
+    static final int QUEUE_CAPACITY =
+        Math.max(1, Integer.getInteger(ParallelQueryExecutor.class.getName() + ".queueCapacity",
+                                       100));
+
+    private final QueryExecutor<S> mExecutor;
+    private final ParallelExecution mBudget;
+
+    /**
+     * @param executor executor to wrap
+     * @param budget budget which bounds the number of background threads
+     * @throws IllegalArgumentException if executor or budget is null
+     */
+    public ParallelQueryExecutor(QueryExecutor<S> executor, ParallelExecution budget) {
+        if (executor == null || budget == null) {
+            throw new IllegalArgumentException();
+        }
+        mExecutor = executor;
+        mBudget = budget;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mExecutor.getStorableType();
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
+        return fetchSlice(values, 0, null, null);
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
+        throws FetchException
+    {
+        return fetchSlice(values, 0, null, controller);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        return fetchSlice(values, from, to, null);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        ForkedCursor<S> cursor =
+            new ForkedCursor<S>(mExecutor, values, from, to, controller, QUEUE_CAPACITY);
+        if (cursor.fork(mBudget)) {
+            return cursor;
+        }
+        if (from == 0 && to == null) {
+            return controller == null ? mExecutor.fetch(values)
+                : mExecutor.fetch(values, controller);
+        }
+        return controller == null ? mExecutor.fetchSlice(values, from, to)
+            : mExecutor.fetchSlice(values, from, to, controller);
+    }
+
+    @Override
+    public long count(FilterValues<S> values) throws FetchException {
+        return mExecutor.count(values);
+    }
+
+    @Override
+    public long count(FilterValues<S> values, Query.Controller controller) throws FetchException {
+        return mExecutor.count(values, controller);
+    }
+
+    public Filter<S> getFilter() {
+        return mExecutor.getFilter();
+    }
+
+    public OrderingList<S> getOrdering() {
+        return mExecutor.getOrdering();
+    }
+
+    /**
+     * Prints native query of the wrapped executor.
+     */
+    @Override
+    public boolean printNative(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        return mExecutor.printNative(app, indentLevel, values);
+    }
+
+    public boolean printPlan(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        indent(app, indentLevel);
+        app.append("parallel: ");
+        app.append(String.valueOf(QUEUE_CAPACITY));
+        app.append(" fetch ahead");
+        newline(app);
+        mExecutor.printPlan(app, increaseIndent(indentLevel), values);
+        return true;
+    }
+}
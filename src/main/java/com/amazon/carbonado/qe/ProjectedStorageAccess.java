@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.util.Collection;
+import java.util.Set;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+
+import com.amazon.carbonado.cursor.SortBuffer;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+import com.amazon.carbonado.info.StorableIndex;
+
+/**
+ * Base class for the {@link StorageAccess} returned by {@link
+ * StorageAccess#projectedAccess projectedAccess}. All operations are passed
+ * to the full access by default, and so subclasses only override the scans
+ * which they can perform with fewer properties loaded. Scans without a
+ * controller call the variants which accept one.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public abstract class ProjectedStorageAccess<S extends Storable> implements StorageAccess<S> {
+    private final StorageAccess<S> mAccess;
+    private final Set<String> mProperties;
+
+    /**
+     * @param access access which loads all properties
+     * @param properties names of properties to load, in addition to the
+     * primary key
+     */
+    protected ProjectedStorageAccess(StorageAccess<S> access, Set<String> properties) {
+        mAccess = access;
+        mProperties = properties;
+    }
+
+    /**
+     * Returns the names of the properties to load.
+     */
+    public Set<String> getProperties() {
+        return mProperties;
+    }
+
+    public Class<S> getStorableType() {
+        return mAccess.getStorableType();
+    }
+
+    public QueryExecutorFactory<S> getQueryExecutorFactory() {
+        return mAccess.getQueryExecutorFactory();
+    }
+
+    public Collection<StorableIndex<S>> getAllIndexes() {
+        return mAccess.getAllIndexes();
+    }
+
+    public Storage<S> storageDelegate(StorableIndex<S> index) {
+        return mAccess.storageDelegate(index);
+    }
+
+    public StorageAccess<S> projectedAccess(Set<String> properties) {
+        return mAccess.projectedAccess(properties);
+    }
+
+    public long countAll() throws FetchException {
+        return mAccess.countAll();
+    }
+
+    public long countAll(Query.Controller controller) throws FetchException {
+        return mAccess.countAll(controller);
+    }
+
+    public Cursor<S> fetchAll() throws FetchException {
+        return fetchAll(null);
+    }
+
+    public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+        return mAccess.fetchAll(controller);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues)
+        throws FetchException
+    {
+        return mAccess.fetchOne(index, identityValues);
+    }
+
+    public Cursor<S> fetchOne(StorableIndex<S> index, Object[] identityValues,
+                              Query.Controller controller)
+        throws FetchException
+    {
+        return mAccess.fetchOne(index, identityValues, controller);
+    }
+
+    public Query<?> indexEntryQuery(StorableIndex<S> index) throws FetchException {
+        return mAccess.indexEntryQuery(index);
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery)
+        throws FetchException
+    {
+        return mAccess.fetchFromIndexEntryQuery(index, indexEntryQuery);
+    }
+
+    public Cursor<S> fetchFromIndexEntryQuery(StorableIndex<S> index, Query<?> indexEntryQuery,
+                                              Query.Controller controller)
+        throws FetchException
+    {
+        return mAccess.fetchFromIndexEntryQuery(index, indexEntryQuery, controller);
+    }
+
+    public Cursor<S> fetchPartialFromIndexEntryQuery(StorableIndex<S> index,
+                                                     Query<?> indexEntryQuery,
+                                                     Query.Controller controller)
+        throws FetchException
+    {
+        return mAccess.fetchPartialFromIndexEntryQuery(index, indexEntryQuery, controller);
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder)
+        throws FetchException
+    {
+        return fetchSubset(index, identityValues,
+                           rangeStartBoundary, rangeStartValue,
+                           rangeEndBoundary, rangeEndValue,
+                           reverseRange, reverseOrder,
+                           (Query.Controller) null);
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return mAccess.fetchSubset(index, identityValues,
+                                   rangeStartBoundary, rangeStartValue,
+                                   rangeEndBoundary, rangeEndValue,
+                                   reverseRange, reverseOrder,
+                                   controller);
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Filter<S> keyFilter,
+                                 FilterValues<S> keyFilterValues,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return mAccess.fetchSubset(index, identityValues,
+                                   rangeStartBoundary, rangeStartValue,
+                                   rangeEndBoundary, rangeEndValue,
+                                   reverseRange, reverseOrder,
+                                   keyFilter, keyFilterValues,
+                                   controller);
+    }
+
+    public SortBuffer<S> createSortBuffer() {
+        return mAccess.createSortBuffer();
+    }
+
+    public SortBuffer<S> createSortBuffer(Query.Controller controller) {
+        return mAccess.createSortBuffer(controller);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Evaluates {@link Query#aggregate aggregate} functions by streaming over
+ * query results. Results are ordered by the group-by properties, allowing
+ * each group to be computed in turn. If no index provides this order, the
+ * query sorts the results first, which can spill to temporary files for
+ * large result sets. Minimum and maximum
+ * values without grouping are computed by fetching only the first result in
+ * property order, which is a single index entry if the property is indexed.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class QueryAggregator<S extends Storable> {
+    /**
+     * Returns the property to aggregate, after verifying that it can be used
+     * with the given function.
+     *
+     * @throws IllegalArgumentException if function is null, or if property
+     * is not a member of type S, is a join property, or is not numeric when
+     * required by the function
+     */
+    public static <S extends Storable> StorableProperty<S> checkProperty
+        (Class<S> type, Query.Aggregate function, String name)
+    {
+        if (function == null) {
+            throw new IllegalArgumentException("Null aggregate function");
+        }
+        StorableProperty<S> property = checkProperty(type, name);
+        switch (function) {
+        case SUM: case AVG:
+            if (!isNumeric(property.getType())) {
+                throw new IllegalArgumentException
+                    ("Property is not numeric: " + name + " of type " +
+                     property.getType().getName());
+            }
+        }
+        return property;
+    }
+
+    /**
+     * Returns the named property, after verifying that it exists and is not a
+     * join property.
+     *
+     * @throws IllegalArgumentException if property is not a member of type
+     * S, or is a join property
+     */
+    public static <S extends Storable> StorableProperty<S> checkProperty(Class<S> type,
+                                                                       String name)
+    {
+        if (name == null) {
+            throw new IllegalArgumentException("Null property name");
+        }
+        StorableProperty<S> property = StorableIntrospector.examine(type)
+            .getAllProperties().get(name);
+        if (property == null) {
+            throw new IllegalArgumentException
+                ("Property \"" + name + "\" not found in type \"" + type.getName() + '"');
+        }
+        if (property.isJoin()) {
+            throw new IllegalArgumentException("Cannot aggregate join property: " + name);
+        }
+        return property;
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        if (type.isPrimitive()) {
+            return type != boolean.class && type != char.class;
+        }
+        return Number.class.isAssignableFrom(type);
+    }
+
+    private final Query<S> mQuery;
+    private final Query.Aggregate mFunction;
+    private final StorableProperty<S> mProperty;
+    private final StorableProperty<S>[] mGroupBy;
+
+    /**
+     * @param query query to aggregate over
+     * @param function aggregate function to compute
+     * @param property name of property to aggregate
+     * @param groupBy optional names of properties to group by
+     * @throws IllegalArgumentException if function is null, or if any
+     * property is not a member of type S, is a join property, or is not
+     * numeric when required by the function
+     */
+    public QueryAggregator(Query<S> query, Query.Aggregate function,
+                           String property, String... groupBy)
+    {
+        Class<S> type = query.getStorableType();
+        mQuery = query;
+        mFunction = function;
+        mProperty = checkProperty(type, function, property);
+        if (groupBy == null) {
+            groupBy = new String[0];
+        }
+        mGroupBy = new StorableProperty[groupBy.length];
+        for (int i=0; i<groupBy.length; i++) {
+            mGroupBy[i] = checkProperty(type, groupBy[i]);
+        }
+    }
+
+    /**
+     * Computes the aggregate over all query results, ignoring any group-by
+     * properties.
+     *
+     * @param controller optional controller which can abort query operation
+     */
+    public Object aggregate(Query.Controller controller) throws FetchException {
+        String name = mProperty.getName();
+
+        switch (mFunction) {
+        case MIN: case MAX:
+            Query<S> query = mQuery;
+            if (mProperty.isNullable()) {
+                // Nulls sort high, and so they must be excluded.
+                query = query.and(name + " != ?").with(null);
+            }
+            query = query.orderBy(mFunction == Query.Aggregate.MIN ? name : ('-' + name));
+            query = select(query);
+            Cursor<S> cursor = query.fetchSlice(0L, 1L, controller);
+            try {
+                return cursor.hasNext() ? cursor.next().getPropertyValue(name) : null;
+            } finally {
+                cursor.close();
+            }
+        }
+
+        Accumulator acc = newAccumulator();
+        Cursor<S> cursor = orderedQuery().fetch(controller);
+        try {
+            while (cursor.hasNext()) {
+                acc.add(cursor.next().getPropertyValue(name));
+            }
+        } finally {
+            cursor.close();
+        }
+        return acc.result();
+    }
+
+    /**
+     * Computes the aggregate for each group of query results.
+     *
+     * @param controller optional controller which can abort query operation
+     * @return map of group-by values to aggregate results
+     */
+    public Map<List<Object>, Object> aggregateGroups(Query.Controller controller)
+        throws FetchException
+    {
+        Map<List<Object>, Object> groups = new LinkedHashMap<List<Object>, Object>();
+
+        if (mGroupBy.length == 0) {
+            Object result = aggregate(controller);
+            if (result != null) {
+                List<Object> key = Collections.emptyList();
+                groups.put(key, result);
+            }
+            return groups;
+        }
+
+        String name = mProperty.getName();
+        List<Object> currentKey = null;
+        Accumulator acc = null;
+
+        Cursor<S> cursor = orderedQuery().fetch(controller);
+        try {
+            while (cursor.hasNext()) {
+                S storable = cursor.next();
+                List<Object> key = groupKey(storable);
+                if (!key.equals(currentKey)) {
+                    if (acc != null) {
+                        groups.put(currentKey, acc.result());
+                    }
+                    currentKey = key;
+                    acc = newAccumulator();
+                }
+                acc.add(storable.getPropertyValue(name));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (acc != null) {
+            groups.put(currentKey, acc.result());
+        }
+
+        return groups;
+    }
+
+    private List<Object> groupKey(S storable) {
+        Object[] values = new Object[mGroupBy.length];
+        for (int i=0; i<values.length; i++) {
+            values[i] = storable.getPropertyValue(mGroupBy[i].getName());
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /**
+     * Returns a query ordered by group-by properties, and then by the
+     * aggregated property if counting distinct values.
+     */
+    private Query<S> orderedQuery() throws FetchException {
+        List<String> ordering = new ArrayList<String>(mGroupBy.length + 1);
+        for (StorableProperty<S> property : mGroupBy) {
+            ordering.add(property.getName());
+        }
+        if (mFunction == Query.Aggregate.COUNT_DISTINCT) {
+            ordering.add(mProperty.getName());
+        }
+        Query<S> query = mQuery;
+        if (ordering.size() > 0) {
+            query = query.orderBy(ordering.toArray(new String[ordering.size()]));
+        }
+        return select(query);
+    }
+
+    /**
+     * Applies a projection of only the properties needed for aggregation, if
+     * none are derived.
+     */
+    private Query<S> select(Query<S> query) throws FetchException {
+        if (mProperty.isDerived()) {
+            return query;
+        }
+        String[] names = new String[mGroupBy.length + 1];
+        for (int i=0; i<mGroupBy.length; i++) {
+            if (mGroupBy[i].isDerived()) {
+                return query;
+            }
+            names[i] = mGroupBy[i].getName();
+        }
+        names[mGroupBy.length] = mProperty.getName();
+        return query.select(names);
+    }
+
+    private Accumulator newAccumulator() {
+        Class<?> type = mProperty.getType();
+        switch (mFunction) {
+        case MIN:
+            return new MinMax(false);
+        case MAX:
+            return new MinMax(true);
+        case SUM:
+            if (type == float.class || type == double.class ||
+                type == Float.class || type == Double.class)
+            {
+                return new DoubleSum();
+            } else if (BigDecimal.class.isAssignableFrom(type)) {
+                return new BigDecimalSum();
+            } else if (BigInteger.class.isAssignableFrom(type)) {
+                return new BigIntegerSum();
+            } else {
+                return new LongSum();
+            }
+        case AVG:
+            return new Avg();
+        case COUNT_DISTINCT: default:
+            return new CountDistinct();
+        }
+    }
+
+    private static abstract class Accumulator {
+        /**
+         * @param value property value, which may be null
+         */
+        abstract void add(Object value);
+
+        abstract Object result();
+    }
+
+    private static class MinMax extends Accumulator {
+        private final boolean mMax;
+        private Comparable mValue;
+
+        MinMax(boolean max) {
+            mMax = max;
+        }
+
+        void add(Object value) {
+            if (value != null) {
+                Comparable c = (Comparable) value;
+                if (mValue == null) {
+                    mValue = c;
+                } else {
+                    int result = c.compareTo(mValue);
+                    if (mMax ? result > 0 : result < 0) {
+                        mValue = c;
+                    }
+                }
+            }
+        }
+
+        Object result() {
+            return mValue;
+        }
+    }
+
+    private static class LongSum extends Accumulator {
+        private long mSum;
+        private boolean mAny;
+
+        void add(Object value) {
+            if (value != null) {
+                long v = ((Number) value).longValue();
+                long sum = mSum + v;
+                // Overflow if both operands have a different sign than the result.
+                if (((mSum ^ sum) & (v ^ sum)) < 0) {
+                    throw new ArithmeticException("Sum exceeds range of Long");
+                }
+                mSum = sum;
+                mAny = true;
+            }
+        }
+
+        Object result() {
+            return mAny ? mSum : null;
+        }
+    }
+
+    private static class DoubleSum extends Accumulator {
+        private double mSum;
+        private boolean mAny;
+
+        void add(Object value) {
+            if (value != null) {
+                mSum += ((Number) value).doubleValue();
+                mAny = true;
+            }
+        }
+
+        Object result() {
+            return mAny ? mSum : null;
+        }
+    }
+
+    private static class BigDecimalSum extends Accumulator {
+        private BigDecimal mSum;
+
+        void add(Object value) {
+            if (value != null) {
+                BigDecimal v = (BigDecimal) value;
+                mSum = mSum == null ? v : mSum.add(v);
+            }
+        }
+
+        Object result() {
+            return mSum;
+        }
+    }
+
+    private static class BigIntegerSum extends Accumulator {
+        private BigInteger mSum;
+
+        void add(Object value) {
+            if (value != null) {
+                BigInteger v = (BigInteger) value;
+                mSum = mSum == null ? v : mSum.add(v);
+            }
+        }
+
+        Object result() {
+            return mSum;
+        }
+    }
+
+    private static class Avg extends Accumulator {
+        private double mSum;
+        private long mCount;
+
+        void add(Object value) {
+            if (value != null) {
+                mSum += ((Number) value).doubleValue();
+                mCount++;
+            }
+        }
+
+        Object result() {
+            return mCount == 0 ? null : (mSum / mCount);
+        }
+    }
+
+    /**
+     * Counts distinct values, which must be supplied in order.
+     */
+    private static class CountDistinct extends Accumulator {
+        private Object mLast;
+        private long mCount;
+
+        void add(Object value) {
+            if (value != null && !value.equals(mLast)) {
+                mLast = value;
+                mCount++;
+            }
+        }
+
+        Object result() {
+            return mCount;
+        }
+    }
+}
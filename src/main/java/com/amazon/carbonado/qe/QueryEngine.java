@@ -35,7 +35,7 @@ public class QueryEngine<S extends Storable> extends StandardQueryFactory<S>
     implements QueryExecutorFactory<S>
 {
     final RepositoryAccess mRepoAccess;
-    final QueryExecutorFactory<S> mExecutorFactory;
+    final QueryExecutorCache<S> mExecutorFactory;
 
     public QueryEngine(Class<S> type, RepositoryAccess access) {
         super(type);
@@ -43,6 +43,22 @@ public class QueryEngine<S extends Storable> extends StandardQueryFactory<S>
         mExecutorFactory = new QueryExecutorCache<S>(new UnionQueryAnalyzer<S>(type, access));
     }
 
+    /**
+     * Discards cached executors before rebuilding all cached query plans,
+     * ensuring that new plans are analyzed from scratch.
+     */
+    @Override
+    public void resetExecutors() throws RepositoryException {
+        mExecutorFactory.clear();
+        super.resetExecutors();
+    }
+
+    @Override
+    public void clearExecutors() {
+        mExecutorFactory.clear();
+        super.clearExecutors();
+    }
+
     public QueryExecutor<S> executor(Filter<S> filter, OrderingList<S> ordering, QueryHints hints)
         throws RepositoryException
     {
@@ -82,6 +82,21 @@ public class QueryExecutorCache<S extends Storable> implements QueryExecutorFact
         return mFactory.getStorableType();
     }
 
+    /**
+     * Discards all cached executors, forcing new ones to be built by the
+     * wrapped factory.
+     *
+     * @since 1.2.6
+     */
+    public void clear() {
+        synchronized (mPrimaryCache) {
+            mPrimaryCache.clear();
+        }
+        synchronized (mFilterToExecutor) {
+            mFilterToExecutor.clear();
+        }
+    }
+
     /**
      * Returns an executor from the cache.
      *
@@ -32,6 +32,35 @@ public enum QueryHint {
     /** Intention to consume a slice of matched records */
     CONSUME_SLICE,
 
+    /**
+     * Set of property names which must be loaded, as specified by {@link
+     * com.amazon.carbonado.Query#select Query.select}. Value is an
+     * unmodifiable sorted set of property names, which always includes the
+     * primary key properties.
+     *
+     * @since 1.2.6
+     */
+    PROJECTION,
+
+    /**
+     * Allow independent parts of the query to be fetched concurrently by
+     * background threads, as specified by {@link
+     * com.amazon.carbonado.Query#parallel Query.parallel}.
+     *
+     * @since 1.2.6
+     * @see ParallelExecution
+     */
+    PARALLEL,
+
+    /**
+     * Record execution statistics for each stage of the query plan, as
+     * specified by {@link com.amazon.carbonado.Query#trace Query.trace}.
+     *
+     * @since 1.2.6
+     * @see QueryTrace
+     */
+    TRACE,
+
     /** Favor low latency for query results */
     //FAVOR_LATENCY,
 
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.RelOp;
+
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Fetches {@link Query#fetchPage pages} of query results using keyset
+ * pagination. Instead of skipping over an offset, each page after the first
+ * is fetched with a range filter which starts after the last result of the
+ * previous page. With an index on the ordering properties, every page is
+ * fetched with a range scan, regardless of how deep into the results it is.
+ *
+ * <p>Continuation tokens encode the ordering property values of the last
+ * result of a page, along with a fingerprint of the ordering itself. They
+ * are opaque to callers, but they are not encrypted or signed. Decoding a
+ * token never deserializes arbitrary objects, and so ordering properties are
+ * limited to primitive types, strings, byte arrays, big numbers and dates.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class QueryPaginator<S extends Storable> {
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte
+        TYPE_NULL = 0, TYPE_BOOLEAN = 1, TYPE_BYTE = 2, TYPE_SHORT = 3, TYPE_CHAR = 4,
+        TYPE_INT = 5, TYPE_LONG = 6, TYPE_FLOAT = 7, TYPE_DOUBLE = 8, TYPE_STRING = 9,
+        TYPE_BYTES = 10, TYPE_BIG_INTEGER = 11, TYPE_BIG_DECIMAL = 12, TYPE_DATE = 13;
+
+    private static final char[] BASE64_CHARS =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    /**
+     * Returns the given ordering, extended with any primary key properties it
+     * doesn't already contain. The returned ordering is total, which is
+     * required for pages to neither skip nor repeat results.
+     */
+    public static <S extends Storable> OrderingList<S> totalOrdering(Class<S> type,
+                                                                     OrderingList<S> ordering)
+    {
+        Set<String> names = new HashSet<String>();
+        for (OrderedProperty<S> property : ordering) {
+            names.add(property.getChainedProperty().toString());
+        }
+        for (StorableProperty<S> property :
+                 StorableIntrospector.examine(type).getPrimaryKeyProperties().values())
+        {
+            if (!names.contains(property.getName())) {
+                ordering = ordering.concat(OrderedProperty.get(property, Direction.ASCENDING));
+            }
+        }
+        return ordering;
+    }
+
+    /**
+     * Returns a query which fetches results of the given query after the
+     * given ordering property values.
+     *
+     * @param query query to start after
+     * @param orderings orderings of the query, which must not be empty
+     * @param values value of each ordering property to start after
+     */
+    public static <S extends Storable> Query<S> after(Query<S> query,
+                                                      OrderingList<S> orderings,
+                                                      Object[] values)
+        throws FetchException
+    {
+        Class<S> storableType = query.getStorableType();
+        Filter<S> orderFilter = Filter.getClosedFilter(storableType);
+        Filter<S> openFilter = Filter.getOpenFilter(storableType);
+        Filter<S> lastSubFilter = openFilter;
+
+        for (int i=0;;) {
+            OrderedProperty<S> property = orderings.get(i);
+            RelOp operator = RelOp.GT;
+            if (property.getDirection() == Direction.DESCENDING) {
+                operator = RelOp.LT;
+            }
+            String propertyName = property.getChainedProperty().toString();
+
+            orderFilter = orderFilter.or(lastSubFilter.and(propertyName, operator));
+
+            if (++i >= orderings.size()) {
+                break;
+            }
+
+            Filter<S> propFilter = openFilter.and(propertyName, RelOp.EQ).bind();
+            lastSubFilter = lastSubFilter.and(propFilter);
+        }
+
+        query = query.and(orderFilter);
+
+        for (int i=0; i<values.length; i++) {
+            for (int j=0; j<=i; j++) {
+                query = query.with(values[j]);
+            }
+        }
+
+        return query;
+    }
+
+    private final Query<S> mQuery;
+    private final OrderingList<S> mOrdering;
+
+    /**
+     * @param query query to fetch pages from, which must be ordered by the
+     * given ordering
+     * @param ordering total ordering of query
+     * @see #totalOrdering
+     */
+    public QueryPaginator(Query<S> query, OrderingList<S> ordering) {
+        if (ordering.size() == 0) {
+            throw new IllegalArgumentException("Ordering is empty");
+        }
+        mQuery = query;
+        mOrdering = ordering;
+    }
+
+    /**
+     * Fetches the page which follows the one which produced the given token.
+     *
+     * @param token continuation token, or null for the first page
+     * @param size maximum amount of results in the page
+     * @param controller optional controller which can abort query operation
+     * @throws IllegalArgumentException if size is not positive or if token
+     * is malformed or was produced by a differently ordered query
+     */
+    public Query.Page<S> fetchPage(String token, int size, Query.Controller controller)
+        throws FetchException
+    {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+
+        Query<S> query = mQuery;
+        if (token != null) {
+            query = after(query, mOrdering, decodeToken(token));
+        }
+
+        List<S> results = new ArrayList<S>(Math.min(size, 100));
+        Cursor<S> cursor = query.fetchSlice(0, ((long) size) + 1, controller);
+        try {
+            while (cursor.hasNext()) {
+                results.add(cursor.next());
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String nextToken = null;
+        if (results.size() > size) {
+            results.remove(size);
+            nextToken = encodeToken(results.get(size - 1));
+        }
+
+        return new Query.Page<S>(results, nextToken);
+    }
+
+    private String encodeToken(S last) {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bout);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(fingerprint());
+            for (OrderedProperty<S> property : mOrdering) {
+                writeValue(out, last.getPropertyValue
+                           (property.getChainedProperty().toString()));
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Not expected from an in-memory stream, except when encoding an
+            // unsupported property value.
+            throw new IllegalStateException("Unable to encode page token: " + e.getMessage());
+        }
+        return encodeBase64(bout.toByteArray());
+    }
+
+    private Object[] decodeToken(String token) {
+        try {
+            DataInputStream in = new DataInputStream
+                (new ByteArrayInputStream(decodeBase64(token)));
+            if (in.readByte() != FORMAT_VERSION || in.readInt() != fingerprint()) {
+                throw new IllegalArgumentException("Page token doesn't match query: " + token);
+            }
+            Object[] values = new Object[mOrdering.size()];
+            for (int i=0; i<values.length; i++) {
+                values[i] = readValue(in);
+            }
+            if (in.read() >= 0) {
+                throw new IllegalArgumentException("Malformed page token: " + token);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed page token: " + token);
+        }
+    }
+
+    private int fingerprint() {
+        return mQuery.getStorableType().getName().hashCode() * 31 + mOrdering.toString().hashCode();
+    }
+
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value.getClass() == BigInteger.class) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value.getClass() == BigDecimal.class) {
+            BigDecimal bd = (BigDecimal) value;
+            out.writeByte(TYPE_BIG_DECIMAL);
+            out.writeInt(bd.scale());
+            writeBytes(out, bd.unscaledValue().toByteArray());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IOException("Unsupported property value type: " + value.getClass());
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static Object readValue(DataInputStream in) throws IOException {
+        switch (in.readByte()) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_BYTE:
+            return in.readByte();
+        case TYPE_SHORT:
+            return in.readShort();
+        case TYPE_CHAR:
+            return in.readChar();
+        case TYPE_INT:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_FLOAT:
+            return in.readFloat();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_STRING:
+            return in.readUTF();
+        case TYPE_BYTES:
+            return readBytes(in);
+        case TYPE_BIG_INTEGER:
+            return new BigInteger(readBytes(in));
+        case TYPE_BIG_DECIMAL:
+            int scale = in.readInt();
+            return new BigDecimal(new BigInteger(readBytes(in)), scale);
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        default:
+            throw new IOException("Unknown value type");
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Illegal length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Encodes as URL-safe Base64, without padding.
+     */
+    private static String encodeBase64(byte[] bytes) {
+        StringBuilder b = new StringBuilder((bytes.length * 4 + 2) / 3);
+        for (int i=0; i<bytes.length; i+=3) {
+            int remaining = bytes.length - i;
+            int bits = (bytes[i] & 0xff) << 16;
+            if (remaining > 1) {
+                bits |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                bits |= bytes[i + 2] & 0xff;
+            }
+            b.append(BASE64_CHARS[(bits >> 18) & 0x3f]);
+            b.append(BASE64_CHARS[(bits >> 12) & 0x3f]);
+            if (remaining > 1) {
+                b.append(BASE64_CHARS[(bits >> 6) & 0x3f]);
+            }
+            if (remaining > 2) {
+                b.append(BASE64_CHARS[bits & 0x3f]);
+            }
+        }
+        return b.toString();
+    }
+
+    private static byte[] decodeBase64(String str) throws IOException {
+        int length = str.length();
+        if (length % 4 == 1) {
+            throw new IOException("Illegal length");
+        }
+        byte[] bytes = new byte[length * 3 / 4];
+        int bits = 0, count = 0, pos = 0;
+        for (int i=0; i<length; i++) {
+            char c = str.charAt(i);
+            int value;
+            if (c >= 'A' && c <= 'Z') {
+                value = c - 'A';
+            } else if (c >= 'a' && c <= 'z') {
+                value = c - 'a' + 26;
+            } else if (c >= '0' && c <= '9') {
+                value = c - '0' + 52;
+            } else if (c == '-') {
+                value = 62;
+            } else if (c == '_') {
+                value = 63;
+            } else {
+                throw new IOException("Illegal character");
+            }
+            bits = (bits << 6) | value;
+            if (++count == 4) {
+                bytes[pos++] = (byte) (bits >> 16);
+                bytes[pos++] = (byte) (bits >> 8);
+                bytes[pos++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            bytes[pos++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            bytes[pos++] = (byte) (bits >> 10);
+            bytes[pos++] = (byte) (bits >> 2);
+        }
+        return bytes;
+    }
+}
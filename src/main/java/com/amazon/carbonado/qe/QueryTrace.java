@@ -0,0 +1,331 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazon.carbonado.util.Appender;
+
+/**
+ * Execution statistics gathered for one stage of a traced query, and for
+ * all the stages it fetched from. Each stage corresponds to a {@link
+ * QueryExecutor} in the plan, and it records how many times it was opened,
+ * how many rows it produced, the time spent fetching, and the number of bytes
+ * spilled by sorting. Rows in are the rows produced by the child stages. Times
+ * are inclusive of the child stages, which were called in the same thread
+ * unless the query was executed in {@link
+ * com.amazon.carbonado.Query#parallel parallel}.
+ *
+ * <p>Tracing is enabled by {@link com.amazon.carbonado.Query#trace
+ * Query.trace}. When a traced cursor is exhausted or closed, or when a traced
+ * count completes, the complete trace is available from {@link #getLastTrace
+ * getLastTrace}, in the same thread, until the thread starts another traced
+ * query.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see TracingQueryExecutor
+ */
+public class QueryTrace implements Appender {
+    private static final ThreadLocal<QueryTrace> cCurrent = new ThreadLocal<QueryTrace>();
+    private static final ThreadLocal<QueryTrace> cLast = new ThreadLocal<QueryTrace>();
+
+    /**
+     * Returns the trace of the traced query whose cursor was most recently
+     * exhausted or closed by the current thread, or null if none. The trace
+     * is discarded when the thread starts another traced query.
+     */
+    public static QueryTrace getLastTrace() {
+        return cLast.get();
+    }
+
+    /**
+     * Returns a new root stage, discarding the last trace of this thread.
+     */
+    static QueryTrace root(String description) {
+        cLast.remove();
+        return new QueryTrace(null, description);
+    }
+
+    /**
+     * Returns the stage which is currently executing in this thread, or null
+     * if none.
+     */
+    static QueryTrace current() {
+        return cCurrent.get();
+    }
+
+    /**
+     * Makes the given stage current for this thread, returning the previous
+     * one, which must be passed to {@link #exit}.
+     */
+    static QueryTrace enter(QueryTrace stage) {
+        QueryTrace previous = cCurrent.get();
+        if (previous != stage) {
+            cCurrent.set(stage);
+        }
+        return previous;
+    }
+
+    static void exit(QueryTrace previous) {
+        if (previous == null) {
+            cCurrent.remove();
+        } else {
+            cCurrent.set(previous);
+        }
+    }
+
+    private final QueryTrace mParent;
+    private final String mDescription;
+
+    private Map<Object, QueryTrace> mChildMap;
+    private List<QueryTrace> mChildren;
+
+    private long mOpenCount;
+    private long mRowCount;
+    private long mOpenNanos;
+    private long mHasNextNanos;
+    private long mNextNanos;
+    private long mSpillBytes;
+
+    QueryTrace(QueryTrace parent, String description) {
+        mParent = parent;
+        mDescription = description;
+    }
+
+    /**
+     * Returns a short description of the stage, taken from the query plan.
+     */
+    public String getDescription() {
+        return mDescription;
+    }
+
+    /**
+     * Returns the stages which this stage fetched from, in the order they
+     * were first opened.
+     */
+    public synchronized List<QueryTrace> getChildren() {
+        if (mChildren == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<QueryTrace>(mChildren));
+    }
+
+    /**
+     * Returns the number of times this stage was opened. Stages on the inner
+     * side of a join are opened once for each outer row.
+     */
+    public synchronized long getOpenCount() {
+        return mOpenCount;
+    }
+
+    /**
+     * Returns the number of rows produced by the child stages, or zero if
+     * this stage has no children.
+     */
+    public long getRowsIn() {
+        long rows = 0;
+        for (QueryTrace child : getChildren()) {
+            rows += child.getRowsOut();
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the number of rows produced by this stage, including rows which
+     * were skipped by the caller.
+     */
+    public synchronized long getRowsOut() {
+        return mRowCount;
+    }
+
+    /**
+     * Returns the time spent opening this stage, in nanoseconds.
+     */
+    public synchronized long getOpenNanos() {
+        return mOpenNanos;
+    }
+
+    /**
+     * Returns the time spent in the hasNext method of this stage's cursors,
+     * in nanoseconds.
+     */
+    public synchronized long getHasNextNanos() {
+        return mHasNextNanos;
+    }
+
+    /**
+     * Returns the time spent in the next and skipNext methods of this
+     * stage's cursors, in nanoseconds.
+     */
+    public synchronized long getNextNanos() {
+        return mNextNanos;
+    }
+
+    /**
+     * Returns the total time spent in this stage, in nanoseconds.
+     */
+    public synchronized long getTotalNanos() {
+        return mOpenNanos + mHasNextNanos + mNextNanos;
+    }
+
+    /**
+     * Returns the number of bytes written to temporary files when sorting.
+     */
+    public synchronized long getSpillBytes() {
+        return mSpillBytes;
+    }
+
+    /**
+     * Appends this stage and all of its children as an indented tree.
+     */
+    public void appendTo(Appendable app) throws IOException {
+        appendTo(app, 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        try {
+            appendTo(b);
+        } catch (IOException e) {
+            // Not gonna happen.
+        }
+        return b.toString();
+    }
+
+    /**
+     * Returns the child stage for the given executor, or null if not opened yet.
+     */
+    synchronized QueryTrace findChild(Object key) {
+        return mChildMap == null ? null : mChildMap.get(key);
+    }
+
+    /**
+     * Returns the child stage for the given executor, creating it on first
+     * use. Repeated opens of the same executor accumulate into one stage.
+     */
+    synchronized QueryTrace child(Object key, String description) {
+        if (mChildMap == null) {
+            mChildMap = new IdentityHashMap<Object, QueryTrace>();
+            mChildren = new ArrayList<QueryTrace>();
+        } else {
+            QueryTrace child = mChildMap.get(key);
+            if (child != null) {
+                return child;
+            }
+        }
+        QueryTrace child = new QueryTrace(this, description);
+        mChildMap.put(key, child);
+        mChildren.add(child);
+        return child;
+    }
+
+    boolean isRoot() {
+        return mParent == null;
+    }
+
+    synchronized void recordOpen(long nanos) {
+        mOpenCount++;
+        mOpenNanos += nanos;
+    }
+
+    synchronized void recordHasNext(long nanos) {
+        mHasNextNanos += nanos;
+    }
+
+    synchronized void recordNext(long nanos, int rows) {
+        mNextNanos += nanos;
+        mRowCount += rows;
+    }
+
+    synchronized void recordRows(long rows) {
+        mRowCount += rows;
+    }
+
+    synchronized void recordSpill(long bytes) {
+        mSpillBytes += bytes;
+    }
+
+    /**
+     * Called when the root stage is exhausted or closed.
+     */
+    void finished() {
+        cLast.set(this);
+    }
+
+    private void appendTo(Appendable app, int indentLevel) throws IOException {
+        for (int i=0; i<indentLevel; i++) {
+            app.append(' ');
+        }
+
+        List<QueryTrace> children = getChildren();
+
+        synchronized (this) {
+            app.append(mDescription);
+            app.append(" (opens=");
+            app.append(String.valueOf(mOpenCount));
+            if (children.size() > 0) {
+                app.append(", rows in=");
+                app.append(String.valueOf(getRowsIn()));
+            }
+            app.append(", rows out=");
+            app.append(String.valueOf(mRowCount));
+            app.append(", time=");
+            appendMillis(app, getTotalNanos());
+            app.append(" [open=");
+            appendMillis(app, mOpenNanos);
+            app.append(", hasNext=");
+            appendMillis(app, mHasNextNanos);
+            app.append(", next=");
+            appendMillis(app, mNextNanos);
+            app.append(']');
+            if (mSpillBytes > 0) {
+                app.append(", spilled=");
+                app.append(String.valueOf(mSpillBytes));
+                app.append(" bytes");
+            }
+            app.append(')');
+        }
+
+        app.append('\n');
+
+        for (QueryTrace child : children) {
+            child.appendTo(app, indentLevel + 2);
+        }
+    }
+
+    private static void appendMillis(Appendable app, long nanos) throws IOException {
+        long micros = nanos / 1000;
+        app.append(String.valueOf(micros / 1000));
+        app.append('.');
+        String fraction = String.valueOf(micros % 1000);
+        for (int i=fraction.length(); i<3; i++) {
+            app.append('0');
+        }
+        app.append(fraction);
+        app.append("ms");
+    }
+}
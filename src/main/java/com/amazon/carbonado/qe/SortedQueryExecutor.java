@@ -27,9 +27,13 @@ import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Storable;
 
+import com.amazon.carbonado.cursor.AbstractCursor;
 import com.amazon.carbonado.cursor.ArraySortBuffer;
 import com.amazon.carbonado.cursor.ControllerCursor;
+import com.amazon.carbonado.cursor.EmptyCursor;
+import com.amazon.carbonado.cursor.HeapSortBuffer;
 import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.SkipCursor;
 import com.amazon.carbonado.cursor.SortBuffer;
 import com.amazon.carbonado.cursor.SortedCursor;
 
@@ -39,10 +43,21 @@ import com.amazon.carbonado.filter.FilterValues;
 /**
  * QueryExecutor which wraps another and sorts the results.
  *
+ * <p>Slices which end at a known position no greater than the maximum top
+ * size are sorted with a {@link HeapSortBuffer}, retaining only as many
+ * results as the slice end, and the sort buffer provided by support is not
+ * used. Results which sort equally keep the order they were fetched in, as
+ * with a stable full sort. The maximum top size defaults to 10000, and it
+ * can be changed with the system property
+ * "com.amazon.carbonado.qe.SortedQueryExecutor.maxTopSize".
+ *
  * @author Brian S O'Neill
  * @see SortedCursor
  */
 public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    private static final int MAX_TOP_SIZE =
+        Integer.getInteger(SortedQueryExecutor.class.getName() + ".maxTopSize", 10000);
+
     private final Support<S> mSupport;
     private final QueryExecutor<S> mExecutor;
 
@@ -105,7 +120,9 @@ public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecut
     public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
         Cursor<S> cursor = mExecutor.fetch(values);
         SortBuffer<S> buffer = mSupport.createSortBuffer();
-        return new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator);
+        return traceSpill
+            (new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator),
+             buffer);
     }
 
     public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
@@ -116,8 +133,59 @@ public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecut
         // Apply the controller around the cursor to ensure timeouts are
         // honored even when the caller is slowly iterating over the cursor.
         return ControllerCursor.apply
-            (new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator),
+            (traceSpill(new SortedCursor<S>(cursor, buffer,
+                                            mHandledComparator, mFinisherComparator),
+                        buffer),
+             controller);
+    }
+
+    /**
+     * Produces a slice with a top-k sort if the slice end is small enough,
+     * and otherwise sorts all results before skipping and limiting them.
+     */
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        if (to == null || to > MAX_TOP_SIZE) {
+            return super.fetchSlice(values, from, to);
+        }
+        if (to <= from) {
+            return EmptyCursor.the();
+        }
+        Cursor<S> cursor = mExecutor.fetch(values);
+        SortBuffer<S> buffer = new HeapSortBuffer<S>(to.intValue());
+        cursor = new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator, to);
+        if (from > 0) {
+            cursor = new SkipCursor<S>(cursor, from);
+        }
+        return cursor;
+    }
+
+    /**
+     * Produces a slice with a top-k sort if the slice end is small enough,
+     * and otherwise sorts all results before skipping and limiting them.
+     */
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        if (to == null || to > MAX_TOP_SIZE) {
+            return super.fetchSlice(values, from, to, controller);
+        }
+        if (to <= from) {
+            return EmptyCursor.the();
+        }
+        Cursor<S> cursor = mExecutor.fetch(values, controller);
+        SortBuffer<S> buffer = new HeapSortBuffer<S>(to.intValue(), controller);
+        cursor = ControllerCursor.apply
+            (new SortedCursor<S>(cursor, buffer, mHandledComparator, mFinisherComparator, to),
              controller);
+        if (from > 0) {
+            cursor = new SkipCursor<S>(cursor, from);
+        }
+        return cursor;
     }
 
     @Override
@@ -163,6 +231,19 @@ public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecut
         return true;
     }
 
+    /**
+     * If a traced stage is executing, returns the given cursor wrapped so
+     * that the bytes spilled by the sort buffer are recorded into the stage
+     * when the cursor finishes.
+     */
+    private static <S extends Storable> Cursor<S> traceSpill(Cursor<S> cursor, SortBuffer<S> buffer) {
+        QueryTrace stage = QueryTrace.current();
+        if (stage == null || !(buffer instanceof MergeSortBuffer)) {
+            return cursor;
+        }
+        return new SpillTracingCursor<S>(cursor, (MergeSortBuffer<S>) buffer, stage);
+    }
+
     /**
      * Provides support for {@link SortedQueryExecutor}.
      */
@@ -200,6 +281,52 @@ public class SortedQueryExecutor<S extends Storable> extends AbstractQueryExecut
         }
     }
 
+    private static class SpillTracingCursor<S extends Storable> extends AbstractCursor<S> {
+        private final Cursor<S> mCursor;
+        private final MergeSortBuffer<S> mBuffer;
+        private final QueryTrace mStage;
+
+        private boolean mRecorded;
+
+        SpillTracingCursor(Cursor<S> cursor, MergeSortBuffer<S> buffer, QueryTrace stage) {
+            mCursor = cursor;
+            mBuffer = buffer;
+            mStage = stage;
+        }
+
+        public void close() throws FetchException {
+            try {
+                mCursor.close();
+            } finally {
+                recordSpill();
+            }
+        }
+
+        public boolean hasNext() throws FetchException {
+            if (mCursor.hasNext()) {
+                return true;
+            }
+            recordSpill();
+            return false;
+        }
+
+        public S next() throws FetchException {
+            return mCursor.next();
+        }
+
+        @Override
+        public int skipNext(int amount) throws FetchException {
+            return mCursor.skipNext(amount);
+        }
+
+        private void recordSpill() {
+            if (!mRecorded) {
+                mRecorded = true;
+                mStage.recordSpill(mBuffer.getMetrics().getSpillBytes());
+            }
+        }
+    }
+
     /**
      * @since 1.2
      */
@@ -20,6 +20,11 @@ package com.amazon.carbonado.qe;
 
 import java.io.IOException;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
@@ -32,10 +37,10 @@ import com.amazon.carbonado.Query;
 
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
-import com.amazon.carbonado.filter.RelOp;
 
-import com.amazon.carbonado.info.Direction;
-import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.util.Appender;
 
@@ -87,6 +92,9 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
         }
         mOrdering = ordering;
 
+        if (hints != null && hints.isEmpty()) {
+            hints = null;
+        }
         mHints = hints;
     }
 
@@ -228,6 +236,36 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
                            OrderingList.get(getStorableType(), properties), mHints);
     }
 
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        QueryHints hints = mHints == null ? QueryHints.emptyHints() : mHints;
+        Set<String> projection = projection(getStorableType(), properties);
+        if (projection == null) {
+            hints = hints.without(QueryHint.PROJECTION);
+        } else {
+            hints = hints.with(QueryHint.PROJECTION, projection);
+        }
+        return createQuery(mFilter, mValues, mOrdering, hints);
+    }
+
+    @Override
+    public Query<S> parallel() throws FetchException {
+        QueryHints hints = mHints == null ? QueryHints.emptyHints() : mHints;
+        if (hints.contains(QueryHint.PARALLEL)) {
+            return this;
+        }
+        return createQuery(mFilter, mValues, mOrdering, hints.with(QueryHint.PARALLEL));
+    }
+
+    @Override
+    public Query<S> trace() throws FetchException {
+        QueryHints hints = mHints == null ? QueryHints.emptyHints() : mHints;
+        if (hints.contains(QueryHint.TRACE)) {
+            return this;
+        }
+        return createQuery(mFilter, mValues, mOrdering, hints.with(QueryHint.TRACE));
+    }
+
     @Override
     public <T extends S> Query<S> after(T start) throws FetchException {
         OrderingList<S> orderings;
@@ -240,42 +278,29 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
     private <T extends S> Query<S> buildAfter(T start, OrderingList<S> orderings)
         throws FetchException
     {
-        Class<S> storableType = getStorableType();
-        Filter<S> orderFilter = Filter.getClosedFilter(storableType);
-        Filter<S> openFilter = Filter.getOpenFilter(storableType);
-        Filter<S> lastSubFilter = openFilter;
-
         Object[] values = new Object[orderings.size()];
-
-        for (int i=0;;) {
-            OrderedProperty<S> property = orderings.get(i);
-            RelOp operator = RelOp.GT;
-            if (property.getDirection() == Direction.DESCENDING) {
-                operator = RelOp.LT;
-            }
-            String propertyName = property.getChainedProperty().toString();
-
-            values[i] = start.getPropertyValue(propertyName);
-
-            orderFilter = orderFilter.or(lastSubFilter.and(propertyName, operator));
-
-            if (++i >= orderings.size()) {
-                break;
-            }
-
-            Filter<S> propFilter = openFilter.and(propertyName, RelOp.EQ).bind();
-            lastSubFilter = lastSubFilter.and(propFilter);
+        for (int i=0; i<values.length; i++) {
+            values[i] = start.getPropertyValue
+                (orderings.get(i).getChainedProperty().toString());
         }
+        return QueryPaginator.after(this, orderings, values);
+    }
 
-        Query<S> query = this.and(orderFilter);
+    @Override
+    public Page<S> fetchPage(String token, int size) throws FetchException {
+        return fetchPage(token, size, null);
+    }
 
-        for (int i=0; i<values.length; i++) {
-            for (int j=0; j<=i; j++) {
-                query = query.with(values[j]);
-            }
+    @Override
+    public Page<S> fetchPage(String token, int size, Controller controller)
+        throws FetchException
+    {
+        OrderingList<S> ordering = QueryPaginator.totalOrdering(getStorableType(), mOrdering);
+        Query<S> query = this;
+        if (ordering != mOrdering) {
+            query = createQuery(mFilter, mValues, ordering, mHints);
         }
-
-        return query;
+        return new QueryPaginator<S>(query, ordering).fetchPage(token, size, controller);
     }
 
     @Override
@@ -307,7 +332,8 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
             return fetch(controller);
         }
         try {
-            QueryHints hints = QueryHints.emptyHints().with(QueryHint.CONSUME_SLICE);
+            QueryHints hints = mHints == null ? QueryHints.emptyHints() : mHints;
+            hints = hints.with(QueryHint.CONSUME_SLICE);
             return executorFactory().executor(mFilter, mOrdering, hints)
                 .fetchSlice(mValues, from, to, controller);
         } catch (RepositoryException e) {
@@ -443,6 +469,9 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
             hash = hash * 31 + mValues.hashCode();
         }
         hash = hash * 31 + mOrdering.hashCode();
+        if (mHints != null) {
+            hash = hash * 31 + mHints.hashCode();
+        }
         return hash;
     }
 
@@ -457,7 +486,8 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
                 && executorFactory().equals(other.executorFactory())
                 && (mFilter == null ? (other.mFilter == null) : (mFilter.equals(other.mFilter)))
                 && (mValues == null ? (other.mValues == null) : (mValues.equals(other.mValues)))
-                && mOrdering.equals(other.mOrdering);
+                && mOrdering.equals(other.mOrdering)
+                && (mHints == null ? (other.mHints == null) : (mHints.equals(other.mHints)));
         }
         return false;
     }
@@ -487,6 +517,20 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
             app.append(']');
         }
 
+        if (mHints != null) {
+            Object projection = mHints.get(QueryHint.PROJECTION);
+            if (projection != null) {
+                app.append(", select=");
+                app.append(projection.toString());
+            }
+            if (mHints.contains(QueryHint.PARALLEL)) {
+                app.append(", parallel");
+            }
+            if (mHints.contains(QueryHint.TRACE)) {
+                app.append(", trace");
+            }
+        }
+
         app.append('}');
     }
 
@@ -502,13 +546,22 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
         return mOrdering;
     }
 
+    /**
+     * Returns the hints for this query, which may be null.
+     *
+     * @since 1.2.6
+     */
+    protected QueryHints getHints() {
+        return mHints;
+    }
+
     /**
      * Returns the executor in use by this query.
      */
     protected QueryExecutor<S> executor() throws RepositoryException {
         QueryExecutor<S> executor = mExecutor;
         if (executor == null) {
-            mExecutor = executor = executorFactory().executor(mFilter, mOrdering, null);
+            mExecutor = executor = executorFactory().executor(mFilter, mOrdering, mHints);
         }
         return executor;
     }
@@ -527,7 +580,7 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
      */
     protected void resetExecutor() throws RepositoryException {
         if (mExecutor != null) {
-            mExecutor = executorFactory().executor(mFilter, mOrdering, null);
+            mExecutor = executorFactory().executor(mFilter, mOrdering, mHints);
         }
     }
 
@@ -576,6 +629,53 @@ public abstract class StandardQuery<S extends Storable> extends AbstractQuery<S>
         return query;
     }
 
+    /**
+     * Returns the complete set of property names to load, or null if all
+     * properties are to be loaded.
+     */
+    private static <S extends Storable> Set<String> projection(Class<S> type,
+                                                               String... properties)
+    {
+        if (properties == null || properties.length == 0) {
+            return null;
+        }
+
+        StorableInfo<S> info = StorableIntrospector.examine(type);
+        Map<String, ? extends StorableProperty<S>> all = info.getAllProperties();
+
+        Set<String> projection = new TreeSet<String>(info.getPrimaryKeyProperties().keySet());
+
+        for (String name : properties) {
+            if (name == null) {
+                throw new IllegalArgumentException("Null property name");
+            }
+            StorableProperty<S> property = all.get(name);
+            if (property == null) {
+                throw new IllegalArgumentException
+                    ("Property \"" + name + "\" not found in type \"" + type.getName() + '"');
+            }
+            if (property.isJoin() || property.isDerived()) {
+                throw new IllegalArgumentException
+                    ("Cannot select join or derived property: " + name);
+            }
+            projection.add(name);
+        }
+
+        int count = 0;
+        for (StorableProperty<S> property : all.values()) {
+            if (!property.isJoin() && !property.isDerived()) {
+                count++;
+            }
+        }
+
+        if (projection.size() >= count) {
+            // Everything is selected.
+            return null;
+        }
+
+        return Collections.unmodifiableSet(projection);
+    }
+
     private Query<S> createQuery(Filter<S> filter,
                                  FilterValues<S> values,
                                  OrderingList<S> ordering,
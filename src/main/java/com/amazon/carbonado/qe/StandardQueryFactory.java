@@ -123,6 +123,24 @@ public abstract class StandardQueryFactory<S extends Storable> implements QueryF
     {
         filter = filter.bind();
 
+        if (hints != null && !hints.isEmpty()) {
+            // Queries with hints are not cached, since the cache is keyed
+            // only by filter and ordering.
+            FilterValues<S> values = filter.initialFilterValues();
+            if (values == null && filter.isClosed()) {
+                return new EmptyQuery<S>(this, ordering);
+            }
+            StandardQuery<S> standardQuery = createQuery(filter, values, ordering, hints);
+            if (!mLazySetExecutor) {
+                try {
+                    standardQuery.setExecutor();
+                } catch (RepositoryException e) {
+                    throw e.toFetchException();
+                }
+            }
+            return standardQuery;
+        }
+
         Map<OrderingList<S>, Query<S>> map;
         synchronized (mFilterToQuery) {
             map = mFilterToQuery.get(filter);
@@ -19,6 +19,7 @@
 package com.amazon.carbonado.qe;
 
 import java.util.Collection;
+import java.util.Set;
 
 import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Storage;
@@ -60,4 +61,17 @@ public interface StorageAccess<S extends Storable>
      * @throws IllegalArgumentException if index is unknown
      */
     Storage<S> storageDelegate(StorableIndex<S> index);
+
+    /**
+     * Returns access to the same Storables, except fetched Storables only
+     * need to have the primary key and the given properties loaded. All other
+     * properties can be left uninitialized. Return this if loading fewer
+     * properties isn't supported.
+     *
+     * @param properties names of properties to load, none of which are
+     * derived or joins
+     * @see ProjectedStorageAccess
+     * @since 1.2.6
+     */
+    StorageAccess<S> projectedAccess(Set<String> properties);
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import com.amazon.carbonado.Alias;
+import com.amazon.carbonado.Authoritative;
+import com.amazon.carbonado.Independent;
+import com.amazon.carbonado.Nullable;
+import com.amazon.carbonado.PrimaryKey;
+import com.amazon.carbonado.Storable;
+
+/**
+ * Stores {@link IndexStatistics} entries, as gathered by {@link
+ * IndexStatisticsSampler}. To use with JDBC repository, create a table like
+ * so:
+ *
+ * <pre>
+ * CREATE TABLE CARBONADO_INDEX_STATISTICS (
+ *     STORABLE_TYPE  VARCHAR(200)  NOT NULL,
+ *     INDEX_NAME     VARCHAR(1000) NOT NULL,
+ *     ROW_COUNT      BIGINT        NOT NULL,
+ *     SAMPLE_SIZE    INT           NOT NULL,
+ *     SAMPLE_TIME    BIGINT        NOT NULL,
+ *     CARDINALITIES  VARCHAR(1000) NOT NULL,
+ *     NULL_FRACTION  DOUBLE        NOT NULL,
+ *     HISTOGRAM      BLOB,
+ *     PRIMARY KEY (STORABLE_TYPE, INDEX_NAME)
+ * )
+ * </pre>
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+@PrimaryKey({"storableType", "indexName"})
+@Authoritative
+@Independent
+@Alias({
+    "CARBONADO_INDEX_STATISTICS", "Carbonado_Index_Statistics", "carbonado_index_statistics",
+    "CarbonadoIndexStatistics", "carbonadoIndexStatistics"
+})
+public interface StoredIndexStatistics extends Storable<StoredIndexStatistics> {
+    /**
+     * Returns the name of the storable type the statistics are for.
+     */
+    @Alias({"STORABLE_TYPE", "Storable_Type", "storable_type", "StorableType", "storableType"})
+    String getStorableType();
+    void setStorableType(String type);
+
+    /**
+     * Returns the comma separated list of index property names.
+     *
+     * @see IndexStatistics#indexName
+     */
+    @Alias({"INDEX_NAME", "Index_Name", "index_name", "IndexName", "indexName"})
+    String getIndexName();
+    void setIndexName(String name);
+
+    /**
+     * Returns the total number of rows at the time the sample was taken.
+     */
+    @Alias({"ROW_COUNT", "Row_Count", "row_count", "RowCount", "rowCount"})
+    long getRowCount();
+    void setRowCount(long count);
+
+    @Alias({"SAMPLE_SIZE", "Sample_Size", "sample_size", "SampleSize", "sampleSize"})
+    int getSampleSize();
+    void setSampleSize(int size);
+
+    /**
+     * Returns the time at which the sample was taken, in milliseconds.
+     */
+    @Alias({"SAMPLE_TIME", "Sample_Time", "sample_time", "SampleTime", "sampleTime"})
+    long getSampleTime();
+    void setSampleTime(long time);
+
+    /**
+     * Returns the comma separated cardinality of each leading prefix of the
+     * index properties.
+     */
+    @Alias({"CARDINALITIES", "Cardinalities", "cardinalities"})
+    String getCardinalities();
+    void setCardinalities(String cardinalities);
+
+    /**
+     * Returns the fraction of rows whose first index property is null.
+     */
+    @Alias({"NULL_FRACTION", "Null_Fraction", "null_fraction", "NullFraction", "nullFraction"})
+    double getNullFraction();
+    void setNullFraction(double fraction);
+
+    /**
+     * Returns the encoded histogram bounds of the first index property, or
+     * null if none.
+     */
+    @Alias({"HISTOGRAM", "Histogram", "histogram"})
+    @Nullable
+    byte[] getHistogram();
+    void setHistogram(byte[] histogram);
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+
+import com.amazon.carbonado.cursor.AbstractCursor;
+
+/**
+ * Wraps the cursor of a traced stage, recording rows produced and time spent.
+ * While the wrapped cursor is called, the stage is made current, and so any
+ * stages opened by it, like the inner side of a join, become its children.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see TracingQueryExecutor
+ */
+class TracingCursor<S> extends AbstractCursor<S> {
+    private final Cursor<S> mCursor;
+    private final QueryTrace mStage;
+
+    private boolean mFinished;
+
+    TracingCursor(Cursor<S> cursor, QueryTrace stage) {
+        mCursor = cursor;
+        mStage = stage;
+    }
+
+    public void close() throws FetchException {
+        try {
+            mCursor.close();
+        } finally {
+            finish();
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        boolean result = false;
+        QueryTrace previous = QueryTrace.enter(mStage);
+        long start = System.nanoTime();
+        try {
+            result = mCursor.hasNext();
+        } finally {
+            mStage.recordHasNext(System.nanoTime() - start);
+            QueryTrace.exit(previous);
+        }
+        if (!result) {
+            finish();
+        }
+        return result;
+    }
+
+    public S next() throws FetchException {
+        QueryTrace previous = QueryTrace.enter(mStage);
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            S next = mCursor.next();
+            rows = 1;
+            return next;
+        } finally {
+            mStage.recordNext(System.nanoTime() - start, rows);
+            QueryTrace.exit(previous);
+        }
+    }
+
+    @Override
+    public int skipNext(int amount) throws FetchException {
+        QueryTrace previous = QueryTrace.enter(mStage);
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            rows = mCursor.skipNext(amount);
+            return rows;
+        } finally {
+            mStage.recordNext(System.nanoTime() - start, rows);
+            QueryTrace.exit(previous);
+        }
+    }
+
+    private void finish() {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+
+        // Spills are recorded by SortedQueryExecutor, since the sorted
+        // cursor can be wrapped, as when fetching a slice.
+        if (mStage.isRoot()) {
+            mStage.finished();
+        }
+    }
+}
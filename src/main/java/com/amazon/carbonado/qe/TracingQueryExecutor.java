@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.qe;
+
+import java.io.IOException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * QueryExecutor which wraps another and records execution statistics into a
+ * {@link QueryTrace} stage. Query analyzers wrap each executor in the plan
+ * when the {@link QueryHint#TRACE TRACE} hint is present. A stage opened
+ * while another traced stage is executing in the same thread becomes its
+ * child, and otherwise it becomes the root of a new trace.
+ *
+ * <p>The query plan printed by this executor is that of the wrapped executor.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see Query#trace
+ */
+public class TracingQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    /**
+     * Wraps the given executor if the hints call for tracing.
+     *
+     * @param executor executor to wrap
+     * @param hints optional query hints
+     */
+    public static <S extends Storable> QueryExecutor<S> wrap(QueryExecutor<S> executor,
+                                                              QueryHints hints)
+    {
+        if (hints == null || !hints.contains(QueryHint.TRACE)
+            || executor instanceof TracingQueryExecutor)
+        {
+            return executor;
+        }
+        return new TracingQueryExecutor<S>(executor);
+    }
+
+    private final QueryExecutor<S> mExecutor;
+
+    /**
+     * @param executor executor to wrap
+     * @throws IllegalArgumentException if executor is null
+     */
+    public TracingQueryExecutor(QueryExecutor<S> executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException();
+        }
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns the wrapped executor.
+     */
+    public QueryExecutor<S> getExecutor() {
+        return mExecutor;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mExecutor.getStorableType();
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
+        return fetchSlice(values, 0, null, null);
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
+        throws FetchException
+    {
+        return fetchSlice(values, 0, null, controller);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        return fetchSlice(values, from, to, null);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        QueryTrace stage = stage(values);
+        QueryTrace previous = QueryTrace.enter(stage);
+        long start = System.nanoTime();
+        Cursor<S> cursor;
+        try {
+            if (from == 0 && to == null) {
+                cursor = controller == null ? mExecutor.fetch(values)
+                    : mExecutor.fetch(values, controller);
+            } else {
+                cursor = controller == null ? mExecutor.fetchSlice(values, from, to)
+                    : mExecutor.fetchSlice(values, from, to, controller);
+            }
+        } finally {
+            stage.recordOpen(System.nanoTime() - start);
+            QueryTrace.exit(previous);
+        }
+        return new TracingCursor<S>(cursor, stage);
+    }
+
+    /**
+     * Counts using the wrapped executor, recording the time spent as opening
+     * the stage, and the count as rows out.
+     */
+    @Override
+    public long count(FilterValues<S> values) throws FetchException {
+        return count(values, null);
+    }
+
+    /**
+     * Counts using the wrapped executor, recording the time spent as opening
+     * the stage, and the count as rows out.
+     */
+    @Override
+    public long count(FilterValues<S> values, Query.Controller controller) throws FetchException {
+        QueryTrace stage = stage(values);
+        QueryTrace previous = QueryTrace.enter(stage);
+        long start = System.nanoTime();
+        long count = 0;
+        try {
+            count = controller == null ? mExecutor.count(values)
+                : mExecutor.count(values, controller);
+            return count;
+        } finally {
+            stage.recordOpen(System.nanoTime() - start);
+            stage.recordRows(count);
+            QueryTrace.exit(previous);
+            if (stage.isRoot()) {
+                stage.finished();
+            }
+        }
+    }
+
+    public Filter<S> getFilter() {
+        return mExecutor.getFilter();
+    }
+
+    public OrderingList<S> getOrdering() {
+        return mExecutor.getOrdering();
+    }
+
+    /**
+     * Prints native query of the wrapped executor.
+     */
+    @Override
+    public boolean printNative(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        return mExecutor.printNative(app, indentLevel, values);
+    }
+
+    /**
+     * Prints the query plan of the wrapped executor.
+     */
+    public boolean printPlan(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        return mExecutor.printPlan(app, indentLevel, values);
+    }
+
+    private QueryTrace stage(FilterValues<S> values) {
+        QueryTrace parent = QueryTrace.current();
+        if (parent == null) {
+            return QueryTrace.root(describe(values));
+        }
+        QueryTrace stage = parent.findChild(this);
+        if (stage == null) {
+            stage = parent.child(this, describe(values));
+        }
+        return stage;
+    }
+
+    /**
+     * Returns the first line of the wrapped executor's plan, along with any
+     * continuation lines which describe it.
+     */
+    private String describe(FilterValues<S> values) {
+        StringBuilder plan = new StringBuilder();
+        try {
+            mExecutor.printPlan(plan, 0, values);
+        } catch (IOException e) {
+            // Not gonna happen.
+        }
+
+        StringBuilder b = new StringBuilder();
+        int start = 0;
+        while (start < plan.length()) {
+            int end = plan.indexOf("\n", start);
+            if (end < 0) {
+                end = plan.length();
+            }
+            String line = plan.substring(start, end).trim();
+            if (b.length() == 0) {
+                b.append(line);
+            } else if (line.startsWith("...")) {
+                b.append(' ').append(line);
+            } else {
+                break;
+            }
+            start = end + 1;
+        }
+
+        return b.toString();
+    }
+}
@@ -129,6 +129,11 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
             return new Result(subResults);
         }
 
+        // Keep the unordered sub-results, in case imposing a total ordering
+        // requires sorting.
+        List<IndexedQueryAnalyzer<S>.Result> unorderedResults =
+            ordering.size() == 0 ? subResults : null;
+
         // If any orderings have an unspecified direction, switch to ASCENDING
         // or DESCENDING, depending on which is more popular. Then build new
         // sub-results.
@@ -250,6 +255,18 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
             }
         }
 
+        if (unorderedResults != null && subResults.size() > 1
+            && (hints == null || !hints.contains(QueryHint.CONSUME_SLICE)))
+        {
+            // No ordering was requested, so if any sub-result must be sorted
+            // only to merge them, remove duplicates by hashing instead.
+            for (IndexedQueryAnalyzer<S>.Result result : subResults) {
+                if (result.getRemainderOrdering().size() > 0) {
+                    return new Result(unorderedResults, null, true);
+                }
+            }
+        }
+
         return new Result(subResults, ordering);
     }
 
@@ -385,7 +402,19 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
         }
 
         if (full == null) {
-            // Okay, no full scan needed.
+            // Okay, no full scan needed, unless statistics estimate that the
+            // sub-results together cost more than scanning everything once.
+            if (subResults.size() > 1) {
+                IndexedQueryAnalyzer<S>.Result fullScan =
+                    mIndexAnalyzer.fullScan(filter.reduce(), ordering, hints);
+                double total = 0;
+                for (IndexedQueryAnalyzer<S>.Result result : subResults) {
+                    total += result.getEstimatedCost();
+                }
+                if (total > fullScan.getEstimatedCost()) {
+                    return Collections.singletonList(fullScan);
+                }
+            }
             return subResults;
         }
 
@@ -437,17 +466,25 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
     public class Result {
         private final List<IndexedQueryAnalyzer<S>.Result> mSubResults;
         private final OrderingList<S> mTotalOrdering;
+        private final boolean mHashed;
 
         Result(List<IndexedQueryAnalyzer<S>.Result> subResults) {
             this(subResults, null);
         }
 
         Result(List<IndexedQueryAnalyzer<S>.Result> subResults, OrderingList<S> totalOrdering) {
+            this(subResults, totalOrdering, false);
+        }
+
+        Result(List<IndexedQueryAnalyzer<S>.Result> subResults, OrderingList<S> totalOrdering,
+               boolean hashed)
+        {
             if (subResults.size() < 1) {
                 throw new IllegalArgumentException();
             }
             mSubResults = Collections.unmodifiableList(subResults);
             mTotalOrdering = totalOrdering;
+            mHashed = hashed;
         }
 
         /**
@@ -465,6 +502,16 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
             return mTotalOrdering;
         }
 
+        /**
+         * Returns true if the sub-results are unordered, and so duplicates
+         * are removed by hashing primary keys instead of by merging.
+         *
+         * @since 1.2.6
+         */
+        public boolean isHashed() {
+            return mHashed;
+        }
+
         /**
          * Creates a QueryExecutor based on this result.
          */
@@ -480,10 +527,25 @@ public class UnionQueryAnalyzer<S extends Storable> implements QueryExecutorFact
 
             List<QueryExecutor<S>> executors = new ArrayList<QueryExecutor<S>>(size);
             for (int i=0; i<size; i++) {
-                executors.add(subResults.get(i).createExecutor());
+                IndexedQueryAnalyzer<S>.Result subResult = subResults.get(i);
+                QueryExecutor<S> executor = subResult.createExecutor();
+                ParallelExecution budget = subResult.parallelism();
+                if (budget != null && !subResult.isScanParallel()) {
+                    // Fetch all sub-cursors concurrently, feeding the ordered merge.
+                    executor = new ParallelQueryExecutor<S>(executor, budget);
+                    executor = TracingQueryExecutor.wrap(executor, subResult.hints());
+                }
+                executors.add(executor);
+            }
+
+            QueryExecutor<S> executor;
+            if (mHashed) {
+                executor = new UnionQueryExecutor<S>(executors, true);
+            } else {
+                executor = new UnionQueryExecutor<S>(executors, mTotalOrdering);
             }
 
-            return new UnionQueryExecutor<S>(executors, mTotalOrdering);
+            return TracingQueryExecutor.wrap(executor, subResults.get(0).hints());
         }
     }
 
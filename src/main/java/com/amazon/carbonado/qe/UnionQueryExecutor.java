@@ -20,6 +20,7 @@ package com.amazon.carbonado.qe;
 
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -29,6 +30,7 @@ import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.Query;
 import com.amazon.carbonado.Storable;
 
+import com.amazon.carbonado.cursor.HashDistinctCursor;
 import com.amazon.carbonado.cursor.SortedCursor;
 import com.amazon.carbonado.cursor.UnionCursor;
 
@@ -40,6 +42,7 @@ import com.amazon.carbonado.filter.FilterValues;
  *
  * @author Brian S O'Neill
  * @see UnionCursor
+ * @see HashDistinctCursor
  */
 public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
     private static <E> E ensureNotNull(E e) {
@@ -52,6 +55,7 @@ public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecuto
     private final QueryExecutor<S>[] mExecutors;
     private final OrderingList<S> mTotalOrdering;
     private final Comparator<S> mOrderComparator;
+    private final boolean mHashed;
 
     /**
      * @param executors executors to wrap, each must have the exact same total ordering
@@ -75,6 +79,25 @@ public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecuto
      * @throws IllegalArgumentException if executors is null
      */
     public UnionQueryExecutor(List<QueryExecutor<S>> executors, OrderingList<S> totalOrdering) {
+        this(executors, totalOrdering, false);
+    }
+
+    /**
+     * @param executors executors to wrap, each must have the exact same total
+     * ordering unless hashed
+     * @param hashed when true, executors need not have any ordering in common,
+     * duplicates are removed by hashing primary keys, and results are unordered
+     * @throws IllegalArgumentException if executors is null or if ordering
+     * doesn't match
+     * @since 1.2.6
+     */
+    public UnionQueryExecutor(List<QueryExecutor<S>> executors, boolean hashed) {
+        this(executors, hashed ? OrderingList.<S>emptyList() : null, hashed);
+    }
+
+    private UnionQueryExecutor(List<QueryExecutor<S>> executors, OrderingList<S> totalOrdering,
+                               boolean hashed)
+    {
         if (executors == null || executors.size() == 0) {
             throw new IllegalArgumentException();
         }
@@ -94,7 +117,8 @@ public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecuto
         mExecutors = new QueryExecutor[executors.size()];
         executors.toArray(mExecutors);
         mTotalOrdering = totalOrdering;
-        mOrderComparator = SortedCursor.createComparator(totalOrdering);
+        mOrderComparator = hashed ? null : SortedCursor.createComparator(totalOrdering);
+        mHashed = hashed;
     }
 
     public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
@@ -104,6 +128,14 @@ public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecuto
     public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
         throws FetchException
     {
+        if (mHashed) {
+            List<Cursor<S>> cursors = new ArrayList<Cursor<S>>(mExecutors.length);
+            for (QueryExecutor<S> executor : mExecutors) {
+                cursors.add(executor.fetch(values, controller));
+            }
+            return new HashDistinctCursor<S>(cursors);
+        }
+
         Cursor<S> cursor = null;
         for (QueryExecutor<S> executor : mExecutors) {
             Cursor<S> subCursor = executor.fetch(values, controller);
@@ -147,7 +179,7 @@ public class UnionQueryExecutor<S extends Storable> extends AbstractQueryExecuto
         throws IOException
     {
         indent(app, indentLevel);
-        app.append("union");
+        app.append(mHashed ? "hash union" : "union");
         newline(app);
         for (QueryExecutor<S> executor : mExecutors) {
             executor.printPlan(app, increaseIndent(indentLevel), values);
@@ -19,6 +19,7 @@
 package com.amazon.carbonado.raw;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.cojen.classfile.ClassFile;
 import org.cojen.classfile.CodeBuilder;
@@ -302,6 +303,19 @@ public abstract class CustomStorableCodec<S extends Storable> implements Storabl
         return (S) mInstanceFactory.instantiate(support, key, value, this);
     }
 
+    /**
+     * Always decodes all properties, since custom encodings cannot be
+     * partially decoded.
+     *
+     * @since 1.2.6
+     */
+    public S instantiate(RawSupport<S> support, byte[] key, byte[] value,
+                         Set<String> projection)
+        throws FetchException
+    {
+        return instantiate(support, key, value);
+    }
+
     public byte[] encodePrimaryKey(S storable) {
         return encodePrimaryKey(storable, 0, mPkPropertyCount);
     }
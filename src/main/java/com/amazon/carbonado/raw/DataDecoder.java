@@ -596,6 +596,139 @@ public class DataDecoder {
         }
     }
 
+    /**
+     * Skips over an encoded byte array or BigInteger without decoding it.
+     *
+     * @param src source of encoded data
+     * @param srcOffset offset into encoded data
+     * @return amount of bytes read from source
+     * @throws CorruptEncodingException if source data is corrupt
+     * @since 1.2.6
+     */
+    public static int skipBytes(byte[] src, int srcOffset) throws CorruptEncodingException {
+        try {
+            int b = src[srcOffset] & 0xff;
+            if (b >= 0xf8) {
+                return 1;
+            }
+            return lengthPrefixSize(b) + decodeLengthPrefix(src, srcOffset);
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptEncodingException(null, e);
+        }
+    }
+
+    /**
+     * Skips over an encoded BigDecimal without decoding it.
+     *
+     * @param src source of encoded data
+     * @param srcOffset offset into encoded data
+     * @return amount of bytes read from source
+     * @throws CorruptEncodingException if source data is corrupt
+     * @since 1.2.6
+     */
+    public static int skipBigDecimal(byte[] src, int srcOffset) throws CorruptEncodingException {
+        try {
+            int b = src[srcOffset] & 0xff;
+            if (b >= 0xf8) {
+                return 1;
+            }
+            // Skip the scale, and then the unscaled value.
+            int amt = lengthPrefixSize(b);
+            return amt + skipBytes(src, srcOffset + amt);
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptEncodingException(null, e);
+        }
+    }
+
+    /**
+     * Skips over an encoded string without decoding it.
+     *
+     * @param src source of encoded data
+     * @param srcOffset offset into encoded data
+     * @return amount of bytes read from source
+     * @throws CorruptEncodingException if source data is corrupt
+     * @since 1.2.6
+     */
+    public static int skipString(byte[] src, int srcOffset) throws CorruptEncodingException {
+        try {
+            final int originalOffset = srcOffset;
+
+            int b = src[srcOffset] & 0xff;
+            if (b >= 0xf8) {
+                return 1;
+            }
+
+            // Length is in characters, and so they must be scanned.
+            int valueLength = decodeLengthPrefix(src, srcOffset);
+            srcOffset += lengthPrefixSize(b);
+
+            while (valueLength > 0) {
+                int c = src[srcOffset++] & 0xff;
+                switch (c >> 5) {
+                case 0: case 1: case 2: case 3:
+                    valueLength--;
+                    break;
+                case 4: case 5:
+                    srcOffset++;
+                    valueLength--;
+                    break;
+                case 6:
+                    c = ((c & 0x1f) << 16) | ((src[srcOffset++] & 0xff) << 8)
+                        | (src[srcOffset++] & 0xff);
+                    // Characters beyond 0xffff were decoded as surrogate pairs.
+                    valueLength -= c >= 0x10000 ? 2 : 1;
+                    break;
+                default:
+                    throw new CorruptEncodingException
+                        ("Corrupt encoded string data (source offset = "
+                         + (srcOffset - 1) + ')');
+                }
+            }
+
+            return srcOffset - originalOffset;
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptEncodingException(null, e);
+        }
+    }
+
+    /**
+     * Returns the size of a non-null length prefix, given its first byte.
+     */
+    private static int lengthPrefixSize(int b) {
+        if (b <= 0x7f) {
+            return 1;
+        } else if (b <= 0xbf) {
+            return 2;
+        } else if (b <= 0xdf) {
+            return 3;
+        } else if (b <= 0xef) {
+            return 4;
+        } else {
+            return 5;
+        }
+    }
+
+    /**
+     * Decodes a non-null length prefix, as used by byte arrays and strings.
+     */
+    private static int decodeLengthPrefix(byte[] src, int srcOffset) {
+        int b = src[srcOffset++] & 0xff;
+        if (b <= 0x7f) {
+            return b;
+        } else if (b <= 0xbf) {
+            return ((b & 0x3f) << 8) | (src[srcOffset] & 0xff);
+        } else if (b <= 0xdf) {
+            return ((b & 0x1f) << 16) | ((src[srcOffset] & 0xff) << 8) |
+                (src[srcOffset + 1] & 0xff);
+        } else if (b <= 0xef) {
+            return ((b & 0x0f) << 24) | ((src[srcOffset] & 0xff) << 16) |
+                ((src[srcOffset + 1] & 0xff) << 8) | (src[srcOffset + 2] & 0xff);
+        } else {
+            return ((src[srcOffset] & 0xff) << 24) | ((src[srcOffset + 1] & 0xff) << 16) |
+                ((src[srcOffset + 2] & 0xff) << 8) | (src[srcOffset + 3] & 0xff);
+        }
+    }
+
     /**
      * Decodes a length value which was encoded by {@link DataEncoder#writeLength}.
      *
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import org.cojen.classfile.CodeAssembler;
@@ -218,7 +219,7 @@ public class GenericEncodingStrategy<S extends Storable> {
                       extractProperties(properties), extractDirections(properties),
                       instanceVar, adapterInstanceClass, useWriteMethods,
                       -1, null, // no generation support
-                      encodedVar);
+                      encodedVar, null);
     }
 
     /**
@@ -303,11 +304,38 @@ public class GenericEncodingStrategy<S extends Storable> {
                                   Label altGenerationHandler,
                                   LocalVariable encodedVar)
         throws SupportException
+    {
+        buildDataDecoding(assembler, properties, instanceVar, adapterInstanceClass,
+                          useWriteMethods, generation, altGenerationHandler, encodedVar, null);
+    }
+
+    /**
+     * Generates bytecode instructions to decode only some of the properties. A
+     * CorruptEncodingException may be thrown from generated code. Properties
+     * which aren't projected are skipped over without being decoded or
+     * stored, and decoding stops after the last projected property.
+     *
+     * @param projection names of properties to decode, or null to decode all
+     * of them
+     * @see #buildDataDecoding(CodeAssembler, StorableProperty[], LocalVariable,
+     * Class, boolean, int, Label, LocalVariable)
+     * @since 1.2.6
+     */
+    public void buildDataDecoding(CodeAssembler assembler,
+                                  StorableProperty<S>[] properties,
+                                  LocalVariable instanceVar,
+                                  Class<?> adapterInstanceClass,
+                                  boolean useWriteMethods,
+                                  int generation,
+                                  Label altGenerationHandler,
+                                  LocalVariable encodedVar,
+                                  Set<String> projection)
+        throws SupportException
     {
         properties = ensureDataProperties(properties);
         buildDecoding(Mode.DATA, assembler, properties, null,
                       instanceVar, adapterInstanceClass, useWriteMethods,
-                      generation, altGenerationHandler, encodedVar);
+                      generation, altGenerationHandler, encodedVar, projection);
     }
 
     /**
@@ -350,7 +378,8 @@ public class GenericEncodingStrategy<S extends Storable> {
     {
         properties = ensureAllProperties(properties);
         buildDecoding
-            (Mode.SERIAL, assembler, properties, null, null, null, false, -1, null, encodedVar);
+            (Mode.SERIAL, assembler, properties, null, null, null, false, -1, null, encodedVar,
+             null);
     }
 
     /**
@@ -1838,7 +1867,8 @@ public class GenericEncodingStrategy<S extends Storable> {
                                boolean useWriteMethods,
                                int generation,
                                Label altGenerationHandler,
-                               LocalVariable encodedVar)
+                               LocalVariable encodedVar,
+                               Set<String> projection)
         throws SupportException
     {
         if (a == null) {
@@ -1898,6 +1928,17 @@ public class GenericEncodingStrategy<S extends Storable> {
 
         StorablePropertyInfo[] infos = checkSupport(properties);
 
+        // Properties after the last projected one don't need to be decoded.
+        int end = properties.length;
+        if (projection != null) {
+            while (end > 0 && !projection.contains(properties[end - 1].getName())) {
+                end--;
+            }
+            if (end == 0) {
+                return;
+            }
+        }
+
         if (properties.length == 1) {
             StorableProperty<S> property = properties[0];
             StorablePropertyInfo info = infos[0];
@@ -2015,15 +2056,19 @@ public class GenericEncodingStrategy<S extends Storable> {
             }
         }
 
-        for (int i=0; i<properties.length; i++) {
+        for (int i=0; i<end; i++) {
             StorableProperty<S> property = properties[i];
             StorablePropertyInfo info = infos[i];
 
+            boolean skip = projection != null && !projection.contains(property.getName());
+
             Label storePropertyLocation = a.createLabel();
             Label nextPropertyLocation = a.createLabel();
 
-            // Push to stack in preparation for storing a property.
-            pushDecodingInstanceVar(a, i, instanceVar);
+            if (!skip) {
+                // Push to stack in preparation for storing a property.
+                pushDecodingInstanceVar(a, i, instanceVar);
+            }
 
             if (mode == Mode.SERIAL) {
                 // Load property if initialized, else reset it.
@@ -2051,12 +2096,14 @@ public class GenericEncodingStrategy<S extends Storable> {
             TypeDesc storageType = info.getStorageType();
 
             if (info.isLob()) {
-                // Need RawSupport instance for getting Lob from locator.
-                pushRawSupport(a, instanceVar);
+                if (!skip) {
+                    // Need RawSupport instance for getting Lob from locator.
+                    pushRawSupport(a, instanceVar);
 
-                // Also need to pass this stuff along when getting Lob.
-                a.loadThis();
-                a.loadConstant(info.getPropertyName());
+                    // Also need to pass this stuff along when getting Lob.
+                    a.loadThis();
+                    a.loadConstant(info.getPropertyName());
+                }
 
                 // Locator is encoded as a long.
                 storageType = TypeDesc.LONG;
@@ -2072,18 +2119,25 @@ public class GenericEncodingStrategy<S extends Storable> {
             boolean descending = mode == Mode.KEY
                 && directions != null && directions[i] == Direction.DESCENDING;
 
-            int amt = decodeProperty(a, info, storageType, mode, descending,
+            int amt;
+            if (skip && storageType.toPrimitiveType() == null) {
+                // Only the amount read is pushed.
+                skipProperty(a, storageType);
+                amt = 0;
+            } else {
+                amt = decodeProperty(a, info, storageType, mode, descending,
                                      // TODO: do something better for passing these refs
                                      stringRefRef, byteArrayRefRef,
                                      bigIntegerRefRef, bigDecimalRefRef,
                                      valueRefRef);
+            }
 
-            if (info.isLob()) {
+            if (info.isLob() && !skip) {
                 getLobFromLocator(a, info);
             }
 
             if (amt != 0) {
-                if (i + 1 < properties.length) {
+                if (i + 1 < end) {
                     // Only adjust offset if there are more properties.
 
                     if (amt > 0) {
@@ -2117,7 +2171,7 @@ public class GenericEncodingStrategy<S extends Storable> {
                     }
                 }
             } else {
-                if (i + 1 >= properties.length) {
+                if (i + 1 >= end) {
                     // Don't need to keep track of offset anymore.
                     a.pop();
                 } else {
@@ -2135,15 +2189,26 @@ public class GenericEncodingStrategy<S extends Storable> {
                     a.storeLocal(offsetVar);
                 }
 
-                // Get the value out of the ref array so that it can be stored.
-                a.loadLocal(valueRefRef[0]);
-                a.loadConstant(0);
-                a.loadFromArray(valueRefRef[0].getType());
+                if (!skip) {
+                    // Get the value out of the ref array so that it can be stored.
+                    a.loadLocal(valueRefRef[0]);
+                    a.loadConstant(0);
+                    a.loadFromArray(valueRefRef[0].getType());
+                }
             }
 
             storePropertyLocation.setLocation();
 
-            storePropertyValue(a, info, useWriteMethods, instanceVar, adapterInstanceClass);
+            if (!skip) {
+                storePropertyValue(a, info, useWriteMethods, instanceVar, adapterInstanceClass);
+            } else if (amt != 0) {
+                // Discard the decoded value.
+                if (storageType.isDoubleWord()) {
+                    a.pop2();
+                } else {
+                    a.pop();
+                }
+            }
 
             nextPropertyLocation.setLocation();
         }
@@ -2160,6 +2225,25 @@ public class GenericEncodingStrategy<S extends Storable> {
         }
     }
 
+    /**
+     * Generates code that calls a skipping method in DataDecoder, for a
+     * property which isn't primitive. Parameters must already be on the
+     * stack, and the amount read is pushed.
+     */
+    private void skipProperty(CodeAssembler a, TypeDesc storageType) {
+        String methodName;
+        if (storageType == TypeDesc.STRING) {
+            methodName = "skipString";
+        } else if (storageType.toClass() == BigDecimal.class) {
+            methodName = "skipBigDecimal";
+        } else {
+            // Byte arrays and BigIntegers share the same encoding.
+            methodName = "skipBytes";
+        }
+        a.invokeStatic(DataDecoder.class.getName(), methodName, TypeDesc.INT,
+                       new TypeDesc[] {TypeDesc.forClass(byte[].class), TypeDesc.INT});
+    }
+
     /**
      * Generates code that calls a decoding method in DataDecoder or
      * KeyDecoder. Parameters must already be on the stack.
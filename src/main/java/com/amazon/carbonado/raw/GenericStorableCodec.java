@@ -21,7 +21,9 @@ package com.amazon.carbonado.raw;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.cojen.classfile.ClassFile;
 import org.cojen.classfile.CodeBuilder;
@@ -51,6 +53,8 @@ import com.amazon.carbonado.info.StorableProperty;
 import com.amazon.carbonado.layout.Layout;
 import com.amazon.carbonado.layout.LayoutOptions;
 
+import com.amazon.carbonado.lob.Lob;
+
 import com.amazon.carbonado.gen.CodeBuilderUtil;
 import com.amazon.carbonado.gen.StorableGenerator;
 import com.amazon.carbonado.gen.TriggerSupport;
@@ -317,6 +321,15 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
     // Maps layout generations to Decoders.
     private IntHashMap mDecoders;
 
+    // Maps layout generations to cCodecDecoders keys.
+    private IntHashMap mDecoderKeys;
+
+    // Maps layout generations to maps of projections to Decoders.
+    private IntHashMap mProjectedDecoders;
+
+    // Generated method which encodes data in the current layout generation.
+    private volatile Method mEncodeDataMethod;
+
     /**
      * @param codecKey cache key for this GenericStorableCodec instance
      */
@@ -413,6 +426,45 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
         }
     }
 
+    /**
+     * Instantiate a Storable with a specific key and value, decoding only the
+     * given properties. Properties which aren't decoded are left
+     * uninitialized. Any {@link RawSupport} can be supplied to the instance.
+     *
+     * @param support binds generated storable with a storage layer
+     * @param projection names of properties to decode, or null to decode all
+     * of them; the primary key is always decoded
+     * @since 1.2.6
+     */
+    @SuppressWarnings("unchecked")
+    public S instantiate(RawSupport<S> support, byte[] key, byte[] value,
+                         Set<String> projection)
+        throws FetchException
+    {
+        if (projection == null) {
+            return instantiate(support, key, value);
+        }
+
+        Decoder<S> decoder = getProjectedDecoder(decodeGeneration(value), projection);
+        if (decoder == null) {
+            return instantiate(support, key, value);
+        }
+
+        S storable = (S) mInstanceFactory.instantiate(support, key);
+        try {
+            decoder.decode(storable, value);
+        } catch (CorruptEncodingException e) {
+            e.setStorableWithPrimaryKey(storable);
+            throw e;
+        }
+
+        // Projected decoder calls the write methods, leaving the decoded
+        // properties dirty.
+        storable.markPropertiesClean();
+
+        return storable;
+    }
+
     public StorableIndex<S> getPrimaryKeyIndex() {
         return mEncodingStrategy.getPrimaryKeyIndex();
     }
@@ -494,6 +546,132 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
         }
     }
 
+    /**
+     * Returns the layout generation which data is encoded with, or -1 if
+     * layout generations are not supported.
+     *
+     * @since 1.2.6
+     */
+    public int getLayoutGeneration() {
+        return mLayout == null ? -1 : mLayout.getGeneration();
+    }
+
+    /**
+     * Returns the layout generation which the given encoded data was written
+     * with, or -1 if layout generations are not supported.
+     *
+     * @param data encoded data, as produced by any layout generation
+     * @throws CorruptEncodingException if data is too short
+     * @since 1.2.6
+     */
+    public int decodeGeneration(byte[] data) throws CorruptEncodingException {
+        if (mLayout == null) {
+            return -1;
+        }
+        int offset = mEncodingStrategy.getDataPrefixPadding();
+        try {
+            int generation = data[offset];
+            if (generation < 0) {
+                // Four byte generation format.
+                generation = ((generation << 24) & 0x7fffffff)
+                    | ((data[offset + 1] & 0xff) << 16)
+                    | ((data[offset + 2] & 0xff) << 8)
+                    | (data[offset + 3] & 0xff);
+            }
+            return generation;
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptEncodingException("Data is too short to contain a generation");
+        }
+    }
+
+    /**
+     * Decodes data written with any layout generation, and encodes it again
+     * using the current layout generation. Properties which the current
+     * generation doesn't have are dropped, and new properties are encoded
+     * with default values.
+     *
+     * @param key encoded key
+     * @param data encoded data, as produced by any layout generation
+     * @return data encoded with the current layout generation
+     * @throws IllegalStateException if no default support exists
+     * @since 1.2.6
+     */
+    public byte[] reencodeData(byte[] key, byte[] data) throws FetchException {
+        S storable = instantiate(key, data);
+
+        Method encodeData = mEncodeDataMethod;
+        if (encodeData == null) {
+            try {
+                encodeData = mStorableClass.getDeclaredMethod
+                    (RawStorableGenerator.ENCODE_DATA_METHOD_NAME);
+            } catch (NoSuchMethodException e) {
+                throw new UndeclaredThrowableException(e);
+            }
+            encodeData.setAccessible(true);
+            mEncodeDataMethod = encodeData;
+        }
+
+        try {
+            return (byte[]) encodeData.invoke(storable);
+        } catch (Exception e) {
+            ThrowUnchecked.fireFirstDeclaredCause(e, FetchException.class);
+            // Not reached.
+            return null;
+        }
+    }
+
+    /**
+     * Discards the decoders which have been generated for older layout
+     * generations, including those shared with other codecs of the same
+     * type, allowing them to be reclaimed. This method should be called once
+     * all records have been migrated to the current generation. If a record
+     * of an older generation is encountered again, its decoder is simply
+     * generated again.
+     *
+     * @since 1.2.6
+     */
+    public void discardDecoders() {
+        if (mLayout == null) {
+            return;
+        }
+        synchronized (mLayout) {
+            int current = mLayout.getGeneration();
+
+            IntHashMap projected = mProjectedDecoders;
+            if (projected != null) {
+                Object currentProjected = projected.get(current);
+                mProjectedDecoders = null;
+                if (currentProjected != null) {
+                    mProjectedDecoders = new IntHashMap();
+                    mProjectedDecoders.put(current, currentProjected);
+                }
+            }
+
+            IntHashMap decoders = mDecoders;
+            IntHashMap keys = mDecoderKeys;
+            if (decoders == null || keys == null) {
+                return;
+            }
+            Object currentDecoder = decoders.get(current);
+            Object currentKey = keys.get(current);
+            synchronized (cCodecDecoders) {
+                for (Object key : keys.values()) {
+                    if (key != currentKey) {
+                        cCodecDecoders.remove(key);
+                    }
+                }
+            }
+            mDecoders = null;
+            mDecoderKeys = null;
+            if (currentDecoder != null) {
+                mDecoders = new IntHashMap();
+                mDecoders.put(current, currentDecoder);
+                mDecoderKeys = new IntHashMap();
+                mDecoderKeys.put(current, currentKey);
+            }
+        }
+    }
+
     @Override
     public void decode(S dest, int generation, byte[] data) throws CorruptEncodingException {
         try {
@@ -518,23 +696,26 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
                 IntHashMap decoders = mDecoders;
                 if (decoders == null) {
                     mDecoders = decoders = new IntHashMap();
+                    mDecoderKeys = new IntHashMap();
                 }
                 Decoder<S> decoder = (Decoder<S>) decoders.get(generation);
                 if (decoder == null) {
+                    Object key;
                     synchronized (cCodecDecoders) {
                         Object altLayoutKey = new LayoutKey(mLayout.getGeneration(generation));
-                        Object key = KeyFactory.createKey
+                        key = KeyFactory.createKey
                             // Note: Generation is still required in the key
                             // because an equivalent layout (with different generation)
                             // might have been supplied by Layout.getGeneration.
                             (new Object[] {mCodecKey, generation, altLayoutKey});
                         decoder = (Decoder<S>) cCodecDecoders.get(key);
                         if (decoder == null) {
-                            decoder = generateDecoder(generation);
+                            decoder = generateDecoder(generation, null);
                             cCodecDecoders.put(key, decoder);
                         }
                     }
                     mDecoders.put(generation, decoder);
+                    mDecoderKeys.put(generation, key);
                 }
                 return decoder;
             }
@@ -546,6 +727,54 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
         }
     }
 
+    /**
+     * Returns a decoder for the given generation which only decodes the
+     * projected properties, or null if projection isn't supported.
+     */
+    @SuppressWarnings("unchecked")
+    private Decoder<S> getProjectedDecoder(int generation, Set<String> projection)
+        throws FetchException
+    {
+        synchronized (mLayout == null ? this : mLayout) {
+            IntHashMap decoders = mProjectedDecoders;
+            if (decoders == null) {
+                mProjectedDecoders = decoders = new IntHashMap();
+            }
+            Map<Set<String>, Decoder<S>> byProjection =
+                (Map<Set<String>, Decoder<S>>) decoders.get(generation);
+            if (byProjection == null) {
+                byProjection = new HashMap<Set<String>, Decoder<S>>();
+                decoders.put(generation, byProjection);
+            } else if (byProjection.containsKey(projection)) {
+                return byProjection.get(projection);
+            }
+
+            Decoder<S> decoder = null;
+            if (!hasLob(projection)) {
+                decoder = generateDecoder(generation, projection);
+            }
+
+            byProjection.put(projection, decoder);
+            return decoder;
+        }
+    }
+
+    /**
+     * Lobs are resolved against the instance which decodes them, and so they
+     * can only be decoded by the storable itself.
+     */
+    private boolean hasLob(Set<String> projection) {
+        Map<String, ? extends StorableProperty<S>> properties =
+            StorableIntrospector.examine(mType).getAllProperties();
+        for (String name : projection) {
+            StorableProperty<S> property = properties.get(name);
+            if (property != null && Lob.class.isAssignableFrom(property.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @SuppressWarnings("unchecked")
     private SearchKeyFactory<S> generateSearchKeyFactory(OrderedProperty<S>[] properties) {
         ClassInjector ci;
@@ -750,25 +979,38 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
         }
     }
 
-    private Decoder<S> generateDecoder(int generation) throws FetchException {
+    /**
+     * @param projection optional names of properties to decode, which are
+     * set by their write methods
+     */
+    private Decoder<S> generateDecoder(int generation, Set<String> projection)
+        throws FetchException
+    {
         // Create an encoding strategy against the reconstructed storable.
         Class<? extends Storable> altStorable;
         GenericEncodingStrategy<? extends Storable> altStrategy;
-        try {
-            Layout altLayout = mLayout.getGeneration(generation);
+        if (mLayout == null) {
+            // Without a layout, only projected decoders are generated, and
+            // they always decode the current properties.
+            altStorable = mType;
+            altStrategy = mEncodingStrategy;
+        } else {
+            try {
+                Layout altLayout = mLayout.getGeneration(generation);
 
-            altStorable = altLayout.reconstruct(mStorableClass.getClassLoader());
+                altStorable = altLayout.reconstruct(mStorableClass.getClassLoader());
 
-            LayoutOptions options = altLayout.getOptions();
-            if (options == null) {
-                // Explictly specify no options, to prevent the factory from
-                // trying to infer what null options means.
-                options = new LayoutOptions();
-            }
+                LayoutOptions options = altLayout.getOptions();
+                if (options == null) {
+                    // Explictly specify no options, to prevent the factory from
+                    // trying to infer what null options means.
+                    options = new LayoutOptions();
+                }
 
-            altStrategy = mFactory.createStrategy(altStorable, null, options);
-        } catch (RepositoryException e) {
-            throw new CorruptEncodingException(e);
+                altStrategy = mFactory.createStrategy(altStorable, null, options);
+            } catch (RepositoryException e) {
+                throw new CorruptEncodingException(e);
+            }
         }
 
         ClassInjector ci = ClassInjector.create(mType.getName(), mStorableClass.getClassLoader());
@@ -801,13 +1043,16 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
         // properties           = null (defaults to all non-key properties)
         // instanceVar          = "dest" storable
         // adapterInstanceClass = null (null means use instanceVar, in this case is "dest")
-        // useWriteMethods      = false (will set fields directly)
+        // useWriteMethods      = only when projecting, so that decoded properties
+        //                        can be distinguished from uninitialized ones
         // generation           = generation
         // altGenerationHandler = null (generation should match)
         // encodedVar           = "data" byte array
+        // projection           = projection (null means decode all properties)
         try {
             altStrategy.buildDataDecoding
-                (b, null, destVar, null, false, generation, null, dataVar);
+                (b, null, destVar, null, projection != null, generation, null, dataVar,
+                 projection);
         } catch (SupportException e) {
             throw new CorruptEncodingException(e);
         }
@@ -830,6 +1075,10 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
                 continue;
             }
 
+            if (projection != null && !projection.contains(prop.getName())) {
+                continue;
+            }
+
             b.loadLocal(destVar);
 
             TypeDesc propType = TypeDesc.forClass(prop.getType());
@@ -852,7 +1101,11 @@ public class GenericStorableCodec<S extends Storable> implements StorableCodec<S
                 break;
             }
 
-            b.storeField(destVar.getType(), prop.getName(), propType);
+            if (projection == null) {
+                b.storeField(destVar.getType(), prop.getName(), propType);
+            } else {
+                b.invoke(prop.getWriteMethod());
+            }
         }
 
         b.returnVoid();
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.raw;
+
+import java.util.NoSuchElementException;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.AbstractCursor;
+import com.amazon.carbonado.cursor.FilteredCursor;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * Evaluates a filter which only examines primary key properties against
+ * encoded keys, allowing a {@link RawCursor} to skip over rejected entries
+ * without fetching or decoding their values. Only the key is decoded, and
+ * the filter is tested by the same generated code that a {@link
+ * FilteredCursor} uses.
+ *
+ * <p>KeyFilter instances are not thread-safe, and each is intended to be
+ * used by only one cursor.
+ *
+ * @author Brian S O'Neill
+ * @see RawCursor#setKeyFilter
+ * @since 1.2.6
+ */
+public class KeyFilter<S extends Storable> {
+    private final StorableCodec<S> mCodec;
+    private final Source<S> mSource;
+    private final Cursor<S> mFiltered;
+
+    /**
+     * @param codec codec which decodes keys
+     * @param filter filter which only references primary key properties
+     * @param filterValues values for filter, which may be null if filter has
+     * no parameters
+     * @throws IllegalArgumentException if filter is closed
+     * @throws IllegalStateException if any values are not specified
+     */
+    public KeyFilter(StorableCodec<S> codec, Filter<S> filter, FilterValues<S> filterValues) {
+        mCodec = codec;
+        mSource = new Source<S>();
+        mFiltered = FilteredCursor.applyFilter(filter, filterValues, mSource);
+    }
+
+    /**
+     * Returns true if the Storable with the given encoded key is matched by
+     * the filter.
+     */
+    public boolean isAllowed(byte[] key) throws FetchException {
+        mSource.mNext = mCodec.instantiate(key);
+        if (mFiltered.hasNext()) {
+            mFiltered.next();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Supplies the filtered cursor with one key-only Storable at a time.
+     */
+    private static class Source<S> extends AbstractCursor<S> {
+        S mNext;
+
+        Source() {
+        }
+
+        public void close() {
+            mNext = null;
+        }
+
+        public boolean hasNext() {
+            return mNext != null;
+        }
+
+        public S next() {
+            S next = mNext;
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            mNext = null;
+            return next;
+        }
+    }
+}
@@ -51,6 +51,8 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
 
     private byte mState;
 
+    private KeyFilter<?> mKeyFilter;
+
     /**
      * @param lock operations lock on this object
      * @param startBound specify the starting key for the cursor, or null if first
@@ -95,6 +97,27 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
         }
     }
 
+    /**
+     * Sets a filter which is evaluated against each key, before the value is
+     * fetched or decoded. Entries whose keys are rejected are skipped. This
+     * method must be called before the cursor is first accessed.
+     *
+     * @param filter optional key filter
+     * @throws IllegalStateException if cursor has already been accessed
+     * @since 1.2.6
+     */
+    public void setKeyFilter(KeyFilter<?> filter) {
+        mLock.lock();
+        try {
+            if (mState != UNINITIALIZED) {
+                throw new IllegalStateException("Cursor has already been accessed");
+            }
+            mKeyFilter = filter;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
     public void close() throws FetchException {
         mLock.lock();
         try {
@@ -116,7 +139,7 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
             try {
                 switch (mState) {
                 case UNINITIALIZED:
-                    if (mReverse ? toBoundedLast() : toBoundedFirst()) {
+                    if (toAllowed(mReverse ? toBoundedLast() : toBoundedFirst())) {
                         mState = HAS_NEXT;
                         return true;
                     } else {
@@ -128,7 +151,7 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
                     return false;
 
                 case TRY_NEXT:
-                    if (mReverse ? toBoundedPrevious() : toBoundedNext()) {
+                    if (toAllowed(mReverse ? toBoundedPrevious() : toBoundedNext())) {
                         mState = HAS_NEXT;
                         return true;
                     }
@@ -190,6 +213,21 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
             return 0;
         }
 
+        if (mKeyFilter != null) {
+            // Bulk skip cannot apply key filter, so skip one at a time.
+            mLock.lock();
+            try {
+                int actual = 0;
+                while (actual < amount && hasNext()) {
+                    mState = TRY_NEXT;
+                    actual++;
+                }
+                return actual;
+            } finally {
+                mLock.unlock();
+            }
+        }
+
         try {
             int actual = 0;
 
@@ -518,6 +556,40 @@ public abstract class RawCursor<S> extends AbstractCursor<S> {
     protected void handleNoSuchElement() throws FetchException {
     }
 
+    // Skips over entries rejected by the key filter, if any. Values are not
+    // fetched while skipping.
+    private boolean toAllowed(boolean found) throws FetchException {
+        KeyFilter<?> filter = mKeyFilter;
+        if (!found || filter == null) {
+            return found;
+        }
+
+        byte[] key = getCurrentKey();
+        if (key == null) {
+            return false;
+        }
+        if (filter.isAllowed(key)) {
+            return true;
+        }
+
+        disableValue();
+        try {
+            do {
+                if (!(mReverse ? toBoundedPrevious() : toBoundedNext())) {
+                    return false;
+                }
+                key = getCurrentKey();
+                if (key == null) {
+                    return false;
+                }
+            } while (!filter.isAllowed(key));
+        } finally {
+            enableKeyAndValue();
+        }
+
+        return true;
+    }
+
     private boolean prefixMatches() throws FetchException {
         int prefixLen = mPrefixLength;
         if (prefixLen > 0) {
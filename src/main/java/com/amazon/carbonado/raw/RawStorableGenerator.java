@@ -46,6 +46,7 @@ import com.amazon.carbonado.info.StorableProperty;
 import com.amazon.carbonado.gen.MasterFeature;
 import com.amazon.carbonado.gen.MasterStorableGenerator;
 import com.amazon.carbonado.gen.MasterSupport;
+import com.amazon.carbonado.gen.PregeneratedClasses;
 import com.amazon.carbonado.gen.StorableGenerator;
 import com.amazon.carbonado.gen.TriggerSupport;
 
@@ -165,13 +166,20 @@ public class RawStorableGenerator {
                 return abstractClass;
             }
 
-            abstractClass = generateAbstractClass(type, isMaster);
+            abstractClass = PregeneratedClasses.find(type, pregeneratedKind(isMaster));
+            if (abstractClass == null) {
+                abstractClass = generateAbstractClass(type, isMaster);
+            }
             flavors.setClass(abstractClass, isMaster);
 
             return abstractClass;
         }
     }
 
+    private static String pregeneratedKind(boolean isMaster) {
+        return isMaster ? "RawMaster" : "Raw";
+    }
+
     @SuppressWarnings("unchecked")
     private static <S extends Storable> Class<? extends S>
         generateAbstractClass(Class<S> storableClass, boolean isMaster)
@@ -192,8 +200,8 @@ public class RawStorableGenerator {
         final Class<? extends S> abstractClass =
             MasterStorableGenerator.getAbstractClass(storableClass, features);
 
-        ClassInjector ci = ClassInjector.create
-            (storableClass.getName(), abstractClass.getClassLoader());
+        ClassInjector ci = PregeneratedClasses.createInjector
+            (storableClass, pregeneratedKind(isMaster), abstractClass.getClassLoader());
 
         ClassFile cf = new ClassFile(ci.getClassName(), abstractClass);
         cf.setModifiers(cf.getModifiers().toAbstract(true));
@@ -400,6 +408,7 @@ public class RawStorableGenerator {
             b.returnValue(TypeDesc.BOOLEAN);
         }
 
+        PregeneratedClasses.record(cf, storableClass);
         return ci.defineClass(cf);
     }
 }
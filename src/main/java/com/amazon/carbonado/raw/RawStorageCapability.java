@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.raw;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.capability.Capability;
+
+import com.amazon.carbonado.info.StorableIndex;
+
+import com.amazon.carbonado.layout.Layout;
+
+/**
+ * Capability of repositories which store records in the raw encoding of a
+ * {@link GenericStorableCodec}, allowing encoded records to be inserted
+ * without decoding them. Raw inserts bypass all triggers, and so
+ * repositories which maintain derived state with triggers, such as indexes
+ * or replicas, don't support raw inserts of the affected types.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public interface RawStorageCapability extends Capability {
+    /**
+     * Returns the layout which raw records of the given type are encoded
+     * with, or null if raw inserts of the type aren't supported. Layout
+     * options, such as compression, are part of the encoding.
+     */
+    Layout getRawLayout(Class<? extends Storable> type) throws RepositoryException;
+
+    /**
+     * Returns the index which defines the order and direction of properties
+     * in raw keys of the given type, or null if raw inserts of the type
+     * aren't supported.
+     */
+    <S extends Storable> StorableIndex<S> getRawPrimaryKeyIndex(Class<S> type)
+        throws RepositoryException;
+
+    /**
+     * Inserts a record in its raw encoding, in the current transaction scope,
+     * without running any triggers. The value must be encoded with the
+     * current generation of the layout returned by {@link #getRawLayout
+     * getRawLayout}, and the key must be encoded with the {@link
+     * #getRawPrimaryKeyIndex primary key index}.
+     *
+     * @param key encoded primary key
+     * @param value encoded value, prefixed with the layout generation
+     * @return false if a record with the same key already exists
+     */
+    boolean tryInsertRaw(Class<? extends Storable> type, byte[] key, byte[] value)
+        throws RepositoryException;
+}
@@ -18,6 +18,8 @@
 
 package com.amazon.carbonado.raw;
 
+import java.util.Set;
+
 import com.amazon.carbonado.CorruptEncodingException;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.Storable;
@@ -78,6 +80,20 @@ public interface StorableCodec<S extends Storable> {
      */
     S instantiate(RawSupport<S> support, byte[] key, byte[] value) throws FetchException;
 
+    /**
+     * Instantiate a Storable with a specific key and value, which only needs
+     * to decode the given properties. Properties which aren't decoded are
+     * left uninitialized, although an implementation may decode all of them
+     * anyhow. Any {@link RawSupport} can be supplied to the instance.
+     *
+     * @param support binds generated storable with a storage layer
+     * @param projection names of properties to decode, or null to decode all
+     * of them
+     * @since 1.2.6
+     */
+    S instantiate(RawSupport<S> support, byte[] key, byte[] value, Set<String> projection)
+        throws FetchException;
+
     /**
      * Returns the sequence and directions of properties that make up the
      * primary key.
@@ -39,12 +39,18 @@ import com.amazon.carbonado.capability.IndexInfo;
 import com.amazon.carbonado.capability.IndexInfoCapability;
 import com.amazon.carbonado.capability.StorableInfoCapability;
 
+import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.info.StorableIntrospector;
 
+import com.amazon.carbonado.layout.Layout;
+
 import com.amazon.carbonado.qe.RepositoryAccess;
 import com.amazon.carbonado.qe.StorageAccess;
 
+import com.amazon.carbonado.raw.RawStorageCapability;
+
 import com.amazon.carbonado.spi.StoragePool;
+import com.amazon.carbonado.spi.TriggerManagerCapability;
 
 /**
  * Wraps another repository in order to make it support indexes. The wrapped
@@ -154,6 +160,51 @@ class IndexedRepository implements Repository,
         if (capabilityType.isInstance(this)) {
             return (C) this;
         }
+        if (TriggerManagerCapability.class.isAssignableFrom(capabilityType)) {
+            // Disabling triggers of the wrapped repository would bypass index
+            // maintenance.
+            return null;
+        }
+        if (RawStorageCapability.class.isAssignableFrom(capabilityType)) {
+            final RawStorageCapability cap =
+                mRepository.getCapability(RawStorageCapability.class);
+            if (cap == null) {
+                return null;
+            }
+            // Raw inserts are only allowed for types which have no managed
+            // indexes, since they don't run the index maintenance trigger.
+            return (C) new RawStorageCapability() {
+                public Layout getRawLayout(Class<? extends Storable> type)
+                    throws RepositoryException
+                {
+                    if (!Unindexed.class.isAssignableFrom(type)) {
+                        IndexAnalysis analysis =
+                            mIndexAnalysisPool.get(mRepository.storageFor(type));
+                        if (analysis.indexesTrigger != null) {
+                            return null;
+                        }
+                    }
+                    return cap.getRawLayout(type);
+                }
+
+                public <S extends Storable> StorableIndex<S> getRawPrimaryKeyIndex(Class<S> type)
+                    throws RepositoryException
+                {
+                    return getRawLayout(type) == null ? null : cap.getRawPrimaryKeyIndex(type);
+                }
+
+                public boolean tryInsertRaw(Class<? extends Storable> type,
+                                            byte[] key, byte[] value)
+                    throws RepositoryException
+                {
+                    if (getRawLayout(type) == null) {
+                        throw new UnsupportedOperationException
+                            ("Raw insert would bypass index maintenance: " + type.getName());
+                    }
+                    return cap.tryInsertRaw(type, key, value);
+                }
+            };
+        }
         return mRepository.getCapability(capabilityType);
     }
 
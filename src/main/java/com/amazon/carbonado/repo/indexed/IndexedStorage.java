@@ -19,7 +19,9 @@
 package com.amazon.carbonado.repo.indexed;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +45,7 @@ import com.amazon.carbonado.capability.IndexInfo;
 import com.amazon.carbonado.cursor.MergeSortBuffer;
 
 import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
 
 import com.amazon.carbonado.info.ChainedProperty;
 import com.amazon.carbonado.info.StorableIndex;
@@ -50,6 +53,7 @@ import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.cursor.SortBuffer;
 
 import com.amazon.carbonado.qe.BoundaryType;
+import com.amazon.carbonado.qe.ProjectedStorageAccess;
 import com.amazon.carbonado.qe.QueryEngine;
 import com.amazon.carbonado.qe.QueryExecutorFactory;
 import com.amazon.carbonado.qe.StorableIndexSet;
@@ -175,6 +179,15 @@ class IndexedStorage<S extends Storable> implements Storage<S>, StorageAccess<S>
         }
     }
 
+    public void upsert(S storable) throws PersistException {
+        // Master storage has indexes trigger installed, if any are managed.
+        mMasterStorage.upsert(storable);
+    }
+
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        return mMasterStorage.tryLoadAll(storables);
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mMasterStorage.addTrigger(trigger);
     }
@@ -203,6 +216,17 @@ class IndexedStorage<S extends Storable> implements Storage<S>, StorageAccess<S>
         return mMasterStorage;
     }
 
+    public StorageAccess<S> projectedAccess(Set<String> properties) {
+        final String[] names = properties.toArray(new String[properties.size()]);
+        return new ProjectedStorageAccess<S>(this, properties) {
+            @Override
+            public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+                // Master storage applies the projection to full scans.
+                return mMasterStorage.query().select(names).fetch(controller);
+            }
+        };
+    }
+
     public SortBuffer<S> createSortBuffer() {
         return new MergeSortBuffer<S>();
     }
@@ -266,6 +290,15 @@ class IndexedStorage<S extends Storable> implements Storage<S>, StorageAccess<S>
         return indexInfo.fetchFromIndexEntryQuery(this, indexEntryQuery, controller);
     }
 
+    public Cursor<S> fetchPartialFromIndexEntryQuery(StorableIndex<S> index,
+                                                     Query<?> indexEntryQuery,
+                                                     Query.Controller controller)
+        throws FetchException
+    {
+        ManagedIndex<S> indexInfo = (ManagedIndex<S>) mAllIndexInfoMap.get(index);
+        return indexInfo.fetchPartialFromIndexEntryQuery(this, indexEntryQuery, controller);
+    }
+
     public Cursor<S> fetchSubset(StorableIndex<S> index,
                                  Object[] identityValues,
                                  BoundaryType rangeStartBoundary,
@@ -295,6 +328,22 @@ class IndexedStorage<S extends Storable> implements Storage<S>, StorageAccess<S>
         throw new UnsupportedOperationException();
     }
 
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Filter<S> keyFilter,
+                                 FilterValues<S> keyFilterValues,
+                                 Query.Controller controller)
+    {
+        // This method should never be called since a query was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
     private void registerIndex(ManagedIndex<S> managedIndex)
         throws RepositoryException
     {
@@ -20,8 +20,11 @@ package com.amazon.carbonado.repo.indexed;
 
 import java.lang.reflect.UndeclaredThrowableException;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import java.util.concurrent.TimeUnit;
 
@@ -54,8 +57,10 @@ import com.amazon.carbonado.info.OrderedProperty;
 import com.amazon.carbonado.info.StorableKey;
 import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
 
 import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.TransformedCursor;
 
 import com.amazon.carbonado.spi.RepairExecutor;
 
@@ -109,6 +114,8 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
     private final SyntheticStorableReferenceAccess<S> mAccessor;
     private final Storage<?> mIndexEntryStorage;
 
+    private volatile String[] mPartialPropertyNames;
+
     private Query<?> mSingleMatchQuery;
 
     ManagedIndex(IndexedRepository repository,
@@ -228,6 +235,54 @@ class ManagedIndex<S extends Storable> implements IndexEntryAccessor<S> {
         return new IndexedCursor<S>(indexEntryQuery.fetch(controller), storage, mAccessor);
     }
 
+    /**
+     * Returns master Storables which only have their primary key and index
+     * properties loaded, directly from the index entries. Unlike {@link
+     * #fetchFromIndexEntryQuery}, master records are not loaded, and so
+     * inconsistent index entries are not detected or repaired.
+     */
+    Cursor<S> fetchPartialFromIndexEntryQuery(IndexedStorage storage, Query<?> indexEntryQuery,
+                                              Query.Controller controller)
+        throws FetchException
+    {
+        final String[] names = partialPropertyNames();
+        Cursor<Storable> cursor = (Cursor<Storable>) indexEntryQuery.fetch(controller);
+
+        return new TransformedCursor<Storable, S>(cursor) {
+            @Override
+            protected S transform(Storable indexEntry) throws FetchException {
+                S master = mMasterStorage.prepare();
+                mAccessor.copyToMasterPrimaryKey(indexEntry, master);
+                for (String name : names) {
+                    master.setPropertyValue(name, indexEntry.getPropertyValue(name));
+                }
+                master.markPropertiesClean();
+                return master;
+            }
+        };
+    }
+
+    /**
+     * Returns names of non-derived index properties which are not copied by
+     * copyToMasterPrimaryKey.
+     */
+    private String[] partialPropertyNames() {
+        String[] names = mPartialPropertyNames;
+        if (names == null) {
+            Set<String> pkNames = StorableIntrospector.examine(mMasterStorage.getStorableType())
+                .getPrimaryKeyProperties().keySet();
+            List<String> list = new ArrayList<String>(mIndex.getPropertyCount());
+            for (int i=0; i<mIndex.getPropertyCount(); i++) {
+                StorableProperty<?> property = mIndex.getProperty(i);
+                if (!property.isDerived() && !pkNames.contains(property.getName())) {
+                    list.add(property.getName());
+                }
+            }
+            mPartialPropertyNames = names = list.toArray(new String[list.size()]);
+        }
+        return names;
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder();
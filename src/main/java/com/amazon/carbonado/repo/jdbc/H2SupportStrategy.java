@@ -26,11 +26,14 @@ package com.amazon.carbonado.repo.jdbc;
  */
 class H2SupportStrategy extends JDBCSupportStrategy {
     private static final String DEFAULT_SEQUENCE_SELECT_STATEMENT = "SELECT NEXT VALUE FOR %s";
+    private static final String DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT =
+        "SELECT NEXT VALUE FOR %1$s FROM SYSTEM_RANGE(1, %2$d)";
     private static final String TRUNCATE_STATEMENT = "TRUNCATE TABLE %s";
 
     protected H2SupportStrategy(JDBCRepository repo) {
         super(repo);
         setSequenceSelectStatement(DEFAULT_SEQUENCE_SELECT_STATEMENT);
+        setSequenceBlockSelectStatement(DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT);
         setTruncateTableStatement(TRUNCATE_STATEMENT);
     }
 
@@ -39,6 +42,29 @@ class H2SupportStrategy extends JDBCSupportStrategy {
         return new H2ExceptionTransformer();
     }
 
+    /**
+     * Uses MERGE with an explicit key, which only updates the given columns.
+     */
+    @Override
+    String buildUpsertStatement(JDBCStorableInfo<?> info, String[] columns,
+                                int keyCount, int updateCount)
+    {
+        if (keyCount + updateCount < columns.length) {
+            // Merge writes all columns when the row exists, and so it cannot
+            // insert columns which shouldn't be updated.
+            return null;
+        }
+        StringBuilder b = new StringBuilder();
+        b.append("MERGE INTO ").append(info.getQualifiedTableName()).append(" (");
+        appendColumns(b, null, columns, 0, columns.length);
+        b.append(") KEY (");
+        appendColumns(b, null, columns, 0, keyCount);
+        b.append(") VALUES (");
+        appendParameters(b, columns.length);
+        b.append(')');
+        return b.toString();
+    }
+
     @Override
     SliceOption getSliceOption() {
         return SliceOption.LIMIT_AND_OFFSET;
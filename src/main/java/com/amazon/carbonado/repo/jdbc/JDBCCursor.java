@@ -40,6 +40,7 @@ class JDBCCursor<S extends Storable> extends AbstractCursor<S> {
     private final TransactionScope<JDBCTransaction> mScope;
     private final Connection mConnection;
     private final PreparedStatement mStatement;
+    private final JDBCProjection<S> mProjection;
 
     private ResultSet mResultSet;
     private boolean mHasNext;
@@ -53,8 +54,24 @@ class JDBCCursor<S extends Storable> extends AbstractCursor<S> {
                Connection con,
                PreparedStatement statement)
         throws SQLException
+    {
+        this(storage, scope, con, statement, null);
+    }
+
+    /**
+     * @param projection optional projection, if statement only selects some columns
+     * @throws SQLException from executeQuery on statement. Caller must clean
+     * up when this happens by closing statement and connection.
+     */
+    JDBCCursor(JDBCStorage<S> storage,
+               TransactionScope<JDBCTransaction> scope,
+               Connection con,
+               PreparedStatement statement,
+               JDBCProjection<S> projection)
+        throws SQLException
     {
         mStorage = storage;
+        mProjection = projection;
         mScope = scope;
         mConnection = con;
         mStatement = statement;
@@ -106,7 +123,9 @@ class JDBCCursor<S extends Storable> extends AbstractCursor<S> {
             throw new NoSuchElementException();
         }
         try {
-            S obj = mStorage.instantiate(mResultSet);
+            JDBCProjection<S> projection = mProjection;
+            S obj = projection == null ? mStorage.instantiate(mResultSet)
+                : projection.instantiate(mResultSet);
             mHasNext = false;
             return obj;
         } catch (SQLException e) {
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.math.BigDecimal;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.cojen.classfile.ClassFile;
+import org.cojen.classfile.CodeBuilder;
+import org.cojen.classfile.Label;
+import org.cojen.classfile.LocalVariable;
+import org.cojen.classfile.MethodInfo;
+import org.cojen.classfile.Modifiers;
+import org.cojen.classfile.TypeDesc;
+import org.cojen.util.ClassInjector;
+import org.cojen.util.KeyFactory;
+
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.SupportException;
+
+import com.amazon.carbonado.info.StorablePropertyAdapter;
+
+import com.amazon.carbonado.lob.Lob;
+
+import com.amazon.carbonado.util.SoftValuedCache;
+
+/**
+ * Extracts a subset of properties from a ResultSet, as selected by a query
+ * projection. Columns are read by a generated {@link JDBCProjectionExtractor},
+ * which converts and adapts values like the generated Storable does. The
+ * static methods read single values, and they are used for the results of
+ * aggregate queries.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class JDBCProjection<S extends Storable> {
+    private static final SoftValuedCache<Object, Constructor> cCache;
+
+    static {
+        cCache = SoftValuedCache.newCache(11);
+    }
+
+    /**
+     * Returns null if projection cannot be supported, in which case all
+     * columns must be selected.
+     *
+     * @param projection names of properties to select
+     */
+    static <S extends Storable> JDBCProjection<S> build(JDBCStorage<S> storage,
+                                                        Set<String> projection)
+    {
+        List<JDBCStorableProperty<S>> properties = new ArrayList<JDBCStorableProperty<S>>();
+
+        for (JDBCStorableProperty<S> property
+                 : storage.getStorableInfo().getAllProperties().values())
+        {
+            if (!property.isSelectable() || !projection.contains(property.getName())) {
+                continue;
+            }
+            Class<?> rsType = property.getResultSetGetMethod().getReturnType();
+            if (Lob.class.isAssignableFrom(property.getType()) ||
+                java.sql.Blob.class.isAssignableFrom(rsType) ||
+                java.sql.Clob.class.isAssignableFrom(rsType))
+            {
+                // Lob loading requires generated support.
+                return null;
+            }
+            properties.add(property);
+        }
+
+        try {
+            return new JDBCProjection<S>(storage, properties);
+        } catch (SupportException e) {
+            return null;
+        }
+    }
+
+    private final JDBCStorage<S> mStorage;
+    private final JDBCStorableProperty<S>[] mProperties;
+    private final JDBCProjectionExtractor<S> mExtractor;
+
+    private JDBCProjection(JDBCStorage<S> storage, List<JDBCStorableProperty<S>> properties)
+        throws SupportException
+    {
+        mStorage = storage;
+
+        int length = properties.size();
+        mProperties = properties.toArray(new JDBCStorableProperty[length]);
+
+        Object[] adapterInstances = new Object[length];
+        String[] names = new String[length];
+        for (int i=0; i<length; i++) {
+            StorablePropertyAdapter adapter = mProperties[i].getAppliedAdapter();
+            if (adapter != null) {
+                adapterInstances[i] = adapter.getAdapterInstance();
+            }
+            names[i] = mProperties[i].getName();
+        }
+
+        Object key = KeyFactory.createKey(new Object[] {storage.getStorableInfo(), names});
+
+        Constructor ctor;
+        synchronized (cCache) {
+            ctor = cCache.get(key);
+            if (ctor == null) {
+                // Generated Storable class loader can also load the extractor interface.
+                ClassLoader loader = storage.prepare().getClass().getClassLoader();
+                ctor = generateExtractor(storage.getStorableType(), loader, mProperties);
+                cCache.put(key, ctor);
+            }
+        }
+
+        try {
+            mExtractor = (JDBCProjectionExtractor<S>) ctor.newInstance
+                (new Object[] {adapterInstances});
+        } catch (Exception e) {
+            throw new SupportException(e);
+        }
+    }
+
+    /**
+     * Appends the selected column names, separated by commas.
+     *
+     * @param alias optional table alias
+     */
+    void appendColumnsTo(SQLStatementBuilder<S> b, String alias) {
+        for (int i=0; i<mProperties.length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            if (alias != null) {
+                b.append(alias);
+                b.append('.');
+            }
+            b.append(mProperties[i].getColumnName());
+        }
+    }
+
+    /**
+     * Returns a new Storable with only the selected properties loaded and
+     * clean. All other properties are uninitialized, as are primitive
+     * properties whose column is null. If the version property is left
+     * uninitialized, calling update on the Storable throws an
+     * IllegalStateException instead of writing without a version check.
+     */
+    S instantiate(ResultSet rs) throws SQLException {
+        S storable = mStorage.prepare();
+        // JDBC ordinals are one-based.
+        mExtractor.extract(rs, 1, storable);
+        storable.markPropertiesClean();
+        return storable;
+    }
+
+    /**
+     * Generates a JDBCProjectionExtractor class, returning its constructor,
+     * which accepts an array of adapter instances. Values are set by calling
+     * the public write methods, since the extractor cannot access the
+     * protected fields of the Storable.
+     */
+    private static <S extends Storable> Constructor generateExtractor
+        (Class<S> type, ClassLoader loader, JDBCStorableProperty<S>[] properties)
+        throws SupportException
+    {
+        ClassInjector ci = ClassInjector.create(type.getName(), loader);
+        ClassFile cf = new ClassFile(ci.getClassName());
+        cf.markSynthetic();
+        cf.setSourceFile(JDBCProjection.class.getName());
+        cf.setTarget("1.5");
+        cf.addInterface(JDBCProjectionExtractor.class);
+
+        final TypeDesc storableType = TypeDesc.forClass(type);
+        final TypeDesc resultSetType = TypeDesc.forClass(ResultSet.class);
+        final TypeDesc objectArrayType = TypeDesc.OBJECT.toArrayType();
+
+        Method[] adaptMethods = new Method[properties.length];
+        for (int i=0; i<properties.length; i++) {
+            adaptMethods[i] = findAdaptMethod(properties[i]);
+        }
+
+        // Add constructor which accepts the adapter instances.
+        {
+            MethodInfo mi = cf.addConstructor
+                (Modifiers.PUBLIC, new TypeDesc[] {objectArrayType});
+            CodeBuilder b = new CodeBuilder(mi);
+            b.loadThis();
+            b.invokeSuperConstructor(null);
+
+            for (int i=0; i<properties.length; i++) {
+                if (adaptMethods[i] == null) {
+                    continue;
+                }
+                TypeDesc adapterType = TypeDesc.forClass(adaptMethods[i].getDeclaringClass());
+                cf.addField(Modifiers.PRIVATE.toFinal(true), "adapter$" + i, adapterType);
+                b.loadThis();
+                b.loadLocal(b.getParameter(0));
+                b.loadConstant(i);
+                b.loadFromArray(TypeDesc.OBJECT);
+                b.checkCast(adapterType);
+                b.storeField("adapter$" + i, adapterType);
+            }
+
+            b.returnVoid();
+        }
+
+        MethodInfo mi = cf.addMethod
+            (Modifiers.PUBLIC, "extract", null,
+             new TypeDesc[] {resultSetType, TypeDesc.INT, TypeDesc.forClass(Storable.class)});
+        mi.addException(TypeDesc.forClass(SQLException.class));
+        CodeBuilder b = new CodeBuilder(mi);
+
+        LocalVariable rsVar = b.getParameter(0);
+        LocalVariable offsetVar = b.getParameter(1);
+        LocalVariable destVar = b.createLocalVariable("dest", storableType);
+        b.loadLocal(b.getParameter(2));
+        b.checkCast(storableType);
+        b.storeLocal(destVar);
+
+        for (int i=0; i<properties.length; i++) {
+            JDBCStorableProperty<S> property = properties[i];
+            Method adaptMethod = adaptMethods[i];
+
+            Method resultSetGetMethod = property.getResultSetGetMethod();
+            TypeDesc rsType = TypeDesc.forClass(resultSetGetMethod.getReturnType());
+            TypeDesc toType = TypeDesc.forClass(adaptMethod == null ? property.getType()
+                                                : adaptMethod.getParameterTypes()[0]);
+
+            LocalVariable valueVar = b.createLocalVariable(null, toType);
+            Label store = b.createLabel();
+            Label next = b.createLabel();
+
+            b.loadLocal(rsVar);
+            b.loadLocal(offsetVar);
+            b.invoke(resultSetGetMethod);
+
+            if (rsType.isPrimitive()) {
+                if (property.isColumnNullable()) {
+                    b.loadLocal(rsVar);
+                    b.invokeInterface(resultSetType, "wasNull", TypeDesc.BOOLEAN, null);
+                    Label wasNotNull = b.createLabel();
+                    // boolean value is false (==0) when was not null.
+                    b.ifZeroComparisonBranch(wasNotNull, "==");
+
+                    // Discard result and replace with null.
+                    if (rsType.isDoubleWord()) {
+                        b.pop2();
+                    } else {
+                        b.pop();
+                    }
+                    if (toType.isPrimitive()) {
+                        // Cannot be represented, so leave uninitialized.
+                        b.branch(next);
+                    } else {
+                        b.loadNull();
+                        b.storeLocal(valueVar);
+                        b.branch(store);
+                    }
+
+                    wasNotNull.setLocation();
+                }
+            } else if (toType.isPrimitive()) {
+                Label notNull = b.createLabel();
+                b.dup();
+                b.ifNullBranch(notNull, false);
+                // Cannot be represented, so leave uninitialized.
+                b.pop();
+                b.branch(next);
+                notNull.setLocation();
+            }
+
+            JDBCStorableGenerator.convertFromResultSet(b, property, rsType, toType);
+            b.storeLocal(valueVar);
+
+            store.setLocation();
+            b.loadLocal(destVar);
+            if (adaptMethod == null) {
+                b.loadLocal(valueVar);
+            } else {
+                b.loadThis();
+                b.loadField("adapter$" + i, TypeDesc.forClass(adaptMethod.getDeclaringClass()));
+                b.loadLocal(valueVar);
+                b.invoke(adaptMethod);
+                b.convert(TypeDesc.forClass(adaptMethod.getReturnType()),
+                          TypeDesc.forClass(property.getType()));
+            }
+            b.invoke(property.getWriteMethod());
+
+            next.setLocation();
+            b.integerIncrement(offsetVar, 1);
+        }
+
+        b.returnVoid();
+
+        try {
+            Class<?> clazz = ci.defineClass(cf);
+            return clazz.getConstructor(Object[].class);
+        } catch (Exception e) {
+            throw new SupportException(e);
+        }
+    }
+
+    /**
+     * Returns the method which adapts the ResultSet value into the property
+     * value, or null if property has no adapter.
+     */
+    static Method findAdaptMethod(JDBCStorableProperty<?> property) throws SupportException {
+        StorablePropertyAdapter adapter = property.getAppliedAdapter();
+        if (adapter == null) {
+            return null;
+        }
+
+        Class<?> rsType = property.getResultSetGetMethod().getReturnType();
+        Method adaptMethod = adapter.findAdaptMethod(rsType, property.getType());
+
+        if (adaptMethod == null) {
+            if (rsType == String.class) {
+                // Check if special case for converting String to character.
+                adaptMethod = adapter.findAdaptMethod(char.class, property.getType());
+                if (adaptMethod == null) {
+                    adaptMethod = adapter.findAdaptMethod(Character.class, property.getType());
+                }
+            }
+
+            if (adaptMethod == null) {
+                throw new SupportException
+                    ("Unable to adapt " + rsType.getName() + " to " + property.getType());
+            }
+        }
+
+        return adaptMethod;
+    }
+
+    /**
+     * Reads a property value from a ResultSet, converting and adapting it
+     * like the generated extraction code does.
+     *
+     * @param ordinal one-based column ordinal
+     * @param adaptMethod optional adapt method, as returned by findAdaptMethod
+     * @param adapterInstance adapter instance, if adapt method isn't null
+     */
+    static Object getValue(ResultSet rs, int ordinal, JDBCStorableProperty<?> property,
+                           Method adaptMethod, Object adapterInstance)
+        throws SQLException
+    {
+        try {
+            Method getMethod = property.getResultSetGetMethod();
+
+            Object value = getMethod.invoke(rs, ordinal);
+            if (value != null && getMethod.getReturnType().isPrimitive()
+                && property.isColumnNullable() && rs.wasNull())
+            {
+                value = null;
+            }
+
+            Class<?> toType = adaptMethod == null ? property.getType()
+                : adaptMethod.getParameterTypes()[0];
+
+            value = convert(value, toType);
+
+            if (adaptMethod != null) {
+                value = adaptMethod.invoke(adapterInstance, value);
+            }
+
+            return value;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            SQLException e2 = new SQLException(cause.toString());
+            e2.initCause(cause);
+            throw e2;
+        } catch (IllegalAccessException e) {
+            SQLException e2 = new SQLException(e.toString());
+            e2.initCause(e);
+            throw e2;
+        }
+    }
+
+    private static Object convert(Object value, Class<?> toType) {
+        if (value == null) {
+            return null;
+        }
+
+        if (value instanceof String) {
+            if (toType == char.class || toType == Character.class) {
+                // Special case for converting String to character.
+                String str = (String) value;
+                return str.length() == 0 ? null : str.charAt(0);
+            }
+            return value;
+        }
+
+        if (value instanceof Number && !toType.isInstance(value)) {
+            Number num = (Number) value;
+            if (toType == int.class || toType == Integer.class) {
+                return num.intValue();
+            } else if (toType == long.class || toType == Long.class) {
+                return num.longValue();
+            } else if (toType == double.class || toType == Double.class) {
+                return num.doubleValue();
+            } else if (toType == float.class || toType == Float.class) {
+                return num.floatValue();
+            } else if (toType == short.class || toType == Short.class) {
+                return num.shortValue();
+            } else if (toType == byte.class || toType == Byte.class) {
+                return num.byteValue();
+            } else if (toType == BigDecimal.class) {
+                return new BigDecimal(num.toString());
+            }
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.amazon.carbonado.Storable;
+
+/**
+ * Generated code for reading the columns selected by a query projection
+ * into a Storable.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public interface JDBCProjectionExtractor<S extends Storable> {
+    /**
+     * Sets the selected properties of the destination Storable, reading
+     * columns in order starting at the given offset. Primitive properties
+     * whose column is null are left uninitialized.
+     *
+     * @param offset one-based ordinal of the first selected column
+     */
+    void extract(ResultSet rs, int offset, S dest) throws SQLException;
+}
@@ -183,6 +183,9 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
     // Maps Storable types which should not auto reload after insert or update.
     private Map<String, Boolean> mSuppressReloadMap;
 
+    // Maps sequence names to the amount of values to reserve per round trip.
+    private final Map<String, Integer> mSequenceBlockSizeMap;
+
     // Track all open connections so that they can be closed when this
     // repository is closed.
     private Map<Connection, Object> mOpenConnections;
@@ -219,6 +222,8 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
      * is database independent
      * @param forceStoredSequence tells the repository to use a stored sequence
      * even if the database supports native sequences
+     * @param sequenceBlockSizeMap optional map of sequence names to the amount
+     * of values to reserve per round trip
      */
     @SuppressWarnings("unchecked")
     JDBCRepository(AtomicReference<Repository> rootRef,
@@ -230,6 +235,7 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
                    Map<String, Boolean> autoVersioningMap,
                    Map<String, Boolean> suppressReloadMap,
                    String sequenceSelectStatement, boolean forceStoredSequence, boolean primaryKeyCheckDisabled,
+                   Map<String, Integer> sequenceBlockSizeMap,
                    SchemaResolver resolver)
         throws RepositoryException
     {
@@ -249,6 +255,7 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
 
         mAutoVersioningMap = autoVersioningMap;
         mSuppressReloadMap = suppressReloadMap;
+        mSequenceBlockSizeMap = sequenceBlockSizeMap;
 
         mResolver = resolver;
 
@@ -322,6 +329,8 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
             mSupportStrategy.setSequenceSelectStatement(null);
         } else if (sequenceSelectStatement != null && sequenceSelectStatement.length() > 0) {
             mSupportStrategy.setSequenceSelectStatement(sequenceSelectStatement);
+            // Default block statement doesn't apply to custom sequence statement.
+            mSupportStrategy.setSequenceBlockSelectStatement(null);
         }
         mSupportStrategy.setForceStoredSequence(forceStoredSequence);
         mExceptionTransformer = mSupportStrategy.createExceptionTransformer();
@@ -708,6 +717,26 @@ class JDBCRepository extends AbstractRepository<JDBCTransaction>
         return new JDBCStorage<S>(this, info, mIsMaster, autoVersioning, suppressReload);
     }
 
+    /**
+     * Returns the amount of sequence values to reserve per round trip, which
+     * is one if none are to be reserved.
+     *
+     * @since 1.2.6
+     */
+    int getSequenceBlockSize(String name) {
+        if (mSequenceBlockSizeMap != null) {
+            Integer size = mSequenceBlockSizeMap.get(name);
+            if (size == null) {
+                // No explicit setting, so check wildcard setting.
+                size = mSequenceBlockSizeMap.get(null);
+            }
+            if (size != null && size > 1) {
+                return size;
+            }
+        }
+        return 1;
+    }
+
     @Override
     protected SequenceValueProducer createSequenceValueProducer(String name)
         throws RepositoryException
@@ -77,6 +77,7 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
     private String mSequenceSelectStatement;
     private boolean mForceStoredSequence;
     private boolean mPrimaryKeyCheckDisabled;
+    private Map<String, Integer> mSequenceBlockSizeMap;
 
     private SchemaResolver mResolver;
 
@@ -96,6 +97,7 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
              getAutoVersioningMap(),
              getSuppressReloadMap(),
              mSequenceSelectStatement, mForceStoredSequence, mPrimaryKeyCheckDisabled,
+             getSequenceBlockSizeMap(),
              mResolver);
 
         // Don't wipe out root when using BelatedRepositoryCreator.
@@ -410,6 +412,62 @@ public class JDBCRepositoryBuilder extends AbstractRepositoryBuilder {
         mForceStoredSequence = forceStoredSequence;
     }
 
+    /**
+     * By default, each sequence value is selected from the database in its
+     * own round trip. Setting a block size greater than one reserves that many
+     * values per round trip, handing them out from memory. Values which are
+     * reserved but never used are lost when the repository is closed, leaving
+     * gaps in the sequence.
+     *
+     * <p>For native sequences, blocks are selected with a multi-row query when
+     * the database supports one, such as H2, Oracle and PostgreSQL. A custom
+     * {@link #setSequenceSelectStatement sequence select statement} disables
+     * block selection. For stored sequences, the block size is the amount of
+     * values reserved per update of the sequence table.
+     *
+     * @param blockSize amount of values to reserve per round trip
+     * @param sequenceName name of sequence to apply block size to; pass null
+     * to apply to all
+     * @throws IllegalArgumentException if block size is less than one
+     * @since 1.2.6
+     */
+    public void setSequenceBlockSize(int blockSize, String sequenceName) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least one: " + blockSize);
+        }
+        if (mSequenceBlockSizeMap == null) {
+            mSequenceBlockSizeMap = new HashMap<String, Integer>();
+        }
+        mSequenceBlockSizeMap.put(sequenceName, blockSize);
+    }
+
+    /**
+     * Returns the amount of sequence values reserved per round trip for the
+     * given sequence, which is one by default.
+     *
+     * @param sequenceName name of sequence; pass null for the default
+     * @since 1.2.6
+     */
+    public int getSequenceBlockSize(String sequenceName) {
+        if (mSequenceBlockSizeMap != null) {
+            Integer size = mSequenceBlockSizeMap.get(sequenceName);
+            if (size == null) {
+                size = mSequenceBlockSizeMap.get(null);
+            }
+            if (size != null) {
+                return size;
+            }
+        }
+        return 1;
+    }
+
+    private Map<String, Integer> getSequenceBlockSizeMap() {
+        if (mSequenceBlockSizeMap == null) {
+            return null;
+        }
+        return new HashMap<String, Integer>(mSequenceBlockSizeMap);
+    }
+
     /**
      * By default, JDBCRepository makes sure that every declared primary key
      * in the database table for a Storable lines up with a declared
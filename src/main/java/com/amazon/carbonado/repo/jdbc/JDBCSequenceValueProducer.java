@@ -26,31 +26,91 @@ import com.amazon.carbonado.PersistException;
 import com.amazon.carbonado.sequence.AbstractSequenceValueProducer;
 
 /**
- *
+ * Produces values from a native database sequence. When a block size greater
+ * than one is given, along with a query which selects that many values in one
+ * round trip, values are reserved in blocks and handed out from memory.
+ * Reserved values which are never handed out are lost, just as with any
+ * native sequence cache.
  *
  * @author Brian S O'Neill
  */
 class JDBCSequenceValueProducer extends AbstractSequenceValueProducer {
     private final JDBCRepository mRepo;
     private final String mQuery;
+    private final String mBlockQuery;
+
+    // Reserved values, guarded by this.
+    private long[] mBlock;
+    private int mBlockPos;
+    private int mBlockLength;
 
     JDBCSequenceValueProducer(JDBCRepository repo, String sequenceQuery) {
+        this(repo, sequenceQuery, null, 1);
+    }
+
+    /**
+     * @param sequenceQuery query which selects one sequence value
+     * @param blockQuery optional query which selects up to blockSize sequence
+     * values, one per row
+     * @param blockSize amount of values to reserve per round trip
+     * @since 1.2.6
+     */
+    JDBCSequenceValueProducer(JDBCRepository repo, String sequenceQuery,
+                              String blockQuery, int blockSize)
+    {
         mRepo = repo;
         mQuery = sequenceQuery;
+        if (blockQuery == null || blockSize <= 1) {
+            mBlockQuery = null;
+        } else {
+            mBlockQuery = blockQuery;
+            mBlock = new long[blockSize];
+        }
     }
 
     public long nextLongValue() throws PersistException {
+        if (mBlockQuery == null) {
+            return selectValues(mQuery, null);
+        }
+        synchronized (this) {
+            if (mBlockPos >= mBlockLength) {
+                mBlockPos = 0;
+                mBlockLength = 0;
+                mBlockLength = (int) selectValues(mBlockQuery, mBlock);
+            }
+            return mBlock[mBlockPos++];
+        }
+    }
+
+    /**
+     * @param block when null, select one value and return it; otherwise fill
+     * block and return the amount of values selected
+     */
+    private long selectValues(String query, long[] block) throws PersistException {
         try {
             Connection con = mRepo.getConnection();
             try {
                 Statement st = con.createStatement();
                 try {
-                    ResultSet rs = st.executeQuery(mQuery);
+                    if (block != null) {
+                        st.setFetchSize(block.length);
+                    }
+                    ResultSet rs = st.executeQuery(query);
                     try {
-                        if (rs.next()) {
-                            return rs.getLong(1);
+                        if (block == null) {
+                            if (rs.next()) {
+                                return rs.getLong(1);
+                            }
+                        } else {
+                            int length = 0;
+                            while (length < block.length && rs.next()) {
+                                block[length++] = rs.getLong(1);
+                            }
+                            if (length > 0) {
+                                return length;
+                            }
                         }
-                        throw new PersistException("No results from sequence query: " + mQuery);
+                        throw new PersistException("No results from sequence query: " + query);
                     } finally {
                         rs.close();
                     }
@@ -69,6 +129,7 @@ class JDBCSequenceValueProducer extends AbstractSequenceValueProducer {
      * @since 1.2
      */
     public boolean returnReservedValues() {
+        // Values reserved from a native sequence cannot be returned.
         return false;
     }
 }
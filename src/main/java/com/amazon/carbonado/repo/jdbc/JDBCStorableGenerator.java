@@ -2168,10 +2168,14 @@ class JDBCStorableGenerator<S extends Storable> {
         }
     }
 
-    private void convertFromResultSet(CodeBuilder b,
-                                      JDBCStorableProperty<S> property,
-                                      TypeDesc resultSetType,
-                                      TypeDesc toType)
+    /**
+     * Converts the ResultSet value on the stack to the given type. Also used
+     * by {@link JDBCProjection}.
+     */
+    static void convertFromResultSet(CodeBuilder b,
+                                     JDBCStorableProperty<?> property,
+                                     TypeDesc resultSetType,
+                                     TypeDesc toType)
     {
         if (resultSetType == TypeDesc.STRING && toType.toPrimitiveType() == TypeDesc.CHAR) {
             // Special case for converting String to character.
@@ -21,12 +21,21 @@ package com.amazon.carbonado.repo.jdbc;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.LogFactory;
@@ -58,18 +67,24 @@ import com.amazon.carbonado.info.Direction;
 import com.amazon.carbonado.info.OrderedProperty;
 import com.amazon.carbonado.info.StorableProperty;
 import com.amazon.carbonado.info.StorablePropertyAdapter;
+import com.amazon.carbonado.lob.Lob;
 import com.amazon.carbonado.qe.AbstractQueryExecutor;
 import com.amazon.carbonado.qe.FilteredQueryExecutor;
 import com.amazon.carbonado.qe.OrderingList;
+import com.amazon.carbonado.qe.QueryAggregator;
 import com.amazon.carbonado.qe.QueryExecutor;
 import com.amazon.carbonado.qe.QueryExecutorCache;
 import com.amazon.carbonado.qe.QueryExecutorFactory;
 import com.amazon.carbonado.qe.QueryFactory;
+import com.amazon.carbonado.qe.QueryHint;
 import com.amazon.carbonado.qe.QueryHints;
 import com.amazon.carbonado.qe.SortedQueryExecutor;
 import com.amazon.carbonado.qe.StandardQuery;
 import com.amazon.carbonado.qe.StandardQueryFactory;
+import com.amazon.carbonado.qe.TracingQueryExecutor;
 import com.amazon.carbonado.sequence.SequenceValueProducer;
+import com.amazon.carbonado.spi.StorableLoadAll;
+import com.amazon.carbonado.spi.StorableUpsert;
 import com.amazon.carbonado.spi.TriggerManager;
 import com.amazon.carbonado.txn.TransactionScope;
 import com.amazon.carbonado.util.QuickConstructorGenerator;
@@ -84,6 +99,14 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
 {
     private static final int FIRST_RESULT_INDEX = 1;
 
+    /**
+     * Maximum number of keys matched by each query issued by tryLoadAll. Can
+     * be changed with the system property
+     * "com.amazon.carbonado.repo.jdbc.JDBCStorage.loadAllChunkSize".
+     */
+    private static final int LOAD_ALL_CHUNK_SIZE =
+        Math.max(1, Integer.getInteger(JDBCStorage.class.getName() + ".loadAllChunkSize", 100));
+
     final JDBCRepository mRepository;
     final JDBCSupportStrategy mSupportStrategy;
     final JDBCStorableInfo<S> mInfo;
@@ -165,6 +188,143 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         }
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public void upsert(S storable) throws PersistException {
+        if (mTriggerManager.getInsertTrigger() == null &&
+            mTriggerManager.getUpdateTrigger() == null &&
+            StorableUpsert.isDirectAllowed(storable) &&
+            nativeUpsert(storable))
+        {
+            return;
+        }
+        StorableUpsert.insertOrUpdate(getRootRepository(), storable);
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        // Each query matches a chunk of keys, which is translated into a
+        // single SQL statement with a disjunction of key comparisons.
+        return StorableLoadAll.tryLoadByQuery(this, storables, LOAD_ALL_CHUNK_SIZE);
+    }
+
+    /**
+     * Upserts using a single statement. All the primary key columns and all
+     * initialized columns are inserted, but only dirty columns are updated.
+     *
+     * @return false if not supported
+     */
+    private boolean nativeUpsert(S storable) throws PersistException {
+        List<JDBCStorableProperty<S>> properties = new ArrayList<JDBCStorableProperty<S>>();
+        properties.addAll(mInfo.getPrimaryKeyProperties().values());
+        int keyCount = properties.size();
+        if (keyCount == 0) {
+            return false;
+        }
+
+        // Dirty columns are updated, and clean columns are only inserted.
+        List<JDBCStorableProperty<S>> clean = new ArrayList<JDBCStorableProperty<S>>();
+
+        for (JDBCStorableProperty<S> property : mInfo.getAllProperties().values()) {
+            if (property.isPrimaryKeyMember() || property.isDerived() ||
+                !property.isSelectable() || storable.isPropertyUninitialized(property.getName()))
+            {
+                continue;
+            }
+            Class<?> psType = property.getPreparedStatementSetMethod().getParameterTypes()[1];
+            if (Lob.class.isAssignableFrom(property.getType()) ||
+                java.sql.Blob.class.isAssignableFrom(psType) ||
+                java.sql.Clob.class.isAssignableFrom(psType))
+            {
+                // Lob writing requires generated support.
+                return false;
+            }
+            if (storable.isPropertyDirty(property.getName())) {
+                properties.add(property);
+            } else {
+                clean.add(property);
+            }
+        }
+
+        int updateCount = properties.size() - keyCount;
+        properties.addAll(clean);
+
+        String[] columns = new String[properties.size()];
+        for (int i=0; i<columns.length; i++) {
+            columns[i] = properties.get(i).getColumnName();
+        }
+
+        String sql = mSupportStrategy.buildUpsertStatement(mInfo, columns, keyCount, updateCount);
+        if (sql == null) {
+            return false;
+        }
+
+        try {
+            Connection con = getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement(sql);
+                try {
+                    int ordinal = 1; // JDBC ordinals are one-based.
+                    for (JDBCStorableProperty<S> property : properties) {
+                        setParameter(ps, ordinal++, property,
+                                     storable.getPropertyValue(property.getName()));
+                    }
+                    ps.executeUpdate();
+                } finally {
+                    ps.close();
+                }
+            } catch (Exception e) {
+                throw toPersistException(e);
+            } finally {
+                yieldConnection(con);
+            }
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        }
+
+        storable.markPropertiesClean();
+        return true;
+    }
+
+    private static void setParameter(PreparedStatement ps, int ordinal,
+                                     JDBCStorableProperty<?> property, Object value)
+        throws Exception
+    {
+        Method psSetMethod = property.getPreparedStatementSetMethod();
+
+        StorablePropertyAdapter adapter = property.getAppliedAdapter();
+        if (adapter != null) {
+            Class toType = psSetMethod.getParameterTypes()[1];
+            Method adaptMethod = adapter.findAdaptMethod(property.getType(), toType);
+            // Special case for converting character to String.
+            if (adaptMethod == null && toType == String.class) {
+                adaptMethod = adapter.findAdaptMethod(property.getType(), Character.class);
+                if (adaptMethod == null) {
+                    adaptMethod = adapter.findAdaptMethod(property.getType(), char.class);
+                }
+            }
+            if (adaptMethod != null) {
+                value = adaptMethod.invoke(adapter.getAdapterInstance(), value);
+            }
+        }
+
+        if (value == null) {
+            Integer dataType = property.getDataType();
+            ps.setNull(ordinal, dataType == null ? java.sql.Types.NULL : dataType);
+            return;
+        }
+
+        // Special case for converting character to String.
+        if (value instanceof Character) {
+            value = String.valueOf((Character) value);
+        }
+
+        psSetMethod.invoke(ps, ordinal, value);
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mTriggerManager.addTrigger(trigger);
     }
@@ -398,21 +558,37 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             // there's no need to disambiguate.
             String alias = jn.isAliasRequired() ? jn.getAlias() : null;
 
-            Map<String, JDBCStorableProperty<S>> properties = getStorableInfo().getAllProperties();
-            int ordinal = 0;
-            for (JDBCStorableProperty<S> property : properties.values()) {
-                if (!property.isSelectable()) {
-                    continue;
-                }
-                if (ordinal > 0) {
-                    selectBuilder.append(',');
+            // Only select projected columns if no remainder filter or
+            // ordering is required, since derived properties can depend on
+            // any other property.
+            JDBCProjection<S> projection = null;
+            if (hints != null && !usesDerivedProperty(filter, ordering)) {
+                Set<String> names = (Set<String>) hints.get(QueryHint.PROJECTION);
+                if (names != null) {
+                    projection = JDBCProjection.build(JDBCStorage.this, names);
                 }
-                if (alias != null) {
-                    selectBuilder.append(alias);
-                    selectBuilder.append('.');
+            }
+
+            int ordinal = 0;
+            if (projection != null) {
+                projection.appendColumnsTo(selectBuilder, alias);
+            } else {
+                Map<String, JDBCStorableProperty<S>> properties =
+                    getStorableInfo().getAllProperties();
+                for (JDBCStorableProperty<S> property : properties.values()) {
+                    if (!property.isSelectable()) {
+                        continue;
+                    }
+                    if (ordinal > 0) {
+                        selectBuilder.append(',');
+                    }
+                    if (alias != null) {
+                        selectBuilder.append(alias);
+                        selectBuilder.append('.');
+                    }
+                    selectBuilder.append(property.getColumnName());
+                    ordinal++;
                 }
-                selectBuilder.append(property.getColumnName());
-                ordinal++;
             }
 
             selectBuilder.append(" FROM");
@@ -533,16 +709,21 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                                                      fromWhere,
                                                      deleteFromWhere,
                                                      propertyFilters,
-                                                     propertyFilterNullable);
+                                                     propertyFilterNullable,
+                                                     projection,
+                                                     alias);
+            executor = TracingQueryExecutor.wrap(executor, hints);
 
             if (remainderFilter != null && !remainderFilter.isOpen()) {
                 executor = new FilteredQueryExecutor<S>(executor, remainderFilter);
+                executor = TracingQueryExecutor.wrap(executor, hints);
             }
 
             if (remainderOrdering != null && remainderOrdering.size() > 0) {
                 executor = new SortedQueryExecutor<S>
                     (new SortedQueryExecutor.MergeSortSupport(),
                      executor, sqlOrdering, remainderOrdering);
+                executor = TracingQueryExecutor.wrap(executor, hints);
             }
 
             return executor;
@@ -558,6 +739,20 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             return left.and(right);
         }
 
+        private boolean usesDerivedProperty(Filter<S> filter, OrderingList<S> ordering) {
+            if (filter != null && usesDerivedProperty(filter)) {
+                return true;
+            }
+            if (ordering != null) {
+                for (OrderedProperty<S> orderedProperty : ordering) {
+                    if (orderedProperty.getChainedProperty().isDerived()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         private boolean usesDerivedProperty(Filter<S> filter) {
             Boolean result = filter.accept(new Visitor<S, Boolean, Object>() {
                 @Override
@@ -614,17 +809,27 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
         // Some entries may be null if no adapter required.
         private final Object[] mAdapterInstances;
 
+        // Is null if all columns are selected.
+        private final JDBCProjection<S> mProjection;
+
+        // Alias of root table, or null if none.
+        private final String mAlias;
+
         Executor(Filter<S> filter,
                  OrderingList<S> ordering,
                  SQLStatement<S> selectStatement,
                  SQLStatement<S> fromWhere,
                  SQLStatement<S> deleteFromWhere,
                  PropertyFilter<S>[] propertyFilters,
-                 boolean[] propertyFilterNullable)
+                 boolean[] propertyFilterNullable,
+                 JDBCProjection<S> projection,
+                 String alias)
             throws RepositoryException
         {
             mFilter = filter;
             mOrdering = ordering;
+            mProjection = projection;
+            mAlias = alias;
 
             mSelectStatement = selectStatement;
             mMaxSelectStatementLength = selectStatement.maxLength();
@@ -716,7 +921,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                 try {
                     setParameters(ps, values);
                     return ControllerCursor.apply
-                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps), controller);
+                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps, mProjection),
+                         controller);
                 } catch (Exception e) {
                     // in case of exception, close statement
                     try {
@@ -805,7 +1011,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                                 ps.setLong(psOrdinal, from);
                                 Cursor<S> c =
                                     ControllerCursor.apply
-                                    (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps),
+                                    (new JDBCCursor<S>
+                                     (JDBCStorage.this, scope, con, ps, mProjection),
                                      controller);
                                 return new LimitCursor<S>(c, to - from);
                             case LIMIT_AND_OFFSET:
@@ -829,7 +1036,8 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
                     }
 
                     return ControllerCursor.apply
-                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps), controller);
+                        (new JDBCCursor<S>(JDBCStorage.this, scope, con, ps, mProjection),
+                         controller);
                 } catch (Exception e) {
                     // in case of exception, close statement
                     try {
@@ -882,6 +1090,154 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             }
         }
 
+        /**
+         * Computes an aggregate in SQL, returning one row for each group. Each
+         * row consists of group-by values followed by the aggregate result.
+         */
+        List<Object[]> aggregate(FilterValues<S> values,
+                                 Query.Aggregate function,
+                                 JDBCStorableProperty<S> property,
+                                 JDBCStorableProperty<S>[] groupBy,
+                                 Query.Controller controller)
+            throws FetchException
+        {
+            StringBuilder b = new StringBuilder(64 + mMaxFromWhereLength);
+            b.append("SELECT ");
+            for (JDBCStorableProperty<S> group : groupBy) {
+                appendColumn(b, group);
+                b.append(',');
+            }
+
+            switch (function) {
+            case MIN:
+                b.append("MIN(");
+                break;
+            case MAX:
+                b.append("MAX(");
+                break;
+            case SUM:
+                b.append("SUM(");
+                break;
+            case AVG:
+                b.append("AVG(1.0*");
+                break;
+            case COUNT_DISTINCT: default:
+                b.append("COUNT(DISTINCT ");
+                break;
+            }
+            appendColumn(b, property);
+            b.append(')');
+
+            mFromWhere.appendTo(b, values);
+
+            if (groupBy.length > 0) {
+                b.append(" GROUP BY ");
+                appendColumns(b, groupBy);
+                b.append(" ORDER BY ");
+                appendColumns(b, groupBy);
+            }
+
+            Connection con = getConnection();
+            try {
+                PreparedStatement ps = prepareStatement(con, b.toString(), controller);
+
+                try {
+                    Method[] adaptMethods = new Method[groupBy.length];
+                    Object[] adapterInstances = new Object[groupBy.length];
+                    for (int i=0; i<groupBy.length; i++) {
+                        adaptMethods[i] = JDBCProjection.findAdaptMethod(groupBy[i]);
+                        if (adaptMethods[i] != null) {
+                            adapterInstances[i] =
+                                groupBy[i].getAppliedAdapter().getAdapterInstance();
+                        }
+                    }
+
+                    setParameters(ps, values);
+                    ResultSet rs = ps.executeQuery();
+                    try {
+                        List<Object[]> rows = new ArrayList<Object[]>();
+                        while (rs.next()) {
+                            Object[] row = new Object[groupBy.length + 1];
+                            int i = 0;
+                            for (; i<groupBy.length; i++) {
+                                row[i] = JDBCProjection.getValue
+                                    (rs, i + 1, groupBy[i], adaptMethods[i], adapterInstances[i]);
+                            }
+                            row[i] = getAggregateResult(rs, i + 1, function, property);
+                            rows.add(row);
+                        }
+                        return rows;
+                    } finally {
+                        rs.close();
+                    }
+                } finally {
+                    ps.close();
+                }
+            } catch (ArithmeticException e) {
+                // Sum overflow, which is thrown directly, as in QueryAggregator.
+                throw e;
+            } catch (Exception e) {
+                throw toFetchException(e);
+            } finally {
+                yieldConnection(con);
+            }
+        }
+
+        private void appendColumn(StringBuilder b, JDBCStorableProperty<S> property) {
+            if (mAlias != null) {
+                b.append(mAlias);
+                b.append('.');
+            }
+            b.append(property.getColumnName());
+        }
+
+        private void appendColumns(StringBuilder b, JDBCStorableProperty<S>[] properties) {
+            for (int i=0; i<properties.length; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                appendColumn(b, properties[i]);
+            }
+        }
+
+        private Object getAggregateResult(ResultSet rs, int ordinal,
+                                          Query.Aggregate function,
+                                          JDBCStorableProperty<S> property)
+            throws SQLException
+        {
+            Class<?> type = property.getType();
+            Object result;
+
+            switch (function) {
+            case MIN: case MAX:
+                // No adapter, as checked by caller.
+                return JDBCProjection.getValue(rs, ordinal, property, null, null);
+            case SUM:
+                if (type == float.class || type == double.class ||
+                    type == Float.class || type == Double.class)
+                {
+                    result = rs.getDouble(ordinal);
+                } else if (BigDecimal.class.isAssignableFrom(type)) {
+                    return rs.getBigDecimal(ordinal);
+                } else if (BigInteger.class.isAssignableFrom(type)) {
+                    BigDecimal sum = rs.getBigDecimal(ordinal);
+                    return sum == null ? null : sum.toBigInteger();
+                } else {
+                    // Read as decimal to detect overflow of Long.
+                    BigDecimal sum = rs.getBigDecimal(ordinal);
+                    return sum == null ? null : sum.longValueExact();
+                }
+                break;
+            case AVG:
+                result = rs.getDouble(ordinal);
+                break;
+            case COUNT_DISTINCT: default:
+                return rs.getLong(ordinal);
+            }
+
+            return rs.wasNull() ? null : result;
+        }
+
         @Override
         public Filter<S> getFilter() {
             return mFilter;
@@ -1055,6 +1411,118 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             }
         }
 
+        @Override
+        public Object aggregate(Aggregate function, String property, Controller controller)
+            throws FetchException
+        {
+            List<Object[]> rows = aggregateRows(function, property, null, controller);
+            if (rows == null) {
+                return super.aggregate(function, property, controller);
+            }
+            return rows.size() == 0 ? null : rows.get(0)[0];
+        }
+
+        @Override
+        public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                          String[] groupBy, Controller controller)
+            throws FetchException
+        {
+            List<Object[]> rows = aggregateRows(function, property, groupBy, controller);
+            if (rows == null) {
+                return super.aggregateGroupBy(function, property, groupBy, controller);
+            }
+            if (groupBy != null && groupBy.length > 0) {
+                // Databases differ in where they order nulls, and so sort again
+                // with nulls high, like QueryAggregator does.
+                Collections.sort(rows, GroupComparator.THE);
+            }
+            Map<List<Object>, Object> groups = new LinkedHashMap<List<Object>, Object>();
+            for (Object[] row : rows) {
+                int count = row.length - 1;
+                if (count == 0 && row[count] == null) {
+                    // No values to aggregate.
+                    continue;
+                }
+                Object[] key = new Object[count];
+                System.arraycopy(row, 0, key, 0, count);
+                groups.put(Collections.unmodifiableList(Arrays.asList(key)), row[count]);
+            }
+            return groups;
+        }
+
+        /**
+         * Returns null if aggregate cannot be computed in SQL.
+         */
+        private List<Object[]> aggregateRows(Aggregate function, String property,
+                                             String[] groupBy, Controller controller)
+            throws FetchException
+        {
+            Class<S> type = getStorableType();
+            QueryAggregator.checkProperty(type, function, property);
+
+            if (getBlankParameterCount() > 0) {
+                throw new IllegalStateException("Blank parameters exist in query: " + this);
+            }
+
+            JDBCStorableProperty<S> jProperty = aggregateProperty(property);
+            if (jProperty == null) {
+                return null;
+            }
+
+            switch (function) {
+            case MIN: case MAX: case SUM: case AVG:
+                if (jProperty.getAppliedAdapter() != null) {
+                    // Database ordering and arithmetic might not match property values.
+                    return null;
+                }
+            }
+
+            if (groupBy == null) {
+                groupBy = new String[0];
+            }
+
+            JDBCStorableProperty<S>[] jGroupBy = new JDBCStorableProperty[groupBy.length];
+            for (int i=0; i<groupBy.length; i++) {
+                QueryAggregator.checkProperty(type, groupBy[i]);
+                if ((jGroupBy[i] = aggregateProperty(groupBy[i])) == null) {
+                    return null;
+                }
+            }
+
+            QueryExecutor<S> executor;
+            try {
+                executor = executor();
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+
+            if (!(executor instanceof JDBCStorage.Executor)) {
+                // Remainder filter is required.
+                return null;
+            }
+
+            return ((Executor) executor).aggregate
+                (getFilterValues(), function, jProperty, jGroupBy, controller);
+        }
+
+        /**
+         * Returns null if property cannot be used in a SQL aggregate.
+         */
+        private JDBCStorableProperty<S> aggregateProperty(String name) {
+            JDBCStorableProperty<S> property = getStorableInfo().getAllProperties().get(name);
+            if (property == null || !property.isSelectable() || property.isDerived()) {
+                return null;
+            }
+            Class<?> rsType = property.getResultSetGetMethod().getReturnType();
+            if (Lob.class.isAssignableFrom(property.getType()) ||
+                java.sql.Blob.class.isAssignableFrom(rsType) ||
+                java.sql.Clob.class.isAssignableFrom(rsType))
+            {
+                return null;
+            }
+            return property;
+        }
+
         @Override
         protected Transaction enterTransaction(IsolationLevel level) {
             return getRootRepository().enterTransaction(level);
@@ -1077,4 +1545,35 @@ class JDBCStorage<S extends Storable> extends StandardQueryFactory<S>
             return new JDBCQuery(values.getFilter(), values, ordering, hints);
         }
     }
+
+    /**
+     * Orders aggregate rows by their group-by values, which precede the
+     * aggregate result. Nulls sort high, and values which aren't comparable
+     * are treated as equal.
+     */
+    private static class GroupComparator implements Comparator<Object[]> {
+        static final GroupComparator THE = new GroupComparator();
+
+        public int compare(Object[] a, Object[] b) {
+            int count = a.length - 1;
+            for (int i=0; i<count; i++) {
+                Object av = a[i];
+                Object bv = b[i];
+                int result;
+                if (av == null) {
+                    result = bv == null ? 0 : 1;
+                } else if (bv == null) {
+                    result = -1;
+                } else if (av instanceof Comparable) {
+                    result = ((Comparable) av).compareTo(bv);
+                } else {
+                    result = 0;
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
 }
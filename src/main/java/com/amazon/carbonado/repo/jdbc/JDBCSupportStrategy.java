@@ -81,6 +81,7 @@ class JDBCSupportStrategy {
     
     protected final JDBCRepository mRepo;
     private String mSequenceSelectStatement;
+    private String mSequenceBlockSelectStatement;
     private boolean mForceStoredSequence = false;
     private String mTruncateTableStatement;
     
@@ -101,12 +102,23 @@ class JDBCSupportStrategy {
         if (name == null) {
             throw new IllegalArgumentException("Sequence name is null");
         }
+        int blockSize = mRepo.getSequenceBlockSize(name);
         String format = getSequenceSelectStatement();
         if (format != null && format.length() > 0 && !isForceStoredSequence()) {
             String sequenceQuery = String.format(format, name);
-            return new JDBCSequenceValueProducer(mRepo, sequenceQuery);
+            String blockFormat = getSequenceBlockSelectStatement();
+            String blockQuery = null;
+            if (blockSize > 1 && blockFormat != null && blockFormat.length() > 0) {
+                blockQuery = String.format(blockFormat, name, blockSize);
+            }
+            return new JDBCSequenceValueProducer(mRepo, sequenceQuery, blockQuery, blockSize);
         } else {
             try {
+                if (blockSize > 1) {
+                    return new SequenceValueGenerator
+                        (mRepo, name, SequenceValueGenerator.DEFAULT_INITIAL_VALUE,
+                         SequenceValueGenerator.DEFAULT_INCREMENT, blockSize);
+                }
                 return new SequenceValueGenerator(mRepo, name);
             } catch (UnsupportedTypeException e) {
                 if (e.getType() != StoredSequence.class) {
@@ -256,6 +268,25 @@ class JDBCSupportStrategy {
         mSequenceSelectStatement = sequenceSelectStatement;
     }
 
+    /**
+     * Returns the optional sequence block select statement format, which
+     * selects many sequence values in one round trip, one per row. The format
+     * is printf style with a string parameter for the sequence name, and an
+     * integer parameter for the amount of values to select.
+     *
+     * @since 1.2.6
+     */
+    String getSequenceBlockSelectStatement() {
+        return mSequenceBlockSelectStatement;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    void setSequenceBlockSelectStatement(String sequenceBlockSelectStatement) {
+        mSequenceBlockSelectStatement = sequenceBlockSelectStatement;
+    }
+
     /**
      * @since 1.2
      */
@@ -324,4 +355,60 @@ class JDBCSupportStrategy {
     String buildSelectWithSlice(String select, boolean from, boolean to) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Returns a statement which inserts a row, or updates the existing row
+     * which has the same primary key. Statement parameters are the column
+     * values, in the same order as the given columns. All columns are written
+     * when inserting, but only the columns to update are written when the row
+     * exists.
+     *
+     * @param info info for table to upsert into
+     * @param columns names of columns to write, starting with all primary key
+     * columns, followed by the columns to update
+     * @param keyCount amount of leading primary key columns
+     * @param updateCount amount of columns to update, which follow the
+     * primary key columns
+     * @return upsert statement, or null if not supported
+     * @since 1.2.6
+     */
+    String buildUpsertStatement(JDBCStorableInfo<?> info, String[] columns,
+                                int keyCount, int updateCount)
+    {
+        return null;
+    }
+
+    /**
+     * Appends the given columns, separated by commas.
+     *
+     * @param prefix optional prefix for each column, like a table alias
+     * @since 1.2.6
+     */
+    static void appendColumns(StringBuilder b, String prefix,
+                              String[] columns, int start, int end)
+    {
+        for (int i=start; i<end; i++) {
+            if (i > start) {
+                b.append(',');
+            }
+            if (prefix != null) {
+                b.append(prefix);
+            }
+            b.append(columns[i]);
+        }
+    }
+
+    /**
+     * Appends the given amount of '?' parameters, separated by commas.
+     *
+     * @since 1.2.6
+     */
+    static void appendParameters(StringBuilder b, int count) {
+        for (int i=0; i<count; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append('?');
+        }
+    }
 }
@@ -18,6 +18,12 @@
 
 package com.amazon.carbonado.repo.jdbc;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.amazon.carbonado.capability.IndexInfo;
+
 /**
  *
  *
@@ -37,6 +43,45 @@ class MysqlSupportStrategy extends JDBCSupportStrategy {
         return new MysqlExceptionTransformer();
     }
 
+    /**
+     * Uses INSERT with ON DUPLICATE KEY UPDATE. Because any unique index can
+     * cause the update instead of the insert, this is only supported when the
+     * primary key is the only unique index.
+     */
+    @Override
+    String buildUpsertStatement(JDBCStorableInfo<?> info, String[] columns,
+                                int keyCount, int updateCount)
+    {
+        Set<String> pk = new HashSet<String>(info.getPrimaryKeyProperties().keySet());
+        for (IndexInfo index : info.getIndexInfo()) {
+            if (index.isUnique() &&
+                !pk.equals(new HashSet<String>(Arrays.asList(index.getPropertyNames()))))
+            {
+                return null;
+            }
+        }
+
+        StringBuilder b = new StringBuilder();
+        b.append("INSERT INTO ").append(info.getQualifiedTableName()).append(" (");
+        appendColumns(b, null, columns, 0, columns.length);
+        b.append(") VALUES (");
+        appendParameters(b, columns.length);
+        b.append(") ON DUPLICATE KEY UPDATE ");
+        int updateEnd = keyCount + updateCount;
+        if (keyCount >= updateEnd) {
+            // Nothing to update, but a clause is required.
+            b.append(columns[0]).append('=').append(columns[0]);
+        } else {
+            for (int i=keyCount; i<updateEnd; i++) {
+                if (i > keyCount) {
+                    b.append(',');
+                }
+                b.append(columns[i]).append("=VALUES(").append(columns[i]).append(')');
+            }
+        }
+        return b.toString();
+    }
+
     @Override
     SliceOption getSliceOption() {
         return SliceOption.OFFSET_AND_LIMIT;
@@ -38,6 +38,9 @@ class OracleSupportStrategy extends JDBCSupportStrategy {
 
     private static final String DEFAULT_SEQUENCE_SELECT_STATEMENT = "SELECT %s.NEXTVAL FROM DUAL";
 
+    private static final String DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT =
+        "SELECT %1$s.NEXTVAL FROM DUAL CONNECT BY LEVEL <= %2$d";
+
     private static final String TRUNCATE_STATEMENT = "TRUNCATE TABLE %s";
 
     private static final int BLOB_CHUNK_LIMIT = 2000;
@@ -62,6 +65,7 @@ class OracleSupportStrategy extends JDBCSupportStrategy {
 
         // Set printf style format to create sequence query
         setSequenceSelectStatement(DEFAULT_SEQUENCE_SELECT_STATEMENT);
+        setSequenceBlockSelectStatement(DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT);
 
         setTruncateTableStatement(TRUNCATE_STATEMENT);
 
@@ -221,6 +225,47 @@ class OracleSupportStrategy extends JDBCSupportStrategy {
         }
     }
 
+    /**
+     * Uses MERGE with a single row selected from DUAL.
+     */
+    @Override
+    String buildUpsertStatement(JDBCStorableInfo<?> info, String[] columns,
+                                int keyCount, int updateCount)
+    {
+        StringBuilder b = new StringBuilder();
+        b.append("MERGE INTO ").append(info.getQualifiedTableName()).append(" d USING (SELECT ");
+        for (int i=0; i<columns.length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append("? ").append(columns[i]);
+        }
+        b.append(" FROM DUAL) s ON (");
+        for (int i=0; i<keyCount; i++) {
+            if (i > 0) {
+                b.append(" AND ");
+            }
+            b.append("d.").append(columns[i]).append("=s.").append(columns[i]);
+        }
+        b.append(')');
+        int updateEnd = keyCount + updateCount;
+        if (keyCount < updateEnd) {
+            b.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i=keyCount; i<updateEnd; i++) {
+                if (i > keyCount) {
+                    b.append(',');
+                }
+                b.append("d.").append(columns[i]).append("=s.").append(columns[i]);
+            }
+        }
+        b.append(" WHEN NOT MATCHED THEN INSERT (");
+        appendColumns(b, null, columns, 0, columns.length);
+        b.append(") VALUES (");
+        appendColumns(b, "s.", columns, 0, columns.length);
+        b.append(')');
+        return b.toString();
+    }
+
     @Override
     SliceOption getSliceOption() {
         return SliceOption.FROM_AND_TO;
@@ -30,14 +30,47 @@ class PostgresqlSupportStrategy extends JDBCSupportStrategy {
 
     private static final String DEFAULT_SEQUENCE_SELECT_STATEMENT = "SELECT NEXTVAL('%s')";
 
+    private static final String DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT =
+        "SELECT NEXTVAL('%1$s') FROM GENERATE_SERIES(1, %2$d)";
+
     protected PostgresqlSupportStrategy(JDBCRepository repo) {
         super(repo);
 
         setSequenceSelectStatement(DEFAULT_SEQUENCE_SELECT_STATEMENT);
+        setSequenceBlockSelectStatement(DEFAULT_SEQUENCE_BLOCK_SELECT_STATEMENT);
 
         setTruncateTableStatement(TRUNCATE_STATEMENT);
     }
 
+    /**
+     * Uses INSERT with ON CONFLICT, which requires PostgreSQL 9.5.
+     */
+    @Override
+    String buildUpsertStatement(JDBCStorableInfo<?> info, String[] columns,
+                                int keyCount, int updateCount)
+    {
+        StringBuilder b = new StringBuilder();
+        b.append("INSERT INTO ").append(info.getQualifiedTableName()).append(" (");
+        appendColumns(b, null, columns, 0, columns.length);
+        b.append(") VALUES (");
+        appendParameters(b, columns.length);
+        b.append(") ON CONFLICT (");
+        appendColumns(b, null, columns, 0, keyCount);
+        int updateEnd = keyCount + updateCount;
+        if (keyCount >= updateEnd) {
+            b.append(") DO NOTHING");
+        } else {
+            b.append(") DO UPDATE SET ");
+            for (int i=keyCount; i<updateEnd; i++) {
+                if (i > keyCount) {
+                    b.append(',');
+                }
+                b.append(columns[i]).append("=EXCLUDED.").append(columns[i]);
+            }
+        }
+        return b.toString();
+    }
+
     @Override
     SliceOption getSliceOption() {
         return SliceOption.LIMIT_AND_OFFSET;
@@ -20,6 +20,10 @@ package com.amazon.carbonado.repo.logging;
 
 import java.io.IOException;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.PersistException;
@@ -150,11 +154,63 @@ class LoggingQuery<S extends Storable> implements Query<S> {
         return newInstance(mQuery.orderBy(strings));
     }
 
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        return newInstance(mQuery.select(properties));
+    }
+
+    @Override
+    public Query<S> parallel() throws FetchException {
+        return newInstance(mQuery.parallel());
+    }
+
+    @Override
+    public Query<S> trace() throws FetchException {
+        return newInstance(mQuery.trace());
+    }
+
     @Override
     public <T extends S> Query<S> after(T start) throws FetchException {
         return newInstance(mQuery.after(start));
     }
 
+    @Override
+    public Object aggregate(Aggregate function, String property) throws FetchException {
+        return aggregate(function, property, (Controller) null);
+    }
+
+    @Override
+    public Object aggregate(Aggregate function, String property, Controller controller)
+        throws FetchException
+    {
+        Log log = mStorage.mLog;
+        if (log.isEnabled()) {
+            log.write("Query.aggregate(" + function + ", " + property + ") on " + this);
+        }
+        return mQuery.aggregate(function, property, controller);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy)
+        throws FetchException
+    {
+        return aggregateGroupBy(function, property, groupBy, null);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy, Controller controller)
+        throws FetchException
+    {
+        Log log = mStorage.mLog;
+        if (log.isEnabled()) {
+            log.write("Query.aggregateGroupBy(" + function + ", " + property + ", " +
+                      Arrays.toString(groupBy) + ") on " + this);
+        }
+        return mQuery.aggregateGroupBy(function, property, groupBy, controller);
+    }
+
     @Override
     public Cursor<S> fetch() throws FetchException {
         Log log = mStorage.mLog;
@@ -214,6 +270,28 @@ class LoggingQuery<S extends Storable> implements Query<S> {
         return mQuery.fetchAfter(start, controller);
     }
 
+    @Override
+    public Page<S> fetchPage(String token, int size) throws FetchException {
+        Log log = mStorage.mLog;
+        if (log.isEnabled()) {
+            log.write("Query.fetchPage(token, size) on " + this + ", token: " + token
+                      + ", size: " + size);
+        }
+        return mQuery.fetchPage(token, size);
+    }
+
+    @Override
+    public Page<S> fetchPage(String token, int size, Controller controller)
+        throws FetchException
+    {
+        Log log = mStorage.mLog;
+        if (log.isEnabled()) {
+            log.write("Query.fetchPage(token, size, controller) on " + this + ", token: "
+                      + token + ", size: " + size + ", controller: " + controller);
+        }
+        return mQuery.fetchPage(token, size, controller);
+    }
+
     @Override
     public S loadOne() throws FetchException {
         Log log = mStorage.mLog;
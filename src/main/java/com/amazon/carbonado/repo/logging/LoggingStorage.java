@@ -18,6 +18,9 @@
 
 package com.amazon.carbonado.repo.logging;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.PersistException;
 import com.amazon.carbonado.Query;
@@ -72,6 +75,27 @@ class LoggingStorage<S extends Storable> implements Storage<S> {
         mStorage.truncate();
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public void upsert(S storable) throws PersistException {
+        if (mLog.isEnabled()) {
+            mLog.write("Storage.upsert() on " + storable.toString());
+        }
+        mStorage.upsert(storable);
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        if (mLog.isEnabled()) {
+            mLog.write("Storage.tryLoadAll() on " + storables.size() + " storables of " +
+                       getStorableType().getName());
+        }
+        return mStorage.tryLoadAll(storables);
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mStorage.addTrigger(trigger);
     }
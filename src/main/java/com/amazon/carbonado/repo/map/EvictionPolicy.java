@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+/**
+ * Selects which records a bounded {@link MapRepository} evicts once a
+ * {@link MapRepositoryBuilder#setMaxRecords record} or {@link
+ * MapRepositoryBuilder#setMaxBytes size} limit is exceeded.
+ *
+ * @author Brian S O'Neill
+ * @see MapRepositoryBuilder#setEvictionPolicy
+ * @since 1.2.6
+ */
+public enum EvictionPolicy {
+    /**
+     * Evict the least recently used records first. Recency is approximated
+     * using the clock algorithm, which doesn't require reads to lock.
+     */
+    LRU,
+
+    /**
+     * Evict the least frequently used records first. Frequency is tracked by
+     * small counters which decay as eviction passes over them, and so records
+     * which are no longer accessed eventually become eligible.
+     */
+    LFU,
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableInfo;
+
+/**
+ * Holds records as plain storable instances in a concurrent skip list.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class HeapRecordMap<S extends Storable> extends RecordMap<S> {
+    private final ConcurrentNavigableMap<Key<S>, S> mMap;
+    private final KeyFactory<S> mKeys;
+
+    HeapRecordMap(MapStorage<S> storage, StorableInfo<S> info) {
+        mMap = new ConcurrentSkipListMap<Key<S>, S>();
+        mKeys = new KeyFactory<S>(storage, info);
+    }
+
+    boolean isOffHeap() {
+        return false;
+    }
+
+    S get(S key) {
+        return mMap.get(mKeys.key(key));
+    }
+
+    boolean putIfAbsent(S record) {
+        return mMap.putIfAbsent(mKeys.key(record), record) == null;
+    }
+
+    void put(S record) {
+        mMap.put(mKeys.key(record), record);
+    }
+
+    @Override
+    void updated(S record) {
+        // Record was modified in place.
+    }
+
+    S remove(S key) {
+        return mMap.remove(mKeys.key(key));
+    }
+
+    boolean delete(S key) {
+        return mMap.remove(mKeys.key(key)) != null;
+    }
+
+    void clear() {
+        mMap.clear();
+    }
+
+    int size() {
+        return mMap.size();
+    }
+
+    Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending) {
+        NavigableMap<Key<S>, S> map = mKeys.tailMap(mMap, startValues, inclusive, descending);
+        if (map == null) {
+            return Collections.emptyList();
+        }
+        return map.values();
+    }
+
+    void addStatistics(MapStatistics stats) {
+        stats.mRecordCount = mMap.size();
+    }
+}
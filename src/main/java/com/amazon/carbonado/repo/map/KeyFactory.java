@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.SortedCursor;
+
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableInfo;
+
+/**
+ * Creates the {@link Key Keys} which order records held on the heap, and
+ * positions navigable maps of them at a range of primary key values.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class KeyFactory<S extends Storable> {
+    private final MapStorage<S> mStorage;
+    private final StorableInfo<S> mInfo;
+
+    private final Comparator<S> mFullComparator;
+    private final Comparator<S>[] mSearchComparators;
+
+    private final Key.Assigner<S> mKeyAssigner;
+
+    KeyFactory(MapStorage<S> storage, StorableInfo<S> info) {
+        mStorage = storage;
+        mInfo = info;
+
+        List<OrderedProperty<S>> propList = createPkPropList();
+        mFullComparator = SortedCursor.createComparator(propList);
+        mSearchComparators = new Comparator[propList.size() + 1];
+        mSearchComparators[propList.size()] = mFullComparator;
+
+        mKeyAssigner = Key.getAssigner(info.getStorableType());
+    }
+
+    /**
+     * Returns a key which matches records with the same primary key.
+     */
+    Key<S> key(S storable) {
+        return new Key<S>(storable, mFullComparator);
+    }
+
+    /**
+     * Returns a view of the given map, starting at the keys which match the
+     * given leading primary key values, or null if no keys remain.
+     *
+     * @param startValues leading primary key values; pass null to start at
+     * the first key
+     * @param inclusive when true, start at the first key matching the start
+     * values; otherwise start after the last key matching them
+     * @param descending when true, view is in descending order
+     */
+    <V> NavigableMap<Key<S>, V> tailMap(NavigableMap<Key<S>, V> map,
+                                        Object[] startValues, boolean inclusive,
+                                        boolean descending)
+    {
+        int tieBreaker = 1;
+        if (descending) {
+            map = map.descendingMap();
+            tieBreaker = -tieBreaker;
+        }
+
+        if (startValues != null) {
+            // Tie breaker of -1 puts search key right before first actual
+            // match, thus forming an inclusive start match. Tie breaker of +1
+            // puts search key right after last actual match, thus forming an
+            // exclusive start match.
+            Key<S> startKey = searchKey(inclusive ? -tieBreaker : tieBreaker, startValues);
+
+            Key<S> ceilingKey = map.ceilingKey(startKey);
+            if (ceilingKey == null) {
+                return null;
+            }
+
+            map = map.tailMap(ceilingKey, true);
+        }
+
+        return map;
+    }
+
+    private List<OrderedProperty<S>> createPkPropList() {
+        return new ArrayList<OrderedProperty<S>>(mInfo.getPrimaryKey().getProperties());
+    }
+
+    private Key<S> searchKey(int tieBreaker, Object[] values) {
+        S storable = mStorage.prepare();
+        mKeyAssigner.setKeyValues(storable, values);
+        Comparator<S> c = getSearchComparator(values.length);
+        return new SearchKey<S>(tieBreaker, storable, c);
+    }
+
+    private Comparator<S> getSearchComparator(int propertyCount) {
+        Comparator<S> comparator = mSearchComparators[propertyCount];
+        if (comparator == null) {
+            List<OrderedProperty<S>> propList = createPkPropList().subList(0, propertyCount);
+            if (propList.size() > 0) {
+                comparator = SortedCursor.createComparator(propList);
+            } else {
+                comparator = SortedCursor.createComparator(mInfo.getStorableType());
+            }
+            mSearchComparators[propertyCount] = comparator;
+        }
+        return comparator;
+    }
+
+    private static class SearchKey<S extends Storable> extends Key<S> {
+        private final int mTieBreaker;
+
+        SearchKey(int tieBreaker, S storable, Comparator<S> comparator) {
+            super(storable, comparator);
+            mTieBreaker = tieBreaker;
+        }
+
+        @Override
+        protected int tieBreaker() {
+            return mTieBreaker;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + ", tieBreaker=" + mTieBreaker;
+        }
+    }
+}
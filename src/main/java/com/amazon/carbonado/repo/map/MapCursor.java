@@ -21,6 +21,7 @@ package com.amazon.carbonado.repo.map;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
@@ -45,11 +46,17 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
     private final TransactionScope<MapTransaction> mScope;
     private final MapTransaction mTxn;
     private final boolean mIsForUpdate;
+    private final Set<String> mProjection;
 
     private volatile Iterator<S> mIterator;
 
+    /**
+     * @param projection optional names of the only properties to copy, in
+     * addition to the primary key
+     */
     MapCursor(MapStorage<S> storage,
               TransactionScope<MapTransaction> scope,
+              Set<String> projection,
               Iterable<S> iterable)
         throws Exception
     {
@@ -58,6 +65,7 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
         mStorage = storage;
         mScope = scope;
         mTxn = txn;
+        mProjection = projection;
 
         if (txn == null) {
             mStorage.mLock.lockForRead(scope);
@@ -69,7 +77,7 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
         }
 
         scope.register(storage.getStorableType(), this);
-        mIterator = iterable.iterator();
+        mIterator = storage.unexpired(iterable.iterator());
     }
 
     public void close() {
@@ -116,7 +124,12 @@ class MapCursor<S extends Storable> extends AbstractCursor<S> {
             throw new NoSuchElementException();
         }
         try {
-            S next = mStorage.copyAndFireLoadTrigger(it.next());
+            S next;
+            if (mProjection == null) {
+                next = mStorage.copyAndFireLoadTrigger(it.next());
+            } else {
+                next = mStorage.copyProjected(it.next(), mProjection);
+            }
             if (!hasNext()) {
                 close();
             }
@@ -0,0 +1,708 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import java.util.zip.CRC32;
+
+import com.amazon.carbonado.PersistException;
+
+import com.amazon.carbonado.util.Comparators;
+
+/**
+ * Write-ahead log and snapshot files which make a {@link MapRepository}
+ * durable. Committed changes are appended to the current log file as
+ * checksummed frames, and each snapshot captures all records as of the start
+ * of a new log file, allowing older log files to be deleted. Recovery loads
+ * the latest snapshot and then replays the log files which follow it.
+ *
+ * <p>Commits which must be flushed are grouped: while one thread writes and
+ * syncs the log, other threads continue to append, and the next sync covers
+ * all of them at once.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class MapLog {
+    private static final byte OP_DEFINE = 1, OP_STORE = 2, OP_DELETE = 3, OP_TRUNCATE = 4;
+
+    private static final String LOCK_FILE = "lock";
+    private static final String LOG_PREFIX = "log.";
+    private static final String SNAPSHOT_PREFIX = "snapshot.";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Size at which buffered frames are written even if no sync is required.
+    private static final int FLUSH_THRESHOLD = 65536;
+
+    private static final int MAX_FRAME_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * A single change to a record, in its raw encoding.
+     */
+    static class Entry {
+        final String mType;
+        final byte mOp;
+        final byte[] mKey;
+        final byte[] mValue;
+
+        private Entry(String type, byte op, byte[] key, byte[] value) {
+            mType = type;
+            mOp = op;
+            mKey = key;
+            mValue = value;
+        }
+    }
+
+    static Entry store(String type, byte[] key, byte[] value) {
+        return new Entry(type, OP_STORE, key, value);
+    }
+
+    static Entry delete(String type, byte[] key) {
+        return new Entry(type, OP_DELETE, key, null);
+    }
+
+    static Entry truncate(String type) {
+        return new Entry(type, OP_TRUNCATE, null, null);
+    }
+
+    private final File mDir;
+    private final boolean mNoSync;
+    private final boolean mWriteNoSync;
+
+    private final Object mSyncLock = new Object();
+    private final Object mSnapshotLock = new Object();
+
+    // Guarded by this.
+    private final Frame mFrame;
+    private final ByteArrayOutputStream mBuffer;
+    private RandomAccessFile mLockFile;
+    private FileLock mDirLock;
+    private long mLogNumber;
+    private FileChannel mChannel;
+    private long mAppended;
+    private long mSinceSnapshot;
+    private IOException mFailure;
+
+    // Guarded by mSyncLock.
+    private long mFlushed;
+    private long mSynced;
+
+    /**
+     * @param dir directory for log and snapshot files
+     * @param noSync when true, commits are not immediately written
+     * @param writeNoSync when true, commits are written but not synced
+     */
+    MapLog(File dir, boolean noSync, boolean writeNoSync) {
+        mDir = dir;
+        mNoSync = noSync;
+        mWriteNoSync = writeNoSync;
+        mFrame = new Frame();
+        mBuffer = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Locks the directory, recovers all records, and then opens a new log
+     * file. Must be called before any other method.
+     *
+     * @return map of storable type names to records, in raw encoding
+     */
+    synchronized Map<String, SortedMap<byte[], byte[]>> open() throws IOException {
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + mDir);
+        }
+
+        mLockFile = new RandomAccessFile(new File(mDir, LOCK_FILE), "rw");
+        mDirLock = mLockFile.getChannel().tryLock();
+        if (mDirLock == null) {
+            mLockFile.close();
+            mLockFile = null;
+            throw new IOException("Directory is in use by another process: " + mDir);
+        }
+
+        long snapshotNumber = -1;
+        List<Long> logNumbers = new ArrayList<Long>();
+
+        String[] names = mDir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Incomplete snapshot.
+                    new File(mDir, name).delete();
+                } else if (name.startsWith(SNAPSHOT_PREFIX)) {
+                    long number = parseNumber(name, SNAPSHOT_PREFIX);
+                    if (number > snapshotNumber) {
+                        snapshotNumber = number;
+                    }
+                } else if (name.startsWith(LOG_PREFIX)) {
+                    long number = parseNumber(name, LOG_PREFIX);
+                    if (number >= 0) {
+                        logNumbers.add(number);
+                    }
+                }
+            }
+        }
+
+        Collections.sort(logNumbers);
+
+        Map<String, SortedMap<byte[], byte[]>> records =
+            new HashMap<String, SortedMap<byte[], byte[]>>();
+
+        if (snapshotNumber >= 0) {
+            replay(new File(mDir, SNAPSHOT_PREFIX + snapshotNumber), false, records);
+        }
+
+        long nextNumber = Math.max(0, snapshotNumber);
+
+        for (int i=0; i<logNumbers.size(); i++) {
+            long number = logNumbers.get(i);
+            if (number < snapshotNumber) {
+                // Snapshot was written, but old log file wasn't deleted.
+                continue;
+            }
+            // Only the last log file can have an incomplete frame at the end.
+            boolean isLast = i == logNumbers.size() - 1;
+            replay(new File(mDir, LOG_PREFIX + number), isLast, records);
+            nextNumber = number + 1;
+        }
+
+        // Always start a new log file, to begin with a fresh set of type
+        // definitions.
+        mLogNumber = nextNumber;
+        mChannel = openLog(nextNumber);
+
+        return records;
+    }
+
+    /**
+     * Appends the given changes as a single atomic frame. The frame is not
+     * guaranteed to be written until sync is called.
+     *
+     * @return log position to pass to sync
+     */
+    synchronized long append(List<Entry> entries) throws PersistException {
+        checkFailure();
+        try {
+            for (Entry entry : entries) {
+                mFrame.add(entry);
+            }
+            int length = mFrame.writeTo(mBuffer);
+            mAppended += length;
+            mSinceSnapshot += length;
+            return mAppended;
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    /**
+     * Appends a single change as an atomic frame.
+     *
+     * @return log position to pass to sync
+     */
+    long append(Entry entry) throws PersistException {
+        return append(Collections.singletonList(entry));
+    }
+
+    /**
+     * Ensures that everything appended up to the given position is written
+     * and synced, according to the sync policy.
+     */
+    void sync(long position) throws PersistException {
+        synchronized (mSyncLock) {
+            try {
+                if (mNoSync) {
+                    if (pendingSize() >= FLUSH_THRESHOLD) {
+                        flush(false);
+                    }
+                } else if (mWriteNoSync) {
+                    if (mFlushed < position) {
+                        flush(false);
+                    }
+                } else if (mSynced < position) {
+                    flush(true);
+                }
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+    }
+
+    /**
+     * Writes all appended frames, and syncs them if required by the sync
+     * policy.
+     */
+    void flush() throws PersistException {
+        synchronized (mSyncLock) {
+            try {
+                flush(!mNoSync && !mWriteNoSync);
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes appended since the last snapshot.
+     */
+    synchronized long getSizeSinceSnapshot() {
+        return mSinceSnapshot;
+    }
+
+    /**
+     * Writes a new snapshot and deletes the files which it replaces. Records
+     * are supplied by the given source, which must reflect all changes
+     * appended before the snapshot began.
+     */
+    void snapshot(SnapshotSource source) throws Exception {
+        synchronized (mSnapshotLock) {
+            long number = rotate();
+
+            File temp = new File(mDir, SNAPSHOT_PREFIX + number + TEMP_SUFFIX);
+            RandomAccessFile file = new RandomAccessFile(temp, "rw");
+            try {
+                try {
+                    FileChannel channel = file.getChannel();
+                    channel.truncate(0);
+                    SnapshotWriter writer = new SnapshotWriter(channel);
+                    source.writeSnapshot(writer);
+                    writer.flush();
+                    channel.force(true);
+                } finally {
+                    file.close();
+                }
+                if (!temp.renameTo(new File(mDir, SNAPSHOT_PREFIX + number))) {
+                    throw new IOException("Unable to rename snapshot file: " + temp);
+                }
+            } catch (Exception e) {
+                temp.delete();
+                throw e;
+            }
+
+            String[] names = mDir.list();
+            if (names != null) {
+                for (String name : names) {
+                    long old;
+                    if (name.startsWith(SNAPSHOT_PREFIX)) {
+                        old = parseNumber(name, SNAPSHOT_PREFIX);
+                    } else if (name.startsWith(LOG_PREFIX)) {
+                        old = parseNumber(name, LOG_PREFIX);
+                    } else {
+                        continue;
+                    }
+                    if (old >= 0 && old < number) {
+                        new File(mDir, name).delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes and syncs all appended frames, and then closes the log. Any
+     * attempt to append afterwards fails.
+     */
+    void close() throws IOException {
+        synchronized (mSyncLock) {
+            try {
+                flush(true);
+            } finally {
+                synchronized (this) {
+                    if (mFailure == null) {
+                        mFailure = new IOException("Repository is closed");
+                    }
+                    try {
+                        if (mChannel != null) {
+                            mChannel.close();
+                            mChannel = null;
+                        }
+                    } finally {
+                        if (mLockFile != null) {
+                            // Closing file releases the lock too.
+                            mLockFile.close();
+                            mLockFile = null;
+                            mDirLock = null;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Caller must hold mSyncLock.
+    private void flush(boolean sync) throws IOException {
+        byte[] bytes;
+        long position;
+        FileChannel channel;
+        synchronized (this) {
+            if (mChannel == null) {
+                return;
+            }
+            if (mFailure != null) {
+                throw mFailure;
+            }
+            bytes = mBuffer.toByteArray();
+            mBuffer.reset();
+            position = mAppended;
+            channel = mChannel;
+        }
+
+        // Other threads can append while this one writes and syncs.
+        writeFully(channel, ByteBuffer.wrap(bytes));
+        mFlushed = position;
+        if (sync) {
+            channel.force(false);
+            mSynced = position;
+        }
+    }
+
+    private synchronized int pendingSize() {
+        return mBuffer.size();
+    }
+
+    /**
+     * Switches to a new log file, after syncing the current one.
+     *
+     * @return new log number
+     */
+    private long rotate() throws IOException {
+        synchronized (mSyncLock) {
+            flush(true);
+            synchronized (this) {
+                if (mFailure != null) {
+                    throw mFailure;
+                }
+                // Write anything appended since the flush, while appends are
+                // blocked.
+                writeFully(mChannel, ByteBuffer.wrap(mBuffer.toByteArray()));
+                mBuffer.reset();
+                mChannel.force(false);
+                mChannel.close();
+                mChannel = null;
+
+                mFrame.reset();
+                mChannel = openLog(++mLogNumber);
+                mFlushed = mSynced = mAppended;
+                mSinceSnapshot = 0;
+
+                return mLogNumber;
+            }
+        }
+    }
+
+    private FileChannel openLog(long number) throws IOException {
+        FileChannel channel = new RandomAccessFile
+            (new File(mDir, LOG_PREFIX + number), "rw").getChannel();
+        channel.truncate(0);
+        return channel;
+    }
+
+    private PersistException failed(IOException e) {
+        synchronized (this) {
+            if (mFailure == null) {
+                mFailure = e;
+            }
+        }
+        return new PersistException(e);
+    }
+
+    private void checkFailure() throws PersistException {
+        if (mFailure != null) {
+            throw new PersistException("Write-ahead log is unavailable", mFailure);
+        }
+    }
+
+    /**
+     * @param allowTorn when true, an incomplete or corrupt frame marks the
+     * end of the file, which is then truncated
+     */
+    private static void replay(File file, boolean allowTorn,
+                               Map<String, SortedMap<byte[], byte[]>> records)
+        throws IOException
+    {
+        Map<Integer, String> types = new HashMap<Integer, String>();
+        Comparator<byte[]> c = Comparators.arrayComparator(byte[].class, true);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(8);
+
+            while (true) {
+                long start = channel.position();
+                byte[] payload = readFrame(channel, header);
+
+                if (payload == null) {
+                    if (channel.position() > start || start < channel.size()) {
+                        if (!allowTorn) {
+                            throw new IOException("Corrupt file: " + file);
+                        }
+                        channel.truncate(start);
+                        channel.force(false);
+                    }
+                    break;
+                }
+
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                while (in.available() > 0) {
+                    byte op = in.readByte();
+                    int id = in.readInt();
+
+                    if (op == OP_DEFINE) {
+                        types.put(id, in.readUTF());
+                        continue;
+                    }
+
+                    String type = types.get(id);
+                    if (type == null) {
+                        throw new IOException("Undefined type in file: " + file);
+                    }
+                    SortedMap<byte[], byte[]> map = records.get(type);
+                    if (map == null) {
+                        map = new TreeMap<byte[], byte[]>(c);
+                        records.put(type, map);
+                    }
+
+                    switch (op) {
+                    case OP_STORE:
+                        byte[] key = readBytes(in);
+                        map.put(key, readBytes(in));
+                        break;
+                    case OP_DELETE:
+                        map.remove(readBytes(in));
+                        break;
+                    case OP_TRUNCATE:
+                        map.clear();
+                        break;
+                    default:
+                        throw new IOException("Unknown operation in file: " + file);
+                    }
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return null if end of file, or if frame is incomplete or corrupt
+     */
+    private static byte[] readFrame(FileChannel channel, ByteBuffer header) throws IOException {
+        header.clear();
+        if (!readFully(channel, header)) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > channel.size() - channel.position()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        if (!readFully(channel, ByteBuffer.wrap(payload))) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return payload;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static long parseNumber(String name, String prefix) {
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Supplies all records for a snapshot.
+     */
+    static interface SnapshotSource {
+        void writeSnapshot(SnapshotWriter writer) throws Exception;
+    }
+
+    /**
+     * Writes records to a snapshot file, batched into frames.
+     */
+    static class SnapshotWriter {
+        private final FileChannel mChannel;
+        private final Frame mFrame;
+        private final ByteArrayOutputStream mBuffer;
+
+        SnapshotWriter(FileChannel channel) {
+            mChannel = channel;
+            mFrame = new Frame();
+            mBuffer = new ByteArrayOutputStream();
+        }
+
+        void write(String type, byte[] key, byte[] value) throws IOException {
+            mFrame.add(store(type, key, value));
+            if (mFrame.size() >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (mFrame.size() > 0) {
+                mFrame.writeTo(mBuffer);
+                writeFully(mChannel, ByteBuffer.wrap(mBuffer.toByteArray()));
+                mBuffer.reset();
+            }
+        }
+    }
+
+    /**
+     * Accumulates entries for a frame. Type names are defined within the
+     * frame which first refers to them, and later frames in the same file
+     * refer to them by number. A type number is only assigned for later
+     * frames once the frame which defines it has been written.
+     */
+    private static class Frame {
+        private final Map<String, Integer> mTypeIds;
+        // Types defined by the frame being accumulated.
+        private final Map<String, Integer> mNewTypeIds;
+        private final ByteArrayOutputStream mPayload;
+        private final DataOutputStream mOut;
+        private final CRC32 mCrc;
+
+        Frame() {
+            mTypeIds = new HashMap<String, Integer>();
+            mNewTypeIds = new HashMap<String, Integer>();
+            mPayload = new ByteArrayOutputStream();
+            mOut = new DataOutputStream(mPayload);
+            mCrc = new CRC32();
+        }
+
+        void add(Entry entry) throws IOException {
+            DataOutputStream out = mOut;
+
+            Integer id = mTypeIds.get(entry.mType);
+            if (id == null && (id = mNewTypeIds.get(entry.mType)) == null) {
+                id = mTypeIds.size() + mNewTypeIds.size();
+                mNewTypeIds.put(entry.mType, id);
+                out.writeByte(OP_DEFINE);
+                out.writeInt(id);
+                out.writeUTF(entry.mType);
+            }
+
+            out.writeByte(entry.mOp);
+            out.writeInt(id);
+
+            if (entry.mKey != null) {
+                out.writeInt(entry.mKey.length);
+                out.write(entry.mKey);
+                if (entry.mValue != null) {
+                    out.writeInt(entry.mValue.length);
+                    out.write(entry.mValue);
+                }
+            }
+        }
+
+        int size() {
+            return mPayload.size();
+        }
+
+        /**
+         * Writes the accumulated frame and then clears it.
+         *
+         * @return amount of bytes written
+         */
+        int writeTo(ByteArrayOutputStream dest) throws IOException {
+            int length = mPayload.size();
+            if (length > MAX_FRAME_SIZE) {
+                mPayload.reset();
+                // Definitions in the discarded frame must be written again.
+                mNewTypeIds.clear();
+                throw new IOException("Frame is too large: " + length);
+            }
+
+            byte[] payload = mPayload.toByteArray();
+            mPayload.reset();
+            mCrc.reset();
+            mCrc.update(payload);
+
+            DataOutputStream out = new DataOutputStream(dest);
+            out.writeInt(length);
+            out.writeInt((int) mCrc.getValue());
+            out.write(payload);
+
+            mTypeIds.putAll(mNewTypeIds);
+            mNewTypeIds.clear();
+
+            return 8 + length;
+        }
+
+        /**
+         * Clears all type definitions, for use by a new file.
+         */
+        void reset() {
+            mTypeIds.clear();
+            mNewTypeIds.clear();
+            mPayload.reset();
+        }
+    }
+}
@@ -18,10 +18,21 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryException;
@@ -29,8 +40,12 @@ import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.Storage;
 import com.amazon.carbonado.TriggerFactory;
 
+import com.amazon.carbonado.capability.Capability;
 import com.amazon.carbonado.capability.IndexInfo;
 import com.amazon.carbonado.capability.IndexInfoCapability;
+import com.amazon.carbonado.capability.MapEvictionCapability;
+
+import com.amazon.carbonado.layout.LayoutFactory;
 
 import com.amazon.carbonado.sequence.SequenceValueGenerator;
 import com.amazon.carbonado.sequence.SequenceValueProducer;
@@ -40,6 +55,8 @@ import com.amazon.carbonado.qe.StorageAccess;
 
 import com.amazon.carbonado.spi.AbstractRepository;
 import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.TriggerManager;
+import com.amazon.carbonado.spi.TriggerManagerCapability;
 
 import com.amazon.carbonado.txn.TransactionManager;
 import com.amazon.carbonado.txn.TransactionScope;
@@ -51,26 +68,91 @@ import com.amazon.carbonado.txn.TransactionScope;
  * @see MapRepositoryBuilder
  */
 class MapRepository extends AbstractRepository<MapTransaction>
-    implements RepositoryAccess, IndexInfoCapability
+    implements RepositoryAccess,
+               IndexInfoCapability,
+               TriggerManagerCapability,
+               MapStatisticsCapability,
+               MapEvictionCapability
 {
     private final AtomicReference<Repository> mRootRef;
     private final boolean mIsMaster;
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
+    private final boolean mOffHeap;
+    private final int mOffHeapChunkSize;
+    private final File mOffHeapDirectory;
+    // Only used when multiversion.
+    private final MapVersions mVersions;
+
+    private final int mMaxRecords;
+    private final long mMaxBytes;
+    private final EvictionPolicy mEvictionPolicy;
+    private final long mTimeToLive;
+    private final TimeUnit mTimeToLiveUnit;
 
     final Iterable<TriggerFactory> mTriggerFactories;
     private final MapTransactionManager mTxnManager;
+    private LayoutFactory mLayoutFactory;
     private LobEngine mLobEngine;
 
-    MapRepository(AtomicReference<Repository> rootRef, MapRepositoryBuilder builder) {
+    // Remaining fields are only used when durable.
+    private final MapLog mLog;
+    // Recovered records for types whose storage hasn't been created yet.
+    private final Map<String, SortedMap<byte[], byte[]>> mRecovered;
+    // All storage whose records are logged, guarded by mRecovered.
+    private final List<MapStorage<?>> mLogged;
+    private final Snapshotter mSnapshotter;
+
+    MapRepository(AtomicReference<Repository> rootRef, MapRepositoryBuilder builder)
+        throws RepositoryException
+    {
         super(builder.getName());
         mRootRef = rootRef;
         mIsMaster = builder.isMaster();
         mLockTimeout = builder.getLockTimeout();
         mLockTimeoutUnit = builder.getLockTimeoutUnit();
+        mOffHeap = builder.isOffHeap();
+        mOffHeapChunkSize = builder.getOffHeapChunkSize();
+        mOffHeapDirectory = builder.getOffHeapDirectory();
+        mVersions = builder.isMultiversion() ? new MapVersions() : null;
+        mMaxRecords = builder.getMaxRecords();
+        mMaxBytes = builder.getMaxBytes();
+        mEvictionPolicy = builder.getEvictionPolicy();
+        mTimeToLive = builder.getTimeToLive();
+        mTimeToLiveUnit = builder.getTimeToLiveUnit();
+
+        File dataHome = builder.getDataHomeFile();
+        if (dataHome == null) {
+            mLog = null;
+            mRecovered = null;
+            mLogged = null;
+        } else {
+            mLog = new MapLog(dataHome, builder.getTransactionNoSync(),
+                              builder.getTransactionWriteNoSync());
+            try {
+                mRecovered = mLog.open();
+            } catch (IOException e) {
+                try {
+                    mLog.close();
+                } catch (IOException e2) {
+                    // Ignore.
+                }
+                throw new RepositoryException("Unable to recover from " + dataHome, e);
+            }
+            mLogged = new ArrayList<MapStorage<?>>();
+        }
 
         mTriggerFactories = builder.getTriggerFactories();
-        mTxnManager = new MapTransactionManager(mLockTimeout, mLockTimeoutUnit);
+        mTxnManager = new MapTransactionManager(mLockTimeout, mLockTimeoutUnit, mLog, mVersions);
+
+        if (mLog != null && builder.getRunSnapshotter()) {
+            mSnapshotter = new Snapshotter(this, builder.getSnapshotInterval(),
+                                           builder.getSnapshotThresholdKB() * 1024L,
+                                           builder.getTransactionNoSync());
+            mSnapshotter.start();
+        } else {
+            mSnapshotter = null;
+        }
     }
 
     public Repository getRootRepository() {
@@ -89,11 +171,56 @@ class MapRepository extends AbstractRepository<MapTransaction>
         return ((MapStorage) storageFor(storableType)).getIndexInfo();
     }
 
+    public <S extends Storable> TriggerManager<S> getTriggerManagerFor(Class<S> type)
+        throws RepositoryException
+    {
+        return ((MapStorage<S>) storageFor(type)).mTriggers;
+    }
+
+    public <S extends Storable> MapStatistics getStatistics(Class<S> type)
+        throws RepositoryException
+    {
+        return ((MapStorage<S>) storageFor(type)).getStatistics();
+    }
+
+    public <S extends Storable> void setReloader(Class<S> type, Reloader<S> reloader)
+        throws RepositoryException
+    {
+        ((MapStorage<S>) storageFor(type)).setReloader(reloader);
+    }
+
+    @Override
+    public <C extends Capability> C getCapability(Class<C> capabilityType) {
+        if (capabilityType == MapEvictionCapability.class && !isBounded()) {
+            return null;
+        }
+        return super.getCapability(capabilityType);
+    }
+
     @Override
     protected void finalize() {
         close();
     }
 
+    @Override
+    protected void shutdownHook() {
+        if (mSnapshotter != null) {
+            mSnapshotter.interrupt();
+        }
+
+        if (mLog != null) {
+            try {
+                mLog.close();
+            } catch (IOException e) {
+                LogFactory.getLog(MapRepository.class).error("Failed to close log", e);
+            }
+        }
+
+        for (Storage storage : allStorage()) {
+            ((MapStorage) storage).close();
+        }
+    }
+
     @Override
     protected Log getLog() {
         return null;
@@ -113,7 +240,28 @@ class MapRepository extends AbstractRepository<MapTransaction>
     protected <S extends Storable> Storage<S> createStorage(Class<S> type)
         throws RepositoryException
     {
-        return new MapStorage<S>(this, type, mLockTimeout, mLockTimeoutUnit);
+        MapStorage<S> storage = new MapStorage<S>(this, type, mLockTimeout, mLockTimeoutUnit);
+
+        if (mLog != null) {
+            // Hold write lock while recovering, to prevent a concurrent
+            // snapshot from observing an incomplete storage.
+            Object locker = new Object();
+            storage.mLock.lockForWrite(locker);
+            try {
+                SortedMap<byte[], byte[]> records;
+                synchronized (mRecovered) {
+                    records = mRecovered.remove(type.getName());
+                    mLogged.add(storage);
+                }
+                if (records != null) {
+                    storage.recover(records);
+                }
+            } finally {
+                storage.mLock.unlockFromWrite(locker);
+            }
+        }
+
+        return storage;
     }
 
     @Override
@@ -123,6 +271,13 @@ class MapRepository extends AbstractRepository<MapTransaction>
         return new SequenceValueGenerator(this, name);
     }
 
+    LayoutFactory getLayoutFactory() throws RepositoryException {
+        if (mLayoutFactory == null) {
+            mLayoutFactory = new LayoutFactory(getRootRepository());
+        }
+        return mLayoutFactory;
+    }
+
     LobEngine getLobEngine() throws RepositoryException {
         if (mLobEngine == null) {
             mLobEngine = new LobEngine(this, getRootRepository());
@@ -133,4 +288,155 @@ class MapRepository extends AbstractRepository<MapTransaction>
     boolean isMaster() {
         return mIsMaster;
     }
+
+    /**
+     * Returns the write-ahead log, or null if not durable.
+     */
+    MapLog getMapLog() {
+        return mLog;
+    }
+
+    /**
+     * Writes a snapshot of all records, allowing older log files to be
+     * deleted.
+     */
+    void snapshot() throws Exception {
+        mLog.snapshot(new MapLog.SnapshotSource() {
+            public void writeSnapshot(MapLog.SnapshotWriter writer) throws Exception {
+                List<MapStorage<?>> storages;
+                synchronized (mRecovered) {
+                    // Types which were recovered but never accessed must be
+                    // carried over into the snapshot.
+                    for (Map.Entry<String, SortedMap<byte[], byte[]>> entry
+                             : mRecovered.entrySet())
+                    {
+                        String type = entry.getKey();
+                        for (Map.Entry<byte[], byte[]> record : entry.getValue().entrySet()) {
+                            writer.write(type, record.getKey(), record.getValue());
+                        }
+                    }
+                    storages = new ArrayList<MapStorage<?>>(mLogged);
+                }
+                for (MapStorage<?> storage : storages) {
+                    storage.writeSnapshot(writer);
+                }
+            }
+        });
+    }
+
+    boolean isOffHeap() {
+        return mOffHeap;
+    }
+
+    int getOffHeapChunkSize() {
+        return mOffHeapChunkSize;
+    }
+
+    File getOffHeapDirectory() {
+        return mOffHeapDirectory;
+    }
+
+    /**
+     * Returns null if not multiversion.
+     */
+    MapVersions getMapVersions() {
+        return mVersions;
+    }
+
+    boolean isBounded() {
+        return mMaxRecords > 0 || mMaxBytes > 0 || mTimeToLive > 0;
+    }
+
+    int getMaxRecords() {
+        return mMaxRecords;
+    }
+
+    long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    EvictionPolicy getEvictionPolicy() {
+        return mEvictionPolicy;
+    }
+
+    long getTimeToLive() {
+        return mTimeToLive;
+    }
+
+    TimeUnit getTimeToLiveUnit() {
+        return mTimeToLiveUnit;
+    }
+
+    /**
+     * Periodically writes snapshots once enough has been logged. When commits
+     * are not written immediately, it also writes buffered log frames.
+     */
+    private static class Snapshotter extends Thread {
+        // Maximum time that unwritten commits are buffered.
+        private static final long FLUSH_INTERVAL = 1000;
+
+        private final WeakReference<MapRepository> mRepository;
+        private final long mInterval;
+        private final long mThreshold;
+        private final boolean mFlush;
+
+        /**
+         * @param repository outer class
+         * @param interval milliseconds between snapshots
+         * @param threshold write snapshot only if at least this many bytes
+         * have been logged since the last one
+         * @param flush when true, write buffered log frames every second
+         */
+        Snapshotter(MapRepository repository, long interval, long threshold, boolean flush) {
+            super(repository.getClass().getSimpleName() + " snapshotter (" +
+                  repository.getName() + ')');
+            setDaemon(true);
+            mRepository = new WeakReference<MapRepository>(repository);
+            mInterval = interval;
+            mThreshold = threshold;
+            mFlush = flush;
+        }
+
+        @Override
+        public void run() {
+            long sleep = mFlush ? Math.min(mInterval, FLUSH_INTERVAL) : mInterval;
+            long nextSnapshot = System.currentTimeMillis() + mInterval;
+
+            while (true) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                MapRepository repository = mRepository.get();
+                if (repository == null || repository.isClosed()) {
+                    break;
+                }
+
+                try {
+                    if (mFlush) {
+                        repository.mLog.flush();
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now >= nextSnapshot) {
+                        nextSnapshot = now + mInterval;
+                        long size = repository.mLog.getSizeSinceSnapshot();
+                        if (size > 0 && size >= mThreshold) {
+                            repository.snapshot();
+                        }
+                    }
+                } catch (ThreadDeath e) {
+                    break;
+                } catch (Throwable e) {
+                    if (repository.isClosed()) {
+                        break;
+                    }
+                    LogFactory.getLog(MapRepository.class).error("Snapshot failed", e);
+                } finally {
+                    repository = null;
+                }
+            }
+        }
+    }
 }
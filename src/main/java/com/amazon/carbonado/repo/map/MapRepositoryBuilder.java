@@ -18,6 +18,9 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.File;
+import java.io.IOException;
+
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.TimeUnit;
 
@@ -29,7 +32,8 @@ import com.amazon.carbonado.repo.indexed.IndexedRepositoryBuilder;
 import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
 
 /**
- * Volatile repository implementation backed by a concurrent map. Locks used by
+ * Repository implementation backed by a concurrent map, which is volatile
+ * unless a {@link #setDataHome data home} is set. Locks used by
  * repository are coarse, much like <i>table locks</i>. Loads and queries
  * acquire read locks, and modifications acquire write locks. Within
  * transactions, loads and queries always acquire upgradable locks, to reduce
@@ -38,7 +42,29 @@ import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
  * <p>This repository supports transactions, which also may be
  * nested. Supported isolation levels are read committed and serializable. Read
  * uncommitted is promoted to read committed, and repeatable read is promoted
- * to serializable.
+ * to serializable. When {@link #setMultiversion multiversion} is enabled,
+ * the snapshot isolation level is also supported.
+ *
+ * <p>In {@link #setOffHeap off-heap} mode, records are stored in their raw
+ * key and value encoding outside the Java heap, and they are decoded only
+ * when fetched. Only the encoded keys remain on the heap, in an ordered
+ * index. Storable types with Lob properties are always stored on the heap.
+ *
+ * <p>When a data home directory is set, committed changes are appended to a
+ * write-ahead log in that directory, and snapshots of all records are written
+ * periodically in the background. Building the repository recovers all
+ * records by loading the latest snapshot and replaying the log which follows
+ * it. Records are logged in their raw encoding, prefixed with the generation
+ * of their storable layout. Layouts are stored in the repository itself, and
+ * so they are logged too, allowing records written by older definitions of a
+ * type to be decoded after it evolves.
+ *
+ * <p>A {@link #setMaxRecords bounded} repository evicts records once a limit
+ * is exceeded, allowing it to serve as a cache of a larger master
+ * repository. Evictions are not transactional, and they don't run triggers.
+ * Because evicted records would leave stale index entries behind, a bounded
+ * repository doesn't support alternate indexes, and queries only see the
+ * records which are currently held.
  *
  * <p>
  * The following extra capabilities are supported:
@@ -46,6 +72,9 @@ import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
  * <li>{@link com.amazon.carbonado.capability.IndexInfoCapability IndexInfoCapability}
  * <li>{@link com.amazon.carbonado.capability.ShutdownCapability ShutdownCapability}
  * <li>{@link com.amazon.carbonado.sequence.SequenceCapability SequenceCapability}
+ * <li>{@link MapStatisticsCapability MapStatisticsCapability}
+ * <li>{@link com.amazon.carbonado.capability.MapEvictionCapability
+ * MapEvictionCapability}, when bounded
  * </ul>
  *
  * <p>Note: This repository uses concurrent navigable map classes, which became
@@ -73,13 +102,28 @@ public class MapRepositoryBuilder extends AbstractRepositoryBuilder {
     private boolean mIndexSupport = true;
     private int mLockTimeout;
     private TimeUnit mLockTimeoutUnit;
+    private boolean mOffHeap;
+    private int mOffHeapChunkSize = 8 * 1024 * 1024;
+    private File mOffHeapDirectory;
+    private boolean mMultiversion;
+    private File mDataHome;
+    private boolean mTxnNoSync;
+    private boolean mTxnWriteNoSync;
+    private boolean mRunSnapshotter = true;
+    private int mSnapshotInterval = 60000;
+    private int mSnapshotThresholdKB = 16384;
+    private int mMaxRecords;
+    private long mMaxBytes;
+    private EvictionPolicy mEvictionPolicy = EvictionPolicy.LRU;
+    private long mTimeToLive;
+    private TimeUnit mTimeToLiveUnit = TimeUnit.MILLISECONDS;
 
     public MapRepositoryBuilder() {
         setLockTimeoutMillis(500);
     }
 
     public Repository build(AtomicReference<Repository> rootRef) throws RepositoryException {
-        if (mIndexSupport) {
+        if (mIndexSupport && !isBounded()) {
             // Temporarily set to false to avoid infinite recursion.
             mIndexSupport = false;
             try {
@@ -148,4 +192,347 @@ public class MapRepositoryBuilder extends AbstractRepositoryBuilder {
     public TimeUnit getLockTimeoutUnit() {
         return mLockTimeoutUnit;
     }
+
+    /**
+     * Set to true to store records in their encoded form outside the Java
+     * heap, reducing heap usage and garbage collection work at the cost of
+     * decoding records when fetched. Default is false.
+     *
+     * @since 1.2.6
+     */
+    public void setOffHeap(boolean b) {
+        mOffHeap = b;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public boolean isOffHeap() {
+        return mOffHeap;
+    }
+
+    /**
+     * Set the size of each block of off-heap memory, which is rounded up to
+     * a power of two. Memory is reserved one chunk at a time, and records
+     * larger than a chunk are allocated separately. Default is 8 megabytes.
+     *
+     * @since 1.2.6
+     */
+    public void setOffHeapChunkSize(int size) {
+        if (size < 4096 || size > (1 << 30)) {
+            throw new IllegalArgumentException("Chunk size out of range: " + size);
+        }
+        mOffHeapChunkSize = Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public int getOffHeapChunkSize() {
+        return mOffHeapChunkSize;
+    }
+
+    /**
+     * Set a directory to create memory-mapped files in, for storing off-heap
+     * records. The files are temporary and are deleted when the repository is
+     * closed. If no directory is set, direct byte buffers are used instead.
+     *
+     * @since 1.2.6
+     */
+    public void setOffHeapDirectory(File dir) {
+        mOffHeapDirectory = dir;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public File getOffHeapDirectory() {
+        return mOffHeapDirectory;
+    }
+
+    /**
+     * Set to true to retain multiple versions of records, allowing
+     * transactions at the snapshot isolation level to read a consistent
+     * snapshot without acquiring any locks. Changes made by a snapshot
+     * transaction fail with an OptimisticLockException if the record was
+     * changed by another transaction since the snapshot began. Old versions
+     * are reclaimed once no snapshot can observe them. Multiversion records
+     * are always stored on the heap, and so this option overrides off-heap
+     * mode. Default is false.
+     *
+     * @since 1.2.6
+     */
+    public void setMultiversion(boolean b) {
+        mMultiversion = b;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public boolean isMultiversion() {
+        return mMultiversion;
+    }
+
+    /**
+     * Set the directory for storing the write-ahead log and snapshots, which
+     * makes the repository durable. Only one repository can use the directory
+     * at a time. By default, no directory is set and the repository is
+     * volatile.
+     *
+     * @since 1.2.6
+     */
+    public void setDataHomeFile(File dir) {
+        if (dir != null) {
+            try {
+                // Switch to canonical for more detailed error messages.
+                dir = dir.getCanonicalFile();
+            } catch (IOException e) {
+            }
+        }
+        mDataHome = dir;
+    }
+
+    /**
+     * Returns the directory for storing the write-ahead log and snapshots, or
+     * null if repository is volatile.
+     *
+     * @since 1.2.6
+     */
+    public File getDataHomeFile() {
+        return mDataHome;
+    }
+
+    /**
+     * Set the directory for storing the write-ahead log and snapshots, which
+     * makes the repository durable. By default, no directory is set and the
+     * repository is volatile.
+     *
+     * @since 1.2.6
+     */
+    public void setDataHome(String dir) {
+        if (dir == null) {
+            mDataHome = null;
+        } else {
+            setDataHomeFile(new File(dir));
+        }
+    }
+
+    /**
+     * Returns the directory for storing the write-ahead log and snapshots, or
+     * null if repository is volatile.
+     *
+     * @since 1.2.6
+     */
+    public String getDataHome() {
+        return mDataHome == null ? null : mDataHome.getPath();
+    }
+
+    /**
+     * When true, commits are not immediately written or flushed to disk. This
+     * improves performance, but there is a chance of losing the most recent
+     * commits if the process is killed or if the machine crashes. Buffered
+     * commits are written at least once a second.
+     *
+     * @since 1.2.6
+     */
+    public void setTransactionNoSync(boolean noSync) {
+        mTxnNoSync = noSync;
+    }
+
+    /**
+     * Returns true if transactions are not written or flushed to disk.
+     *
+     * @since 1.2.6
+     */
+    public boolean getTransactionNoSync() {
+        return mTxnNoSync;
+    }
+
+    /**
+     * When true, commits are written, but they are not flushed to disk. This
+     * improves performance, but there is a chance of losing the most recent
+     * commits if the machine crashes.
+     *
+     * @since 1.2.6
+     */
+    public void setTransactionWriteNoSync(boolean noSync) {
+        mTxnWriteNoSync = noSync;
+    }
+
+    /**
+     * Returns true if transactions are not flushed to disk.
+     *
+     * @since 1.2.6
+     */
+    public boolean getTransactionWriteNoSync() {
+        return mTxnWriteNoSync;
+    }
+
+    /**
+     * Disable automatic snapshots, which otherwise keep the log from growing
+     * without bound and shorten recovery.
+     *
+     * @since 1.2.6
+     */
+    public void setRunSnapshotter(boolean runSnapshotter) {
+        mRunSnapshotter = runSnapshotter;
+    }
+
+    /**
+     * Returns true if snapshots are written automatically.
+     *
+     * @since 1.2.6
+     */
+    public boolean getRunSnapshotter() {
+        return mRunSnapshotter;
+    }
+
+    /**
+     * Set the interval to check if a snapshot should be written. Default
+     * value is one minute.
+     *
+     * @param intervalMillis interval between snapshots, in milliseconds
+     * @since 1.2.6
+     */
+    public void setSnapshotInterval(int intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        mSnapshotInterval = intervalMillis;
+    }
+
+    /**
+     * @return interval between snapshots, in milliseconds
+     * @since 1.2.6
+     */
+    public int getSnapshotInterval() {
+        return mSnapshotInterval;
+    }
+
+    /**
+     * Set the size threshold to write snapshots. Because each snapshot
+     * contains all records, it is only written if at least this much has been
+     * logged since the previous one. Default value is 16384 KB.
+     *
+     * @param thresholdKB write snapshot if at least this many kilobytes in log
+     * @since 1.2.6
+     */
+    public void setSnapshotThresholdKB(int thresholdKB) {
+        mSnapshotThresholdKB = thresholdKB;
+    }
+
+    /**
+     * @return write snapshot if at least this many kilobytes in log
+     * @since 1.2.6
+     */
+    public int getSnapshotThresholdKB() {
+        return mSnapshotThresholdKB;
+    }
+
+    /**
+     * Set the maximum amount of records to hold for each Storable type,
+     * evicting records once exceeded. Default is zero, which is unlimited.
+     *
+     * @since 1.2.6
+     */
+    public void setMaxRecords(int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Max records must not be negative: " + max);
+        }
+        mMaxRecords = max;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public int getMaxRecords() {
+        return mMaxRecords;
+    }
+
+    /**
+     * Set the approximate maximum size of the records held for each Storable
+     * type, evicting records once exceeded. Records are measured by their
+     * encoded size, which is smaller than the size of the record objects
+     * held on the Java heap. Default is zero, which is unlimited.
+     *
+     * @since 1.2.6
+     */
+    public void setMaxBytes(long max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Max bytes must not be negative: " + max);
+        }
+        mMaxBytes = max;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * Set the policy which selects records to evict when a limit is
+     * exceeded. Default is {@link EvictionPolicy#LRU LRU}.
+     *
+     * @since 1.2.6
+     */
+    public void setEvictionPolicy(EvictionPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException();
+        }
+        mEvictionPolicy = policy;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public EvictionPolicy getEvictionPolicy() {
+        return mEvictionPolicy;
+    }
+
+    /**
+     * Set the maximum time to hold a record since it was last inserted or
+     * updated. Expired records are treated as if deleted: they aren't loaded,
+     * returned by queries or counted, they can't be updated or deleted, and
+     * inserting a record with the same key replaces them. They are physically
+     * removed when periodically swept. Default is zero, which is unlimited.
+     *
+     * @since 1.2.6
+     */
+    public void setTimeToLive(long ttl, TimeUnit unit) {
+        if (ttl < 0 || unit == null) {
+            throw new IllegalArgumentException();
+        }
+        mTimeToLive = ttl;
+        mTimeToLiveUnit = unit;
+    }
+
+    /**
+     * Returns the record time to live. Call getTimeToLiveUnit to get the unit.
+     *
+     * @since 1.2.6
+     */
+    public long getTimeToLive() {
+        return mTimeToLive;
+    }
+
+    /**
+     * Returns the record time to live unit. Call getTimeToLive to get the
+     * time to live.
+     *
+     * @since 1.2.6
+     */
+    public TimeUnit getTimeToLiveUnit() {
+        return mTimeToLiveUnit;
+    }
+
+    /**
+     * Returns true if any record limit or time to live is set.
+     *
+     * @since 1.2.6
+     */
+    public boolean isBounded() {
+        return mMaxRecords > 0 || mMaxBytes > 0 || mTimeToLive > 0;
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import com.amazon.carbonado.Storable;
+
+/**
+ * Snapshot of statistics for one Storable type in a MapRepository. Values
+ * are gathered without locking, and so they are approximate when the type
+ * is being concurrently modified.
+ *
+ * @author Brian S O'Neill
+ * @see MapStatisticsCapability
+ * @since 1.2.6
+ */
+public class MapStatistics {
+    private final Class<? extends Storable> mType;
+
+    long mRecordCount;
+    boolean mOffHeap;
+    long mKeyBytes;
+    long mValueBytes;
+    long mOffHeapCapacity;
+    long mOffHeapAllocated;
+    boolean mMultiversion;
+    long mOldVersionCount;
+    int mMaxVersionChainLength;
+    int mSnapshotCount;
+    boolean mBounded;
+    long mTrackedBytes;
+    long mHitCount;
+    long mMissCount;
+    long mReloadCount;
+    long mEvictionCount;
+    long mExpirationCount;
+
+    MapStatistics(Class<? extends Storable> type) {
+        mType = type;
+    }
+
+    public Class<? extends Storable> getStorableType() {
+        return mType;
+    }
+
+    /**
+     * Returns the amount of records currently stored.
+     */
+    public long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Returns true if records are stored in encoded form outside the Java heap.
+     */
+    public boolean isOffHeap() {
+        return mOffHeap;
+    }
+
+    /**
+     * Returns the total size of all encoded keys, which are held on the Java
+     * heap by the index. Returns zero if records are not off-heap.
+     */
+    public long getKeyBytes() {
+        return mKeyBytes;
+    }
+
+    /**
+     * Returns the total size of all encoded values, which are held outside
+     * the Java heap. Returns zero if records are not off-heap.
+     */
+    public long getValueBytes() {
+        return mValueBytes;
+    }
+
+    /**
+     * Returns the amount of memory reserved outside the Java heap, which
+     * includes free space. Returns zero if records are not off-heap.
+     */
+    public long getOffHeapCapacity() {
+        return mOffHeapCapacity;
+    }
+
+    /**
+     * Returns the amount of memory allocated to encoded values outside the
+     * Java heap, which includes block headers and rounding. Returns zero if
+     * records are not off-heap.
+     */
+    public long getOffHeapAllocated() {
+        return mOffHeapAllocated;
+    }
+
+    /**
+     * Returns true if multiple versions of records are retained, for
+     * supporting snapshot reads.
+     */
+    public boolean isMultiversion() {
+        return mMultiversion;
+    }
+
+    /**
+     * Returns the amount of old record versions which are retained because
+     * a snapshot might still observe them. Returns zero if not multiversion.
+     */
+    public long getOldVersionCount() {
+        return mOldVersionCount;
+    }
+
+    /**
+     * Returns the length of the longest chain of versions for any one
+     * record, which is one when no old versions are retained. Returns zero
+     * if not multiversion or if there are no records.
+     */
+    public int getMaxVersionChainLength() {
+        return mMaxVersionChainLength;
+    }
+
+    /**
+     * Returns the amount of snapshots currently in use by transactions, for
+     * the whole repository. Returns zero if not multiversion.
+     */
+    public int getSnapshotCount() {
+        return mSnapshotCount;
+    }
+
+    /**
+     * Returns true if records are evicted once a limit is exceeded, or once
+     * they expire.
+     */
+    public boolean isBounded() {
+        return mBounded;
+    }
+
+    /**
+     * Returns the total encoded size of all records, as tracked for
+     * enforcing the maximum size. Returns zero if not bounded by size.
+     */
+    public long getTrackedBytes() {
+        return mTrackedBytes;
+    }
+
+    /**
+     * Returns the amount of loads by primary key which found a record.
+     * Returns zero if not bounded.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the amount of loads by primary key which found no record, or
+     * found an expired one. Returns zero if not bounded.
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the amount of missing records which were reloaded. Returns
+     * zero if not bounded.
+     */
+    public long getReloadCount() {
+        return mReloadCount;
+    }
+
+    /**
+     * Returns the amount of records evicted because a limit was
+     * exceeded. Returns zero if not bounded.
+     */
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Returns the amount of records evicted because they expired. Returns
+     * zero if not bounded.
+     */
+    public long getExpirationCount() {
+        return mExpirationCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append("MapStatistics {type=").append(mType.getName());
+        b.append(", recordCount=").append(mRecordCount);
+        if (mOffHeap) {
+            b.append(", keyBytes=").append(mKeyBytes);
+            b.append(", valueBytes=").append(mValueBytes);
+            b.append(", offHeapCapacity=").append(mOffHeapCapacity);
+            b.append(", offHeapAllocated=").append(mOffHeapAllocated);
+        }
+        if (mMultiversion) {
+            b.append(", oldVersionCount=").append(mOldVersionCount);
+            b.append(", maxVersionChainLength=").append(mMaxVersionChainLength);
+            b.append(", snapshotCount=").append(mSnapshotCount);
+        }
+        if (mBounded) {
+            b.append(", trackedBytes=").append(mTrackedBytes);
+            b.append(", hitCount=").append(mHitCount);
+            b.append(", missCount=").append(mMissCount);
+            b.append(", reloadCount=").append(mReloadCount);
+            b.append(", evictionCount=").append(mEvictionCount);
+            b.append(", expirationCount=").append(mExpirationCount);
+        }
+        b.append('}');
+        return b.toString();
+    }
+}
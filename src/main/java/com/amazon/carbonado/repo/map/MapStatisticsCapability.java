@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.capability.Capability;
+
+/**
+ * Capability of MapRepository to report memory usage and other statistics
+ * for each Storable type.
+ *
+ * @author Brian S O'Neill
+ * @see MapRepositoryBuilder
+ * @since 1.2.6
+ */
+public interface MapStatisticsCapability extends Capability {
+    /**
+     * Returns a snapshot of the current statistics for the given type.
+     */
+    <S extends Storable> MapStatistics getStatistics(Class<S> type) throws RepositoryException;
+}
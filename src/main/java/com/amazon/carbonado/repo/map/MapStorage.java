@@ -18,21 +18,25 @@
 
 package com.amazon.carbonado.repo.map;
 
+import java.io.IOException;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 import com.amazon.carbonado.Cursor;
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.FetchInterruptedException;
 import com.amazon.carbonado.FetchTimeoutException;
+import com.amazon.carbonado.OptimisticLockException;
 import com.amazon.carbonado.PersistException;
 import com.amazon.carbonado.PersistInterruptedException;
 import com.amazon.carbonado.PersistTimeoutException;
@@ -45,6 +49,7 @@ import com.amazon.carbonado.SupportException;
 import com.amazon.carbonado.Trigger;
 
 import com.amazon.carbonado.capability.IndexInfo;
+import com.amazon.carbonado.capability.MapEvictionCapability;
 
 import com.amazon.carbonado.cursor.ArraySortBuffer;
 import com.amazon.carbonado.cursor.ControllerCursor;
@@ -52,13 +57,13 @@ import com.amazon.carbonado.cursor.EmptyCursor;
 import com.amazon.carbonado.cursor.FilteredCursor;
 import com.amazon.carbonado.cursor.SingletonCursor;
 import com.amazon.carbonado.cursor.SortBuffer;
-import com.amazon.carbonado.cursor.SortedCursor;
 
 import com.amazon.carbonado.filter.Filter;
 import com.amazon.carbonado.filter.FilterValues;
 import com.amazon.carbonado.filter.RelOp;
 
 import com.amazon.carbonado.sequence.SequenceValueProducer;
+import com.amazon.carbonado.sequence.StoredSequence;
 
 import com.amazon.carbonado.gen.DelegateStorableGenerator;
 import com.amazon.carbonado.gen.DelegateSupport;
@@ -72,13 +77,20 @@ import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.info.StorableInfo;
 import com.amazon.carbonado.info.StorableIntrospector;
 
+import com.amazon.carbonado.layout.Layout;
+import com.amazon.carbonado.layout.Unevolvable;
+
 import com.amazon.carbonado.qe.BoundaryType;
+import com.amazon.carbonado.qe.ProjectedStorageAccess;
 import com.amazon.carbonado.qe.QueryExecutorFactory;
 import com.amazon.carbonado.qe.QueryEngine;
 import com.amazon.carbonado.qe.StorageAccess;
 
 import com.amazon.carbonado.spi.IndexInfoImpl;
+import com.amazon.carbonado.spi.StorableLoadAll;
+import com.amazon.carbonado.spi.StorableUpsert;
 import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.StoredLob;
 import com.amazon.carbonado.spi.TriggerManager;
 
 import com.amazon.carbonado.txn.TransactionScope;
@@ -94,9 +106,12 @@ class MapStorage<S extends Storable>
     private static final int DEFAULT_LOB_BLOCK_SIZE = 1000;
     private static final Object[] NO_VALUES = new Object[0];
 
+    // Maximum number of records copied for a snapshot while holding the read lock.
+    private static final int SNAPSHOT_CHUNK_SIZE = 1000;
+
     private final MapRepository mRepo;
     private final StorableInfo<S> mInfo;
-    private final TriggerManager<S> mTriggers;
+    final TriggerManager<S> mTriggers;
     private final InstanceFactory mInstanceFactory;
     private final StorableIndex<S> mPrimaryKeyIndex;
     private final QueryEngine<S> mQueryEngine;
@@ -104,11 +119,19 @@ class MapStorage<S extends Storable>
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
 
-    private final ConcurrentNavigableMap<Key<S>, S> mMap;
-    private final Comparator<S> mFullComparator;
-    private final Comparator<S>[] mSearchComparators;
+    private final RecordMap<S> mRecords;
 
-    private final Key.Assigner<S> mKeyAssigner;
+    // Only used when multiversion, and is the same as mRecords.
+    private final VersionedRecordMap<S> mVersioned;
+    private final MapVersions mVersions;
+
+    // Only used when bounded.
+    private final RecordEvictor<S> mEvictor;
+
+    // Codec is null unless records are held off-heap or are logged.
+    private final RecordCodec<S> mCodec;
+    private final MapLog mLog;
+    private final String mTypeName;
 
     /**
      * Simple lock which is reentrant for transactions, but auto-commit does not
@@ -155,13 +178,50 @@ class MapStorage<S extends Storable>
         mLockTimeout = lockTimeout;
         mLockTimeoutUnit = lockTimeoutUnit;
 
-        mMap = new ConcurrentSkipListMap<Key<S>, S>();
-        List<OrderedProperty<S>> propList = createPkPropList();
-        mFullComparator = SortedCursor.createComparator(propList);
-        mSearchComparators = new Comparator[propList.size() + 1];
-        mSearchComparators[propList.size()] = mFullComparator;
+        mLog = repo.getMapLog();
+        mTypeName = type.getName();
+
+        mVersions = repo.getMapVersions();
 
-        mKeyAssigner = Key.getAssigner(type);
+        // Multiversion records are always held on the heap.
+        boolean offHeap = mVersions == null && repo.isOffHeap() && !LobEngine.hasLobs(type);
+
+        // Records with Lobs, and records which support Lobs and sequences,
+        // are never evicted.
+        boolean bounded = repo.isBounded() && !LobEngine.hasLobs(type)
+            && type != StoredLob.class && type != StoredLob.Block.class
+            && type != StoredSequence.class
+            && type != com.amazon.carbonado.spi.StoredSequence.class;
+
+        if (offHeap || mLog != null || (bounded && repo.getMaxBytes() > 0)) {
+            // Only logged records outlive the definition of the type.
+            Layout layout = mLog == null ? null : durableLayout(repo, type);
+            mCodec = new RecordCodec<S>(this, mPrimaryKeyIndex, layout);
+        } else {
+            mCodec = null;
+        }
+
+        if (mVersions != null) {
+            mRecords = mVersioned = new VersionedRecordMap<S>(this, mInfo);
+            mVersions.register(mVersioned);
+        } else {
+            mVersioned = null;
+            if (offHeap) {
+                mRecords = new OffHeapRecordMap<S>
+                    (mCodec, repo.getOffHeapChunkSize(), repo.getOffHeapDirectory());
+            } else {
+                mRecords = new HeapRecordMap<S>(this, mInfo);
+            }
+        }
+
+        if (bounded) {
+            mEvictor = new RecordEvictor<S>
+                (this, mInfo, mCodec, repo.getEvictionPolicy(),
+                 repo.getMaxRecords(), repo.getMaxBytes(),
+                 repo.getTimeToLive(), repo.getTimeToLiveUnit());
+        } else {
+            mEvictor = null;
+        }
 
         try {
             if (LobEngine.hasLobs(type)) {
@@ -179,6 +239,25 @@ class MapStorage<S extends Storable>
         }
     }
 
+    /**
+     * Returns the layout which logged records are encoded with, or null if
+     * the type is unevolvable or if the root repository cannot store layouts.
+     */
+    private static Layout durableLayout(MapRepository repo, Class<? extends Storable> type)
+        throws SupportException
+    {
+        if (Unevolvable.class.isAssignableFrom(type)) {
+            return null;
+        }
+        try {
+            return repo.getLayoutFactory().layoutFor(type);
+        } catch (SupportException e) {
+            return null;
+        } catch (RepositoryException e) {
+            throw new SupportException(e);
+        }
+    }
+
     public Class<S> getStorableType() {
         return mInfo.getStorableType();
     }
@@ -203,17 +282,62 @@ class MapStorage<S extends Storable>
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
             MapTransaction txn = scope.getTxn();
+            long position;
             if (txn == null) {
                 doLockForWrite(scope);
                 try {
-                    mMap.clear();
+                    mRecords.clear();
+                    recordsCleared();
+                    position = logTruncate();
                 } finally {
+                    commitVersions();
                     mLock.unlockFromWrite(scope);
                 }
             } else {
-                txn.lockForWrite(mLock);
+                lockForWrite(txn);
                 // Non-transactional truncate. (is not added to undo log)
-                mMap.clear();
+                mRecords.clear();
+                recordsCleared();
+                position = logTruncate();
+            }
+            sync(position);
+        } catch (PersistException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistException(e);
+        }
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public void upsert(S storable) throws PersistException {
+        if (mTriggers.getInsertTrigger() != null || mTriggers.getUpdateTrigger() != null ||
+            !StorableUpsert.isDirectAllowed(storable))
+        {
+            StorableUpsert.insertOrUpdate(getRootRepository(), storable);
+            return;
+        }
+
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+            if (txn == null) {
+                // Full write lock is required since existing storable might
+                // be modified.
+                long position;
+                doLockForWrite(scope);
+                try {
+                    position = doUpsertNoLock(null, storable);
+                } finally {
+                    commitVersions();
+                    mLock.unlockFromWrite(scope);
+                }
+                sync(position);
+                evict();
+            } else {
+                lockForWrite(txn, storable);
+                doUpsertNoLock(txn, storable);
             }
         } catch (PersistException e) {
             throw e;
@@ -222,6 +346,82 @@ class MapStorage<S extends Storable>
         }
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        S[] array = (S[]) storables.toArray(new Storable[storables.size()]);
+        boolean[] loaded = new boolean[array.length];
+
+        try {
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            MapTransaction txn = scope.getTxn();
+
+            // Load all keyed storables while holding the lock just once.
+            if (txn == null) {
+                doLockForRead(scope);
+                try {
+                    loadAllNoLock(mRecords, array, loaded);
+                } finally {
+                    mLock.unlockFromRead(scope);
+                }
+            } else {
+                final boolean isForUpdate = scope.isForUpdate();
+                txn.lockForUpgrade(mLock, isForUpdate);
+                try {
+                    loadAllNoLock(records(txn), array, loaded);
+                } finally {
+                    txn.unlockFromUpgrade(mLock, isForUpdate);
+                }
+            }
+
+            Trigger<? super S> trigger = getLoadTrigger();
+            List<S> missing = null;
+
+            for (int i=0; i<array.length; i++) {
+                S storable = array[i];
+                if (!loaded[i]) {
+                    if (!StorableLoadAll.isPrimaryKeyInitialized(storable)) {
+                        // Load by alternate key, which also runs the trigger.
+                        if (storable.tryLoad()) {
+                            continue;
+                        }
+                    } else if (!reload(txn, storable)) {
+                        if (missing == null) {
+                            missing = new ArrayList<S>();
+                        }
+                        missing.add(storable);
+                        continue;
+                    }
+                }
+                if (trigger != null) {
+                    trigger.afterLoad(storable);
+                    // In case trigger modified the properties, make sure they're still clean.
+                    storable.markAllPropertiesClean();
+                }
+            }
+
+            if (missing == null) {
+                return Collections.emptyList();
+            }
+            return missing;
+        } catch (FetchException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FetchException(e);
+        }
+    }
+
+    // Caller must hold lock.
+    private void loadAllNoLock(RecordMap<S> records, S[] storables, boolean[] loaded) {
+        for (int i=0; i<storables.length; i++) {
+            S storable = storables[i];
+            if (StorableLoadAll.isPrimaryKeyInitialized(storable)) {
+                loaded[i] = doTryLoadNoLock(records, storable);
+            }
+        }
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mTriggers.addTrigger(trigger);
     }
@@ -257,20 +457,26 @@ class MapStorage<S extends Storable>
             if (txn == null) {
                 doLockForRead(scope);
                 try {
-                    return doTryLoadNoLock(storable);
+                    if (doTryLoadNoLock(mRecords, storable)) {
+                        return true;
+                    }
                 } finally {
                     mLock.unlockFromRead(scope);
                 }
+                return reload(null, storable);
             } else {
                 // Since lock is so coarse, all reads in transaction scope are
                 // upgrade to avoid deadlocks.
                 final boolean isForUpdate = scope.isForUpdate();
                 txn.lockForUpgrade(mLock, isForUpdate);
                 try {
-                    return doTryLoadNoLock(storable);
+                    if (doTryLoadNoLock(records(txn), storable)) {
+                        return true;
+                    }
                 } finally {
                     txn.unlockFromUpgrade(mLock, isForUpdate);
                 }
+                return reload(txn, storable);
             }
         } catch (FetchException e) {
             throw e;
@@ -280,8 +486,8 @@ class MapStorage<S extends Storable>
     }
 
     // Caller must hold lock.
-    boolean doTryLoadNoLock(S storable) {
-        S existing = mMap.get(new Key<S>(storable, mFullComparator));
+    private boolean doTryLoadNoLock(RecordMap<S> records, S storable) {
+        S existing = loadNoLock(records, storable);
         if (existing == null) {
             return false;
         } else {
@@ -292,6 +498,20 @@ class MapStorage<S extends Storable>
         }
     }
 
+    // Caller must hold lock.
+    private S loadNoLock(RecordMap<S> records, S key) {
+        S existing = records.get(key);
+        if (mEvictor != null) {
+            if (existing == null) {
+                mEvictor.missed();
+            } else if (!mEvictor.accessed(existing)) {
+                // Expired.
+                existing = null;
+            }
+        }
+        return existing;
+    }
+
     public boolean doTryInsert(S storable) throws PersistException {
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
@@ -301,16 +521,25 @@ class MapStorage<S extends Storable>
                 // and existing storable (if any) is not being
                 // modified. Upgrade lock is required because a concurrent
                 // transaction might be in progress, and so insert should wait.
+                long position;
                 doLockForUpgrade(scope);
                 try {
-                    return doTryInsertNoLock(storable);
+                    if (!doTryInsertNoLock(storable)) {
+                        return false;
+                    }
+                    position = logStore(null, storable);
                 } finally {
+                    commitVersions();
                     mLock.unlockFromUpgrade(scope);
                 }
+                sync(position);
+                evict();
+                return true;
             } else {
-                txn.lockForWrite(mLock);
+                lockForWrite(txn, storable);
                 if (doTryInsertNoLock(storable)) {
                     txn.inserted(this, storable);
+                    logStore(txn, storable);
                     return true;
                 } else {
                     return false;
@@ -331,12 +560,14 @@ class MapStorage<S extends Storable>
         S copy = (S) storable.prepare();
         storable.copyAllProperties(copy);
         copy.markAllPropertiesClean();
-        Key<S> key = new Key<S>(copy, mFullComparator);
-        S existing = mMap.get(key);
-        if (existing != null) {
-            return false;
+        if (!mRecords.putIfAbsent(copy)) {
+            if (!isExpired(copy)) {
+                return false;
+            }
+            // Replace the expired record.
+            mRecords.put(copy);
         }
-        mMap.put(key, copy);
+        recordStored(copy);
         storable.markAllPropertiesClean();
         return true;
     }
@@ -350,25 +581,37 @@ class MapStorage<S extends Storable>
                 // modified. Readers cannot be allowed to see modifications
                 // until they are complete. In addtion, a concurrent
                 // transaction might be in progress, and so update should wait.
+                long position;
                 doLockForWrite(scope);
                 try {
-                    return doTryUpdateNoLock(storable);
+                    if (!doTryUpdateNoLock(storable)) {
+                        return false;
+                    }
+                    position = logStore(null, storable);
                 } finally {
+                    commitVersions();
                     mLock.unlockFromWrite(scope);
                 }
+                sync(position);
+                evict();
+                return true;
             } else {
-                txn.lockForWrite(mLock);
-                S existing = mMap.get(new Key<S>(storable, mFullComparator));
-                if (existing == null) {
+                lockForWrite(txn, storable);
+                S existing = mRecords.get(storable);
+                if (existing == null || isExpired(existing)) {
                     return false;
                 } else {
                     // Copy existing object to undo log.
                     txn.updated(this, (S) existing.copy());
+                    existing = mRecords.forUpdate(existing);
 
                     // Copy altered values to existing object.
                     existing.markAllPropertiesDirty();
                     storable.copyDirtyProperties(existing);
                     existing.markAllPropertiesClean();
+                    mRecords.updated(existing);
+                    recordStored(existing);
+                    logStore(txn, existing);
 
                     // Copy all values to user object, to simulate a reload.
                     storable.markAllPropertiesDirty();
@@ -387,14 +630,18 @@ class MapStorage<S extends Storable>
 
     // Caller must hold write lock.
     private boolean doTryUpdateNoLock(S storable) {
-        S existing = mMap.get(new Key<S>(storable, mFullComparator));
-        if (existing == null) {
+        S existing = mRecords.get(storable);
+        if (existing == null || isExpired(existing)) {
             return false;
         } else {
+            existing = mRecords.forUpdate(existing);
+
             // Copy altered values to existing object.
             existing.markAllPropertiesDirty();
             storable.copyDirtyProperties(existing);
             existing.markAllPropertiesClean();
+            mRecords.updated(existing);
+            recordStored(existing);
 
             // Copy all values to user object, to simulate a reload.
             storable.markAllPropertiesDirty();
@@ -405,6 +652,46 @@ class MapStorage<S extends Storable>
         }
     }
 
+    // Caller must hold write lock. Returns log position to sync.
+    private long doUpsertNoLock(MapTransaction txn, S storable) throws PersistException {
+        S existing = mRecords.get(storable);
+        if (existing == null || isExpired(existing)) {
+            // Expired record is replaced.
+            // Create a fresh copy to ensure that custom fields are not saved.
+            S copy = (S) storable.prepare();
+            storable.copyAllProperties(copy);
+            copy.markAllPropertiesClean();
+            mRecords.put(copy);
+            recordStored(copy);
+            storable.markAllPropertiesClean();
+            if (txn != null) {
+                txn.inserted(this, storable);
+            }
+            return logStore(txn, storable);
+        } else {
+            if (txn != null) {
+                // Copy existing object to undo log.
+                txn.updated(this, (S) existing.copy());
+            }
+
+            existing = mRecords.forUpdate(existing);
+
+            // Copy altered values to existing object.
+            existing.markAllPropertiesDirty();
+            storable.copyDirtyProperties(existing);
+            existing.markAllPropertiesClean();
+            mRecords.updated(existing);
+            recordStored(existing);
+
+            // Copy all values to user object, to simulate a reload.
+            storable.markAllPropertiesDirty();
+            existing.copyAllProperties(storable);
+            storable.markAllPropertiesClean();
+
+            return logStore(txn, storable);
+        }
+    }
+
     public boolean doTryDelete(S storable) throws PersistException {
         try {
             TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
@@ -414,19 +701,46 @@ class MapStorage<S extends Storable>
                 // and existing storable (if any) is not being
                 // modified. Upgrade lock is required because a concurrent
                 // transaction might be in progress, and so delete should wait.
-                doLockForUpgrade(scope);
-                try {
-                    return doTryDeleteNoLock(storable);
-                } finally {
-                    mLock.unlockFromUpgrade(scope);
+                // Encoded records are freed upon removal, and so the write
+                // lock is required to exclude readers.
+                long position;
+                if (mRecords.isOffHeap()) {
+                    doLockForWrite(scope);
+                    try {
+                        if (!doTryDeleteNoLock(storable)) {
+                            return false;
+                        }
+                        position = logDelete(null, storable);
+                    } finally {
+                        commitVersions();
+                        mLock.unlockFromWrite(scope);
+                    }
+                } else {
+                    doLockForUpgrade(scope);
+                    try {
+                        if (!doTryDeleteNoLock(storable)) {
+                            return false;
+                        }
+                        position = logDelete(null, storable);
+                    } finally {
+                        commitVersions();
+                        mLock.unlockFromUpgrade(scope);
+                    }
                 }
+                sync(position);
+                return true;
             } else {
-                txn.lockForWrite(mLock);
-                S existing = mMap.remove(new Key<S>(storable, mFullComparator));
+                lockForWrite(txn, storable);
+                if (isExpired(storable)) {
+                    return false;
+                }
+                S existing = mRecords.remove(storable);
                 if (existing == null) {
                     return false;
                 } else {
+                    recordRemoved(existing);
                     txn.deleted(this, existing);
+                    logDelete(txn, storable);
                     return true;
                 }
             }
@@ -441,17 +755,393 @@ class MapStorage<S extends Storable>
 
     // Caller must hold upgrade or write lock.
     private boolean doTryDeleteNoLock(S storable) {
-        return mMap.remove(new Key<S>(storable, mFullComparator)) != null;
+        if (isExpired(storable)) {
+            // Left for the evictor to remove.
+            return false;
+        }
+        if (mRecords.delete(storable)) {
+            recordRemoved(storable);
+            return true;
+        }
+        return false;
     }
 
     // Called by MapTransaction, which implicitly holds lock.
     void mapPut(S storable) {
-        mMap.put(new Key<S>(storable, mFullComparator), storable);
+        mRecords.put(storable);
+        recordStored(storable);
     }
 
     // Called by MapTransaction, which implicitly holds lock.
     void mapRemove(S storable) {
-        mMap.remove(new Key<S>(storable, mFullComparator));
+        mRecords.delete(storable);
+        recordRemoved(storable);
+    }
+
+    // Caller must hold lock.
+    private boolean isExpired(S key) {
+        return mEvictor != null && mEvictor.isExpired(key);
+    }
+
+    /**
+     * Returns an iterator which skips over expired records. Caller must hold
+     * lock while iterating.
+     */
+    Iterator<S> unexpired(Iterator<S> it) {
+        if (mEvictor == null || !mEvictor.expires()) {
+            return it;
+        }
+        return new UnexpiredIterator<S>(mEvictor, it);
+    }
+
+    // Caller must hold upgrade or write lock.
+    private void recordStored(S record) {
+        if (mEvictor != null) {
+            mEvictor.stored(record);
+        }
+    }
+
+    // Caller must hold upgrade or write lock.
+    private void recordRemoved(S key) {
+        if (mEvictor != null) {
+            mEvictor.removed(key);
+        }
+    }
+
+    // Caller must hold write lock.
+    private void recordsCleared() {
+        if (mEvictor != null) {
+            mEvictor.cleared();
+        }
+    }
+
+    void setReloader(MapEvictionCapability.Reloader<S> reloader) {
+        if (mEvictor != null) {
+            mEvictor.setReloader(reloader);
+        }
+    }
+
+    /**
+     * Reloads a missing record, if bounded and a reloader is set. The
+     * reloaded record is stored without affecting the transaction, but only
+     * if the lock can be acquired. Caller must not hold the read lock.
+     *
+     * @param txn optional transaction
+     * @return false if not reloaded
+     */
+    private boolean reload(MapTransaction txn, S storable) throws FetchException {
+        MapEvictionCapability.Reloader<S> reloader;
+        if (mEvictor == null || (reloader = mEvictor.getReloader()) == null
+            || (txn != null && txn.isSnapshot()))
+        {
+            return false;
+        }
+
+        if (!reloader.reload(storable)) {
+            return false;
+        }
+
+        mEvictor.reloaded();
+
+        // Create a fresh copy to ensure that custom fields are not saved.
+        S copy = (S) storable.prepare();
+        storable.copyAllProperties(copy);
+        copy.markAllPropertiesClean();
+        storable.markAllPropertiesClean();
+
+        // Transaction might hold the lock, and so don't wait for it.
+        Object locker = lockForEviction(txn == null);
+        if (locker != null) {
+            try {
+                if (!mRecords.putIfAbsent(copy)) {
+                    S existing = mRecords.get(copy);
+                    if (existing == null || !mEvictor.isExpired(existing)) {
+                        return true;
+                    }
+                    mRecords.put(copy);
+                }
+                mEvictor.stored(copy);
+            } finally {
+                commitVersions();
+                unlockFromEviction(locker);
+            }
+            evict();
+        }
+
+        return true;
+    }
+
+    /**
+     * Evicts records if bounded and a limit is exceeded, or if expired
+     * records need to be swept. Evictions aren't logged and don't run
+     * triggers. If the lock isn't available, eviction is deferred until
+     * the next change. Caller must not hold any locks.
+     */
+    void evict() {
+        RecordEvictor<S> evictor = mEvictor;
+        if (evictor == null || !evictor.needsEviction()) {
+            return;
+        }
+
+        Object locker = lockForEviction(true);
+        if (locker == null) {
+            return;
+        }
+
+        try {
+            List<S> expired = evictor.sweepExpired();
+            if (expired != null) {
+                for (S key : expired) {
+                    mRecords.delete(key);
+                }
+            }
+            S victim;
+            while ((victim = evictor.nextVictim()) != null) {
+                mRecords.delete(victim);
+            }
+        } finally {
+            commitVersions();
+            unlockFromEviction(locker);
+        }
+    }
+
+    /**
+     * Acquires the lock needed for storing and deleting records outside of
+     * any transaction, returning the locker or null if not acquired. Encoded
+     * records are freed upon removal, and so the write lock is required to
+     * exclude readers.
+     *
+     * @param wait when true, wait up to the lock timeout
+     */
+    private Object lockForEviction(boolean wait) {
+        Object locker = new Object();
+        boolean acquired;
+        try {
+            if (mRecords.isOffHeap()) {
+                acquired = wait
+                    ? mLock.tryLockForWrite(locker, mLockTimeout, mLockTimeoutUnit)
+                    : mLock.tryLockForWrite(locker);
+            } else {
+                acquired = wait
+                    ? mLock.tryLockForUpgrade(locker, mLockTimeout, mLockTimeoutUnit)
+                    : mLock.tryLockForUpgrade(locker);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return acquired ? locker : null;
+    }
+
+    private void unlockFromEviction(Object locker) {
+        if (mRecords.isOffHeap()) {
+            mLock.unlockFromWrite(locker);
+        } else {
+            mLock.unlockFromUpgrade(locker);
+        }
+    }
+
+    /**
+     * Returns the records which are visible to the given transaction, which
+     * is a snapshot view if the transaction reads from a snapshot.
+     *
+     * @param txn optional transaction
+     */
+    private RecordMap<S> records(MapTransaction txn) {
+        if (txn == null || !txn.isSnapshot()) {
+            return mRecords;
+        }
+        return mVersioned.view(txn.getSnapshotVersion(), txn.holdsWriteLock(mLock));
+    }
+
+    /**
+     * Acquires the write lock for a transaction, and registers multiversion
+     * or bounded storage with it.
+     */
+    private void lockForWrite(MapTransaction txn) throws PersistException {
+        txn.lockForWrite(mLock);
+        if (mVersioned != null || mEvictor != null) {
+            txn.modified(this);
+        }
+    }
+
+    /**
+     * Acquires the write lock for a transaction which modifies the record
+     * with the given key. If the transaction reads from a snapshot, the
+     * record must not have been modified since the snapshot began.
+     *
+     * @throws OptimisticLockException if record was concurrently modified
+     */
+    private void lockForWrite(MapTransaction txn, S key) throws PersistException {
+        lockForWrite(txn);
+        if (txn.isSnapshot() && mVersioned.isModifiedAfter(key, txn.getSnapshotVersion())) {
+            throw new OptimisticLockException
+                ("Record was modified by another transaction: " +
+                 key.toStringKeyOnly());
+        }
+    }
+
+    /**
+     * Commits pending versions of records changed in auto-commit mode, if
+     * multiversion. Caller must hold the upgrade or write lock.
+     */
+    private void commitVersions() {
+        if (mVersioned != null) {
+            mVersions.commit(mVersioned);
+        }
+    }
+
+    /**
+     * Returns null if not multiversion.
+     */
+    VersionedRecordMap<S> getVersionedRecordMap() {
+        return mVersioned;
+    }
+
+    /**
+     * Logs the given record as stored, either directly or as part of the
+     * given transaction. Caller must hold the upgrade or write lock, to keep
+     * the log in the same order as the changes.
+     *
+     * @param txn optional transaction
+     * @return log position to sync after releasing the lock, or zero if none
+     */
+    private long logStore(MapTransaction txn, S record) throws PersistException {
+        if (mLog == null) {
+            return 0;
+        }
+        RecordCodec<S>.Encoded encoded = mCodec.encode(record);
+        return log(txn, MapLog.store(mTypeName, encoded.mKey, encoded.mValue));
+    }
+
+    /**
+     * Logs the record with the given key as deleted. Caller must hold the
+     * upgrade or write lock.
+     *
+     * @param txn optional transaction
+     * @return log position to sync after releasing the lock, or zero if none
+     */
+    private long logDelete(MapTransaction txn, S key) throws PersistException {
+        if (mLog == null) {
+            return 0;
+        }
+        return log(txn, MapLog.delete(mTypeName, mCodec.encodeKey(key)));
+    }
+
+    /**
+     * Logs that all records were deleted. Truncation is not transactional,
+     * and so it is logged immediately. Caller must hold the write lock.
+     *
+     * @return log position to sync after releasing the lock, or zero if none
+     */
+    private long logTruncate() throws PersistException {
+        if (mLog == null) {
+            return 0;
+        }
+        return mLog.append(MapLog.truncate(mTypeName));
+    }
+
+    private long log(MapTransaction txn, MapLog.Entry entry) throws PersistException {
+        if (txn != null) {
+            // Appended when transaction commits.
+            txn.logged(entry);
+            return 0;
+        }
+        return mLog.append(entry);
+    }
+
+    private void sync(long position) throws PersistException {
+        if (position != 0) {
+            mLog.sync(position);
+        }
+    }
+
+    /**
+     * Stores recovered records, which are in their raw encoding. Caller must
+     * hold the write lock.
+     */
+    void recover(SortedMap<byte[], byte[]> records) {
+        for (Map.Entry<byte[], byte[]> entry : records.entrySet()) {
+            S record = mCodec.decode(entry.getKey(), entry.getValue());
+            mRecords.put(record);
+            recordStored(record);
+        }
+        commitVersions();
+    }
+
+    /**
+     * Writes all records to the given snapshot. Records are copied in chunks,
+     * holding the read lock only while each chunk is copied. Changes made to
+     * records after their chunk is copied are recovered from the log which
+     * follows the snapshot.
+     */
+    void writeSnapshot(MapLog.SnapshotWriter writer) throws IOException {
+        List<String> pkNames = new ArrayList<String>();
+        for (OrderedProperty<S> property : mInfo.getPrimaryKey().getProperties()) {
+            pkNames.add(property.getChainedProperty().getPrimeProperty().getName());
+        }
+
+        List<RecordCodec<S>.Encoded> chunk =
+            new ArrayList<RecordCodec<S>.Encoded>(SNAPSHOT_CHUNK_SIZE);
+        Object[] startValues = null;
+        Object locker = new Object();
+
+        while (true) {
+            mLock.lockForRead(locker);
+            try {
+                S last = null;
+                Iterator<S> it = mRecords.values(startValues, startValues == null, false)
+                    .iterator();
+                while (it.hasNext()) {
+                    S record = it.next();
+                    last = record;
+                    if (isExpired(record)) {
+                        continue;
+                    }
+                    chunk.add(mCodec.encode(record));
+                    if (chunk.size() >= SNAPSHOT_CHUNK_SIZE) {
+                        break;
+                    }
+                }
+                if (last != null) {
+                    startValues = new Object[pkNames.size()];
+                    for (int i=0; i<startValues.length; i++) {
+                        startValues[i] = last.getPropertyValue(pkNames.get(i));
+                    }
+                }
+            } finally {
+                mLock.unlockFromRead(locker);
+            }
+
+            for (RecordCodec<S>.Encoded encoded : chunk) {
+                writer.write(mTypeName, encoded.mKey, encoded.mValue);
+            }
+
+            if (chunk.size() < SNAPSHOT_CHUNK_SIZE) {
+                break;
+            }
+            chunk.clear();
+        }
+    }
+
+    LobEngine getLobEngine() throws RepositoryException {
+        return mRepo.getLobEngine();
+    }
+
+    MapStatistics getStatistics() {
+        MapStatistics stats = new MapStatistics(getStorableType());
+        mRecords.addStatistics(stats);
+        if (mEvictor != null) {
+            mEvictor.addStatistics(stats);
+        }
+        if (mVersions != null) {
+            stats.mSnapshotCount = mVersions.getSnapshotCount();
+        }
+        return stats;
+    }
+
+    void close() {
+        mRecords.close();
     }
 
     private void doLockForRead(Object locker) throws FetchException {
@@ -540,6 +1230,36 @@ class MapStorage<S extends Storable>
         return null;
     }
 
+    public StorageAccess<S> projectedAccess(final Set<String> properties) {
+        return new ProjectedStorageAccess<S>(this, properties) {
+            @Override
+            public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+                return ControllerCursor.apply(MapStorage.this.fetchAll(properties), controller);
+            }
+
+            @Override
+            public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                         Object[] identityValues,
+                                         BoundaryType rangeStartBoundary,
+                                         Object rangeStartValue,
+                                         BoundaryType rangeEndBoundary,
+                                         Object rangeEndValue,
+                                         boolean reverseRange,
+                                         boolean reverseOrder,
+                                         Query.Controller controller)
+                throws FetchException
+            {
+                return ControllerCursor.apply
+                    (MapStorage.this.fetchSubset(index, identityValues,
+                                                 rangeStartBoundary, rangeStartValue,
+                                                 rangeEndBoundary, rangeEndValue,
+                                                 reverseRange, reverseOrder,
+                                                 properties),
+                     controller);
+            }
+        };
+    }
+
     public long countAll() throws FetchException {
         return countAll(null);
     }
@@ -551,7 +1271,7 @@ class MapStorage<S extends Storable>
             if (txn == null) {
                 doLockForRead(scope);
                 try {
-                    return mMap.size();
+                    return count(mRecords);
                 } finally {
                     mLock.unlockFromRead(scope);
                 }
@@ -561,7 +1281,7 @@ class MapStorage<S extends Storable>
                 final boolean isForUpdate = scope.isForUpdate();
                 txn.lockForUpgrade(mLock, isForUpdate);
                 try {
-                    return mMap.size();
+                    return count(records(txn));
                 } finally {
                     txn.unlockFromUpgrade(mLock, isForUpdate);
                 }
@@ -573,9 +1293,32 @@ class MapStorage<S extends Storable>
         }
     }
 
+    // Caller must hold lock.
+    private long count(RecordMap<S> records) {
+        if (mEvictor == null || !mEvictor.expires()) {
+            return records.size();
+        }
+        long count = 0;
+        Iterator<S> it = unexpired(records.values(null, true, false).iterator());
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
     public Cursor<S> fetchAll() throws FetchException {
+        return fetchAll((Set<String>) null);
+    }
+
+    /**
+     * @param projection optional names of the only properties which need to be loaded
+     */
+    private Cursor<S> fetchAll(Set<String> projection) throws FetchException {
         try {
-            return new MapCursor<S>(this, mRepo.localTransactionScope(), mMap.values());
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            return new MapCursor<S>(this, scope, projection,
+                                    records(scope.getTxn()).values(null, true, false, projection));
         } catch (FetchException e) {
             throw e;
         } catch (Exception e) {
@@ -608,30 +1351,34 @@ class MapStorage<S extends Storable>
             if (txn == null) {
                 doLockForRead(scope);
                 try {
-                    S value = mMap.get(new Key<S>(key, mFullComparator));
-                    if (value == null) {
-                        return EmptyCursor.the();
-                    } else {
+                    S value = loadNoLock(mRecords, key);
+                    if (value != null) {
                         return new SingletonCursor<S>(copyAndFireLoadTrigger(value));
                     }
                 } finally {
                     mLock.unlockFromRead(scope);
                 }
+                if (reload(null, key)) {
+                    return new SingletonCursor<S>(copyAndFireLoadTrigger(key));
+                }
+                return EmptyCursor.the();
             } else {
                 // Since lock is so coarse, all reads in transaction scope are
                 // upgrade to avoid deadlocks.
                 final boolean isForUpdate = scope.isForUpdate();
                 txn.lockForUpgrade(mLock, isForUpdate);
                 try {
-                    S value = mMap.get(new Key<S>(key, mFullComparator));
-                    if (value == null) {
-                        return EmptyCursor.the();
-                    } else {
+                    S value = loadNoLock(records(txn), key);
+                    if (value != null) {
                         return new SingletonCursor<S>(copyAndFireLoadTrigger(value));
                     }
                 } finally {
                     txn.unlockFromUpgrade(mLock, isForUpdate);
                 }
+                if (reload(txn, key)) {
+                    return new SingletonCursor<S>(copyAndFireLoadTrigger(key));
+                }
+                return EmptyCursor.the();
             }
         } catch (FetchException e) {
             throw e;
@@ -641,7 +1388,10 @@ class MapStorage<S extends Storable>
     }
 
     S copyAndFireLoadTrigger(S storable) throws FetchException {
-        storable = (S) storable.copy();
+        if (!mRecords.isOffHeap()) {
+            // Encoded records are always decoded into new instances.
+            storable = (S) storable.copy();
+        }
         Trigger<? super S> trigger = getLoadTrigger();
         if (trigger != null) {
             trigger.afterLoad(storable);
@@ -651,6 +1401,25 @@ class MapStorage<S extends Storable>
         return storable;
     }
 
+    /**
+     * Returns a copy of the given record which only has the primary key and
+     * the projected properties loaded. Load trigger is not run for partially
+     * loaded storables.
+     */
+    S copyProjected(S storable, Set<String> projection) {
+        if (!mRecords.isOffHeap()) {
+            S copy = prepare();
+            storable.copyPrimaryKeyProperties(copy);
+            for (String name : projection) {
+                copy.setPropertyValue(name, storable.getPropertyValue(name));
+            }
+            storable = copy;
+        }
+        // Only mark loaded properties clean, leaving the rest uninitialized.
+        storable.markPropertiesClean();
+        return storable;
+    }
+
     public Query<?> indexEntryQuery(StorableIndex<S> index) {
         return null;
     }
@@ -665,6 +1434,13 @@ class MapStorage<S extends Storable>
         return null;
     }
 
+    public Cursor<S> fetchPartialFromIndexEntryQuery(StorableIndex<S> index,
+                                                     Query<?> indexEntryQuery,
+                                                     Query.Controller controller)
+    {
+        return null;
+    }
+
     public Cursor<S> fetchSubset(StorableIndex<S> index,
                                  Object[] identityValues,
                                  BoundaryType rangeStartBoundary,
@@ -674,18 +1450,34 @@ class MapStorage<S extends Storable>
                                  boolean reverseRange,
                                  boolean reverseOrder)
         throws FetchException
+    {
+        return fetchSubset(index, identityValues,
+                           rangeStartBoundary, rangeStartValue,
+                           rangeEndBoundary, rangeEndValue,
+                           reverseRange, reverseOrder,
+                           (Set<String>) null);
+    }
+
+    /**
+     * @param projection optional names of the only properties which need to be loaded
+     */
+    private Cursor<S> fetchSubset(StorableIndex<S> index,
+                                  Object[] identityValues,
+                                  BoundaryType rangeStartBoundary,
+                                  Object rangeStartValue,
+                                  BoundaryType rangeEndBoundary,
+                                  Object rangeEndValue,
+                                  boolean reverseRange,
+                                  boolean reverseOrder,
+                                  Set<String> projection)
+        throws FetchException
     {
         if (identityValues == null) {
             identityValues = NO_VALUES;
         }
 
-        NavigableMap<Key<S>, S> map = mMap;
-
-        int tieBreaker = 1;
         if (reverseOrder) {
-            map = map.descendingMap();
             reverseRange = !reverseRange;
-            tieBreaker = -tieBreaker;
         }
 
         if (reverseRange) {
@@ -697,41 +1489,28 @@ class MapStorage<S extends Storable>
             rangeEndValue = t2;
         }
 
-        tail: {
-            Key<S> startKey;
-            switch (rangeStartBoundary) {
-            case OPEN: default:
-                if (identityValues.length == 0) {
-                    break tail;
-                } else {
-                    // Tie breaker of -1 puts search key right before first actual
-                    // match, thus forming an inclusive start match.
-                    startKey = searchKey(-tieBreaker, identityValues);
-                }
-                break;
-            case INCLUSIVE:
-                // Tie breaker of -1 puts search key right before first actual
-                // match, thus forming an inclusive start match.
-                startKey = searchKey(-tieBreaker, identityValues, rangeStartValue);
-                break;
-            case EXCLUSIVE:
-                // Tie breaker of +1 puts search key right after first actual
-                // match, thus forming an exlusive start match.
-                startKey = searchKey(tieBreaker, identityValues, rangeStartValue);
-                break;
-            }
-
-            Key<S> ceilingKey = map.ceilingKey(startKey);
-            if (ceilingKey == null) {
-                return EmptyCursor.the();
-            }
-
-            map = map.tailMap(ceilingKey, true);
+        Object[] startValues;
+        boolean inclusive;
+        switch (rangeStartBoundary) {
+        case OPEN: default:
+            startValues = identityValues.length == 0 ? null : identityValues;
+            inclusive = true;
+            break;
+        case INCLUSIVE:
+            startValues = withRangeValue(identityValues, rangeStartValue);
+            inclusive = true;
+            break;
+        case EXCLUSIVE:
+            startValues = withRangeValue(identityValues, rangeStartValue);
+            inclusive = false;
+            break;
         }
 
         Cursor<S> cursor;
         try {
-            cursor = new MapCursor<S>(this, mRepo.localTransactionScope(), map.values());
+            TransactionScope<MapTransaction> scope = mRepo.localTransactionScope();
+            cursor = new MapCursor<S>(this, scope, projection, records(scope.getTxn())
+                                      .values(startValues, inclusive, reverseOrder, projection));
         } catch (FetchException e) {
             throw e;
         } catch (Exception e) {
@@ -814,36 +1593,27 @@ class MapStorage<S extends Storable>
                                       controller);
     }
 
-    private List<OrderedProperty<S>> createPkPropList() {
-        return new ArrayList<OrderedProperty<S>>(mInfo.getPrimaryKey().getProperties());
-    }
-
-    private Key<S> searchKey(int tieBreaker, Object[] identityValues) {
-        S storable = prepare();
-        mKeyAssigner.setKeyValues(storable, identityValues);
-        Comparator<S> c = getSearchComparator(identityValues.length);
-        return new SearchKey<S>(tieBreaker, storable, c);
-    }
-
-    private Key<S> searchKey(int tieBreaker, Object[] identityValues, Object rangeValue) {
-        S storable = prepare();
-        mKeyAssigner.setKeyValues(storable, identityValues, rangeValue);
-        Comparator<S> c = getSearchComparator(identityValues.length + 1);
-        return new SearchKey<S>(tieBreaker, storable, c);
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Filter<S> keyFilter,
+                                 FilterValues<S> keyFilterValues,
+                                 Query.Controller controller)
+    {
+        // Keys are not encoded, and so filtering them first offers no advantage.
+        return null;
     }
 
-    private Comparator<S> getSearchComparator(int propertyCount) {
-        Comparator<S> comparator = mSearchComparators[propertyCount];
-        if (comparator == null) {
-            List<OrderedProperty<S>> propList = createPkPropList().subList(0, propertyCount);
-            if (propList.size() > 0) {
-                comparator = SortedCursor.createComparator(propList);
-            } else {
-                comparator = SortedCursor.createComparator(getStorableType());
-            }
-            mSearchComparators[propertyCount] = comparator;
-        }
-        return comparator;
+    private static Object[] withRangeValue(Object[] identityValues, Object rangeValue) {
+        Object[] values = new Object[identityValues.length + 1];
+        System.arraycopy(identityValues, 0, values, 0, identityValues.length);
+        values[identityValues.length] = rangeValue;
+        return values;
     }
 
     public SortBuffer<S> createSortBuffer() {
@@ -859,22 +1629,44 @@ class MapStorage<S extends Storable>
         Storable instantiate(DelegateSupport support);
     }
 
-    private static class SearchKey<S extends Storable> extends Key<S> {
-        private final int mTieBreaker;
+    /**
+     * Skips over records which have expired, as determined when the
+     * iterator advances to them.
+     */
+    private static class UnexpiredIterator<S extends Storable> implements Iterator<S> {
+        private final RecordEvictor<S> mEvictor;
+        private final Iterator<S> mSource;
+        private S mNext;
+
+        UnexpiredIterator(RecordEvictor<S> evictor, Iterator<S> source) {
+            mEvictor = evictor;
+            mSource = source;
+        }
 
-        SearchKey(int tieBreaker, S storable, Comparator<S> comparator) {
-            super(storable, comparator);
-            mTieBreaker = tieBreaker;
+        public boolean hasNext() {
+            while (mNext == null) {
+                if (!mSource.hasNext()) {
+                    return false;
+                }
+                S next = mSource.next();
+                if (!mEvictor.isExpired(next)) {
+                    mNext = next;
+                }
+            }
+            return true;
         }
 
-        @Override
-        protected int tieBreaker() {
-            return mTieBreaker;
+        public S next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S next = mNext;
+            mNext = null;
+            return next;
         }
 
-        @Override
-        public String toString() {
-            return super.toString() + ", tieBreaker=" + mTieBreaker;
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
     }
 }
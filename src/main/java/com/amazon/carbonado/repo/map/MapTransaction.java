@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -45,23 +46,95 @@ class MapTransaction {
     private final Object mLocker;
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
+    private final MapLog mLog;
+    private final MapVersions mVersions;
+
+    // Snapshot version, or -1 if not a snapshot or if snapshot has ended.
+    private long mSnapshotVersion;
+    // True if snapshot belongs to this transaction rather than a parent.
+    private boolean mOwnsSnapshot;
 
     private Set<UpgradableLock> mUpgradeLocks;
     private Set<UpgradableLock> mWriteLocks;
 
     private List<Undoable> mUndoLog;
+    private List<MapLog.Entry> mRedoLog;
+
+    // Multiversion or bounded storage modified by this transaction.
+    private Set<MapStorage<?>> mModified;
 
+    /**
+     * @param log optional write-ahead log
+     * @param versions optional version tracker, for supporting snapshots
+     */
     MapTransaction(MapTransaction parent, IsolationLevel level,
-                   int lockTimeout, TimeUnit lockTimeoutUnit)
+                   int lockTimeout, TimeUnit lockTimeoutUnit,
+                   MapLog log, MapVersions versions)
     {
         mParent = parent;
         mLevel = level;
         mLocker = parent == null ? this : parent.mLocker;
         mLockTimeout = lockTimeout;
         mLockTimeoutUnit = lockTimeoutUnit;
+        mLog = log;
+        mVersions = versions;
+
+        if (level != IsolationLevel.SNAPSHOT) {
+            mSnapshotVersion = -1;
+        } else if (parent != null && parent.mSnapshotVersion >= 0) {
+            // Nested transaction reads from the same snapshot.
+            mSnapshotVersion = parent.mSnapshotVersion;
+        } else {
+            mSnapshotVersion = versions.beginSnapshot();
+            mOwnsSnapshot = true;
+        }
+    }
+
+    /**
+     * Returns true if reads observe a snapshot, without acquiring locks.
+     */
+    boolean isSnapshot() {
+        return mSnapshotVersion >= 0;
+    }
+
+    /**
+     * Returns the version of the snapshot observed by reads.
+     */
+    long getSnapshotVersion() {
+        return mSnapshotVersion;
+    }
+
+    /**
+     * Returns true if this transaction or any parent holds the given write
+     * lock.
+     */
+    boolean holdsWriteLock(UpgradableLock lock) {
+        for (MapTransaction txn = this; txn != null; txn = txn.mParent) {
+            if (txn.mWriteLocks != null && txn.mWriteLocks.contains(lock)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers multiversion or bounded storage which is being modified.
+     * Pending versions must be committed when the write lock is released, and
+     * then records can be evicted. Caller must hold the storage write lock.
+     */
+    void modified(MapStorage<?> storage) {
+        Set<MapStorage<?>> set = mModified;
+        if (set == null) {
+            mModified = set = new HashSet<MapStorage<?>>();
+        }
+        set.add(storage);
     }
 
     void lockForUpgrade(UpgradableLock lock, boolean isForUpdate) throws FetchException {
+        if (isSnapshot()) {
+            // Reads don't need locks, and writes acquire write locks.
+            return;
+        }
         if (!isForUpdate && mLevel.isAtMost(IsolationLevel.READ_COMMITTED)) {
             doLockForUpgrade(lock);
         } else {
@@ -89,6 +162,9 @@ class MapTransaction {
     }
 
     void unlockFromUpgrade(UpgradableLock lock, boolean isForUpdate) {
+        if (isSnapshot()) {
+            return;
+        }
         if (!isForUpdate && mLevel.isAtMost(IsolationLevel.READ_COMMITTED)) {
             lock.unlockFromUpgrade(mLocker);
         }
@@ -165,14 +241,60 @@ class MapTransaction {
         });
     }
 
-    void commit() {
+    /**
+     * Add to redo log, which is appended to the write-ahead log when the
+     * top-level transaction commits.
+     */
+    void logged(MapLog.Entry entry) {
+        List<MapLog.Entry> log = mRedoLog;
+        if (log == null) {
+            mRedoLog = log = new ArrayList<MapLog.Entry>();
+        }
+        log.add(entry);
+    }
+
+    void commit() throws PersistException {
         MapTransaction parent = mParent;
 
         if (parent == null) {
+            List<MapLog.Entry> redo = mRedoLog;
+            if (redo == null) {
+                Set<MapStorage<?>> modified = commitVersions();
+                releaseLocks();
+                endSnapshot();
+                evict(modified);
+                return;
+            }
+
+            // Append while locks are held, to keep log in commit order.
+            long position;
+            try {
+                position = mLog.append(redo);
+            } catch (PersistException e) {
+                abort();
+                throw e;
+            }
+
+            mRedoLog = null;
+            Set<MapStorage<?>> modified = commitVersions();
             releaseLocks();
+            endSnapshot();
+
+            // Sync after releasing locks, allowing concurrent commits to be
+            // synced as a group.
+            mLog.sync(position);
+            evict(modified);
             return;
         }
 
+        // Pass redo log to parent.
+        if (parent.mRedoLog == null) {
+            parent.mRedoLog = mRedoLog;
+        } else if (mRedoLog != null) {
+            parent.mRedoLog.addAll(mRedoLog);
+        }
+        mRedoLog = null;
+
         // Pass undo log to parent.
         if (parent.mUndoLog == null) {
             parent.mUndoLog = mUndoLog;
@@ -181,6 +303,16 @@ class MapTransaction {
         }
         mUndoLog = null;
 
+        // Pass modified storage to parent.
+        if (parent.mModified == null) {
+            parent.mModified = mModified;
+        } else if (mModified != null) {
+            parent.mModified.addAll(mModified);
+        }
+        mModified = null;
+
+        endSnapshot();
+
         // Pass write locks to parent or release if parent already has the lock.
         {
             Set<UpgradableLock> locks = mWriteLocks;
@@ -211,8 +343,75 @@ class MapTransaction {
             }
         }
         mUndoLog = null;
+        mRedoLog = null;
+
+        MapTransaction parent = mParent;
+        Set<MapStorage<?>> modified = mModified;
+        if (modified != null && parent != null) {
+            // Undo pushed new versions which restore the old records. They
+            // must be committed when the write lock is released, or else be
+            // passed to the parent which continues to hold it.
+            for (Iterator<MapStorage<?>> it = modified.iterator(); it.hasNext(); ) {
+                MapStorage<?> storage = it.next();
+                if (parent.holdsWriteLock(storage.mLock)) {
+                    parent.modified(storage);
+                    it.remove();
+                }
+            }
+        }
+        modified = commitVersions();
 
         releaseLocks();
+        endSnapshot();
+
+        if (parent == null) {
+            evict(modified);
+        }
+    }
+
+    /**
+     * Commits pending versions of all modified multiversion storage. Caller
+     * must still hold write locks.
+     *
+     * @return all modified storage, or null if none
+     */
+    private Set<MapStorage<?>> commitVersions() {
+        Set<MapStorage<?>> modified = mModified;
+        if (modified != null) {
+            mModified = null;
+            if (mVersions != null) {
+                List<VersionedRecordMap<?>> maps =
+                    new ArrayList<VersionedRecordMap<?>>(modified.size());
+                for (MapStorage<?> storage : modified) {
+                    VersionedRecordMap<?> map = storage.getVersionedRecordMap();
+                    if (map != null) {
+                        maps.add(map);
+                    }
+                }
+                mVersions.commit(maps);
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Evicts records from modified storage, if bounded. Caller must not hold
+     * any locks.
+     */
+    private static void evict(Set<MapStorage<?>> modified) {
+        if (modified != null) {
+            for (MapStorage<?> storage : modified) {
+                storage.evict();
+            }
+        }
+    }
+
+    private void endSnapshot() {
+        if (mOwnsSnapshot) {
+            mOwnsSnapshot = false;
+            mVersions.endSnapshot(mSnapshotVersion);
+        }
+        mSnapshotVersion = -1;
     }
 
     private void addToUndoLog(Undoable entry) {
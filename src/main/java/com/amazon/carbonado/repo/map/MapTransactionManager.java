@@ -34,10 +34,20 @@ import com.amazon.carbonado.txn.TransactionManager;
 class MapTransactionManager extends TransactionManager<MapTransaction> {
     private final int mLockTimeout;
     private final TimeUnit mLockTimeoutUnit;
+    private final MapLog mLog;
+    private final MapVersions mVersions;
 
-    MapTransactionManager(int lockTimeout, TimeUnit lockTimeoutUnit) {
+    /**
+     * @param log optional write-ahead log
+     * @param versions optional version tracker, for supporting snapshots
+     */
+    MapTransactionManager(int lockTimeout, TimeUnit lockTimeoutUnit,
+                          MapLog log, MapVersions versions)
+    {
         mLockTimeout = lockTimeout;
         mLockTimeoutUnit = lockTimeoutUnit;
+        mLog = log;
+        mVersions = versions;
     }
 
     @Override
@@ -58,6 +68,8 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         case REPEATABLE_READ:
         case SERIALIZABLE:
             return IsolationLevel.SERIALIZABLE;
+        case SNAPSHOT:
+            return mVersions == null ? null : IsolationLevel.SNAPSHOT;
         default:
             // Not supported.
             return null;
@@ -76,7 +88,8 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         if (level == IsolationLevel.NONE) {
             return null;
         }
-        return new MapTransaction(parent, level, mLockTimeout, mLockTimeoutUnit);
+        return new MapTransaction(parent, level, mLockTimeout, mLockTimeoutUnit,
+                                  mLog, mVersions);
     }
 
     @Override
@@ -87,7 +100,7 @@ class MapTransactionManager extends TransactionManager<MapTransaction> {
         if (level == IsolationLevel.NONE) {
             return null;
         }
-        return new MapTransaction(parent, level, timeout, unit);
+        return new MapTransaction(parent, level, timeout, unit, mLog, mVersions);
     }
 
     @Override
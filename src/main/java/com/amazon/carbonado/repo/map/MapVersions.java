@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Assigns commit versions for a multiversion {@link MapRepository}, and
+ * tracks the snapshots which are in use. Old record versions can be
+ * reclaimed once no snapshot can observe them.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class MapVersions {
+    private final List<VersionedRecordMap<?>> mMaps;
+
+    // Guarded by this.
+    private long mCommitted;
+    private final TreeMap<Long, Integer> mSnapshots;
+
+    // Oldest version which any snapshot can observe, which only increases.
+    private volatile long mOldest;
+
+    MapVersions() {
+        mMaps = new CopyOnWriteArrayList<VersionedRecordMap<?>>();
+        mSnapshots = new TreeMap<Long, Integer>();
+    }
+
+    void register(VersionedRecordMap<?> map) {
+        mMaps.add(map);
+    }
+
+    /**
+     * Begins a snapshot which observes all changes committed so far.
+     *
+     * @return snapshot version, which must be passed to endSnapshot
+     */
+    synchronized long beginSnapshot() {
+        long version = mCommitted;
+        Integer count = mSnapshots.get(version);
+        mSnapshots.put(version, count == null ? 1 : (count + 1));
+        return version;
+    }
+
+    /**
+     * Ends a snapshot, and reclaims old versions if it was the oldest one.
+     */
+    void endSnapshot(long version) {
+        long oldest;
+        synchronized (this) {
+            Integer count = mSnapshots.get(version);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mSnapshots.put(version, count - 1);
+                return;
+            }
+            mSnapshots.remove(version);
+            oldest = mSnapshots.isEmpty() ? mCommitted : mSnapshots.firstKey();
+            if (oldest == mOldest) {
+                return;
+            }
+            mOldest = oldest;
+        }
+
+        for (VersionedRecordMap<?> map : mMaps) {
+            map.reclaim(oldest);
+        }
+    }
+
+    /**
+     * Commits all pending versions of the given maps, making them visible to
+     * new snapshots. Caller must hold the write lock of each map's storage.
+     */
+    void commit(Collection<? extends VersionedRecordMap<?>> maps) {
+        long oldest;
+        synchronized (this) {
+            long version = mCommitted + 1;
+            boolean any = false;
+            for (VersionedRecordMap<?> map : maps) {
+                any |= map.stamp(version);
+            }
+            if (!any) {
+                return;
+            }
+            mCommitted = version;
+            if (mSnapshots.isEmpty()) {
+                mOldest = version;
+            }
+            oldest = mOldest;
+        }
+
+        for (VersionedRecordMap<?> map : maps) {
+            map.reclaimStamped(oldest);
+        }
+    }
+
+    /**
+     * Commits all pending versions of the given map.
+     */
+    void commit(VersionedRecordMap<?> map) {
+        commit(Collections.singletonList(map));
+    }
+
+    synchronized int getSnapshotCount() {
+        int total = 0;
+        for (int count : mSnapshots.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allocates variable-length blocks of memory outside the Java heap, from
+ * fixed-size chunks which are either direct byte buffers or memory-mapped
+ * file regions. Blocks are rounded up to a power of two, and freed blocks
+ * are recycled by size class. Blocks larger than a chunk are allocated
+ * separately as direct buffers.
+ *
+ * <p>Block addresses combine the chunk number in the upper 32 bits with the
+ * offset in the lower 32 bits. Allocation and freeing are synchronized, but
+ * reads don't lock. A freed block must not be freed while any reader might
+ * still access it.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class OffHeapArena {
+    private static final int MIN_BLOCK_SHIFT = 4;
+    private static final int HEADER_SIZE = 4;
+
+    private final int mChunkSize;
+    private final File mDirectory;
+
+    private volatile ByteBuffer[] mChunks;
+    private int mChunkCount;
+    private int mCurrentChunk;
+    private int mCurrentOffset;
+
+    // Stacks of free block addresses, indexed by size class.
+    private long[][] mFreeBlocks;
+    private int[] mFreeCounts;
+
+    private RandomAccessFile mFile;
+    private long mFileLength;
+
+    private volatile long mCapacity;
+    private volatile long mAllocated;
+    private volatile long mStored;
+
+    /**
+     * @param chunkSize size of each chunk, which must be a power of two
+     * @param directory optional directory to create a memory-mapped file in;
+     * if null, chunks are direct byte buffers
+     */
+    OffHeapArena(int chunkSize, File directory) {
+        if (Integer.bitCount(chunkSize) != 1 || chunkSize < (1 << MIN_BLOCK_SHIFT)) {
+            throw new IllegalArgumentException("Chunk size: " + chunkSize);
+        }
+        mChunkSize = chunkSize;
+        mDirectory = directory;
+        init();
+    }
+
+    private void init() {
+        mChunks = new ByteBuffer[4];
+        mChunkCount = 0;
+        mCurrentChunk = -1;
+        mCurrentOffset = mChunkSize;
+        int classes = Integer.numberOfTrailingZeros(mChunkSize) - MIN_BLOCK_SHIFT + 1;
+        mFreeBlocks = new long[classes][];
+        mFreeCounts = new int[classes];
+        mCapacity = 0;
+        mAllocated = 0;
+        mStored = 0;
+    }
+
+    /**
+     * Stores a copy of the given data into a new block.
+     *
+     * @return address of block
+     */
+    synchronized long allocate(byte[] data) throws IOException {
+        int size = HEADER_SIZE + data.length;
+
+        long address;
+        if (size > mChunkSize) {
+            // Allocate a dedicated chunk.
+            address = ((long) addChunk(ByteBuffer.allocateDirect(size))) << 32;
+            mAllocated += size;
+        } else {
+            int sizeClass = sizeClass(size);
+            int count = mFreeCounts[sizeClass];
+            if (count > 0) {
+                address = mFreeBlocks[sizeClass][--count];
+                mFreeCounts[sizeClass] = count;
+            } else {
+                int blockSize = 1 << (sizeClass + MIN_BLOCK_SHIFT);
+                if (mCurrentOffset + blockSize > mChunkSize) {
+                    // Recycle the remainder of the current chunk.
+                    while (mChunkSize - mCurrentOffset >= (1 << MIN_BLOCK_SHIFT)) {
+                        int remaining = Integer.highestOneBit(mChunkSize - mCurrentOffset);
+                        pushFree(sizeClass(remaining), address(mCurrentChunk, mCurrentOffset));
+                        mCurrentOffset += remaining;
+                    }
+                    mCurrentChunk = addChunk(newChunk());
+                    mCurrentOffset = 0;
+                }
+                address = address(mCurrentChunk, mCurrentOffset);
+                mCurrentOffset += blockSize;
+            }
+            mAllocated += 1 << (sizeClass + MIN_BLOCK_SHIFT);
+        }
+
+        ByteBuffer buffer = buffer(address);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        mStored += data.length;
+
+        return address;
+    }
+
+    /**
+     * Returns a copy of the data stored in the given block.
+     */
+    byte[] read(long address) {
+        ByteBuffer buffer = buffer(address);
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Frees the given block, allowing it to be recycled.
+     */
+    synchronized void free(long address) {
+        int length = buffer(address).getInt();
+        mStored -= length;
+        int size = HEADER_SIZE + length;
+        if (size > mChunkSize) {
+            int chunk = (int) (address >>> 32);
+            ByteBuffer[] chunks = mChunks;
+            mCapacity -= chunks[chunk].capacity();
+            chunks[chunk] = null;
+            mAllocated -= size;
+        } else {
+            int sizeClass = sizeClass(size);
+            pushFree(sizeClass, address);
+            mAllocated -= 1 << (sizeClass + MIN_BLOCK_SHIFT);
+        }
+    }
+
+    /**
+     * Frees all blocks and releases all chunks.
+     */
+    synchronized void clear() {
+        closeFile();
+        init();
+    }
+
+    synchronized void close() {
+        clear();
+    }
+
+    /**
+     * Returns the total amount of bytes reserved by chunks.
+     */
+    long getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the total amount of bytes in allocated blocks.
+     */
+    long getAllocated() {
+        return mAllocated;
+    }
+
+    /**
+     * Returns the total amount of data bytes stored in allocated blocks.
+     */
+    long getStored() {
+        return mStored;
+    }
+
+    private static long address(int chunk, int offset) {
+        return (((long) chunk) << 32) | offset;
+    }
+
+    /**
+     * Returns a private view of the buffer, positioned at the block.
+     */
+    private ByteBuffer buffer(long address) {
+        ByteBuffer buffer = mChunks[(int) (address >>> 32)].duplicate();
+        buffer.position((int) address);
+        return buffer;
+    }
+
+    private static int sizeClass(int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return Math.max(0, shift - MIN_BLOCK_SHIFT);
+    }
+
+    private void pushFree(int sizeClass, long address) {
+        long[] blocks = mFreeBlocks[sizeClass];
+        int count = mFreeCounts[sizeClass];
+        if (blocks == null) {
+            mFreeBlocks[sizeClass] = blocks = new long[16];
+        } else if (count >= blocks.length) {
+            long[] newBlocks = new long[count << 1];
+            System.arraycopy(blocks, 0, newBlocks, 0, count);
+            mFreeBlocks[sizeClass] = blocks = newBlocks;
+        }
+        blocks[count] = address;
+        mFreeCounts[sizeClass] = count + 1;
+    }
+
+    private int addChunk(ByteBuffer chunk) {
+        ByteBuffer[] chunks = mChunks;
+        int count = mChunkCount;
+        if (count >= chunks.length) {
+            ByteBuffer[] newChunks = new ByteBuffer[count << 1];
+            System.arraycopy(chunks, 0, newChunks, 0, count);
+            chunks = newChunks;
+        }
+        chunks[count] = chunk;
+        // Publish after chunk is set.
+        mChunks = chunks;
+        mChunkCount = count + 1;
+        mCapacity += chunk.capacity();
+        return count;
+    }
+
+    private ByteBuffer newChunk() throws IOException {
+        if (mDirectory == null) {
+            return ByteBuffer.allocateDirect(mChunkSize);
+        }
+        if (mFile == null) {
+            File file = File.createTempFile("carbonado-", ".arena", mDirectory);
+            file.deleteOnExit();
+            mFile = new RandomAccessFile(file, "rw");
+            mFileLength = 0;
+            // File can be deleted now that it's open, on most platforms.
+            file.delete();
+        }
+        ByteBuffer chunk = mFile.getChannel()
+            .map(FileChannel.MapMode.READ_WRITE, mFileLength, mChunkSize);
+        mFileLength += mChunkSize;
+        return chunk;
+    }
+
+    private void closeFile() {
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            mFile = null;
+        }
+    }
+}
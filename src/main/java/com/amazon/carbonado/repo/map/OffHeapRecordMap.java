@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cojen.util.ThrowUnchecked;
+
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.raw.RawUtil;
+
+import com.amazon.carbonado.util.Comparators;
+
+/**
+ * Holds records in their raw key and value encoding. Values are stored in an
+ * {@link OffHeapArena}, and an order-preserving index maps encoded keys to
+ * value addresses. Records are decoded into new instances only when fetched.
+ *
+ * <p>Value blocks are only freed while holding the storage write lock, which
+ * excludes readers. As a result, removal requires the write lock, but
+ * insertion only requires the upgrade lock.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class OffHeapRecordMap<S extends Storable> extends RecordMap<S> {
+    private final RecordCodec<S> mCodec;
+    private final OffHeapArena mArena;
+
+    private final ConcurrentNavigableMap<byte[], Long> mIndex;
+    private final AtomicLong mKeyBytes;
+
+    /**
+     * @param chunkSize arena chunk size, which must be a power of two
+     * @param directory optional directory for memory-mapped arena file
+     */
+    OffHeapRecordMap(RecordCodec<S> codec, int chunkSize, File directory) {
+        mCodec = codec;
+        mArena = new OffHeapArena(chunkSize, directory);
+
+        Comparator<byte[]> c = Comparators.arrayComparator(byte[].class, true);
+        mIndex = new ConcurrentSkipListMap<byte[], Long>(c);
+        mKeyBytes = new AtomicLong();
+    }
+
+    boolean isOffHeap() {
+        return true;
+    }
+
+    S get(S key) {
+        byte[] keyBytes = mCodec.encodeKey(key);
+        Long address = mIndex.get(keyBytes);
+        return address == null ? null : decode(keyBytes, address);
+    }
+
+    boolean putIfAbsent(S record) {
+        RecordCodec<S>.Encoded encoded = mCodec.encode(record);
+        if (mIndex.containsKey(encoded.mKey)) {
+            return false;
+        }
+        mIndex.put(encoded.mKey, allocate(encoded.mValue));
+        mKeyBytes.addAndGet(encoded.mKey.length);
+        return true;
+    }
+
+    void put(S record) {
+        RecordCodec<S>.Encoded encoded = mCodec.encode(record);
+        Long old = mIndex.put(encoded.mKey, allocate(encoded.mValue));
+        if (old == null) {
+            mKeyBytes.addAndGet(encoded.mKey.length);
+        } else {
+            mArena.free(old);
+        }
+    }
+
+    S remove(S key) {
+        byte[] keyBytes = mCodec.encodeKey(key);
+        Long address = mIndex.get(keyBytes);
+        if (address == null) {
+            return null;
+        }
+        S old = decode(keyBytes, address);
+        removeEntry(keyBytes);
+        return old;
+    }
+
+    boolean delete(S key) {
+        return removeEntry(mCodec.encodeKey(key));
+    }
+
+    void clear() {
+        mIndex.clear();
+        mKeyBytes.set(0);
+        mArena.clear();
+    }
+
+    int size() {
+        return mIndex.size();
+    }
+
+    Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending) {
+        return values(startValues, inclusive, descending, null);
+    }
+
+    @Override
+    Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending,
+                       final Set<String> projection)
+    {
+        NavigableMap<byte[], Long> map = mIndex;
+
+        if (startValues != null) {
+            // Encoding is order-preserving, and a partial key is a prefix of
+            // all the full keys which match it.
+            byte[] prefix = mCodec.encodeKey(startValues);
+            byte[] next = prefix.clone();
+            boolean hasNext = RawUtil.increment(next);
+
+            if (!descending) {
+                if (inclusive) {
+                    map = map.tailMap(prefix, true);
+                } else if (hasNext) {
+                    map = map.tailMap(next, true);
+                } else {
+                    return Collections.emptyList();
+                }
+            } else {
+                if (!inclusive) {
+                    map = map.headMap(prefix, false);
+                } else if (hasNext) {
+                    map = map.headMap(next, false);
+                }
+            }
+        }
+
+        if (descending) {
+            map = map.descendingMap();
+        }
+
+        final Iterable<Map.Entry<byte[], Long>> entries = map.entrySet();
+
+        return new Iterable<S>() {
+            public Iterator<S> iterator() {
+                final Iterator<Map.Entry<byte[], Long>> it = entries.iterator();
+
+                return new Iterator<S>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public S next() {
+                        Map.Entry<byte[], Long> entry = it.next();
+                        return decode(entry.getKey(), entry.getValue(), projection);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    void addStatistics(MapStatistics stats) {
+        stats.mRecordCount = mIndex.size();
+        stats.mOffHeap = true;
+        stats.mKeyBytes = mKeyBytes.get();
+        stats.mValueBytes = mArena.getStored();
+        stats.mOffHeapCapacity = mArena.getCapacity();
+        stats.mOffHeapAllocated = mArena.getAllocated();
+    }
+
+    @Override
+    void close() {
+        mIndex.clear();
+        mArena.close();
+    }
+
+    private boolean removeEntry(byte[] keyBytes) {
+        Long address = mIndex.remove(keyBytes);
+        if (address == null) {
+            return false;
+        }
+        mKeyBytes.addAndGet(-keyBytes.length);
+        mArena.free(address);
+        return true;
+    }
+
+    private Long allocate(byte[] value) {
+        try {
+            return mArena.allocate(value);
+        } catch (IOException e) {
+            ThrowUnchecked.fire(new PersistException(e));
+            return null;
+        }
+    }
+
+    private S decode(byte[] key, long address) {
+        return mCodec.decode(key, mArena.read(address));
+    }
+
+    private S decode(byte[] key, long address, Set<String> projection) {
+        if (projection == null) {
+            return decode(key, address);
+        }
+        return mCodec.decode(key, mArena.read(address), projection);
+    }
+}
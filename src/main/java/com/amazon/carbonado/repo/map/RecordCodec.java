@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.Set;
+
+import org.cojen.util.ThrowUnchecked;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Trigger;
+
+import com.amazon.carbonado.info.StorableIndex;
+
+import com.amazon.carbonado.layout.Layout;
+
+import com.amazon.carbonado.lob.Blob;
+import com.amazon.carbonado.lob.Clob;
+
+import com.amazon.carbonado.raw.GenericStorableCodecFactory;
+import com.amazon.carbonado.raw.RawSupport;
+import com.amazon.carbonado.raw.StorableCodec;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+/**
+ * Converts the records of a {@link MapStorage} to and from their raw key and
+ * value encoding. The key encoding preserves primary key order when compared
+ * as unsigned bytes.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class RecordCodec<S extends Storable> {
+    private final MapStorage<S> mStorage;
+    private final StorableCodec<S> mCodec;
+    private final Encoded mDecodeSupport;
+
+    /**
+     * @param layout when non-null, values are prefixed with the layout
+     * generation, and values of older generations can be decoded
+     */
+    RecordCodec(MapStorage<S> storage, StorableIndex<S> pkIndex, Layout layout)
+        throws SupportException
+    {
+        mStorage = storage;
+        mDecodeSupport = new Encoded();
+        // Codec is not master, since MapStorage manages versions and sequences.
+        mCodec = new GenericStorableCodecFactory().createCodec
+            (storage.getStorableType(), pkIndex, false, layout, mDecodeSupport);
+    }
+
+    /**
+     * Encodes the primary key of the given storable.
+     */
+    byte[] encodeKey(S key) {
+        // Codec can only encode keys of its own storable instances.
+        S raw = mCodec.instantiate(mDecodeSupport);
+        key.copyPrimaryKeyProperties(raw);
+        return mCodec.encodePrimaryKey(raw);
+    }
+
+    /**
+     * Encodes leading primary key values, which form a prefix of all full
+     * keys which match them.
+     */
+    byte[] encodeKey(Object[] values) {
+        return mCodec.encodePrimaryKey(values, 0, values.length);
+    }
+
+    /**
+     * Encodes the key and value of the given record.
+     */
+    Encoded encode(S record) {
+        Encoded encoded = new Encoded();
+        S raw = mCodec.instantiate(encoded);
+        record.copyAllProperties(raw);
+        try {
+            // Raw storable passes its encoded key and value to the support.
+            raw.insert();
+        } catch (PersistException e) {
+            ThrowUnchecked.fire(e);
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns a new clean record, decoded from the given key and value.
+     */
+    S decode(byte[] key, byte[] value) {
+        try {
+            S raw = mCodec.instantiate(mDecodeSupport, key, value);
+            S record = mStorage.prepare();
+            raw.copyAllProperties(record);
+            record.markAllPropertiesClean();
+            return record;
+        } catch (FetchException e) {
+            ThrowUnchecked.fire(e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a new record, decoded from the given key and value, which only
+     * has the primary key and the projected properties loaded and clean.
+     */
+    S decode(byte[] key, byte[] value, Set<String> projection) {
+        try {
+            S raw = mCodec.instantiate(mDecodeSupport, key, value, projection);
+            S record = mStorage.prepare();
+            // Only copies the properties which were decoded.
+            raw.copyAllProperties(record);
+            record.markPropertiesClean();
+            return record;
+        } catch (FetchException e) {
+            ThrowUnchecked.fire(e);
+            return null;
+        }
+    }
+
+    /**
+     * Captures the encoded key and value of a raw storable when inserted.
+     */
+    class Encoded implements RawSupport<S> {
+        byte[] mKey;
+        byte[] mValue;
+
+        Encoded() {
+        }
+
+        public Repository getRootRepository() {
+            return mStorage.getRootRepository();
+        }
+
+        public boolean isPropertySupported(String propertyName) {
+            return mStorage.isPropertySupported(propertyName);
+        }
+
+        public Trigger<? super S> getInsertTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getUpdateTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getDeleteTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getLoadTrigger() {
+            return null;
+        }
+
+        public void locallyDisableLoadTrigger() {
+        }
+
+        public void locallyEnableLoadTrigger() {
+        }
+
+        public SequenceValueProducer getSequenceValueProducer(String name)
+            throws PersistException
+        {
+            throw new PersistException("Sequences are not supported by encoded records");
+        }
+
+        public byte[] tryLoad(S storable, byte[] key) throws FetchException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean tryInsert(S storable, byte[] key, byte[] value) {
+            mKey = key;
+            mValue = value;
+            return true;
+        }
+
+        public void store(S storable, byte[] key, byte[] value) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean tryDelete(S storable, byte[] key) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Blob getBlob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mStorage.getLobEngine().getBlobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Blob blob) throws PersistException {
+            try {
+                return mStorage.getLobEngine().getLocator(blob);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public Clob getClob(S storable, String name, long locator) throws FetchException {
+            try {
+                return mStorage.getLobEngine().getClobValue(locator);
+            } catch (RepositoryException e) {
+                throw e.toFetchException();
+            }
+        }
+
+        public long getLocator(Clob clob) throws PersistException {
+            try {
+                return mStorage.getLobEngine().getLocator(clob);
+            } catch (RepositoryException e) {
+                throw e.toPersistException();
+            }
+        }
+
+        public void decode(S dest, int generation, byte[] data)
+            throws CorruptEncodingException
+        {
+            // Only called for older generations, which requires a layout.
+            mCodec.decode(dest, generation, data);
+        }
+    }
+}
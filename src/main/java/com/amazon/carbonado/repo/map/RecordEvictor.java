@@ -0,0 +1,382 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.capability.MapEvictionCapability;
+
+import com.amazon.carbonado.info.StorableInfo;
+
+/**
+ * Tracks record usage for a bounded {@link MapStorage}, and selects records
+ * to evict. Usage is recorded without locks, and eviction sweeps a clock
+ * hand over all records in key order, decaying a small count on each
+ * record it passes. A record is evicted when its count reaches zero. Under
+ * the LRU policy, a load or update resets the count to two, and so a record
+ * which was recently used outlasts one which was only inserted. Under the
+ * LFU policy, each load or update increments the count, and each pass
+ * halves it.
+ *
+ * <p>Changes to the records must be reported, and victims must be
+ * selected, while holding the storage upgrade or write lock.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class RecordEvictor<S extends Storable> {
+    private static final int MAX_LRU_COUNT = 2, MAX_LFU_COUNT = 15;
+
+    private final MapStorage<S> mStorage;
+    private final KeyFactory<S> mKeys;
+    private final RecordCodec<S> mCodec;
+    private final EvictionPolicy mPolicy;
+    private final int mMaxRecords;
+    private final long mMaxBytes;
+    private final long mTimeToLiveMillis;
+
+    private final ConcurrentNavigableMap<Key<S>, Usage> mUsage;
+    private final AtomicInteger mRecordCount;
+    private final AtomicLong mBytes;
+
+    private final AtomicLong mHits;
+    private final AtomicLong mMisses;
+    private final AtomicLong mReloads;
+    private final AtomicLong mEvictions;
+    private final AtomicLong mExpirations;
+
+    private volatile MapEvictionCapability.Reloader<S> mReloader;
+
+    // Guarded by storage upgrade or write lock.
+    private Key<S> mHand;
+    private volatile long mNextSweep;
+
+    /**
+     * @param codec codec for measuring record size; required if maxBytes
+     * isn't zero
+     * @param maxRecords maximum amount of records, or zero if unlimited
+     * @param maxBytes maximum total encoded size of records, or zero if
+     * unlimited
+     * @param timeToLive maximum time since a record was stored, or zero if
+     * unlimited
+     */
+    RecordEvictor(MapStorage<S> storage, StorableInfo<S> info, RecordCodec<S> codec,
+                  EvictionPolicy policy, int maxRecords, long maxBytes,
+                  long timeToLive, TimeUnit unit)
+    {
+        mStorage = storage;
+        mKeys = new KeyFactory<S>(storage, info);
+        mCodec = codec;
+        mPolicy = policy == null ? EvictionPolicy.LRU : policy;
+        mMaxRecords = maxRecords;
+        mMaxBytes = maxBytes;
+        mTimeToLiveMillis = unit == null ? 0 : unit.toMillis(timeToLive);
+
+        mUsage = new ConcurrentSkipListMap<Key<S>, Usage>();
+        mRecordCount = new AtomicInteger();
+        mBytes = new AtomicLong();
+
+        mHits = new AtomicLong();
+        mMisses = new AtomicLong();
+        mReloads = new AtomicLong();
+        mEvictions = new AtomicLong();
+        mExpirations = new AtomicLong();
+
+        if (mTimeToLiveMillis > 0) {
+            mNextSweep = System.currentTimeMillis() + mTimeToLiveMillis;
+        }
+    }
+
+    MapEvictionCapability.Reloader<S> getReloader() {
+        return mReloader;
+    }
+
+    void setReloader(MapEvictionCapability.Reloader<S> reloader) {
+        mReloader = reloader;
+    }
+
+    /**
+     * Records an access to the given record, which was found by a load.
+     *
+     * @return false if record has expired, and so it must not be returned
+     */
+    boolean accessed(S record) {
+        Usage usage = mUsage.get(mKeys.key(record));
+        if (usage != null) {
+            if (usage.isExpired(mTimeToLiveMillis > 0 ? System.currentTimeMillis() : 0)) {
+                mMisses.incrementAndGet();
+                return false;
+            }
+            usage.touch(mPolicy);
+        }
+        mHits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Returns true if records can expire.
+     */
+    boolean expires() {
+        return mTimeToLiveMillis > 0;
+    }
+
+    /**
+     * Returns true if the record with the given key has expired.
+     */
+    boolean isExpired(S record) {
+        if (mTimeToLiveMillis <= 0) {
+            return false;
+        }
+        Usage usage = mUsage.get(mKeys.key(record));
+        return usage != null && usage.isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Records that a load found no record.
+     */
+    void missed() {
+        mMisses.incrementAndGet();
+    }
+
+    /**
+     * Records that a missing record was reloaded.
+     */
+    void reloaded() {
+        mReloads.incrementAndGet();
+    }
+
+    /**
+     * Records that the given record was inserted or updated.
+     */
+    void stored(S record) {
+        Key<S> key = mKeys.key(record);
+        long size = mMaxBytes == 0 ? 0 : size(record);
+        long expires = mTimeToLiveMillis == 0 ? 0
+            : (System.currentTimeMillis() + mTimeToLiveMillis);
+
+        Usage usage = mUsage.get(key);
+        if (usage == null) {
+            // Key must not refer to the stored record, which can change.
+            S copy = mStorage.prepare();
+            record.copyPrimaryKeyProperties(copy);
+            mUsage.put(mKeys.key(copy), new Usage(size, expires));
+            mRecordCount.incrementAndGet();
+            mBytes.addAndGet(size);
+        } else {
+            mBytes.addAndGet(size - usage.mSize);
+            usage.mSize = size;
+            usage.mExpires = expires;
+            usage.touch(mPolicy);
+        }
+    }
+
+    /**
+     * Records that the record with the given key was deleted.
+     */
+    void removed(S key) {
+        Usage usage = mUsage.remove(mKeys.key(key));
+        if (usage != null) {
+            mRecordCount.decrementAndGet();
+            mBytes.addAndGet(-usage.mSize);
+        }
+    }
+
+    /**
+     * Records that all records were deleted.
+     */
+    void cleared() {
+        mUsage.clear();
+        mRecordCount.set(0);
+        mBytes.set(0);
+    }
+
+    /**
+     * Returns true if records are over limit, or if expired records need to
+     * be swept.
+     */
+    boolean needsEviction() {
+        return isOverLimit()
+            || (mTimeToLiveMillis > 0 && System.currentTimeMillis() >= mNextSweep);
+    }
+
+    /**
+     * Removes all expired records from tracking, returning their keys. Caller
+     * must hold the upgrade or write lock, and then delete the records.
+     */
+    List<S> sweepExpired() {
+        if (mTimeToLiveMillis <= 0) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now < mNextSweep) {
+            return null;
+        }
+        // Sweep a few times per lifetime, to bound how long expired records
+        // linger in query results.
+        mNextSweep = now + Math.max(1, mTimeToLiveMillis / 4);
+
+        List<S> expired = null;
+        for (Map.Entry<Key<S>, Usage> entry : mUsage.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                if (expired == null) {
+                    expired = new ArrayList<S>();
+                }
+                expired.add(remove(entry.getKey(), entry.getValue(), true));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Selects the next record to evict, and removes it from tracking. Caller
+     * must hold the upgrade or write lock, and then delete the record.
+     *
+     * @return key of record to evict, or null if not over limit
+     */
+    S nextVictim() {
+        if (!isOverLimit()) {
+            return null;
+        }
+
+        long now = mTimeToLiveMillis > 0 ? System.currentTimeMillis() : 0;
+
+        // Each pass decays all counts, and so a victim is always found
+        // within a bounded number of passes.
+        long limit = (mRecordCount.get() + 1L) * (mPolicy == EvictionPolicy.LFU ? 6 : 3);
+
+        Iterator<Map.Entry<Key<S>, Usage>> it = null;
+        while (--limit >= 0) {
+            if (it == null || !it.hasNext()) {
+                if (mHand == null) {
+                    it = mUsage.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        return null;
+                    }
+                } else {
+                    it = mUsage.tailMap(mHand, false).entrySet().iterator();
+                    if (!it.hasNext()) {
+                        // Wrap around.
+                        mHand = null;
+                        continue;
+                    }
+                }
+            }
+
+            Map.Entry<Key<S>, Usage> entry = it.next();
+            Key<S> key = entry.getKey();
+            Usage usage = entry.getValue();
+            mHand = key;
+
+            if (usage.isExpired(now)) {
+                return remove(key, usage, true);
+            }
+            if (!usage.spare(mPolicy)) {
+                return remove(key, usage, false);
+            }
+        }
+
+        return null;
+    }
+
+    void addStatistics(MapStatistics stats) {
+        stats.mBounded = true;
+        stats.mTrackedBytes = mMaxBytes == 0 ? 0 : mBytes.get();
+        stats.mHitCount = mHits.get();
+        stats.mMissCount = mMisses.get();
+        stats.mReloadCount = mReloads.get();
+        stats.mEvictionCount = mEvictions.get();
+        stats.mExpirationCount = mExpirations.get();
+    }
+
+    private boolean isOverLimit() {
+        return (mMaxRecords > 0 && mRecordCount.get() > mMaxRecords)
+            || (mMaxBytes > 0 && mBytes.get() > mMaxBytes);
+    }
+
+    private S remove(Key<S> key, Usage usage, boolean expired) {
+        if (mUsage.remove(key, usage)) {
+            mRecordCount.decrementAndGet();
+            mBytes.addAndGet(-usage.mSize);
+        }
+        (expired ? mExpirations : mEvictions).incrementAndGet();
+        return key.mStorable;
+    }
+
+    private long size(S record) {
+        RecordCodec<S>.Encoded encoded = mCodec.encode(record);
+        return encoded.mKey.length + encoded.mValue.length;
+    }
+
+    /**
+     * Usage of one record.
+     */
+    private static class Usage {
+        volatile long mSize;
+        volatile long mExpires;
+        volatile int mCount;
+
+        Usage(long size, long expires) {
+            mSize = size;
+            mExpires = expires;
+            mCount = 1;
+        }
+
+        /**
+         * @param now current time, or zero if records never expire
+         */
+        boolean isExpired(long now) {
+            return now != 0 && now >= mExpires;
+        }
+
+        void touch(EvictionPolicy policy) {
+            int count = mCount;
+            if (policy == EvictionPolicy.LRU) {
+                if (count < MAX_LRU_COUNT) {
+                    mCount = MAX_LRU_COUNT;
+                }
+            } else if (count < MAX_LFU_COUNT) {
+                // Lost increments from concurrent access don't matter.
+                mCount = count + 1;
+            }
+        }
+
+        /**
+         * Called as the clock hand passes over the record.
+         *
+         * @return false if record should be evicted
+         */
+        boolean spare(EvictionPolicy policy) {
+            int count = mCount;
+            if (count == 0) {
+                return false;
+            }
+            mCount = policy == EvictionPolicy.LRU ? (count - 1) : (count >> 1);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.Set;
+
+import com.amazon.carbonado.Storable;
+
+/**
+ * Holds the records of a {@link MapStorage}, ordered by primary key. All
+ * modifications are made while holding the storage lock, and so they never
+ * run concurrently with each other.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+abstract class RecordMap<S extends Storable> {
+    /**
+     * Returns true if records are held in an encoded form, and so get, remove
+     * and iteration always return new instances. If false, the stored
+     * instances themselves are returned, and they must be copied before being
+     * passed to the user.
+     */
+    abstract boolean isOffHeap();
+
+    /**
+     * Returns the record with the same primary key as the given storable, or
+     * null if none.
+     */
+    abstract S get(S key);
+
+    /**
+     * Inserts the given record, unless one already exists with the same
+     * primary key. Caller must not modify the record afterwards.
+     *
+     * @return false if record already exists
+     */
+    abstract boolean putIfAbsent(S record);
+
+    /**
+     * Inserts the given record, replacing any existing one with the same
+     * primary key. Caller must not modify the record afterwards.
+     */
+    abstract void put(S record);
+
+    /**
+     * Returns an instance of a record returned by get which can be modified
+     * and then passed to updated. By default, the record itself is returned.
+     */
+    S forUpdate(S record) {
+        return record;
+    }
+
+    /**
+     * Called after a record returned by forUpdate has been modified, to store
+     * the changes. Caller must hold the write lock.
+     */
+    void updated(S record) {
+        put(record);
+    }
+
+    /**
+     * Removes the record with the same primary key as the given storable,
+     * returning it, or null if none.
+     */
+    abstract S remove(S key);
+
+    /**
+     * Removes the record with the same primary key as the given storable.
+     *
+     * @return false if record didn't exist
+     */
+    abstract boolean delete(S key);
+
+    abstract void clear();
+
+    abstract int size();
+
+    /**
+     * Returns all records in primary key order, starting at the records
+     * which match the given leading primary key values.
+     *
+     * @param startValues leading primary key values; pass null to start at
+     * the first record
+     * @param inclusive when true, start at the first record matching the
+     * start values; otherwise start after the last record matching them
+     * @param descending when true, iterate in descending order
+     */
+    abstract Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending);
+
+    /**
+     * Returns all records in primary key order, like {@link #values(Object[],
+     * boolean, boolean) values}, except encoded records only need to have
+     * the primary key and the projected properties decoded. By default, all
+     * properties are returned.
+     *
+     * @param projection optional names of the properties to decode
+     */
+    Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending,
+                       Set<String> projection)
+    {
+        return values(startValues, inclusive, descending);
+    }
+
+    /**
+     * Adds memory usage details to the given statistics.
+     */
+    abstract void addStatistics(MapStatistics stats);
+
+    /**
+     * Release any resources held by this map.
+     */
+    void close() {
+    }
+}
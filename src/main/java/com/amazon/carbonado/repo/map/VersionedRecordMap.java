@@ -0,0 +1,399 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.info.StorableInfo;
+
+/**
+ * Holds records on the heap as chains of versions, newest first, allowing
+ * snapshots to read without locks. Records are never modified in place;
+ * each change pushes a new version onto the chain, which is pending until
+ * its transaction commits. Versions which no snapshot can observe are
+ * reclaimed, and a deleted record's chain is removed entirely.
+ *
+ * <p>All changes are made while holding the storage write or upgrade lock,
+ * and so pending versions always belong to the one writer which holds it.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class VersionedRecordMap<S extends Storable> extends RecordMap<S> {
+    static final long PENDING = Long.MAX_VALUE;
+
+    private final ConcurrentNavigableMap<Key<S>, Version<S>> mMap;
+    private final KeyFactory<S> mKeys;
+    private final AtomicInteger mRecordCount;
+
+    // Keys with old versions, which are reclaimed as snapshots end.
+    private final ConcurrentSkipListSet<Key<S>> mRetained;
+
+    // Guarded by storage write or upgrade lock.
+    private final List<Key<S>> mPendingKeys;
+    private final List<Version<S>> mPendingVersions;
+    private List<Key<S>> mStampedKeys;
+
+    VersionedRecordMap(MapStorage<S> storage, StorableInfo<S> info) {
+        mMap = new ConcurrentSkipListMap<Key<S>, Version<S>>();
+        mKeys = new KeyFactory<S>(storage, info);
+        mRecordCount = new AtomicInteger();
+        mRetained = new ConcurrentSkipListSet<Key<S>>();
+        mPendingKeys = new ArrayList<Key<S>>();
+        mPendingVersions = new ArrayList<Version<S>>();
+    }
+
+    boolean isOffHeap() {
+        return false;
+    }
+
+    S get(S key) {
+        Version<S> head = mMap.get(mKeys.key(key));
+        return head == null ? null : head.mRecord;
+    }
+
+    boolean putIfAbsent(S record) {
+        if (get(record) != null) {
+            return false;
+        }
+        push(mKeys.key(record), record);
+        return true;
+    }
+
+    void put(S record) {
+        push(mKeys.key(record), record);
+    }
+
+    @Override
+    S forUpdate(S record) {
+        // Other snapshots might still observe the current version.
+        return (S) record.copy();
+    }
+
+    S remove(S key) {
+        S old = get(key);
+        if (old != null) {
+            // Key must not refer to the caller's instance, which can change.
+            push(mKeys.key(old), null);
+        }
+        return old;
+    }
+
+    boolean delete(S key) {
+        return remove(key) != null;
+    }
+
+    void clear() {
+        for (Version<S> head : mMap.values()) {
+            S old = head.mRecord;
+            if (old != null) {
+                push(mKeys.key(old), null);
+            }
+        }
+    }
+
+    int size() {
+        return mRecordCount.get();
+    }
+
+    Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending) {
+        return values(startValues, inclusive, descending, PENDING, true);
+    }
+
+    /**
+     * Returns a read-only view of the records as of the given snapshot
+     * version. The view doesn't require any locks.
+     *
+     * @param ownWrites when true, pending versions are visible, because the
+     * snapshot belongs to the writer which holds the storage write lock
+     */
+    RecordMap<S> view(long version, boolean ownWrites) {
+        return new View(version, ownWrites);
+    }
+
+    /**
+     * Returns true if the record with the given key has a committed version
+     * newer than the given snapshot version.
+     */
+    boolean isModifiedAfter(S key, long version) {
+        for (Version<S> v = mMap.get(mKeys.key(key)); v != null; v = v.mNext) {
+            if (v.mVersion != PENDING) {
+                return v.mVersion > version;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Assigns the given commit version to all pending versions. Caller must
+     * hold the storage write lock, and be synchronized with snapshot creation.
+     *
+     * @return false if nothing was pending
+     */
+    boolean stamp(long version) {
+        if (mPendingVersions.isEmpty()) {
+            return false;
+        }
+        for (Version<S> v : mPendingVersions) {
+            v.mVersion = version;
+        }
+        mPendingVersions.clear();
+        mStampedKeys = new ArrayList<Key<S>>(mPendingKeys);
+        mPendingKeys.clear();
+        return true;
+    }
+
+    /**
+     * Reclaims old versions of the records most recently stamped. Caller must
+     * hold the storage write lock.
+     *
+     * @param oldest oldest version which any snapshot can observe
+     */
+    void reclaimStamped(long oldest) {
+        List<Key<S>> keys = mStampedKeys;
+        if (keys != null) {
+            mStampedKeys = null;
+            for (Key<S> key : keys) {
+                reclaim(key, oldest);
+            }
+        }
+    }
+
+    /**
+     * Reclaims all old versions which no snapshot can observe.
+     *
+     * @param oldest oldest version which any snapshot can observe
+     */
+    void reclaim(long oldest) {
+        Iterator<Key<S>> it = mRetained.iterator();
+        while (it.hasNext()) {
+            if (reclaim(it.next(), oldest)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return true if key has no more old versions
+     */
+    private boolean reclaim(Key<S> key, long oldest) {
+        Version<S> head = mMap.get(key);
+        if (head == null) {
+            return true;
+        }
+        for (Version<S> v = head; v != null; v = v.mNext) {
+            if (v.mVersion <= oldest) {
+                // No snapshot can observe anything older.
+                v.mNext = null;
+                if (v == head) {
+                    if (v.mRecord == null) {
+                        // Remove deleted record, unless a new version was
+                        // concurrently pushed.
+                        mMap.remove(key, v);
+                    }
+                    return true;
+                }
+                break;
+            }
+        }
+        mRetained.add(key);
+        return false;
+    }
+
+    void addStatistics(MapStatistics stats) {
+        stats.mRecordCount = mRecordCount.get();
+
+        long versionCount = 0;
+        int maxLength = 1;
+        for (Key<S> key : mRetained) {
+            int length = 0;
+            for (Version<S> v = mMap.get(key); v != null; v = v.mNext) {
+                length++;
+            }
+            if (length > 0) {
+                versionCount += length - 1;
+                maxLength = Math.max(maxLength, length);
+            }
+        }
+
+        stats.mMultiversion = true;
+        stats.mOldVersionCount = versionCount;
+        stats.mMaxVersionChainLength = mMap.isEmpty() ? 0 : maxLength;
+    }
+
+    private void push(Key<S> key, S record) {
+        Version<S> head = mMap.get(key);
+        S old = head == null ? null : head.mRecord;
+        Version<S> version = new Version<S>(record, head);
+        mMap.put(key, version);
+        mPendingKeys.add(key);
+        mPendingVersions.add(version);
+        if (old == null) {
+            if (record != null) {
+                mRecordCount.incrementAndGet();
+            }
+        } else if (record == null) {
+            mRecordCount.decrementAndGet();
+        }
+    }
+
+    private Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending,
+                               final long version, final boolean ownWrites)
+    {
+        NavigableMap<Key<S>, Version<S>> map =
+            mKeys.tailMap(mMap, startValues, inclusive, descending);
+        if (map == null) {
+            return Collections.emptyList();
+        }
+
+        final Iterable<Version<S>> chains = map.values();
+
+        return new Iterable<S>() {
+            public Iterator<S> iterator() {
+                final Iterator<Version<S>> it = chains.iterator();
+
+                return new Iterator<S>() {
+                    private S mNext;
+
+                    public boolean hasNext() {
+                        while (mNext == null) {
+                            if (!it.hasNext()) {
+                                return false;
+                            }
+                            mNext = resolve(it.next(), version, ownWrites);
+                        }
+                        return true;
+                    }
+
+                    public S next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        S next = mNext;
+                        mNext = null;
+                        return next;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the newest record in the chain which is visible to the given
+     * snapshot version, or null if none.
+     */
+    private static <S extends Storable> S resolve(Version<S> head, long version,
+                                                  boolean ownWrites)
+    {
+        for (Version<S> v = head; v != null; v = v.mNext) {
+            long committed = v.mVersion;
+            if (committed == PENDING ? ownWrites : committed <= version) {
+                return v.mRecord;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One version of a record, which is null if deleted.
+     */
+    private static class Version<S extends Storable> {
+        final S mRecord;
+        volatile long mVersion;
+        volatile Version<S> mNext;
+
+        Version(S record, Version<S> next) {
+            mRecord = record;
+            mVersion = PENDING;
+            mNext = next;
+        }
+    }
+
+    /**
+     * Read-only view of the records as of a snapshot version.
+     */
+    private class View extends RecordMap<S> {
+        private final long mVersion;
+        private final boolean mOwnWrites;
+
+        View(long version, boolean ownWrites) {
+            mVersion = version;
+            mOwnWrites = ownWrites;
+        }
+
+        boolean isOffHeap() {
+            return false;
+        }
+
+        S get(S key) {
+            return resolve(mMap.get(mKeys.key(key)), mVersion, mOwnWrites);
+        }
+
+        boolean putIfAbsent(S record) {
+            throw new UnsupportedOperationException();
+        }
+
+        void put(S record) {
+            throw new UnsupportedOperationException();
+        }
+
+        S remove(S key) {
+            throw new UnsupportedOperationException();
+        }
+
+        boolean delete(S key) {
+            throw new UnsupportedOperationException();
+        }
+
+        void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        int size() {
+            int count = 0;
+            for (S record : values(null, true, false)) {
+                count++;
+            }
+            return count;
+        }
+
+        Iterable<S> values(Object[] startValues, boolean inclusive, boolean descending) {
+            return VersionedRecordMap.this.values
+                (startValues, inclusive, descending, mVersion, mOwnWrites);
+        }
+
+        void addStatistics(MapStatistics stats) {
+            VersionedRecordMap.this.addStatistics(stats);
+        }
+    }
+}
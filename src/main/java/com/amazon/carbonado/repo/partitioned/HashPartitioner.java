@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.Arrays;
+
+/**
+ * Partitioner which distributes partition key values evenly, by hashing
+ * them. Hash codes of strings, numbers, booleans, characters, byte arrays
+ * and enums are stable across processes. Values of other types must have
+ * stable hash codes too.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class HashPartitioner implements Partitioner {
+    public HashPartitioner() {
+    }
+
+    public int partitionFor(Object[] keyValues, int partitionCount) {
+        int hash = 0;
+        for (Object value : keyValues) {
+            hash = hash * 31 + hashCode(value);
+        }
+
+        // Spread the bits, since hash codes of small numbers are sequential.
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+
+        return (hash & 0x7fffffff) % partitionCount;
+    }
+
+    private static int hashCode(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[]) {
+            return Arrays.hashCode((byte[]) value);
+        }
+        if (value instanceof Enum) {
+            // Enum hash codes are identity based.
+            return ((Enum) value).name().hashCode();
+        }
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HashPartitioner";
+    }
+}
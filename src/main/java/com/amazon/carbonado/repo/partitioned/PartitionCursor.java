@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.FetchInterruptedException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.AbstractCursor;
+import com.amazon.carbonado.cursor.FeedCursor;
+
+/**
+ * Cursor which gathers the results of queries against partition members, in
+ * no particular order. With an executor, all queries are fetched in
+ * parallel by background threads, through a {@link FeedCursor}. Without an
+ * executor, queries are fetched one after the other by the calling thread.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class PartitionCursor<S extends Storable> extends AbstractCursor<S> {
+    private static final int QUEUE_CAPACITY = 100;
+
+    /**
+     * Waits for the result of a background task, translating its exception.
+     */
+    static <T> T await(Future<T> future) throws FetchException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new FetchInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw FeedCursor.toFetchException(e.getCause());
+        }
+    }
+
+    private final PartitionedStorage<S> mStorage;
+    private final List<Query<S>> mQueries;
+    private final Long mTo;
+    private final Query.Controller mController;
+
+    // Only used when fetching sequentially.
+    private int mNextQuery;
+    private Cursor<S> mCursor;
+
+    // Only used when fetching in parallel.
+    private final FeedCursor<S> mFeed;
+    private final List<Future<?>> mTasks;
+
+    private S mNext;
+
+    /**
+     * @param queries member queries to fetch from
+     * @param to optional slice end, which limits the results of each query
+     * @param controller optional controller which can abort query operation
+     * @param executor optional executor for fetching in parallel
+     */
+    PartitionCursor(PartitionedStorage<S> storage, List<Query<S>> queries, Long to,
+                    Query.Controller controller, ExecutorService executor)
+    {
+        mStorage = storage;
+        mQueries = queries;
+        mTo = to;
+        mController = controller;
+
+        if (executor == null) {
+            mFeed = null;
+            mTasks = null;
+        } else {
+            mFeed = new FeedCursor<S>(QUEUE_CAPACITY);
+            mTasks = new ArrayList<Future<?>>(queries.size());
+            for (Query<S> query : queries) {
+                Runnable task = mFeed.feed(new MemberQuery<S>(storage, query, to, controller));
+                mTasks.add(executor.submit(task));
+            }
+        }
+    }
+
+    public void close() throws FetchException {
+        mNext = null;
+        if (mFeed == null) {
+            Cursor<S> cursor = mCursor;
+            mNextQuery = mQueries.size();
+            if (cursor != null) {
+                mCursor = null;
+                cursor.close();
+            }
+        } else {
+            for (Future<?> task : mTasks) {
+                // Don't interrupt, since a member cursor might not tolerate
+                // it. Running tasks observe the closed state instead.
+                task.cancel(false);
+            }
+            mFeed.close();
+        }
+    }
+
+    public boolean hasNext() throws FetchException {
+        if (mNext != null) {
+            return true;
+        }
+        if (mFeed == null) {
+            return hasNextSequential();
+        }
+        if (mFeed.hasNext()) {
+            mNext = mFeed.next();
+            return true;
+        }
+        return false;
+    }
+
+    public S next() throws FetchException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        S next = mNext;
+        mNext = null;
+        return next;
+    }
+
+    private boolean hasNextSequential() throws FetchException {
+        while (true) {
+            Cursor<S> cursor = mCursor;
+            if (cursor == null) {
+                if (mNextQuery >= mQueries.size()) {
+                    return false;
+                }
+                mCursor = cursor = open(mQueries.get(mNextQuery++), mTo, mController);
+            }
+            if (cursor.hasNext()) {
+                mNext = mStorage.wrap(cursor.next());
+                return true;
+            }
+            mCursor = null;
+            cursor.close();
+        }
+    }
+
+    private static <S extends Storable> Cursor<S> open(Query<S> query, Long to,
+                                                       Query.Controller controller)
+        throws FetchException
+    {
+        if (to == null) {
+            return query.fetch(controller);
+        }
+        return query.fetchSlice(0, to, controller);
+    }
+
+    /**
+     * Member query which is fetched by a background thread.
+     */
+    private static class MemberQuery<S extends Storable> implements FeedCursor.Source<S> {
+        private final PartitionedStorage<S> mStorage;
+        private final Query<S> mQuery;
+        private final Long mTo;
+        private final Query.Controller mController;
+
+        MemberQuery(PartitionedStorage<S> storage, Query<S> query, Long to,
+                    Query.Controller controller)
+        {
+            mStorage = storage;
+            mQuery = query;
+            mTo = to;
+            mController = controller;
+        }
+
+        public Cursor<S> open() throws FetchException {
+            return mStorage.wrap(PartitionCursor.open(mQuery, mTo, mController));
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Storable;
+
+import com.amazon.carbonado.cursor.LimitCursor;
+import com.amazon.carbonado.cursor.SkipCursor;
+import com.amazon.carbonado.cursor.SortedCursor;
+import com.amazon.carbonado.cursor.UnionCursor;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+import com.amazon.carbonado.filter.PropertyFilter;
+import com.amazon.carbonado.filter.RelOp;
+
+import com.amazon.carbonado.qe.AbstractQueryExecutor;
+import com.amazon.carbonado.qe.OrderingList;
+import com.amazon.carbonado.qe.QueryPaginator;
+
+/**
+ * Executes queries against the members of a partitioned repository. If the
+ * query filter requires all partition key properties to be equal to
+ * specific values, the query is routed to the one member which can hold
+ * matching results. Otherwise, the query is sent to all members, and the
+ * results are gathered. Ordered results are merged by the query ordering,
+ * extended with the primary key to make it total.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class PartitionedQueryExecutor<S extends Storable> extends AbstractQueryExecutor<S> {
+    private final PartitionedStorage<S> mStorage;
+    private final Filter<S> mFilter;
+    private final OrderingList<S> mOrdering;
+    // Ordering of member queries, which is total if the results are ordered.
+    private final OrderingList<S> mMemberOrdering;
+
+    // Filters which select a single partition, or null if not routable.
+    private final PropertyFilter<S>[] mRouteFilters;
+
+    // Compares results from different partitions, or null if unordered.
+    private final Comparator<S> mComparator;
+
+    PartitionedQueryExecutor(PartitionedStorage<S> storage,
+                             Filter<S> filter, OrderingList<S> ordering)
+    {
+        if (filter == null) {
+            filter = Filter.getOpenFilter(storage.getStorableType());
+        }
+        if (ordering == null) {
+            ordering = OrderingList.emptyList();
+        }
+
+        mStorage = storage;
+        mFilter = filter;
+        mOrdering = ordering;
+        mRouteFilters = routeFilters(filter, storage.getPartitionKey());
+
+        if (ordering.size() == 0) {
+            mMemberOrdering = ordering;
+            mComparator = null;
+        } else {
+            // Merging with UnionCursor discards results which compare as
+            // equal, and so the ordering must be total. Members must produce
+            // results in the same total ordering, or else the merge can
+            // discard or misplace results which tie in the query ordering.
+            mMemberOrdering = QueryPaginator.totalOrdering(storage.getStorableType(), ordering);
+            mComparator = SortedCursor.createComparator(mMemberOrdering);
+        }
+    }
+
+    /**
+     * Returns filters which select the partition key property values, or
+     * null if the filter doesn't require specific values for all of them.
+     */
+    private static <S extends Storable> PropertyFilter<S>[] routeFilters(Filter<S> filter,
+                                                                        String[] partitionKey)
+    {
+        PropertyFilter<S>[] routeFilters = new PropertyFilter[partitionKey.length];
+
+        // Only conjuncts constrain all results, and so disjunctions are
+        // split apart first.
+        for (Filter<S> sub : filter.conjunctiveNormalFormSplit()) {
+            if (!(sub instanceof PropertyFilter)) {
+                continue;
+            }
+            PropertyFilter<S> propFilter = (PropertyFilter<S>) sub;
+            if (propFilter.getOperator() != RelOp.EQ
+                || propFilter.getChainedProperty().getChainCount() > 0)
+            {
+                continue;
+            }
+            String name = propFilter.getChainedProperty().getPrimeProperty().getName();
+            for (int i=0; i<partitionKey.length; i++) {
+                if (partitionKey[i].equals(name) && routeFilters[i] == null) {
+                    routeFilters[i] = propFilter;
+                }
+            }
+        }
+
+        for (PropertyFilter<S> propFilter : routeFilters) {
+            if (propFilter == null) {
+                return null;
+            }
+        }
+
+        return routeFilters;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mStorage.getStorableType();
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values) throws FetchException {
+        return fetch(values, null);
+    }
+
+    public Cursor<S> fetch(FilterValues<S> values, Query.Controller controller)
+        throws FetchException
+    {
+        int partition = routePartition(values);
+        if (partition >= 0) {
+            return mStorage.wrap(memberQuery(partition, values).fetch(controller));
+        }
+        return gather(values, null, controller);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to)
+        throws FetchException
+    {
+        return fetchSlice(values, from, to, null);
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(FilterValues<S> values, long from, Long to,
+                                Query.Controller controller)
+        throws FetchException
+    {
+        int partition = routePartition(values);
+        if (partition >= 0) {
+            return mStorage.wrap(memberQuery(partition, values).fetchSlice(from, to, controller));
+        }
+
+        // Each member need not produce more than the end of the slice.
+        Cursor<S> cursor = gather(values, to, controller);
+        if (from > 0) {
+            cursor = new SkipCursor<S>(cursor, from);
+        }
+        if (to != null) {
+            cursor = new LimitCursor<S>(cursor, to - from);
+        }
+        return cursor;
+    }
+
+    @Override
+    public long count(FilterValues<S> values) throws FetchException {
+        return count(values, null);
+    }
+
+    @Override
+    public long count(FilterValues<S> values, final Query.Controller controller)
+        throws FetchException
+    {
+        int partition = routePartition(values);
+        if (partition >= 0) {
+            return memberQuery(partition, values).count(controller);
+        }
+
+        int count = mStorage.getPartitionCount();
+        ExecutorService executor = mStorage.getScanExecutor();
+
+        if (executor == null) {
+            long total = 0;
+            for (int i=0; i<count; i++) {
+                total += memberQuery(i, values).count(controller);
+            }
+            return total;
+        }
+
+        List<Future<Long>> futures = new ArrayList<Future<Long>>(count);
+        try {
+            for (int i=0; i<count; i++) {
+                final Query<S> query = memberQuery(i, values);
+                futures.add(executor.submit(new Callable<Long>() {
+                    public Long call() throws FetchException {
+                        return query.count(controller);
+                    }
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += PartitionCursor.await(future);
+            }
+            return total;
+        } finally {
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public Filter<S> getFilter() {
+        return mFilter;
+    }
+
+    public OrderingList<S> getOrdering() {
+        return mOrdering;
+    }
+
+    public boolean printPlan(Appendable app, int indentLevel, FilterValues<S> values)
+        throws IOException
+    {
+        indent(app, indentLevel);
+        int partition = -1;
+        if (mRouteFilters != null) {
+            app.append("partition route: ");
+            app.append(mStorage.getPartitioner().toString());
+            app.append(" by ");
+            appendRouteFilters(app);
+            if (values != null) {
+                try {
+                    partition = routePartition(values);
+                } catch (IllegalStateException e) {
+                    // Values are blank.
+                }
+            }
+            if (partition >= 0) {
+                app.append(" to partition ");
+                app.append(String.valueOf(partition));
+            }
+        } else {
+            app.append("partition gather: ");
+            app.append(String.valueOf(mStorage.getPartitionCount()));
+            app.append(" partitions");
+            if (mComparator != null) {
+                app.append(", merged by ");
+                app.append(mMemberOrdering.toString());
+            }
+            if (mStorage.isParallelScans()) {
+                app.append(", in parallel");
+            }
+        }
+        newline(app);
+
+        // All members are expected to produce similar plans, and so only one
+        // is printed.
+        try {
+            Query<S> query = memberQuery(partition < 0 ? 0 : partition, values);
+            return query.printPlan(app, increaseIndent(indentLevel));
+        } catch (FetchException e) {
+            return true;
+        }
+    }
+
+    private void appendRouteFilters(Appendable app) throws IOException {
+        for (int i=0; i<mRouteFilters.length; i++) {
+            if (i > 0) {
+                app.append(" & ");
+            }
+            mRouteFilters[i].appendTo(app);
+        }
+    }
+
+    /**
+     * Returns the one partition to route to, or -1 if all partitions must be
+     * consulted.
+     */
+    private int routePartition(FilterValues<S> values) {
+        PropertyFilter<S>[] routeFilters = mRouteFilters;
+        if (routeFilters == null) {
+            return -1;
+        }
+        Object[] keyValues = new Object[routeFilters.length];
+        for (int i=0; i<keyValues.length; i++) {
+            PropertyFilter<S> propFilter = routeFilters[i];
+            if (propFilter.isConstant()) {
+                keyValues[i] = propFilter.constant();
+            } else {
+                if (values == null) {
+                    throw new IllegalStateException("Blank parameter: " + propFilter);
+                }
+                keyValues[i] = values.getAssignedValue(propFilter);
+            }
+        }
+        return mStorage.partitionFor(keyValues);
+    }
+
+    private Query<S> memberQuery(int partition, FilterValues<S> values) throws FetchException {
+        return mStorage.memberQuery(partition, mFilter, values, mMemberOrdering);
+    }
+
+    private Cursor<S> gather(FilterValues<S> values, Long to, Query.Controller controller)
+        throws FetchException
+    {
+        int count = mStorage.getPartitionCount();
+        ExecutorService executor = mStorage.getScanExecutor();
+
+        List<Query<S>> queries = new ArrayList<Query<S>>(count);
+        for (int i=0; i<count; i++) {
+            queries.add(memberQuery(i, values));
+        }
+
+        if (mComparator == null || count == 1) {
+            return new PartitionCursor<S>(mStorage, queries, to, controller, executor);
+        }
+
+        // Merge each partition with a balanced tree of union cursors.
+        List<Cursor<S>> cursors = new ArrayList<Cursor<S>>(count);
+        for (Query<S> query : queries) {
+            cursors.add(new PartitionCursor<S>
+                        (mStorage, Collections.singletonList(query), to, controller, executor));
+        }
+
+        while (cursors.size() > 1) {
+            List<Cursor<S>> merged = new ArrayList<Cursor<S>>((cursors.size() + 1) / 2);
+            for (int i=0; i<cursors.size(); i+=2) {
+                if (i + 1 < cursors.size()) {
+                    merged.add(new UnionCursor<S>
+                               (cursors.get(i), cursors.get(i + 1), mComparator));
+                } else {
+                    merged.add(cursors.get(i));
+                }
+            }
+            cursors = merged;
+        }
+
+        return cursors.get(0);
+    }
+}
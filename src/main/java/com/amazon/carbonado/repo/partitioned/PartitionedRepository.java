@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Transaction;
+import com.amazon.carbonado.TriggerFactory;
+
+import com.amazon.carbonado.capability.Capability;
+import com.amazon.carbonado.capability.GroupAccessCapability;
+import com.amazon.carbonado.capability.GroupMembers;
+
+import com.amazon.carbonado.sequence.SequenceCapability;
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+import com.amazon.carbonado.spi.StoragePool;
+
+/**
+ * Repository which partitions storables across member repositories.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see PartitionedRepositoryBuilder
+ */
+class PartitionedRepository implements Repository, GroupAccessCapability {
+    private final String mName;
+    private final boolean mIsMaster;
+    private final Repository[] mMembers;
+    private final Partitioner mPartitioner;
+    private final AtomicReference<Repository> mRootRef;
+    final Iterable<TriggerFactory> mTriggerFactories;
+
+    private final ExecutorService mScanExecutor;
+    private final StoragePool mStoragePool;
+    private final GroupMembers mGroupMembers;
+
+    PartitionedRepository(String name, boolean isMaster, List<Repository> members,
+                          Partitioner partitioner, boolean parallelScans,
+                          AtomicReference<Repository> rootRef,
+                          Iterable<TriggerFactory> triggerFactories)
+    {
+        mName = name;
+        mIsMaster = isMaster;
+        mMembers = members.toArray(new Repository[members.size()]);
+        mPartitioner = partitioner;
+        mRootRef = rootRef;
+        mTriggerFactories = triggerFactories;
+
+        if (parallelScans && mMembers.length > 1) {
+            // Scans block on slow consumers, and so threads are not pooled
+            // to a fixed size. Otherwise, a consumer could wait forever for
+            // a scan which is queued behind the scans of another consumer.
+            mScanExecutor = Executors.newCachedThreadPool(new ScanThreadFactory(name));
+        } else {
+            mScanExecutor = null;
+        }
+
+        mStoragePool = new StoragePool() {
+            @Override
+            protected <S extends Storable> Storage<S> createStorage(Class<S> type)
+                throws RepositoryException
+            {
+                return new PartitionedStorage<S>(PartitionedRepository.this, type);
+            }
+        };
+
+        final SortedMap<Object, Repository> map = new TreeMap<Object, Repository>();
+        for (int i=0; i<mMembers.length; i++) {
+            map.put(i, mMembers[i]);
+        }
+        final SortedMap<Object, Repository> unmodifiable = Collections.unmodifiableSortedMap(map);
+
+        mGroupMembers = new GroupMembers() {
+            public SortedMap<Object, Repository> getReadWriteMembers() {
+                return unmodifiable;
+            }
+        };
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public <S extends Storable> Storage<S> storageFor(Class<S> type)
+        throws SupportException, RepositoryException
+    {
+        return mStoragePool.get(type);
+    }
+
+    public Transaction enterTransaction() {
+        return enterTransaction(null);
+    }
+
+    public Transaction enterTransaction(IsolationLevel level) {
+        return enterTransaction(level, false);
+    }
+
+    public Transaction enterTopTransaction(IsolationLevel level) {
+        return enterTransaction(level, true);
+    }
+
+    private Transaction enterTransaction(IsolationLevel level, boolean top) {
+        Transaction[] txns = new Transaction[mMembers.length];
+        int i = 0;
+        try {
+            for (; i<txns.length; i++) {
+                txns[i] = top ? mMembers[i].enterTopTransaction(level)
+                    : mMembers[i].enterTransaction(level);
+            }
+        } finally {
+            if (i < txns.length) {
+                // Exit partially entered transactions, in reverse order.
+                while (--i >= 0) {
+                    try {
+                        txns[i].exit();
+                    } catch (Exception e) {
+                        // Ignore, since the original exception is propagated.
+                    }
+                }
+            }
+        }
+        return new PartitionedTransaction(txns);
+    }
+
+    public IsolationLevel getTransactionIsolationLevel() {
+        // All member transactions are entered together, and so any member
+        // reflects the current transaction scope.
+        IsolationLevel level = mMembers[0].getTransactionIsolationLevel();
+        for (int i=1; i<mMembers.length && level != null; i++) {
+            IsolationLevel memberLevel = mMembers[i].getTransactionIsolationLevel();
+            if (memberLevel != null) {
+                level = level.lowestCommon(memberLevel);
+            }
+        }
+        return level;
+    }
+
+    public <C extends Capability> C getCapability(Class<C> capabilityType) {
+        if (capabilityType.isInstance(this)) {
+            return (C) this;
+        }
+        return null;
+    }
+
+    public void close() {
+        if (mScanExecutor != null) {
+            mScanExecutor.shutdownNow();
+        }
+        for (Repository member : mMembers) {
+            member.close();
+        }
+    }
+
+    public GroupMembers getGroupMembers() {
+        return mGroupMembers;
+    }
+
+    boolean isMaster() {
+        return mIsMaster;
+    }
+
+    Repository getRootRepository() {
+        return mRootRef.get();
+    }
+
+    int getPartitionCount() {
+        return mMembers.length;
+    }
+
+    Repository getMember(int partition) {
+        return mMembers[partition];
+    }
+
+    Partitioner getPartitioner() {
+        return mPartitioner;
+    }
+
+    /**
+     * Returns the executor for scanning members in parallel, or null if not
+     * supported or if the current thread is in a transaction.
+     */
+    ExecutorService getScanExecutor() {
+        if (mScanExecutor == null || mMembers[0].getTransactionIsolationLevel() != null) {
+            return null;
+        }
+        return mScanExecutor;
+    }
+
+    /**
+     * Sequences are always produced by the first member, so that values are
+     * unique across all partitions.
+     */
+    SequenceValueProducer getSequenceValueProducer(String name) throws RepositoryException {
+        SequenceCapability cap = mMembers[0].getCapability(SequenceCapability.class);
+        if (cap == null) {
+            throw new RepositoryException
+                ("Sequences are not supported by first member repository: " + mMembers[0]);
+        }
+        return cap.getSequenceValueProducer(name);
+    }
+
+    private static class ScanThreadFactory implements ThreadFactory {
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        ScanThreadFactory(String name) {
+            mPrefix = "Carbonado partition scan " + name + ' ';
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, mPrefix + mCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazon.carbonado.ConfigurationException;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryBuilder;
+import com.amazon.carbonado.RepositoryException;
+
+import com.amazon.carbonado.spi.AbstractRepositoryBuilder;
+
+/**
+ * Builds a repository which partitions storables across member
+ * repositories. Each storable is persisted in exactly one member, selected by
+ * a {@link Partitioner} from the values of its {@link
+ * com.amazon.carbonado.PartitionKey partition key} properties. Types without
+ * a partition key are partitioned by primary key. Partition key properties
+ * must be members of the primary key, so that loads by primary key can be
+ * routed to a single member.
+ *
+ * <p>Queries which match partition key properties by equality, within a
+ * single conjunction, are routed to one member. All other queries are sent
+ * to every member, and their results are gathered. Ordered results are
+ * merged, preserving the query ordering. Outside of a transaction, members
+ * are scanned in parallel.
+ *
+ * <p>Transactions span all members, but they are not atomic across
+ * them. Members are committed one at a time, and so a failure can leave some
+ * members committed and others not. Operations within a transaction are
+ * never run in parallel, since member transactions are bound to the thread
+ * which entered them.
+ *
+ * <p>
+ * The following extra capabilities are supported:
+ * <ul>
+ * <li>{@link com.amazon.carbonado.capability.GroupAccessCapability GroupAccessCapability}
+ * </ul>
+ *
+ * Example:
+ *
+ * <pre>
+ * PartitionedRepositoryBuilder builder = new PartitionedRepositoryBuilder();
+ * builder.setName("users");
+ * builder.addMemberRepositoryBuilder(...);
+ * builder.addMemberRepositoryBuilder(...);
+ * Repository repo = builder.build();
+ * </pre>
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class PartitionedRepositoryBuilder extends AbstractRepositoryBuilder {
+    private String mName;
+    private boolean mIsMaster = true;
+    private final List<RepositoryBuilder> mMemberBuilders;
+    private Partitioner mPartitioner;
+    private boolean mParallelScans = true;
+
+    public PartitionedRepositoryBuilder() {
+        mMemberBuilders = new ArrayList<RepositoryBuilder>();
+    }
+
+    public Repository build(AtomicReference<Repository> rootRef) throws RepositoryException {
+        assertReady();
+
+        List<Repository> members = new ArrayList<Repository>(mMemberBuilders.size());
+        boolean success = false;
+        try {
+            for (RepositoryBuilder builder : mMemberBuilders) {
+                boolean originalOption = builder.isMaster();
+                try {
+                    builder.setMaster(mIsMaster);
+                    // Each member is its own root, since it only ever sees
+                    // operations routed to it.
+                    members.add(builder.build(new AtomicReference<Repository>()));
+                } finally {
+                    builder.setMaster(originalOption);
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (Repository member : members) {
+                    member.close();
+                }
+            }
+        }
+
+        Partitioner partitioner = mPartitioner;
+        if (partitioner == null) {
+            partitioner = new HashPartitioner();
+        }
+
+        Repository repo = new PartitionedRepository
+            (getName(), mIsMaster, members, partitioner, mParallelScans,
+             rootRef, getTriggerFactories());
+        rootRef.set(repo);
+        return repo;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public void setName(String name) {
+        mName = name;
+    }
+
+    public boolean isMaster() {
+        return mIsMaster;
+    }
+
+    public void setMaster(boolean b) {
+        mIsMaster = b;
+    }
+
+    /**
+     * Adds a member repository. Members are numbered in the order they are
+     * added, starting from zero, and the order must not change once
+     * storables have been persisted.
+     */
+    public void addMemberRepositoryBuilder(RepositoryBuilder builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Null member repository builder");
+        }
+        mMemberBuilders.add(builder);
+    }
+
+    /**
+     * Returns the member repository builders, in partition order.
+     */
+    public List<RepositoryBuilder> getMemberRepositoryBuilders() {
+        return new ArrayList<RepositoryBuilder>(mMemberBuilders);
+    }
+
+    /**
+     * Set the partitioner which maps partition key values to members. If
+     * null, a {@link HashPartitioner} is used.
+     */
+    public void setPartitioner(Partitioner partitioner) {
+        mPartitioner = partitioner;
+    }
+
+    /**
+     * Returns the partitioner which maps partition key values to members, or
+     * null if the default is used.
+     */
+    public Partitioner getPartitioner() {
+        return mPartitioner;
+    }
+
+    /**
+     * By default, queries which aren't routed to a single member scan all
+     * members in parallel, when not in a transaction. Pass false to always
+     * scan members one at a time.
+     */
+    public void setParallelScans(boolean parallel) {
+        mParallelScans = parallel;
+    }
+
+    /**
+     * Returns true if queries scan members in parallel, when not in a
+     * transaction.
+     */
+    public boolean isParallelScans() {
+        return mParallelScans;
+    }
+
+    @Override
+    public void errorCheck(Collection<String> messages) throws ConfigurationException {
+        super.errorCheck(messages);
+        if (null == getName()) {
+            messages.add("name missing");
+        }
+        if (mMemberBuilders.isEmpty()) {
+            messages.add("at least one member repository builder is required");
+        }
+        if (mPartitioner instanceof RangePartitioner) {
+            int count = ((RangePartitioner) mPartitioner).getPartitionCount();
+            if (count != mMemberBuilders.size()) {
+                messages.add("range partitioner requires " + count +
+                             " member repositories, but " + mMemberBuilders.size() +
+                             " are added");
+            }
+        }
+    }
+}
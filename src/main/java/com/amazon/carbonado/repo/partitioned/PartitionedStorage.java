@@ -0,0 +1,534 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ExecutorService;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Transaction;
+import com.amazon.carbonado.Trigger;
+
+import com.amazon.carbonado.cursor.TransformedCursor;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+import com.amazon.carbonado.gen.DelegateStorableGenerator;
+import com.amazon.carbonado.gen.DelegateSupport;
+import com.amazon.carbonado.gen.MasterFeature;
+
+import com.amazon.carbonado.info.ChainedProperty;
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableKey;
+import com.amazon.carbonado.info.StorableProperty;
+
+import com.amazon.carbonado.qe.OrderingList;
+import com.amazon.carbonado.qe.QueryExecutor;
+import com.amazon.carbonado.qe.QueryExecutorCache;
+import com.amazon.carbonado.qe.QueryExecutorFactory;
+import com.amazon.carbonado.qe.QueryFactory;
+import com.amazon.carbonado.qe.QueryHints;
+import com.amazon.carbonado.qe.StandardQuery;
+import com.amazon.carbonado.qe.StandardQueryFactory;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+import com.amazon.carbonado.spi.StorableUpsert;
+import com.amazon.carbonado.spi.TriggerManager;
+
+import com.amazon.carbonado.util.QuickConstructorGenerator;
+
+/**
+ * Storage which routes each storable to the member storage selected by its
+ * partition key. Storables prepared by this storage delegate persistence
+ * operations to storables prepared by the selected member.
+ *
+ * @author Brian S O'Neill
+ */
+class PartitionedStorage<S extends Storable>
+    implements Storage<S>, DelegateSupport<S>, QueryExecutorFactory<S>
+{
+    private final PartitionedRepository mRepo;
+    private final StorableInfo<S> mInfo;
+    private final String[] mPartitionKey;
+    private final Storage<S>[] mMembers;
+    private final TriggerManager<S> mTriggers;
+    private final InstanceFactory mInstanceFactory;
+    private final PartitionedQueryFactory mQueryFactory;
+    private final QueryExecutorFactory<S> mExecutorFactory;
+
+    PartitionedStorage(PartitionedRepository repo, Class<S> type) throws RepositoryException {
+        mRepo = repo;
+        mInfo = StorableIntrospector.examine(type);
+        mPartitionKey = partitionKey(mInfo);
+
+        int count = repo.getPartitionCount();
+        mMembers = new Storage[count];
+        for (int i=0; i<count; i++) {
+            mMembers[i] = repo.getMember(i).storageFor(type);
+        }
+
+        mTriggers = new TriggerManager<S>();
+
+        // Versioning and normalization are performed by the members.
+        EnumSet<MasterFeature> features;
+        if (repo.isMaster()) {
+            features = EnumSet.of(MasterFeature.INSERT_SEQUENCES);
+        } else {
+            features = EnumSet.noneOf(MasterFeature.class);
+        }
+
+        Class<? extends S> delegateStorableClass =
+            DelegateStorableGenerator.getDelegateClass(type, features);
+
+        mInstanceFactory = QuickConstructorGenerator
+            .getInstance(delegateStorableClass, InstanceFactory.class);
+
+        mQueryFactory = new PartitionedQueryFactory(type);
+        mExecutorFactory = new QueryExecutorCache<S>(this);
+
+        // Don't install automatic triggers until we're completely ready.
+        mTriggers.addTriggers(type, repo.mTriggerFactories);
+    }
+
+    /**
+     * Returns the names of the partition key properties, which default to
+     * the primary key properties.
+     */
+    private static <S extends Storable> String[] partitionKey(StorableInfo<S> info)
+        throws SupportException
+    {
+        StorableKey<S> key = info.getPartitionKey();
+        if (key == null || key.getProperties().isEmpty()) {
+            key = info.getPrimaryKey();
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (OrderedProperty<S> property : key.getProperties()) {
+            ChainedProperty<S> chained = property.getChainedProperty();
+            StorableProperty<S> prime = chained.getPrimeProperty();
+            if (chained.getChainCount() > 0 || !prime.isPrimaryKeyMember()) {
+                throw new SupportException
+                    ("Partition key property must be a member of the primary key: " +
+                     chained + " of " + info.getStorableType().getName());
+            }
+            names.add(prime.getName());
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    public Class<S> getStorableType() {
+        return mInfo.getStorableType();
+    }
+
+    public S prepare() {
+        return (S) mInstanceFactory.instantiate(this);
+    }
+
+    public Query<S> query() throws FetchException {
+        return mQueryFactory.query();
+    }
+
+    public Query<S> query(String filter) throws FetchException {
+        return mQueryFactory.query(filter);
+    }
+
+    public Query<S> query(Filter<S> filter) throws FetchException {
+        return mQueryFactory.query(filter);
+    }
+
+    public void truncate() throws PersistException {
+        if (mTriggers.getDeleteTrigger() != null) {
+            // Delete triggers must run for each storable.
+            try {
+                query().deleteAll();
+            } catch (FetchException e) {
+                throw e.toPersistException();
+            }
+            return;
+        }
+        for (Storage<S> member : mMembers) {
+            member.truncate();
+        }
+    }
+
+    public void upsert(S storable) throws PersistException {
+        if (mTriggers.getInsertTrigger() != null || mTriggers.getUpdateTrigger() != null ||
+            !StorableUpsert.isDirectAllowed(storable))
+        {
+            StorableUpsert.insertOrUpdate(getRootRepository(), storable);
+            return;
+        }
+
+        Storage<S> member = mMembers[partitionFor(storable)];
+        S memberStorable = member.prepare();
+        storable.copyPrimaryKeyProperties(memberStorable);
+        storable.copyDirtyProperties(memberStorable);
+        member.upsert(memberStorable);
+        storable.markAllPropertiesClean();
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        // Group storables by partition, and load each group with one call to
+        // the member storage.
+        List<S>[] targets = new List[mMembers.length];
+        List<S>[] memberStorables = new List[mMembers.length];
+        Map<S, Object> missing = new IdentityHashMap<S, Object>();
+
+        for (S storable : storables) {
+            if (!isPartitionKeyInitialized(storable)) {
+                continue;
+            }
+            int partition = partitionFor(storable);
+            if (targets[partition] == null) {
+                targets[partition] = new ArrayList<S>();
+                memberStorables[partition] = new ArrayList<S>();
+            }
+            S memberStorable = mMembers[partition].prepare();
+            storable.copyAllProperties(memberStorable);
+            targets[partition].add(storable);
+            memberStorables[partition].add(memberStorable);
+        }
+
+        Trigger<? super S> trigger = getLoadTrigger();
+
+        for (int p=0; p<mMembers.length; p++) {
+            if (targets[p] == null) {
+                continue;
+            }
+
+            Map<S, Object> memberMissing = new IdentityHashMap<S, Object>();
+            for (S memberStorable : mMembers[p].tryLoadAll(memberStorables[p])) {
+                memberMissing.put(memberStorable, memberStorable);
+            }
+
+            List<S> group = targets[p];
+            for (int i=0; i<group.size(); i++) {
+                S storable = group.get(i);
+                S memberStorable = memberStorables[p].get(i);
+                if (memberMissing.containsKey(memberStorable)) {
+                    missing.put(storable, storable);
+                    continue;
+                }
+                storable.markAllPropertiesDirty();
+                memberStorable.copyAllProperties(storable);
+                storable.markAllPropertiesClean();
+                if (trigger != null) {
+                    trigger.afterLoad(storable);
+                    // In case trigger modified the properties, make sure they're still clean.
+                    storable.markAllPropertiesClean();
+                }
+            }
+        }
+
+        List<S> missingList = new ArrayList<S>(missing.size());
+        for (S storable : storables) {
+            if (missing.containsKey(storable)) {
+                missingList.add(storable);
+            } else if (!isPartitionKeyInitialized(storable) && !storable.tryLoad()) {
+                // Loading by alternate key, which can be in any partition.
+                missingList.add(storable);
+            }
+        }
+
+        return missingList;
+    }
+
+    public boolean addTrigger(Trigger<? super S> trigger) {
+        return mTriggers.addTrigger(trigger);
+    }
+
+    public boolean removeTrigger(Trigger<? super S> trigger) {
+        return mTriggers.removeTrigger(trigger);
+    }
+
+    public boolean doTryLoad(S storable) throws FetchException {
+        if (isPartitionKeyInitialized(storable)) {
+            return doTryLoad(mMembers[partitionFor(storable)], storable);
+        }
+        // Loading by alternate key, which can be in any partition.
+        for (Storage<S> member : mMembers) {
+            if (doTryLoad(member, storable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean doTryLoad(Storage<S> member, S storable) throws FetchException {
+        S memberStorable = member.prepare();
+        storable.copyAllProperties(memberStorable);
+        if (!memberStorable.tryLoad()) {
+            return false;
+        }
+        storable.markAllPropertiesDirty();
+        memberStorable.copyAllProperties(storable);
+        storable.markAllPropertiesClean();
+        return true;
+    }
+
+    public boolean doTryInsert(S storable) throws PersistException {
+        S memberStorable = mMembers[partitionFor(storable)].prepare();
+        storable.copyAllProperties(memberStorable);
+        if (!memberStorable.tryInsert()) {
+            return false;
+        }
+        // Copy back any properties altered by the member, like the version.
+        memberStorable.copyUnequalProperties(storable);
+        return true;
+    }
+
+    public boolean doTryUpdate(S storable) throws PersistException {
+        S memberStorable = mMembers[partitionFor(storable)].prepare();
+        storable.copyPrimaryKeyProperties(memberStorable);
+        storable.copyVersionProperty(memberStorable);
+        storable.copyDirtyProperties(memberStorable);
+        if (!memberStorable.tryUpdate()) {
+            return false;
+        }
+        // Member update loads all properties. Primary key cannot be altered
+        // during update, and so only copy unequal properties.
+        memberStorable.copyUnequalProperties(storable);
+        return true;
+    }
+
+    public boolean doTryDelete(S storable) throws PersistException {
+        S memberStorable = mMembers[partitionFor(storable)].prepare();
+        storable.copyPrimaryKeyProperties(memberStorable);
+        return memberStorable.tryDelete();
+    }
+
+    public Repository getRootRepository() {
+        return mRepo.getRootRepository();
+    }
+
+    public boolean isPropertySupported(String propertyName) {
+        return mInfo.getAllProperties().containsKey(propertyName);
+    }
+
+    public Trigger<? super S> getInsertTrigger() {
+        return mTriggers.getInsertTrigger();
+    }
+
+    public Trigger<? super S> getUpdateTrigger() {
+        return mTriggers.getUpdateTrigger();
+    }
+
+    public Trigger<? super S> getDeleteTrigger() {
+        return mTriggers.getDeleteTrigger();
+    }
+
+    public Trigger<? super S> getLoadTrigger() {
+        return mTriggers.getLoadTrigger();
+    }
+
+    public void locallyDisableLoadTrigger() {
+        mTriggers.locallyDisableLoad();
+    }
+
+    public void locallyEnableLoadTrigger() {
+        mTriggers.locallyEnableLoad();
+    }
+
+    public SequenceValueProducer getSequenceValueProducer(String name) throws PersistException {
+        try {
+            return mRepo.getSequenceValueProducer(name);
+        } catch (RepositoryException e) {
+            throw e.toPersistException();
+        }
+    }
+
+    public QueryExecutor<S> executor(Filter<S> filter, OrderingList<S> ordering, QueryHints hints)
+    {
+        return new PartitionedQueryExecutor<S>(this, filter, ordering);
+    }
+
+    String[] getPartitionKey() {
+        return mPartitionKey;
+    }
+
+    Partitioner getPartitioner() {
+        return mRepo.getPartitioner();
+    }
+
+    int getPartitionCount() {
+        return mMembers.length;
+    }
+
+    boolean isParallelScans() {
+        return mRepo.getScanExecutor() != null;
+    }
+
+    ExecutorService getScanExecutor() {
+        return mRepo.getScanExecutor();
+    }
+
+    /**
+     * Returns the partition for the given partition key values.
+     */
+    int partitionFor(Object[] keyValues) {
+        int partition = mRepo.getPartitioner().partitionFor(keyValues, mMembers.length);
+        if (partition < 0 || partition >= mMembers.length) {
+            throw new IllegalStateException
+                ("Partitioner returned illegal partition: " + partition);
+        }
+        return partition;
+    }
+
+    private int partitionFor(S storable) {
+        Object[] keyValues = new Object[mPartitionKey.length];
+        for (int i=0; i<keyValues.length; i++) {
+            keyValues[i] = storable.getPropertyValue(mPartitionKey[i]);
+        }
+        return partitionFor(keyValues);
+    }
+
+    private boolean isPartitionKeyInitialized(S storable) {
+        for (String name : mPartitionKey) {
+            if (storable.isPropertyUninitialized(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a query against a member, with the given filter values and
+     * ordering applied.
+     *
+     * @param values optional filter values
+     */
+    Query<S> memberQuery(int partition, Filter<S> filter, FilterValues<S> values,
+                         OrderingList<S> ordering)
+        throws FetchException
+    {
+        Query<S> query = mMembers[partition].query(filter);
+        if (values != null) {
+            query = query.withValues(values.getSuppliedValuesFor(filter));
+        }
+        if (ordering.size() > 0) {
+            String[] names = new String[ordering.size()];
+            for (int i=0; i<names.length; i++) {
+                names[i] = ordering.get(i).toString();
+            }
+            query = query.orderBy(names);
+        }
+        return query;
+    }
+
+    /**
+     * Returns a storable prepared by this storage, with all the properties of
+     * the given member storable. The load trigger is run, if any.
+     */
+    S wrap(S memberStorable) throws FetchException {
+        S storable = prepare();
+        memberStorable.copyAllProperties(storable);
+        storable.markAllPropertiesClean();
+        Trigger<? super S> trigger = getLoadTrigger();
+        if (trigger != null) {
+            trigger.afterLoad(storable);
+            // In case trigger modified the properties, make sure they're still clean.
+            storable.markAllPropertiesClean();
+        }
+        return storable;
+    }
+
+    Cursor<S> wrap(Cursor<S> memberCursor) {
+        return new TransformedCursor<S, S>(memberCursor) {
+            @Override
+            protected S transform(S memberStorable) throws FetchException {
+                return wrap(memberStorable);
+            }
+        };
+    }
+
+    public static interface InstanceFactory {
+        Storable instantiate(DelegateSupport support);
+    }
+
+    private class PartitionedQueryFactory extends StandardQueryFactory<S> {
+        PartitionedQueryFactory(Class<S> type) {
+            super(type);
+        }
+
+        @Override
+        protected StandardQuery<S> createQuery(Filter<S> filter,
+                                               FilterValues<S> values,
+                                               OrderingList<S> ordering,
+                                               QueryHints hints)
+        {
+            return new PartitionedQuery(filter, values, ordering, hints);
+        }
+    }
+
+    private class PartitionedQuery extends StandardQuery<S> {
+        PartitionedQuery(Filter<S> filter,
+                         FilterValues<S> values,
+                         OrderingList<S> ordering,
+                         QueryHints hints)
+        {
+            super(filter, values, ordering, hints);
+        }
+
+        @Override
+        protected Transaction enterTransaction(IsolationLevel level) {
+            return getRootRepository().enterTransaction(level);
+        }
+
+        @Override
+        protected QueryFactory<S> queryFactory() {
+            return mQueryFactory;
+        }
+
+        @Override
+        protected QueryExecutorFactory<S> executorFactory() {
+            return mExecutorFactory;
+        }
+
+        @Override
+        protected StandardQuery<S> newInstance(FilterValues<S> values,
+                                               OrderingList<S> ordering,
+                                               QueryHints hints)
+        {
+            return new PartitionedQuery(values.getFilter(), values, ordering, hints);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Transaction;
+
+/**
+ * Transaction which spans a transaction in each member repository. Commits
+ * are not atomic across members, but every member is pre-committed before
+ * any is committed, reducing the chance of a partial commit.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class PartitionedTransaction implements Transaction {
+    private final Transaction[] mTxns;
+
+    PartitionedTransaction(Transaction[] txns) {
+        mTxns = txns;
+    }
+
+    public void commit() throws PersistException {
+        for (Transaction txn : mTxns) {
+            txn.preCommit();
+        }
+        for (Transaction txn : mTxns) {
+            txn.commit();
+        }
+    }
+
+    public void exit() throws PersistException {
+        PersistException error = null;
+        for (int i=mTxns.length; --i>=0; ) {
+            try {
+                mTxns[i].exit();
+            } catch (PersistException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public void setForUpdate(boolean forUpdate) {
+        for (Transaction txn : mTxns) {
+            txn.setForUpdate(forUpdate);
+        }
+    }
+
+    public boolean isForUpdate() {
+        return mTxns[0].isForUpdate();
+    }
+
+    public void setDesiredLockTimeout(int timeout, TimeUnit unit) {
+        for (Transaction txn : mTxns) {
+            txn.setDesiredLockTimeout(timeout, unit);
+        }
+    }
+
+    /**
+     * Returns the lowest isolation level of all member transactions.
+     */
+    public IsolationLevel getIsolationLevel() {
+        IsolationLevel level = mTxns[0].getIsolationLevel();
+        for (int i=1; i<mTxns.length && level != null; i++) {
+            level = level.lowestCommon(mTxns[i].getIsolationLevel());
+        }
+        return level;
+    }
+
+    public void detach() {
+        for (Transaction txn : mTxns) {
+            txn.detach();
+        }
+    }
+
+    public void attach() {
+        for (Transaction txn : mTxns) {
+            txn.attach();
+        }
+    }
+
+    public boolean preCommit() throws PersistException {
+        boolean result = true;
+        for (Transaction txn : mTxns) {
+            result &= txn.preCommit();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("PartitionedTransaction {members=[");
+        for (int i=0; i<mTxns.length; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(mTxns[i]);
+        }
+        return b.append("]}").toString();
+    }
+}
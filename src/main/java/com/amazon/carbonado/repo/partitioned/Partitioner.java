@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+/**
+ * Maps partition key values to member repositories of a partitioned
+ * repository. Implementations must be deterministic and stable across
+ * processes, since the partition selected for a storable determines where it
+ * is persisted.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see PartitionedRepositoryBuilder#setPartitioner
+ */
+public interface Partitioner {
+    /**
+     * Returns the partition for the given partition key values.
+     *
+     * @param keyValues value of each partition key property, in the order
+     * defined by the partition key
+     * @param partitionCount total number of partitions, which is at least one
+     * @return partition number, from zero to partitionCount - 1
+     */
+    int partitionFor(Object[] keyValues, int partitionCount);
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.partitioned;
+
+import java.util.Arrays;
+
+/**
+ * Partitioner which maps ranges of the first partition key property value to
+ * partitions. Partition <i>n</i> holds values which are at least split point
+ * <i>n-1</i> and less than split point <i>n</i>. Null values are considered
+ * to be higher than all others, and so they belong to the last partition.
+ *
+ * <p>Example:<pre>
+ * // Three partitions: [.. "h"), ["h" .. "p"), ["p" ..]
+ * builder.setPartitioner(new RangePartitioner("h", "p"));
+ * </pre>
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class RangePartitioner implements Partitioner {
+    private final Comparable[] mSplitPoints;
+
+    /**
+     * @param splitPoints ascending split points, one less than the number of
+     * partitions, and of the same type as the first partition key property
+     * @throws IllegalArgumentException if any split point is null or if they
+     * aren't strictly ascending
+     */
+    public RangePartitioner(Comparable... splitPoints) {
+        if (splitPoints == null) {
+            splitPoints = new Comparable[0];
+        }
+        for (int i=0; i<splitPoints.length; i++) {
+            if (splitPoints[i] == null) {
+                throw new IllegalArgumentException("Null split point");
+            }
+            if (i > 0 && splitPoints[i - 1].compareTo(splitPoints[i]) >= 0) {
+                throw new IllegalArgumentException
+                    ("Split points must be strictly ascending: " + Arrays.toString(splitPoints));
+            }
+        }
+        mSplitPoints = splitPoints.clone();
+    }
+
+    /**
+     * Returns the number of partitions required by this partitioner, which is
+     * one more than the number of split points.
+     */
+    public int getPartitionCount() {
+        return mSplitPoints.length + 1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if partitionCount doesn't match the
+     * number of split points
+     */
+    public int partitionFor(Object[] keyValues, int partitionCount) {
+        if (partitionCount != getPartitionCount()) {
+            throw new IllegalArgumentException
+                ("Partition count must be " + getPartitionCount() + ": " + partitionCount);
+        }
+
+        Object value = keyValues[0];
+        if (value == null) {
+            return partitionCount - 1;
+        }
+
+        int low = 0;
+        int high = mSplitPoints.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = mSplitPoints[mid].compareTo(value);
+            if (c <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    @Override
+    public String toString() {
+        return "RangePartitioner " + Arrays.toString(mSplitPoints);
+    }
+}
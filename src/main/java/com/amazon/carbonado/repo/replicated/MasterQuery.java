@@ -0,0 +1,458 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.repo.replicated;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.PersistMultipleException;
+import com.amazon.carbonado.PersistNoneException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.cursor.TransformedCursor;
+
+import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
+
+/**
+ * Query which is served by the master, for use when the replica is bounded
+ * and might not hold every record. Results are copied into replica
+ * storables, and so updates and deletes go through the replication trigger.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ * @see com.amazon.carbonado.capability.MapEvictionCapability
+ */
+class MasterQuery<S extends Storable> implements Query<S> {
+    private final Repository mRepository;
+    private final Storage<S> mReplicaStorage;
+    private final Query<S> mQuery;
+
+    MasterQuery(Repository repository, Storage<S> replicaStorage, Query<S> masterQuery) {
+        mRepository = repository;
+        mReplicaStorage = replicaStorage;
+        mQuery = masterQuery;
+    }
+
+    @Override
+    public Class<S> getStorableType() {
+        return mQuery.getStorableType();
+    }
+
+    @Override
+    public Filter<S> getFilter() {
+        return mQuery.getFilter();
+    }
+
+    @Override
+    public FilterValues<S> getFilterValues() {
+        return mQuery.getFilterValues();
+    }
+
+    @Override
+    public int getBlankParameterCount() {
+        return mQuery.getBlankParameterCount();
+    }
+
+    @Override
+    public Query<S> with(int value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(long value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(float value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(double value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(boolean value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(char value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(byte value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(short value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> with(Object value) {
+        return newInstance(mQuery.with(value));
+    }
+
+    @Override
+    public Query<S> withValues(Object... objects) {
+        return newInstance(mQuery.withValues(objects));
+    }
+
+    @Override
+    public Query<S> and(String filter) throws FetchException {
+        return newInstance(mQuery.and(filter));
+    }
+
+    @Override
+    public Query<S> and(Filter<S> filter) throws FetchException {
+        return newInstance(mQuery.and(filter));
+    }
+
+    @Override
+    public Query<S> or(String filter) throws FetchException {
+        return newInstance(mQuery.or(filter));
+    }
+
+    @Override
+    public Query<S> or(Filter<S> filter) throws FetchException {
+        return newInstance(mQuery.or(filter));
+    }
+
+    @Override
+    public Query<S> not() throws FetchException {
+        return newInstance(mQuery.not());
+    }
+
+    @Override
+    public Query<S> orderBy(String property) throws FetchException, UnsupportedOperationException {
+        return newInstance(mQuery.orderBy(property));
+    }
+
+    @Override
+    public Query<S> orderBy(String... strings)
+        throws FetchException, UnsupportedOperationException
+    {
+        return newInstance(mQuery.orderBy(strings));
+    }
+
+    @Override
+    public Query<S> select(String... properties) throws FetchException {
+        return newInstance(mQuery.select(properties));
+    }
+
+    @Override
+    public Query<S> parallel() throws FetchException {
+        return newInstance(mQuery.parallel());
+    }
+
+    @Override
+    public Query<S> trace() throws FetchException {
+        return newInstance(mQuery.trace());
+    }
+
+    @Override
+    public <T extends S> Query<S> after(T start) throws FetchException {
+        return newInstance(mQuery.after(start));
+    }
+
+    @Override
+    public Object aggregate(Aggregate function, String property) throws FetchException {
+        return mQuery.aggregate(function, property);
+    }
+
+    @Override
+    public Object aggregate(Aggregate function, String property, Controller controller)
+        throws FetchException
+    {
+        return mQuery.aggregate(function, property, controller);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy)
+        throws FetchException
+    {
+        return mQuery.aggregateGroupBy(function, property, groupBy);
+    }
+
+    @Override
+    public Map<List<Object>, Object> aggregateGroupBy(Aggregate function, String property,
+                                                      String[] groupBy, Controller controller)
+        throws FetchException
+    {
+        return mQuery.aggregateGroupBy(function, property, groupBy, controller);
+    }
+
+    @Override
+    public Cursor<S> fetch() throws FetchException {
+        return toReplica(mQuery.fetch());
+    }
+
+    @Override
+    public Cursor<S> fetch(Controller controller) throws FetchException {
+        return toReplica(mQuery.fetch(controller));
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(long from, Long to) throws FetchException {
+        return toReplica(mQuery.fetchSlice(from, to));
+    }
+
+    @Override
+    public Cursor<S> fetchSlice(long from, Long to, Controller controller) throws FetchException {
+        return toReplica(mQuery.fetchSlice(from, to, controller));
+    }
+
+    @Override
+    public <T extends S> Cursor<S> fetchAfter(T start) throws FetchException {
+        return toReplica(mQuery.fetchAfter(start));
+    }
+
+    @Override
+    public <T extends S> Cursor<S> fetchAfter(T start, Controller controller)
+        throws FetchException
+    {
+        return toReplica(mQuery.fetchAfter(start, controller));
+    }
+
+    @Override
+    public Page<S> fetchPage(String token, int size) throws FetchException {
+        return toReplica(mQuery.fetchPage(token, size));
+    }
+
+    @Override
+    public Page<S> fetchPage(String token, int size, Controller controller)
+        throws FetchException
+    {
+        return toReplica(mQuery.fetchPage(token, size, controller));
+    }
+
+    @Override
+    public S loadOne() throws FetchException {
+        return toReplica(mQuery.loadOne());
+    }
+
+    @Override
+    public S loadOne(Controller controller) throws FetchException {
+        return toReplica(mQuery.loadOne(controller));
+    }
+
+    @Override
+    public S tryLoadOne() throws FetchException {
+        S master = mQuery.tryLoadOne();
+        return master == null ? null : toReplica(master);
+    }
+
+    @Override
+    public S tryLoadOne(Controller controller) throws FetchException {
+        S master = mQuery.tryLoadOne(controller);
+        return master == null ? null : toReplica(master);
+    }
+
+    @Override
+    public void deleteOne() throws PersistException {
+        if (!tryDeleteOne()) {
+            throw new PersistNoneException(toString());
+        }
+    }
+
+    @Override
+    public void deleteOne(Controller controller) throws PersistException {
+        if (!tryDeleteOne(controller)) {
+            throw new PersistNoneException(toString());
+        }
+    }
+
+    @Override
+    public boolean tryDeleteOne() throws PersistException {
+        return tryDeleteOne(null);
+    }
+
+    @Override
+    public boolean tryDeleteOne(Controller controller) throws PersistException {
+        // Delete through replica storables, such that the replica doesn't
+        // keep a stale copy.
+        Transaction txn = mRepository.enterTransaction(IsolationLevel.READ_COMMITTED);
+        try {
+            Cursor<S> cursor = fetch(controller);
+            boolean result;
+            try {
+                if (cursor.hasNext()) {
+                    S obj = cursor.next();
+                    if (cursor.hasNext()) {
+                        throw new PersistMultipleException(toString());
+                    }
+                    result = obj.tryDelete();
+                } else {
+                    return false;
+                }
+            } finally {
+                cursor.close();
+            }
+            txn.commit();
+            return result;
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        } finally {
+            txn.exit();
+        }
+    }
+
+    @Override
+    public void deleteAll() throws PersistException {
+        deleteAll(null);
+    }
+
+    @Override
+    public void deleteAll(Controller controller) throws PersistException {
+        Transaction txn = mRepository.enterTransaction(IsolationLevel.READ_COMMITTED);
+        try {
+            Cursor<S> cursor = fetch(controller);
+            try {
+                while (cursor.hasNext()) {
+                    cursor.next().tryDelete();
+                }
+            } finally {
+                cursor.close();
+            }
+            txn.commit();
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        } finally {
+            txn.exit();
+        }
+    }
+
+    @Override
+    public long count() throws FetchException {
+        return mQuery.count();
+    }
+
+    @Override
+    public long count(Controller controller) throws FetchException {
+        return mQuery.count(controller);
+    }
+
+    @Override
+    public boolean exists() throws FetchException {
+        return mQuery.exists();
+    }
+
+    @Override
+    public boolean exists(Controller controller) throws FetchException {
+        return mQuery.exists(controller);
+    }
+
+    @Override
+    public boolean printNative() {
+        return mQuery.printNative();
+    }
+
+    @Override
+    public boolean printNative(Appendable app) throws IOException {
+        return mQuery.printNative(app);
+    }
+
+    @Override
+    public boolean printNative(Appendable app, int indentLevel) throws IOException {
+        return mQuery.printNative(app, indentLevel);
+    }
+
+    @Override
+    public boolean printPlan() {
+        return mQuery.printPlan();
+    }
+
+    @Override
+    public boolean printPlan(Appendable app) throws IOException {
+        return mQuery.printPlan(app);
+    }
+
+    @Override
+    public boolean printPlan(Appendable app, int indentLevel) throws IOException {
+        return mQuery.printPlan(app, indentLevel);
+    }
+
+    @Override
+    public String toString() {
+        return mQuery.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return mQuery.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof MasterQuery) {
+            MasterQuery<?> other = (MasterQuery<?>) obj;
+            return mQuery.equals(other.mQuery);
+        }
+        return false;
+    }
+
+    private MasterQuery<S> newInstance(Query<S> query) {
+        return new MasterQuery<S>(mRepository, mReplicaStorage, query);
+    }
+
+    private S toReplica(S master) {
+        S replica = mReplicaStorage.prepare();
+        master.copyAllProperties(replica);
+        replica.markAllPropertiesClean();
+        return replica;
+    }
+
+    private Cursor<S> toReplica(Cursor<S> cursor) {
+        return new TransformedCursor<S, S>(cursor) {
+            @Override
+            protected S transform(S master) {
+                return toReplica(master);
+            }
+        };
+    }
+
+    private Page<S> toReplica(Page<S> page) {
+        List<S> masters = page.getResults();
+        List<S> replicas = new ArrayList<S>(masters.size());
+        for (S master : masters) {
+            replicas.add(toReplica(master));
+        }
+        return new Page<S>(replicas, page.getNextToken());
+    }
+}
@@ -64,9 +64,12 @@ import com.amazon.carbonado.qe.QueryHints;
 import com.amazon.carbonado.qe.RepositoryAccess;
 import com.amazon.carbonado.qe.UnionQueryAnalyzer;
 
+import com.amazon.carbonado.raw.RawStorageCapability;
+
 import com.amazon.carbonado.repo.indexed.IndexEntryAccessCapability;
 
 import com.amazon.carbonado.spi.StoragePool;
+import com.amazon.carbonado.spi.TriggerManagerCapability;
 
 import com.amazon.carbonado.txn.TransactionPair;
 
@@ -228,7 +231,7 @@ class ReplicatedRepository
         return mName;
     }
 
-    // Used by test suite.
+    // Used by test suite, and for installing reloaders.
     Repository getReplicaRepository() {
         return mReplicaRepository;
     }
@@ -301,6 +304,14 @@ class ReplicatedRepository
             return (C) this;
         }
 
+        if (TriggerManagerCapability.class.isAssignableFrom(capabilityType) ||
+            RawStorageCapability.class.isAssignableFrom(capabilityType))
+        {
+            // Disabling triggers of the replica, or inserting raw records
+            // into it, would bypass replication.
+            return null;
+        }
+
         // Favor replica's indexing capabilities, since they are used for queries.
         boolean favorReplica =
             IndexInfoCapability.class.isAssignableFrom(capabilityType) ||
@@ -451,8 +462,11 @@ class ReplicatedRepository
         throws RepositoryException
     {
         ReplicationTrigger<S> replicationTrigger;
+        boolean replicaBounded;
         if (storageFor(type) instanceof ReplicatedStorage) {
-            replicationTrigger = ((ReplicatedStorage) storageFor(type)).getReplicationTrigger();
+            ReplicatedStorage<S> storage = (ReplicatedStorage<S>) storageFor(type);
+            replicationTrigger = storage.getReplicationTrigger();
+            replicaBounded = storage.isReplicaBounded();
         } else {
             throw new UnsupportedTypeException("Storable type is not replicated", type);
         }
@@ -508,7 +522,7 @@ class ReplicatedRepository
                    masterStorage, masterQuery,
                    listener,
                    throttle, desiredSpeed,
-                   comparator, replicaTxn);
+                   comparator, replicaTxn, replicaBounded);
 
             replicaTxn.commit();
         } finally {
@@ -522,7 +536,8 @@ class ReplicatedRepository
                                              Storage<S> masterStorage, Query<S> masterQuery,
                                              ResyncCapability.Listener<? super S> listener,
                                              Throttle throttle, double desiredSpeed,
-                                             Comparator comparator, Transaction replicaTxn)
+                                             Comparator comparator, Transaction replicaTxn,
+                                             boolean replicaBounded)
         throws RepositoryException
     {
         final Log log = LogFactory.getLog(ReplicatedRepository.class);
@@ -650,9 +665,12 @@ class ReplicatedRepository
                     lastReplicaEntry = replicaEntry;
                     replicaEntry = null;
                 } else if (compare > 0) {
-                    // Replica cursor is missing an entry so copy it.
-                    resyncTask = prepareResyncTask
-                        (replicationTrigger, listener, null, masterEntry);
+                    // Replica cursor is missing an entry so copy it, unless
+                    // the replica is bounded and the entry was evicted.
+                    if (!replicaBounded) {
+                        resyncTask = prepareResyncTask
+                            (replicationTrigger, listener, null, masterEntry);
+                    }
                     // Allow master to advance.
                     masterEntry = null;
                 } else {
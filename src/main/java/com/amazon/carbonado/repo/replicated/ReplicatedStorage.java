@@ -17,6 +17,9 @@
  */
 package com.amazon.carbonado.repo.replicated;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -31,6 +34,8 @@ import com.amazon.carbonado.RepositoryException;
 import com.amazon.carbonado.Trigger;
 import com.amazon.carbonado.UnsupportedTypeException;
 
+import com.amazon.carbonado.capability.MapEvictionCapability;
+
 import com.amazon.carbonado.filter.Filter;
 
 import com.amazon.carbonado.spi.BelatedStorageCreator;
@@ -46,6 +51,9 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
     final Storage<S> mMasterStorage;
     final ReplicationTrigger<S> mReplicationTrigger;
 
+    // Is set when the replica is bounded, and so queries are served by the master.
+    private final Repository mBoundedRepository;
+
     /**
      * @throws UnsupportedTypeException if master doesn't support Storable, but
      * it is marked as Independent
@@ -65,12 +73,24 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
 
         mMasterStorage = creator.get(ReplicatedRepositoryBuilder.DEFAULT_MASTER_TIMEOUT_MILLIS);
 
+        MapEvictionCapability cap = aRepository.getReplicaRepository()
+            .getCapability(MapEvictionCapability.class);
+
         // ReplicationTrigger contains internal TriggerManager, and all other
         // triggers should register with the ReplicationTrigger. This allows
         // all triggers to be easily disabled during resync and repairs.
 
         mReplicationTrigger = new ReplicationTrigger<S>
-            (aRepository, mReplicaStorage, mMasterStorage);
+            (aRepository, mReplicaStorage, mMasterStorage, cap != null);
+
+        if (cap == null) {
+            mBoundedRepository = null;
+        } else {
+            // A bounded replica reloads evicted records from the master.
+            cap.setReloader(replicaStorage.getStorableType(),
+                            new MasterReloader<S>(mMasterStorage));
+            mBoundedRepository = aRepository;
+        }
     }
 
     /**
@@ -83,7 +103,8 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
         mReplicaStorage = replicaStorage;
         mMasterStorage = masterStorage;
         mReplicationTrigger = new ReplicationTrigger<S>
-            (aRepository, mReplicaStorage, masterStorage);
+            (aRepository, mReplicaStorage, masterStorage, false);
+        mBoundedRepository = null;
     }
 
     public Class<S> getStorableType() {
@@ -95,14 +116,23 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
     }
 
     public Query<S> query() throws FetchException {
+        if (mBoundedRepository != null) {
+            return masterQuery(mMasterStorage.query());
+        }
         return mReplicaStorage.query();
     }
 
     public Query<S> query(String filter) throws FetchException {
+        if (mBoundedRepository != null) {
+            return masterQuery(mMasterStorage.query(filter));
+        }
         return mReplicaStorage.query(filter);
     }
 
     public Query<S> query(Filter<S> filter) throws FetchException {
+        if (mBoundedRepository != null) {
+            return masterQuery(mMasterStorage.query(filter));
+        }
         return mReplicaStorage.query(filter);
     }
 
@@ -114,6 +144,23 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
         mReplicaStorage.truncate();
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public void upsert(S storable) throws PersistException {
+        // Replica storage always has the replication trigger installed, and
+        // so the upsert is performed with regular inserts and updates.
+        mReplicaStorage.upsert(storable);
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        // Loads are always served by the replica, just like tryLoad.
+        return mReplicaStorage.tryLoadAll(storables);
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mReplicationTrigger.addTrigger(trigger);
     }
@@ -125,4 +172,43 @@ class ReplicatedStorage<S extends Storable> implements Storage<S> {
     ReplicationTrigger<S> getReplicationTrigger() {
         return mReplicationTrigger;
     }
+
+    /**
+     * Returns true if the replica is bounded, and so it might not hold every
+     * record which the master has.
+     */
+    boolean isReplicaBounded() {
+        return mBoundedRepository != null;
+    }
+
+    /**
+     * A bounded replica only reloads evicted records when loaded by primary
+     * key, and so all queries are served by the master instead.
+     */
+    private Query<S> masterQuery(Query<S> query) {
+        return new MasterQuery<S>(mBoundedRepository, mReplicaStorage, query);
+    }
+
+    /**
+     * Loads records missing from a bounded replica from the master.
+     */
+    private static class MasterReloader<S extends Storable>
+        implements MapEvictionCapability.Reloader<S>
+    {
+        private final Storage<S> mMasterStorage;
+
+        MasterReloader(Storage<S> masterStorage) {
+            mMasterStorage = masterStorage;
+        }
+
+        public boolean reload(S replica) throws FetchException {
+            S master = mMasterStorage.prepare();
+            replica.copyPrimaryKeyProperties(master);
+            if (!master.tryLoad()) {
+                return false;
+            }
+            master.copyAllProperties(replica);
+            return true;
+        }
+    }
 }
@@ -52,16 +52,22 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
     private final ReplicatedRepository mRepository;
     private final Storage<S> mReplicaStorage;
     private final Storage<S> mMasterStorage;
+    private final boolean mReplicaBounded;
 
     private final TriggerManager<S> mTriggerManager;
 
+    /**
+     * @param replicaBounded pass true if replica might have evicted records
+     */
     ReplicationTrigger(ReplicatedRepository repository,
                        Storage<S> replicaStorage,
-                       Storage<S> masterStorage)
+                       Storage<S> masterStorage,
+                       boolean replicaBounded)
     {
         mRepository = repository;
         mReplicaStorage = replicaStorage;
         mMasterStorage = masterStorage;
+        mReplicaBounded = replicaBounded;
 
         // Use TriggerManager to locally disable trigger execution during
         // resync and repairs.
@@ -180,6 +186,10 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
                 throw new PersistException("Current transaction is read-only.");
             }
 
+            if (mReplicaBounded) {
+                restoreReplica(replica);
+            }
+
             final S master = mMasterStorage.prepare();
             replica.copyPrimaryKeyProperties(master);
             replica.copyVersionProperty(master);
@@ -245,6 +255,10 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
             throw new PersistException("Current transaction is read-only.");
         }
 
+        if (mReplicaBounded) {
+            restoreReplica(replica);
+        }
+
         S master = mMasterStorage.prepare();
         replica.copyPrimaryKeyProperties(master);
 
@@ -534,6 +548,33 @@ class ReplicationTrigger<S extends Storable> extends Trigger<S> {
         return mTriggerManager.removeTrigger(trigger);
     }
 
+    /**
+     * Restores a record which a bounded replica might have evicted, such
+     * that the replica can be updated or deleted after the master is.
+     * Loading from the replica reloads the record from the master, but the
+     * reloaded record isn't stored if the current transaction holds a lock,
+     * and so it's inserted with replication disabled.
+     */
+    private void restoreReplica(S replica) throws PersistException {
+        S restored = (S) replica.prepare();
+        replica.copyPrimaryKeyProperties(restored);
+
+        TriggerManager tm = mTriggerManager;
+        tm.locallyDisableLoad();
+        tm.locallyDisableInsert();
+        try {
+            if (restored.tryLoad()) {
+                // Fails if replica already has the record.
+                restored.tryInsert();
+            }
+        } catch (FetchException e) {
+            throw e.toPersistException();
+        } finally {
+            tm.locallyEnableInsert();
+            tm.locallyEnableLoad();
+        }
+    }
+
     /**
      * Deletes the replica entry with replication disabled.
      */
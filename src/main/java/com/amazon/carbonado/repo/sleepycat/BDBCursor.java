@@ -18,6 +18,8 @@
 
 package com.amazon.carbonado.repo.sleepycat;
 
+import java.util.Set;
+
 import com.amazon.carbonado.FetchException;
 import com.amazon.carbonado.IsolationLevel;
 import com.amazon.carbonado.Storable;
@@ -37,6 +39,8 @@ abstract class BDBCursor<Txn, S extends Storable> extends RawCursor<S> {
 
     private final TransactionScope<Txn> mScope;
     private final BDBStorage<Txn, S> mStorage;
+
+    private Set<String> mProjection;
     /**
      * @param scope
      * @param startBound specify the starting key for the cursor, or null if first
@@ -68,6 +72,16 @@ abstract class BDBCursor<Txn, S extends Storable> extends RawCursor<S> {
         scope.register(storage.getStorableType(), this);
     }
 
+    /**
+     * Restricts the properties which need to be decoded. Must be called
+     * before the cursor is opened.
+     *
+     * @param projection optional names of properties to decode
+     */
+    void setProjection(Set<String> projection) {
+        mProjection = projection;
+    }
+
     void open() throws FetchException {
         try {
             cursor_open(mScope.getTxn(), mScope.getIsolationLevel());
@@ -140,7 +154,7 @@ abstract class BDBCursor<Txn, S extends Storable> extends RawCursor<S> {
 
     @Override
     protected S instantiateCurrent() throws FetchException {
-        return mStorage.instantiate(primaryKey_getData(), data_getData());
+        return mStorage.instantiate(primaryKey_getData(), data_getData(), mProjection);
     }
 
     @Override
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.repo.sleepycat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.IsolationLevel;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.layout.LayoutMigration;
+
+import com.amazon.carbonado.raw.GenericStorableCodec;
+
+import com.amazon.carbonado.txn.TransactionScope;
+
+import com.amazon.carbonado.util.Throttle;
+
+/**
+ * Migrates BDB records of older layout generations by scanning the primary
+ * database in key order.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+class BDBLayoutMigration<Txn, S extends Storable> implements LayoutMigration<S> {
+    private final BDBStorage<Txn, S> mStorage;
+    private final GenericStorableCodec<S> mCodec;
+
+    private volatile double mDesiredSpeed = 1.0;
+    private volatile int mBatchSize = 100;
+    private volatile boolean mStopped;
+
+    // Guarded by this.
+    private byte[] mResumeKey;
+    // Guarded by this. True if the current pass started from the first record.
+    private boolean mFullPass;
+
+    private volatile boolean mFinished;
+    private volatile long mExaminedCount;
+    private volatile long mMigratedCount;
+    private final Map<Integer, Long> mMigratedCounts = new TreeMap<Integer, Long>();
+
+    /**
+     * @throws SupportException if storage doesn't support layout generations
+     */
+    BDBLayoutMigration(BDBStorage<Txn, S> storage) throws SupportException {
+        mStorage = storage;
+        if (!(storage.mStorableCodec instanceof GenericStorableCodec)) {
+            throw new SupportException
+                ("Layout migration not supported for type: " + storage.getStorableType());
+        }
+        mCodec = (GenericStorableCodec<S>) storage.mStorableCodec;
+        if (mCodec.getLayoutGeneration() < 0) {
+            throw new SupportException
+                ("Layout evolution not supported for type: " + storage.getStorableType());
+        }
+    }
+
+    public Class<S> getStorableType() {
+        return mStorage.getStorableType();
+    }
+
+    public int getCurrentGeneration() {
+        return mCodec.getLayoutGeneration();
+    }
+
+    public void setDesiredSpeed(double desiredSpeed) {
+        if (!(desiredSpeed > 0.0)) {
+            throw new IllegalArgumentException("Desired speed must be positive: " + desiredSpeed);
+        }
+        mDesiredSpeed = desiredSpeed;
+    }
+
+    public void setBatchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be at least one: " + size);
+        }
+        mBatchSize = size;
+    }
+
+    public synchronized void setResumeKey(byte[] key) {
+        mResumeKey = key == null ? null : key.clone();
+        mFullPass = false;
+        mFinished = false;
+    }
+
+    public synchronized byte[] getResumeKey() {
+        return mResumeKey == null ? null : mResumeKey.clone();
+    }
+
+    public synchronized boolean migrateBatch() throws RepositoryException {
+        if (mFinished) {
+            return false;
+        }
+
+        if (mResumeKey == null) {
+            mFullPass = true;
+        }
+
+        final int batchSize = mBatchSize;
+        final int currentGeneration = mCodec.getLayoutGeneration();
+
+        Transaction txn = mStorage.mRepository.enterTopTransaction(IsolationLevel.READ_COMMITTED);
+        try {
+            txn.setForUpdate(true);
+
+            List<byte[][]> entries = readBatch(batchSize);
+            List<Integer> migrated = new ArrayList<Integer>();
+
+            for (byte[][] entry : entries) {
+                byte[] key = entry[0];
+                byte[] value = entry[1];
+
+                int generation = mCodec.decodeGeneration(value);
+                if (generation >= 0 && generation != currentGeneration) {
+                    store(key, mCodec.reencodeData(key, value));
+                    migrated.add(generation);
+                }
+            }
+
+            txn.commit();
+
+            // Update progress only after commit, in case batch is retried.
+            if (entries.size() > 0) {
+                mResumeKey = entries.get(entries.size() - 1)[0];
+                mExaminedCount += entries.size();
+            }
+            for (Integer generation : migrated) {
+                Long count = mMigratedCounts.get(generation);
+                mMigratedCounts.put(generation, count == null ? 1L : (count + 1));
+            }
+            mMigratedCount += migrated.size();
+
+            if (entries.size() < batchSize) {
+                mFinished = true;
+                if (mFullPass) {
+                    // All records are now encoded with the current generation. A
+                    // pass resumed from a key might have skipped some records.
+                    mCodec.discardDecoders();
+                }
+                return false;
+            }
+
+            return true;
+        } finally {
+            txn.exit();
+        }
+    }
+
+    public void run() {
+        mStopped = false;
+        Throttle throttle = new Throttle(50);
+
+        try {
+            while (!mStopped && migrateBatch()) {
+                double desiredSpeed = mDesiredSpeed;
+                if (desiredSpeed < 1.0) {
+                    throttle.throttle(desiredSpeed, 100);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stop quietly.
+        } catch (RepositoryException e) {
+            Log log = LogFactory.getLog(BDBLayoutMigration.class);
+            log.error("Layout migration of " + getStorableType().getName() + " failed", e);
+        }
+    }
+
+    public void stop() {
+        mStopped = true;
+    }
+
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    public long getExaminedCount() {
+        return mExaminedCount;
+    }
+
+    public long getMigratedCount() {
+        return mMigratedCount;
+    }
+
+    public synchronized Map<Integer, Long> getMigratedCountsByGeneration() {
+        return new TreeMap<Integer, Long>(mMigratedCounts);
+    }
+
+    /**
+     * Returns key and value pairs of the next batch of records, following
+     * the resume key.
+     */
+    private List<byte[][]> readBatch(int batchSize) throws FetchException {
+        TransactionScope<Txn> scope = mStorage.localTransactionScope();
+        List<byte[][]> entries = new ArrayList<byte[][]>(batchSize);
+
+        // Lock out shutdown task.
+        scope.getLock().lock();
+        try {
+            byte[] prefix = mCodec.encodePrimaryKeyPrefix();
+
+            byte[] startBound;
+            boolean inclusiveStart;
+            if (mResumeKey == null) {
+                startBound = prefix;
+                inclusiveStart = true;
+            } else {
+                startBound = mResumeKey;
+                inclusiveStart = false;
+            }
+
+            BDBCursor<Txn, S> cursor;
+            try {
+                cursor = mStorage.openCursor
+                    (scope,
+                     startBound, inclusiveStart,
+                     prefix, true,
+                     mCodec.getPrimaryKeyPrefixLength(),
+                     false,
+                     mStorage.getPrimaryDatabase());
+                cursor.open();
+            } catch (Exception e) {
+                throw mStorage.toFetchException(e);
+            }
+
+            try {
+                while (entries.size() < batchSize && cursor.hasNext()) {
+                    entries.add(new byte[][] {cursor.getCurrentKey(), cursor.getCurrentValue()});
+                    cursor.skipNext(1);
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            scope.getLock().unlock();
+        }
+
+        return entries;
+    }
+
+    private void store(byte[] key, byte[] value) throws PersistException {
+        TransactionScope<Txn> scope = mStorage.localTransactionScope();
+        // Lock out shutdown task.
+        scope.getLock().lock();
+        try {
+            try {
+                if (!mStorage.db_put(scope.getTxn(), key, value)) {
+                    throw new PersistException("Failed");
+                }
+            } catch (Throwable e) {
+                throw mStorage.toPersistException(e);
+            }
+        } finally {
+            scope.getLock().unlock();
+        }
+    }
+}
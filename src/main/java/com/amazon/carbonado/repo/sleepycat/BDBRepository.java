@@ -48,15 +48,18 @@ import com.amazon.carbonado.capability.IndexInfoCapability;
 import com.amazon.carbonado.capability.ShutdownCapability;
 import com.amazon.carbonado.capability.StorableInfoCapability;
 
+import com.amazon.carbonado.info.StorableIndex;
 import com.amazon.carbonado.info.StorableIntrospector;
 
 import com.amazon.carbonado.layout.Layout;
-import com.amazon.carbonado.layout.LayoutCapability;
 import com.amazon.carbonado.layout.LayoutFactory;
+import com.amazon.carbonado.layout.LayoutMigration;
+import com.amazon.carbonado.layout.LayoutMigrationCapability;
 
 import com.amazon.carbonado.qe.RepositoryAccess;
 import com.amazon.carbonado.qe.StorageAccess;
 
+import com.amazon.carbonado.raw.RawStorageCapability;
 import com.amazon.carbonado.raw.StorableCodecFactory;
 
 import com.amazon.carbonado.sequence.SequenceCapability;
@@ -66,6 +69,8 @@ import com.amazon.carbonado.sequence.SequenceValueProducer;
 import com.amazon.carbonado.spi.AbstractRepository;
 import com.amazon.carbonado.spi.ExceptionTransformer;
 import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.TriggerManager;
+import com.amazon.carbonado.spi.TriggerManagerCapability;
 
 import com.amazon.carbonado.txn.TransactionManager;
 import com.amazon.carbonado.txn.TransactionScope;
@@ -91,7 +96,9 @@ abstract class BDBRepository<Txn> extends AbstractRepository<Txn>
                ShutdownCapability,
                StorableInfoCapability,
                SequenceCapability,
-               LayoutCapability
+               LayoutMigrationCapability,
+               TriggerManagerCapability,
+               RawStorageCapability
 {
     private final Log mLog = LogFactory.getLog(getClass());
 
@@ -374,6 +381,49 @@ abstract class BDBRepository<Txn> extends AbstractRepository<Txn>
         return mLayoutFactory.layoutFor(type, generation);
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public <S extends Storable> TriggerManager<S> getTriggerManagerFor(Class<S> type)
+        throws RepositoryException
+    {
+        return ((BDBStorage<Txn, S>) storageFor(type)).mTriggerManager;
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public <S extends Storable> LayoutMigration<S> layoutMigration(Class<S> type)
+        throws RepositoryException
+    {
+        return new BDBLayoutMigration<Txn, S>((BDBStorage<Txn, S>) storageFor(type));
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public Layout getRawLayout(Class<? extends Storable> type) throws RepositoryException {
+        return ((BDBStorage) storageFor(type)).getRawLayout();
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public <S extends Storable> StorableIndex<S> getRawPrimaryKeyIndex(Class<S> type)
+        throws RepositoryException
+    {
+        return ((BDBStorage<Txn, S>) storageFor(type)).getRawPrimaryKeyIndex();
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public boolean tryInsertRaw(Class<? extends Storable> type, byte[] key, byte[] value)
+        throws RepositoryException
+    {
+        return ((BDBStorage) storageFor(type)).tryInsertRaw(key, value);
+    }
+
     @Override
     protected void finalize() {
         close();
@@ -66,6 +66,7 @@ import com.amazon.carbonado.ConfigurationException;
  * <li>{@link com.amazon.carbonado.capability.StorableInfoCapability StorableInfoCapability}
  * <li>{@link com.amazon.carbonado.capability.ShutdownCapability ShutdownCapability}
  * <li>{@link com.amazon.carbonado.layout.LayoutCapability LayoutCapability}
+ * <li>{@link com.amazon.carbonado.layout.LayoutMigrationCapability LayoutMigrationCapability}
  * <li>{@link com.amazon.carbonado.sequence.SequenceCapability SequenceCapability}
  * <li>{@link CheckpointCapability CheckpointCapability}
  * <li>{@link EnvironmentCapability EnvironmentCapability}
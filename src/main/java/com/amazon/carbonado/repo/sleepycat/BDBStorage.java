@@ -20,7 +20,9 @@ package com.amazon.carbonado.repo.sleepycat;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cojen.classfile.TypeDesc;
 
@@ -52,6 +54,7 @@ import com.amazon.carbonado.cursor.SingletonCursor;
 import com.amazon.carbonado.cursor.SortBuffer;
 
 import com.amazon.carbonado.filter.Filter;
+import com.amazon.carbonado.filter.FilterValues;
 
 import com.amazon.carbonado.info.Direction;
 import com.amazon.carbonado.info.StorableIndex;
@@ -68,11 +71,16 @@ import com.amazon.carbonado.lob.Blob;
 import com.amazon.carbonado.lob.Clob;
 
 import com.amazon.carbonado.qe.BoundaryType;
+import com.amazon.carbonado.qe.ProjectedStorageAccess;
 import com.amazon.carbonado.qe.QueryEngine;
 import com.amazon.carbonado.qe.QueryExecutorFactory;
 import com.amazon.carbonado.qe.StorableIndexSet;
 import com.amazon.carbonado.qe.StorageAccess;
 
+import com.amazon.carbonado.raw.CompressedStorableCodecFactory;
+import com.amazon.carbonado.raw.GenericStorableCodec;
+import com.amazon.carbonado.raw.GenericStorableCodecFactory;
+import com.amazon.carbonado.raw.KeyFilter;
 import com.amazon.carbonado.raw.StorableCodec;
 import com.amazon.carbonado.raw.StorableCodecFactory;
 import com.amazon.carbonado.raw.RawSupport;
@@ -82,6 +90,8 @@ import com.amazon.carbonado.sequence.SequenceValueProducer;
 
 import com.amazon.carbonado.spi.IndexInfoImpl;
 import com.amazon.carbonado.spi.LobEngine;
+import com.amazon.carbonado.spi.StorableLoadAll;
+import com.amazon.carbonado.spi.StorableUpsert;
 import com.amazon.carbonado.spi.TriggerManager;
 
 import com.amazon.carbonado.txn.TransactionScope;
@@ -219,6 +229,24 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
         }
     }
 
+    /**
+     * @since 1.2.6
+     */
+    public void upsert(S storable) throws PersistException {
+        // The insert attempt locks the key within the transaction, and so the
+        // following update cannot be interleaved with another upsert. A failed
+        // insert is a cheap no-overwrite put, which doesn't throw an exception.
+        StorableUpsert.insertOrUpdate(mRepository.getRootRepository(), storable);
+    }
+
+    /**
+     * @since 1.2.6
+     */
+    public List<S> tryLoadAll(Collection<? extends S> storables) throws FetchException {
+        // Loading in key order visits each B-tree leaf while it's still cached.
+        return StorableLoadAll.tryLoadEach(storables);
+    }
+
     public boolean addTrigger(Trigger<? super S> trigger) {
         return mTriggerManager.addTrigger(trigger);
     }
@@ -260,6 +288,62 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
         return null;
     }
 
+    public StorageAccess<S> projectedAccess(final Set<String> properties) {
+        return new ProjectedStorageAccess<S>(this, properties) {
+            @Override
+            public Cursor<S> fetchAll(Query.Controller controller) throws FetchException {
+                return fetchSubset(null, null,
+                                   BoundaryType.OPEN, null,
+                                   BoundaryType.OPEN, null,
+                                   false, false,
+                                   controller);
+            }
+
+            @Override
+            public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                         Object[] identityValues,
+                                         BoundaryType rangeStartBoundary,
+                                         Object rangeStartValue,
+                                         BoundaryType rangeEndBoundary,
+                                         Object rangeEndValue,
+                                         boolean reverseRange,
+                                         boolean reverseOrder,
+                                         Query.Controller controller)
+                throws FetchException
+            {
+                return fetchSubset(index, identityValues,
+                                   rangeStartBoundary, rangeStartValue,
+                                   rangeEndBoundary, rangeEndValue,
+                                   reverseRange, reverseOrder,
+                                   null, null,
+                                   controller);
+            }
+
+            @Override
+            public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                         Object[] identityValues,
+                                         BoundaryType rangeStartBoundary,
+                                         Object rangeStartValue,
+                                         BoundaryType rangeEndBoundary,
+                                         Object rangeEndValue,
+                                         boolean reverseRange,
+                                         boolean reverseOrder,
+                                         Filter<S> keyFilter,
+                                         FilterValues<S> keyFilterValues,
+                                         Query.Controller controller)
+                throws FetchException
+            {
+                return ControllerCursor.apply(openSubset(identityValues,
+                                                         rangeStartBoundary, rangeStartValue,
+                                                         rangeEndBoundary, rangeEndValue,
+                                                         reverseRange, reverseOrder,
+                                                         keyFilter, keyFilterValues,
+                                                         properties),
+                                              controller);
+            }
+        };
+    }
+
     public SortBuffer<S> createSortBuffer() {
         return new MergeSortBuffer<S>();
     }
@@ -327,6 +411,14 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
         throw new UnsupportedOperationException();
     }
 
+    public Cursor<S> fetchPartialFromIndexEntryQuery(StorableIndex<S> index,
+                                                     Query<?> indexEntryQuery,
+                                                     Query.Controller controller)
+    {
+        // This method should never be called since null was returned by indexEntryQuery.
+        throw new UnsupportedOperationException();
+    }
+
     public Cursor<S> fetchSubset(StorableIndex<S> index,
                                  Object[] identityValues,
                                  BoundaryType rangeStartBoundary,
@@ -336,6 +428,74 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
                                  boolean reverseRange,
                                  boolean reverseOrder)
         throws FetchException
+    {
+        return openSubset(identityValues,
+                          rangeStartBoundary, rangeStartValue,
+                          rangeEndBoundary, rangeEndValue,
+                          reverseRange, reverseOrder,
+                          null, null,
+                          null);
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return ControllerCursor.apply(fetchSubset(index,
+                                                  identityValues,
+                                                  rangeStartBoundary,
+                                                  rangeStartValue,
+                                                  rangeEndBoundary,
+                                                  rangeEndValue,
+                                                  reverseRange,
+                                                  reverseOrder),
+                                      controller);
+    }
+
+    public Cursor<S> fetchSubset(StorableIndex<S> index,
+                                 Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Filter<S> keyFilter,
+                                 FilterValues<S> keyFilterValues,
+                                 Query.Controller controller)
+        throws FetchException
+    {
+        return ControllerCursor.apply(openSubset(identityValues,
+                                                 rangeStartBoundary, rangeStartValue,
+                                                 rangeEndBoundary, rangeEndValue,
+                                                 reverseRange, reverseOrder,
+                                                 keyFilter, keyFilterValues,
+                                                 null),
+                                      controller);
+    }
+
+    /**
+     * @param keyFilter optional filter to apply to keys before values are loaded
+     * @param projection optional names of the only properties which need to be loaded
+     */
+    private Cursor<S> openSubset(Object[] identityValues,
+                                 BoundaryType rangeStartBoundary,
+                                 Object rangeStartValue,
+                                 BoundaryType rangeEndBoundary,
+                                 Object rangeEndValue,
+                                 boolean reverseRange,
+                                 boolean reverseOrder,
+                                 Filter<S> keyFilter,
+                                 FilterValues<S> keyFilterValues,
+                                 Set<String> projection)
+        throws FetchException
     {
         TransactionScope<Txn> scope = localTransactionScope();
 
@@ -408,6 +568,12 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
                      reverseOrder,
                      getPrimaryDatabase());
 
+                if (keyFilter != null) {
+                    cursor.setKeyFilter(new KeyFilter<S>(codec, keyFilter, keyFilterValues));
+                }
+
+                cursor.setProjection(projection);
+
                 cursor.open();
 
                 return cursor;
@@ -419,28 +585,6 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
         }
     }
 
-    public Cursor<S> fetchSubset(StorableIndex<S> index,
-                                 Object[] identityValues,
-                                 BoundaryType rangeStartBoundary,
-                                 Object rangeStartValue,
-                                 BoundaryType rangeEndBoundary,
-                                 Object rangeEndValue,
-                                 boolean reverseRange,
-                                 boolean reverseOrder,
-                                 Query.Controller controller)
-        throws FetchException
-    {
-        return ControllerCursor.apply(fetchSubset(index,
-                                                  identityValues,
-                                                  rangeStartBoundary,
-                                                  rangeStartValue,
-                                                  rangeEndBoundary,
-                                                  rangeEndValue,
-                                                  reverseRange,
-                                                  reverseOrder),
-                                      controller);
-    }
-
     private byte[] createBound(Object[] exactValues, byte[] exactKey, Object rangeValue,
                                StorableCodec<S> codec) {
         Object[] values = {rangeValue};
@@ -616,6 +760,49 @@ abstract class BDBStorage<Txn, S extends Storable> implements Storage<S>, Storag
         return mStorableCodec.instantiate(key, value);
     }
 
+    /**
+     * @param projection optional names of the only properties which need to be decoded
+     */
+    S instantiate(byte[] key, byte[] value, Set<String> projection) throws FetchException {
+        if (projection == null) {
+            return instantiate(key, value);
+        }
+        return mStorableCodec.instantiate(mRawSupport, key, value, projection);
+    }
+
+    /**
+     * Returns the layout of the raw encoding, or null if the codec isn't a
+     * standard generic codec whose encoding is fully described by the layout.
+     */
+    Layout getRawLayout() throws RepositoryException {
+        StorableCodecFactory codecFactory = mRepository.getStorableCodecFactory();
+        Class factoryClass = codecFactory.getClass();
+        if (!(mStorableCodec instanceof GenericStorableCodec) ||
+            (factoryClass != GenericStorableCodecFactory.class &&
+             factoryClass != CompressedStorableCodecFactory.class))
+        {
+            return null;
+        }
+        return getLayout(true, codecFactory);
+    }
+
+    /**
+     * Returns the index which raw keys are encoded with, or null if raw
+     * inserts aren't supported.
+     */
+    StorableIndex<S> getRawPrimaryKeyIndex() throws RepositoryException {
+        return getRawLayout() == null ? null : mStorableCodec.getPrimaryKeyIndex();
+    }
+
+    /**
+     * Inserts an already encoded record, bypassing triggers.
+     *
+     * @return false if key exists
+     */
+    boolean tryInsertRaw(byte[] key, byte[] value) throws PersistException {
+        return mRawSupport.tryInsert(null, key, value);
+    }
+
     protected CompactionCapability.Result<S> compact() throws RepositoryException {
         byte[] start = mStorableCodec.encodePrimaryKeyPrefix();
         if (start != null && start.length == 0) {
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -29,6 +30,7 @@ import com.amazon.carbonado.ConfigurationException;
 import com.amazon.carbonado.Repository;
 import com.amazon.carbonado.RepositoryBuilder;
 import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
 import com.amazon.carbonado.TriggerFactory;
 
 /**
@@ -39,13 +41,75 @@ import com.amazon.carbonado.TriggerFactory;
  */
 public abstract class AbstractRepositoryBuilder implements RepositoryBuilder {
     private final Set<TriggerFactory> mTriggerFactories;
+    private final StorageWarmup mWarmup;
+    private volatile Map<Class<? extends Storable>, Long> mWarmupTimings;
 
     protected AbstractRepositoryBuilder() {
         mTriggerFactories = new LinkedHashSet<TriggerFactory>(2);
+        mWarmup = new StorageWarmup();
     }
 
+    /**
+     * Builds the repository, and then warms it up if any warm-up types have
+     * been added. If warm-up fails, the repository is closed.
+     */
     public Repository build() throws ConfigurationException, RepositoryException {
-        return build(new AtomicReference<Repository>());
+        Repository repo = build(new AtomicReference<Repository>());
+        if (!mWarmup.isEmpty()) {
+            boolean success = false;
+            try {
+                mWarmupTimings = mWarmup.warmup(repo);
+                success = true;
+            } finally {
+                if (!success) {
+                    repo.close();
+                }
+            }
+        }
+        return repo;
+    }
+
+    /**
+     * Add a Storable type whose storage is opened in parallel with others
+     * when the repository is built, avoiding stalls on first use. Warm-up
+     * only applies when {@link #build()} is called on this builder, and so
+     * types must be added to the outermost builder.
+     *
+     * @since 1.2.6
+     */
+    public void addWarmupType(Class<? extends Storable> type) {
+        mWarmup.addType(type);
+    }
+
+    /**
+     * Add a representative query whose executor is prepared when the
+     * repository is built. The type is warmed up as well.
+     *
+     * @param filter query filter expression, which may have blank parameters
+     * @since 1.2.6
+     */
+    public void addWarmupQuery(Class<? extends Storable> type, String filter) {
+        mWarmup.addQuery(type, filter);
+    }
+
+    /**
+     * Set the maximum amount of threads used for warm-up, which is the amount
+     * of available processors by default.
+     *
+     * @since 1.2.6
+     */
+    public void setWarmupThreadCount(int count) {
+        mWarmup.setThreadCount(count);
+    }
+
+    /**
+     * Returns the warm-up time in milliseconds of each type, from the last
+     * time the repository was built. Returns null if no warm-up was performed.
+     *
+     * @since 1.2.6
+     */
+    public Map<Class<? extends Storable>, Long> getWarmupTimings() {
+        return mWarmupTimings;
     }
 
     public boolean addTriggerFactory(TriggerFactory factory) {
@@ -18,6 +18,9 @@
 
 package com.amazon.carbonado.spi;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 
 import com.amazon.carbonado.Query;
@@ -128,6 +131,14 @@ public class BelatedStorageCreator<S extends Storable>
             throw error();
         }
 
+        public void upsert(S storable) {
+            throw error();
+        }
+
+        public List<S> tryLoadAll(Collection<? extends S> storables) {
+            throw error();
+        }
+
         public boolean addTrigger(Trigger<? super S> trigger) {
             throw error();
         }
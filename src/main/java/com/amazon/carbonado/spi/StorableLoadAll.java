@@ -0,0 +1,366 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.spi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+
+import com.amazon.carbonado.cursor.SortedCursor;
+
+import com.amazon.carbonado.filter.Filter;
+
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+
+/**
+ * Support for implementing {@link com.amazon.carbonado.Storage#tryLoadAll
+ * Storage.tryLoadAll}. Repositories which load records one at a time should
+ * call {@link #tryLoadEach tryLoadEach}, which visits keys in clustered
+ * order. Repositories which can fetch many records per query should call
+ * {@link #tryLoadByQuery tryLoadByQuery}.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class StorableLoadAll {
+    /**
+     * Returns true if all primary key properties of the given Storable are
+     * initialized.
+     */
+    public static <S extends Storable> boolean isPrimaryKeyInitialized(S storable) {
+        StorableInfo<S> info = StorableIntrospector.examine(storable.storableType());
+        for (String name : info.getPrimaryKeyProperties().keySet()) {
+            if (storable.isPropertyUninitialized(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the given Storables, sorted in primary key order.
+     * Storables whose primary key isn't fully specified are moved to the end,
+     * in their original order.
+     */
+    public static <S extends Storable> List<S> sortByPrimaryKey(Collection<? extends S> storables) {
+        List<S> keyed = new ArrayList<S>(storables.size());
+        List<S> unkeyed = null;
+        Class<S> type = null;
+
+        for (S storable : storables) {
+            if (isPrimaryKeyInitialized(storable)) {
+                keyed.add(storable);
+                if (type == null) {
+                    type = storable.storableType();
+                }
+            } else {
+                if (unkeyed == null) {
+                    unkeyed = new ArrayList<S>();
+                }
+                unkeyed.add(storable);
+            }
+        }
+
+        if (keyed.size() > 1) {
+            StorableInfo<S> info = StorableIntrospector.examine(type);
+            List<OrderedProperty<S>> pk = new ArrayList<OrderedProperty<S>>
+                (info.getPrimaryKey().getProperties());
+            Collections.sort(keyed, SortedCursor.createComparator(pk));
+        }
+
+        if (unkeyed != null) {
+            keyed.addAll(unkeyed);
+        }
+
+        return keyed;
+    }
+
+    /**
+     * Calls tryLoad on each of the given Storables, in primary key order.
+     *
+     * @return the Storables which were not found, in the order given
+     */
+    public static <S extends Storable> List<S> tryLoadEach(Collection<? extends S> storables)
+        throws FetchException
+    {
+        Map<S, Object> missing = null;
+        for (S storable : sortByPrimaryKey(storables)) {
+            if (!storable.tryLoad()) {
+                if (missing == null) {
+                    missing = new IdentityHashMap<S, Object>();
+                }
+                missing.put(storable, storable);
+            }
+        }
+        return missing(storables, missing);
+    }
+
+    /**
+     * Loads the given Storables by issuing queries which each match a chunk
+     * of primary keys. Keys are sorted first, so each query covers a compact
+     * range of the clustered index. Storables whose primary key isn't fully
+     * specified are loaded by calling tryLoad. Load triggers run on the
+     * fetched Storables, and so a key which is given more than once runs the
+     * trigger only once. Fetched keys are matched to given keys by equality,
+     * and so a key which the repository matches differently, for example by
+     * ignoring case, is loaded by calling tryLoad instead.
+     *
+     * @param storage storage which prepared the Storables
+     * @param storables Storables to load
+     * @param chunkSize maximum number of keys to match per query
+     * @return the Storables which were not found, in the order given
+     */
+    public static <S extends Storable> List<S> tryLoadByQuery(Storage<S> storage,
+                                                              Collection<? extends S> storables,
+                                                              int chunkSize)
+        throws FetchException
+    {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size: " + chunkSize);
+        }
+
+        StorableInfo<S> info = StorableIntrospector.examine(storage.getStorableType());
+        String[] pkNames = info.getPrimaryKeyProperties().keySet().toArray(new String[0]);
+
+        Map<S, Object> missing = null;
+        List<S> sorted = sortByPrimaryKey(storables);
+        int size = sorted.size();
+        int start = 0;
+
+        while (start < size) {
+            if (!isPrimaryKeyInitialized(sorted.get(start))) {
+                // Remaining Storables are all unkeyed.
+                for (S storable : sorted.subList(start, size)) {
+                    if (!storable.tryLoad()) {
+                        if (missing == null) {
+                            missing = new IdentityHashMap<S, Object>();
+                        }
+                        missing.put(storable, storable);
+                    }
+                }
+                break;
+            }
+
+            int end = start + 1;
+            while (end < size && end - start < chunkSize
+                   && isPrimaryKeyInitialized(sorted.get(end)))
+            {
+                end++;
+            }
+
+            List<S> chunk = sorted.subList(start, end);
+            Map<S, Object> chunkMissing = loadChunk(storage, pkNames, chunk);
+            if (chunkMissing != null) {
+                if (missing == null) {
+                    missing = chunkMissing;
+                } else {
+                    missing.putAll(chunkMissing);
+                }
+            }
+
+            start = end;
+        }
+
+        return missing(storables, missing);
+    }
+
+    /**
+     * @return identity map of missing Storables, or null if none
+     */
+    private static <S extends Storable> Map<S, Object> loadChunk(Storage<S> storage,
+                                                        String[] pkNames,
+                                                        List<S> chunk)
+        throws FetchException
+    {
+        Map<Key, Object> targets = new HashMap<Key, Object>(chunk.size() * 2);
+        Object[] values = new Object[chunk.size() * pkNames.length];
+        int v = 0;
+
+        for (S storable : chunk) {
+            Key key = new Key(storable, pkNames);
+            Object existing = targets.get(key);
+            if (existing == null) {
+                targets.put(key, storable);
+                for (Object value : key.mValues) {
+                    values[v++] = value;
+                }
+            } else {
+                // Same key was given more than once.
+                List<S> list;
+                if (existing instanceof List) {
+                    list = (List<S>) existing;
+                } else {
+                    list = new ArrayList<S>(2);
+                    list.add((S) existing);
+                    targets.put(key, list);
+                }
+                list.add(storable);
+            }
+        }
+
+        Map<S, Object> loaded = new IdentityHashMap<S, Object>();
+
+        if (v < values.length) {
+            Object[] distinctValues = new Object[v];
+            System.arraycopy(values, 0, distinctValues, 0, v);
+            values = distinctValues;
+        }
+
+        Filter<S> filter = Filter.filterFor(storage.getStorableType(),
+                                            keysFilter(pkNames, targets.size()));
+        Cursor<S> cursor = storage.query(filter).withValues(values).fetch();
+        try {
+            while (cursor.hasNext()) {
+                S result = cursor.next();
+                Object target = targets.get(new Key(result, pkNames));
+                if (target == null) {
+                    continue;
+                }
+                if (target instanceof List) {
+                    for (S storable : (List<S>) target) {
+                        copyLoaded(result, storable);
+                        loaded.put(storable, storable);
+                    }
+                } else {
+                    copyLoaded(result, (S) target);
+                    loaded.put((S) target, target);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (loaded.size() == chunk.size()) {
+            return null;
+        }
+
+        Map<S, Object> missing = null;
+        for (S storable : chunk) {
+            // Fetched key might not have been equal to the given key, and so
+            // load it directly before reporting it as missing.
+            if (!loaded.containsKey(storable) && !storable.tryLoad()) {
+                if (missing == null) {
+                    missing = new IdentityHashMap<S, Object>();
+                }
+                missing.put(storable, storable);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns a filter expression which matches any of the given number of
+     * primary keys, like {@code "(a = ? & b = ?) | (a = ? & b = ?)"}.
+     */
+    private static String keysFilter(String[] pkNames, int count) {
+        StringBuilder b = new StringBuilder();
+        for (int i=0; i<count; i++) {
+            if (i > 0) {
+                b.append(" | ");
+            }
+            if (pkNames.length > 1) {
+                b.append('(');
+            }
+            for (int j=0; j<pkNames.length; j++) {
+                if (j > 0) {
+                    b.append(" & ");
+                }
+                b.append(pkNames[j]).append(" = ?");
+            }
+            if (pkNames.length > 1) {
+                b.append(')');
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * Copies all properties of a fetched Storable into one which was given
+     * to be loaded, leaving it in the same state as a successful tryLoad.
+     * Load triggers have already run against the fetched Storable.
+     */
+    private static <S extends Storable> void copyLoaded(S from, S to) {
+        to.markAllPropertiesDirty();
+        from.copyAllProperties(to);
+        to.markAllPropertiesClean();
+    }
+
+    /**
+     * Returns the given Storables which are in the missing set, in the order
+     * given.
+     *
+     * @param missing identity map keyed by missing Storables, or null if none
+     */
+    private static <S extends Storable> List<S> missing(Collection<? extends S> storables,
+                                                        Map<S, Object> missing)
+    {
+        if (missing == null || missing.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<S> list = new ArrayList<S>(missing.size());
+        for (S storable : storables) {
+            if (missing.containsKey(storable)) {
+                list.add(storable);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Primary key values, compared by deep equality.
+     */
+    private static class Key {
+        final Object[] mValues;
+        private final int mHashCode;
+
+        Key(Storable storable, String[] pkNames) {
+            Object[] values = new Object[pkNames.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = storable.getPropertyValue(pkNames[i]);
+            }
+            mValues = values;
+            mHashCode = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.deepEquals(mValues, ((Key) obj).mValues);
+        }
+    }
+
+    private StorableLoadAll() {
+    }
+}
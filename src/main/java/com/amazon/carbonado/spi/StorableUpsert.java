@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.spi;
+
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Transaction;
+
+import com.amazon.carbonado.info.StorableInfo;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+/**
+ * Support for implementing {@link com.amazon.carbonado.Storage#upsert
+ * Storage.upsert}. Repositories which can insert or update in a single step
+ * should first check if doing so is {@link #isDirectAllowed allowed}, and
+ * otherwise call {@link #insertOrUpdate insertOrUpdate}.
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class StorableUpsert {
+    // Maximum amount of times to retry when the record is concurrently
+    // inserted and deleted.
+    private static final int MAX_ATTEMPTS = 10;
+
+    /**
+     * Returns true if the given Storable can be inserted or updated directly,
+     * without running any of the checks and conversions performed by the
+     * generated insert and update methods. The Storable type must not have a
+     * version property, and all properties which are required for insert, are
+     * part of the primary key, or are assigned by sequences or automatically,
+     * must be initialized. Callers must separately ensure that no insert or
+     * update triggers are installed.
+     */
+    public static <S extends Storable> boolean isDirectAllowed(S storable) {
+        StorableInfo<S> info = StorableIntrospector.examine(storable.storableType());
+        if (info.getVersionProperty() != null) {
+            return false;
+        }
+        for (StorableProperty<S> property : info.getAllProperties().values()) {
+            if (property.isDerived() || property.isJoin()) {
+                continue;
+            }
+            if (property.isPrimaryKeyMember() || !property.isNullable() ||
+                property.getSequenceName() != null || property.isAutomatic())
+            {
+                if (storable.isPropertyUninitialized(property.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the given Storable, or updates the existing one with the same
+     * primary key, by calling tryUpdate and then tryInsert. Both run in one
+     * transaction for update, and so the key remains locked between them. The
+     * insert runs in a nested transaction, which rolls back to a savepoint if
+     * the record was concurrently inserted. Some databases, like PostgreSQL,
+     * otherwise abort the entire transaction when a statement fails. Because the regular insert and update methods are called, insert
+     * triggers run when the Storable is inserted, and update triggers run
+     * when it is updated. If required properties aren't set, the insert is
+     * skipped, and it only fails if no record exists to update. Likewise, if
+     * the version property isn't set, the update is skipped, and it only
+     * fails if a record exists.
+     *
+     * @param repo repository to enter the transaction from, which should be
+     * the root repository
+     * @return true if inserted, false if updated
+     * @throws PersistException if the record is concurrently inserted and
+     * deleted too many times
+     */
+    public static <S extends Storable> boolean insertOrUpdate(Repository repo, S storable)
+        throws PersistException
+    {
+        boolean insertable = isInsertable(storable);
+        boolean updatable = isUpdatable(storable);
+
+        Transaction txn = repo.enterTransaction();
+        try {
+            txn.setForUpdate(true);
+            boolean inserted;
+            int attempts = 0;
+            while (true) {
+                if (updatable && storable.tryUpdate()) {
+                    inserted = false;
+                    break;
+                }
+                if (!insertable) {
+                    // Throws a ConstraintException for the missing properties.
+                    storable.insert();
+                    inserted = true;
+                    break;
+                }
+                Transaction nested = repo.enterTransaction();
+                try {
+                    inserted = storable.tryInsert();
+                    nested.commit();
+                } finally {
+                    nested.exit();
+                }
+                if (inserted) {
+                    break;
+                }
+                if (!updatable) {
+                    // Throws an IllegalStateException for the missing version.
+                    storable.update();
+                    break;
+                }
+                // Inserted and then deleted concurrently, which is only
+                // possible if the repository doesn't lock keys which don't
+                // exist.
+                if (++attempts >= MAX_ATTEMPTS) {
+                    throw new PersistException
+                        ("Record was concurrently inserted and deleted too many times: " +
+                         storable.toStringKeyOnly());
+                }
+            }
+            txn.commit();
+            return inserted;
+        } finally {
+            txn.exit();
+        }
+    }
+
+    /**
+     * Returns false if the given Storable cannot be inserted, because a
+     * required property isn't set.
+     */
+    private static <S extends Storable> boolean isInsertable(S storable) {
+        StorableInfo<S> info = StorableIntrospector.examine(storable.storableType());
+        for (StorableProperty<S> property : info.getAllProperties().values()) {
+            if (property.isDerived() || property.isJoin() || property.isPrimaryKeyMember() ||
+                property.isNullable() || property.isVersion() ||
+                property.getSequenceName() != null || property.isAutomatic())
+            {
+                continue;
+            }
+            if (storable.isPropertyUninitialized(property.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns false if the given Storable cannot be updated, because its
+     * version property isn't set. Such a Storable can still be inserted.
+     */
+    private static <S extends Storable> boolean isUpdatable(S storable) {
+        StorableProperty<S> version =
+            StorableIntrospector.examine(storable.storableType()).getVersionProperty();
+        return version == null || !storable.isPropertyUninitialized(version.getName());
+    }
+
+    private StorableUpsert() {
+    }
+}
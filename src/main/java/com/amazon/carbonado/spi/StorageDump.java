@@ -0,0 +1,680 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.spi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.amazon.carbonado.CorruptEncodingException;
+import com.amazon.carbonado.Cursor;
+import com.amazon.carbonado.FetchException;
+import com.amazon.carbonado.PersistException;
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+import com.amazon.carbonado.SupportException;
+import com.amazon.carbonado.Transaction;
+import com.amazon.carbonado.Trigger;
+import com.amazon.carbonado.UniqueConstraintException;
+
+import com.amazon.carbonado.cursor.MergeSortBuffer;
+import com.amazon.carbonado.cursor.SortedCursor;
+
+import com.amazon.carbonado.info.Direction;
+import com.amazon.carbonado.info.OrderedProperty;
+import com.amazon.carbonado.info.StorableIndex;
+import com.amazon.carbonado.info.StorableIntrospector;
+import com.amazon.carbonado.info.StorableProperty;
+
+import com.amazon.carbonado.layout.Layout;
+import com.amazon.carbonado.layout.LayoutFactory;
+
+import com.amazon.carbonado.lob.Blob;
+import com.amazon.carbonado.lob.Clob;
+import com.amazon.carbonado.lob.Lob;
+
+import com.amazon.carbonado.raw.CompressedStorableCodecFactory;
+import com.amazon.carbonado.raw.DataDecoder;
+import com.amazon.carbonado.raw.DataEncoder;
+import com.amazon.carbonado.raw.GenericStorableCodec;
+import com.amazon.carbonado.raw.RawStorageCapability;
+import com.amazon.carbonado.raw.RawSupport;
+
+import com.amazon.carbonado.repo.map.MapRepositoryBuilder;
+
+import com.amazon.carbonado.sequence.SequenceValueProducer;
+
+/**
+ * Dumps the contents of a storage into a compact stream, and restores it into
+ * any repository. The stream begins with a header which contains the {@link
+ * Layout} of the dumped type. Records follow as raw key and value pairs, each
+ * prefixed with its length, encoded as a {@link GenericStorableCodec} does
+ * with the dumped layout. Storable types with lob properties are not
+ * supported.
+ *
+ * <p>When restoring with triggers suppressed, records are inserted in their
+ * raw encoding without being decoded, if the repository supports {@link
+ * RawStorageCapability} and stores the type with the same layout and primary
+ * key encoding. Otherwise, each record is decoded and inserted individually.
+ * Records dumped with an older definition of the type are decoded as an older
+ * layout generation would be.
+ *
+ * <pre>
+ * StorageDump dump = new StorageDump(repo);
+ * OutputStream out = new FileOutputStream(file);
+ * try {
+ *     dump.dump(MyStorable.class, out);
+ * } finally {
+ *     out.close();
+ * }
+ * </pre>
+ *
+ * @author Brian S O'Neill
+ * @since 1.2.6
+ */
+public class StorageDump {
+    private static final int MAGIC = 0x43644d70;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Repository mRepository;
+
+    private int mBatchSize = 1000;
+    private boolean mSortedInsert;
+    private boolean mTriggersSuppressed;
+
+    /**
+     * @param repo repository to dump from or to restore into
+     */
+    public StorageDump(Repository repo) {
+        if (repo == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        mRepository = repo;
+    }
+
+    /**
+     * Set the amount of records restored in each transaction, which is 1000
+     * by default.
+     *
+     * @throws IllegalArgumentException if size is less than one
+     */
+    public void setBatchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be at least one: " + size);
+        }
+        mBatchSize = size;
+    }
+
+    /**
+     * When true, records are sorted by primary key before being restored,
+     * which is useful if the dump wasn't produced in key order. Records are
+     * decoded and sorted using a {@link MergeSortBuffer}, which spills to
+     * temporary files. Default is false.
+     */
+    public void setSortedInsert(boolean sorted) {
+        mSortedInsert = sorted;
+    }
+
+    /**
+     * When true, insert triggers are not run for restored records, and raw
+     * records are inserted directly if the repository supports it. Otherwise,
+     * the repository must support {@link TriggerManagerCapability}. Triggers
+     * which maintain derived state such as indexes are never suppressed.
+     * Default is false.
+     */
+    public void setTriggersSuppressed(boolean suppressed) {
+        mTriggersSuppressed = suppressed;
+    }
+
+    /**
+     * Dumps all records of the given type, in primary key order.
+     *
+     * @param out stream to write to, which is flushed but not closed
+     * @return amount of records dumped
+     * @throws SupportException if type is not supported by dump format
+     */
+    public <S extends Storable> long dump(Class<S> type, OutputStream out)
+        throws IOException, RepositoryException
+    {
+        Storage<S> storage = mRepository.storageFor(type);
+        return dump(storage.query().orderBy(primaryKeyOrdering(type)), out);
+    }
+
+    /**
+     * Dumps all records matched by the given query, in the order provided by
+     * the query.
+     *
+     * @param query query obtained from this dump's repository
+     * @param out stream to write to, which is flushed but not closed
+     * @return amount of records dumped
+     * @throws SupportException if type is not supported by dump format
+     */
+    public <S extends Storable> long dump(Query<S> query, OutputStream out)
+        throws IOException, RepositoryException
+    {
+        Class<S> type = query.getStorableType();
+
+        for (StorableProperty<S> property :
+                 StorableIntrospector.examine(type).getAllProperties().values())
+        {
+            if (Lob.class.isAssignableFrom(property.getType())) {
+                throw new SupportException
+                    ("Storage dump doesn't support lob property: " + property);
+            }
+        }
+
+        // Encode records the same way as the repository does, if possible,
+        // allowing them to be restored without decoding.
+        Layout layout = null;
+        StorableIndex<S> pkIndex = null;
+        RawStorageCapability cap = mRepository.getCapability(RawStorageCapability.class);
+        if (cap != null && (layout = cap.getRawLayout(type)) != null) {
+            pkIndex = cap.getRawPrimaryKeyIndex(type);
+        } else {
+            layout = layoutFactory().layoutFor(type);
+        }
+
+        DumpSupport<S> support = new DumpSupport<S>(mRepository);
+        GenericStorableCodec<S> codec = new CompressedStorableCodecFactory(null)
+            .createCodec(type, pkIndex, false, layout, support);
+
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        dout.writeInt(MAGIC);
+        dout.writeByte(VERSION);
+        dout.writeUTF(type.getName());
+        dout.writeUTF(codec.getPrimaryKeyIndex().getNameDescriptor());
+        dout.writeInt(layout.getGeneration());
+        layout.writeTo(dout);
+
+        long count = 0;
+        Cursor<S> cursor = query.fetch();
+        try {
+            while (cursor.hasNext()) {
+                S raw = codec.instantiate(support);
+                cursor.next().copyAllProperties(raw);
+                // Raw storable passes its encoded key and value to the support.
+                raw.insert();
+                DataEncoder.writeLength(support.mKey.length, dout);
+                dout.write(support.mKey);
+                DataEncoder.writeLength(support.mValue.length, dout);
+                dout.write(support.mValue);
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Values are never empty, and so a zero length marks the end.
+        DataEncoder.writeLength(0, dout);
+        dout.flush();
+
+        return count;
+    }
+
+    /**
+     * Restores records as written by a dump method, inserting them into the
+     * storage for the given type. Restored records must not already exist.
+     * Records are inserted within transactions of the {@link #setBatchSize
+     * batch size}.
+     *
+     * @param in stream to read from, which is not closed
+     * @return amount of records restored
+     * @throws CorruptEncodingException if dump cannot be decoded into the
+     * current definition of the type
+     * @throws UniqueConstraintException if a restored record already exists
+     * @throws UnsupportedOperationException if triggers should be suppressed
+     * but repository doesn't support it
+     */
+    public <S extends Storable> long restore(Class<S> type, InputStream in)
+        throws IOException, RepositoryException
+    {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+
+        if (din.readInt() != MAGIC) {
+            throw new CorruptEncodingException("Not a storage dump");
+        }
+        int version = din.readUnsignedByte();
+        if (version != VERSION) {
+            throw new CorruptEncodingException("Unsupported storage dump version: " + version);
+        }
+        String typeName = din.readUTF();
+        if (!typeName.equals(type.getName())) {
+            throw new IllegalArgumentException
+                ("Storage dump is for type \"" + typeName + "\", not \"" + type.getName() + '"');
+        }
+
+        String pkDesc = din.readUTF();
+        StorableIndex<S> pkIndex;
+        try {
+            pkIndex = StorableIndex.parseNameDescriptor(pkDesc, StorableIntrospector.examine(type));
+        } catch (IllegalArgumentException e) {
+            throw new CorruptEncodingException
+                ("Storage dump primary key doesn't match current definition of type: " + pkDesc);
+        }
+
+        int dumpedGeneration = din.readInt();
+        LayoutFactory factory = layoutFactory();
+        // Layout might be assigned a different generation, if it conflicts
+        // with an existing one.
+        Layout dumped = factory.readLayoutFrom(din);
+
+        RecordReader reader = new RecordReader(din, dumpedGeneration, dumped.getGeneration());
+
+        RawStorageCapability cap = rawCapability(type, dumped, pkDesc);
+        if (cap != null) {
+            return insertRaw(cap, type, reader);
+        }
+
+        Storage<S> storage = mRepository.storageFor(type);
+
+        DumpSupport<S> support = new DumpSupport<S>(mRepository);
+        GenericStorableCodec<S> codec = new CompressedStorableCodecFactory(null)
+            .createCodec(type, pkIndex, false, factory.layoutFor(type), support);
+        support.mCodec = codec;
+
+        TriggerManager<S> triggers = null;
+        if (mTriggersSuppressed) {
+            TriggerManagerCapability triggerCap =
+                mRepository.getCapability(TriggerManagerCapability.class);
+            if (triggerCap == null) {
+                throw new UnsupportedOperationException
+                    ("Repository doesn't support suppressing triggers: " + mRepository.getName());
+            }
+            triggers = triggerCap.getTriggerManagerFor(type);
+            triggers.locallyDisableInsert();
+        }
+
+        try {
+            RecordIterator<S> records = new RecordIterator<S>(storage, codec, support, reader);
+
+            if (!mSortedInsert) {
+                return insertAll(records);
+            }
+
+            MergeSortBuffer<S> buffer = new MergeSortBuffer<S>(storage);
+            try {
+                Comparator<S> c = SortedCursor.createComparator(type, primaryKeyOrdering(type));
+                buffer.prepare(c);
+                while (records.hasNext()) {
+                    buffer.add(records.next());
+                }
+                buffer.sort();
+                return insertAll(buffer.iterator());
+            } finally {
+                buffer.close();
+            }
+        } catch (WrappedException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw (RepositoryException) cause;
+        } finally {
+            if (triggers != null) {
+                triggers.locallyEnableInsert();
+            }
+        }
+    }
+
+    /**
+     * Returns the capability for inserting dumped records without decoding
+     * them, or null if they must be decoded.
+     */
+    private RawStorageCapability rawCapability(Class<? extends Storable> type,
+                                               Layout dumped, String pkDesc)
+        throws RepositoryException
+    {
+        if (!mTriggersSuppressed || mSortedInsert) {
+            return null;
+        }
+        RawStorageCapability cap = mRepository.getCapability(RawStorageCapability.class);
+        if (cap == null) {
+            return null;
+        }
+        Layout layout = cap.getRawLayout(type);
+        if (layout == null || layout.getGeneration() != dumped.getGeneration()
+            || !layout.equalLayouts(dumped))
+        {
+            return null;
+        }
+        StorableIndex<?> pkIndex = cap.getRawPrimaryKeyIndex(type);
+        if (pkIndex == null || !pkIndex.getNameDescriptor().equals(pkDesc)) {
+            return null;
+        }
+        return cap;
+    }
+
+    private long insertRaw(RawStorageCapability cap, Class<? extends Storable> type,
+                           RecordReader reader)
+        throws IOException, RepositoryException
+    {
+        long count = 0;
+        int batchCount = 0;
+
+        Transaction txn = mRepository.enterTransaction();
+        try {
+            while (reader.next()) {
+                if (!cap.tryInsertRaw(type, reader.mKey, reader.mValue)) {
+                    throw new UniqueConstraintException
+                        ("Restored record already exists: " + type.getName());
+                }
+                count++;
+                if (++batchCount >= mBatchSize) {
+                    txn.commit();
+                    txn.exit();
+                    txn = mRepository.enterTransaction();
+                    batchCount = 0;
+                }
+            }
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        return count;
+    }
+
+    private <S extends Storable> long insertAll(Iterator<S> records) throws RepositoryException {
+        long count = 0;
+        int batchCount = 0;
+
+        Transaction txn = mRepository.enterTransaction();
+        try {
+            while (records.hasNext()) {
+                records.next().insert();
+                count++;
+                if (++batchCount >= mBatchSize) {
+                    txn.commit();
+                    txn.exit();
+                    txn = mRepository.enterTransaction();
+                    batchCount = 0;
+                }
+            }
+            txn.commit();
+        } finally {
+            txn.exit();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a factory for the layouts of this dump's repository, or of a
+     * temporary repository if layouts cannot be stored.
+     */
+    private LayoutFactory layoutFactory() throws RepositoryException {
+        try {
+            return new LayoutFactory(mRepository);
+        } catch (SupportException e) {
+            return new LayoutFactory(MapRepositoryBuilder.newRepository());
+        }
+    }
+
+    private static <S extends Storable> String[] primaryKeyOrdering(Class<S> type) {
+        Set<? extends OrderedProperty<S>> properties =
+            StorableIntrospector.examine(type).getPrimaryKey().getProperties();
+        String[] ordering = new String[properties.size()];
+        int i = 0;
+        for (OrderedProperty<S> property : properties) {
+            String name = property.getChainedProperty().getPrimeProperty().getName();
+            ordering[i++] = property.getDirection() == Direction.DESCENDING
+                ? ('-' + name) : ('+' + name);
+        }
+        return ordering;
+    }
+
+    /**
+     * Reads raw records from a dump stream, changing the layout generation
+     * prefix of values if the dumped layout was assigned a different one.
+     */
+    private static class RecordReader {
+        private final DataInputStream mIn;
+        private final int mFromGeneration;
+        private final int mToGeneration;
+
+        byte[] mKey;
+        byte[] mValue;
+
+        RecordReader(DataInputStream in, int fromGeneration, int toGeneration) {
+            mIn = in;
+            mFromGeneration = fromGeneration;
+            mToGeneration = toGeneration;
+        }
+
+        /**
+         * @return false if no more records
+         */
+        boolean next() throws IOException {
+            try {
+                int length = DataDecoder.readLength(mIn);
+                if (length == 0) {
+                    mKey = null;
+                    mValue = null;
+                    return false;
+                }
+                byte[] key = new byte[length];
+                mIn.readFully(key);
+                byte[] value = new byte[DataDecoder.readLength(mIn)];
+                mIn.readFully(value);
+                mKey = key;
+                mValue = mFromGeneration == mToGeneration ? value : regenerate(value);
+                return true;
+            } catch (EOFException e) {
+                throw new EOFException("Storage dump is truncated");
+            }
+        }
+
+        private byte[] regenerate(byte[] value) {
+            // Generation 0..127 is encoded in one byte, and 128..max is
+            // encoded in four bytes, with the most significant bit set.
+            int fromLength = mFromGeneration < 128 ? 1 : 4;
+            int toLength = mToGeneration < 128 ? 1 : 4;
+            byte[] newValue = new byte[value.length - fromLength + toLength];
+            if (toLength == 1) {
+                newValue[0] = (byte) mToGeneration;
+            } else {
+                int generation = mToGeneration | 0x80000000;
+                newValue[0] = (byte) (generation >> 24);
+                newValue[1] = (byte) (generation >> 16);
+                newValue[2] = (byte) (generation >> 8);
+                newValue[3] = (byte) generation;
+            }
+            System.arraycopy(value, fromLength, newValue, toLength, value.length - fromLength);
+            return newValue;
+        }
+    }
+
+    /**
+     * Decodes records from a dump stream, wrapping IOExceptions so that the
+     * records can be passed to a sort buffer.
+     */
+    private static class RecordIterator<S extends Storable> implements Iterator<S> {
+        private final Storage<S> mStorage;
+        private final GenericStorableCodec<S> mCodec;
+        private final DumpSupport<S> mSupport;
+        private final RecordReader mReader;
+        private S mNext;
+        private boolean mFinished;
+
+        RecordIterator(Storage<S> storage, GenericStorableCodec<S> codec,
+                       DumpSupport<S> support, RecordReader reader)
+        {
+            mStorage = storage;
+            mCodec = codec;
+            mSupport = support;
+            mReader = reader;
+        }
+
+        public boolean hasNext() {
+            if (mNext != null) {
+                return true;
+            }
+            if (mFinished) {
+                return false;
+            }
+            try {
+                if (!mReader.next()) {
+                    mFinished = true;
+                    return false;
+                }
+                S raw = mCodec.instantiate(mSupport, mReader.mKey, mReader.mValue);
+                S next = mStorage.prepare();
+                raw.copyAllProperties(next);
+                // Ensure all restored values are inserted.
+                next.markAllPropertiesDirty();
+                mNext = next;
+                return true;
+            } catch (IOException e) {
+                throw new WrappedException(e);
+            } catch (RepositoryException e) {
+                throw new WrappedException(e);
+            }
+        }
+
+        public S next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S next = mNext;
+            mNext = null;
+            return next;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Captures the encoded key and value of a raw storable when inserted, and
+     * decodes older layout generations.
+     */
+    private static class DumpSupport<S extends Storable> implements RawSupport<S> {
+        private final Repository mRepository;
+
+        GenericStorableCodec<S> mCodec;
+        byte[] mKey;
+        byte[] mValue;
+
+        DumpSupport(Repository repo) {
+            mRepository = repo;
+        }
+
+        public Repository getRootRepository() {
+            return mRepository;
+        }
+
+        public boolean isPropertySupported(String propertyName) {
+            return true;
+        }
+
+        public Trigger<? super S> getInsertTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getUpdateTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getDeleteTrigger() {
+            return null;
+        }
+
+        public Trigger<? super S> getLoadTrigger() {
+            return null;
+        }
+
+        public void locallyDisableLoadTrigger() {
+        }
+
+        public void locallyEnableLoadTrigger() {
+        }
+
+        public SequenceValueProducer getSequenceValueProducer(String name)
+            throws PersistException
+        {
+            throw new PersistException("Sequences are not supported by storage dump");
+        }
+
+        public byte[] tryLoad(S storable, byte[] key) throws FetchException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean tryInsert(S storable, byte[] key, byte[] value) {
+            mKey = key;
+            mValue = value;
+            return true;
+        }
+
+        public void store(S storable, byte[] key, byte[] value) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean tryDelete(S storable, byte[] key) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Blob getBlob(S storable, String name, long locator) throws FetchException {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getLocator(Blob blob) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Clob getClob(S storable, String name, long locator) throws FetchException {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getLocator(Clob clob) throws PersistException {
+            throw new UnsupportedOperationException();
+        }
+
+        public void decode(S dest, int generation, byte[] data)
+            throws CorruptEncodingException
+        {
+            if (mCodec == null) {
+                throw new CorruptEncodingException("Unknown layout generation: " + generation);
+            }
+            mCodec.decode(dest, generation, data);
+        }
+    }
+
+    private static class WrappedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WrappedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
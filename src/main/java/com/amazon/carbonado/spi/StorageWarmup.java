@@ -0,0 +1,233 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazon.carbonado.spi;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazon.carbonado.Query;
+import com.amazon.carbonado.Repository;
+import com.amazon.carbonado.RepositoryException;
+import com.amazon.carbonado.Storable;
+import com.amazon.carbonado.Storage;
+
+import com.amazon.carbonado.util.ThrowUnchecked;
+
+/**
+ * Opens storages and prepares query executors for a set of Storable types in
+ * parallel, such that the first requests against a newly opened repository
+ * don't stall on class generation, introspection and opening databases.
+ * Queries are prepared by building their executors, without fetching
+ * anything.
+ *
+ * @author Brian S O'Neill
+ * @see AbstractRepositoryBuilder#addWarmupType
+ * @since 1.2.6
+ */
+public class StorageWarmup {
+    private final Map<Class<? extends Storable>, List<String>> mTypes;
+    private int mThreadCount;
+
+    public StorageWarmup() {
+        mTypes = new LinkedHashMap<Class<? extends Storable>, List<String>>();
+        mThreadCount = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Add a type whose storage is to be opened.
+     *
+     * @throws IllegalArgumentException if type is null
+     */
+    public synchronized void addType(Class<? extends Storable> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Storable type cannot be null");
+        }
+        if (!mTypes.containsKey(type)) {
+            mTypes.put(type, new ArrayList<String>(2));
+        }
+    }
+
+    /**
+     * Add a representative query whose executor is to be prepared, and also
+     * add its type.
+     *
+     * @param filter query filter expression, which may have blank parameters
+     * @throws IllegalArgumentException if type or filter is null
+     */
+    public synchronized void addQuery(Class<? extends Storable> type, String filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Query filter cannot be null");
+        }
+        addType(type);
+        mTypes.get(type).add(filter);
+    }
+
+    /**
+     * Returns true if no types have been added.
+     */
+    public synchronized boolean isEmpty() {
+        return mTypes.isEmpty();
+    }
+
+    /**
+     * Set the maximum amount of threads to warm up with, which is the amount
+     * of available processors by default.
+     */
+    public synchronized void setThreadCount(int count) {
+        mThreadCount = count < 1 ? 1 : count;
+    }
+
+    public synchronized int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * Warm up all the added types in the given repository, waiting until all
+     * are finished.
+     *
+     * @return unmodifiable map of types to warm-up times in milliseconds, in
+     * the order that types were added
+     * @throws RepositoryException first exception thrown while warming up
+     */
+    public Map<Class<? extends Storable>, Long> warmup(final Repository repo)
+        throws RepositoryException
+    {
+        Map<Class<? extends Storable>, List<String>> types;
+        int threadCount;
+        synchronized (this) {
+            types = new LinkedHashMap<Class<? extends Storable>, List<String>>();
+            for (Map.Entry<Class<? extends Storable>, List<String>> entry : mTypes.entrySet()) {
+                types.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+            }
+            threadCount = Math.min(mThreadCount, Math.max(1, types.size()));
+        }
+
+        final Log log = LogFactory.getLog(StorageWarmup.class);
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(threadCount, new WarmupThreadFactory(repo));
+
+        Map<Class<? extends Storable>, Future<Long>> futures =
+            new LinkedHashMap<Class<? extends Storable>, Future<Long>>();
+
+        try {
+            for (Map.Entry<Class<? extends Storable>, List<String>> entry : types.entrySet()) {
+                final Class<? extends Storable> type = entry.getKey();
+                final List<String> filters = entry.getValue();
+                futures.put(type, executor.submit(new Callable<Long>() {
+                    public Long call() throws RepositoryException {
+                        long start = System.nanoTime();
+                        warmup(repo, type, filters, log);
+                        return (System.nanoTime() - start) / 1000000;
+                    }
+                }));
+            }
+
+            Map<Class<? extends Storable>, Long> timings =
+                new LinkedHashMap<Class<? extends Storable>, Long>();
+
+            for (Map.Entry<Class<? extends Storable>, Future<Long>> entry : futures.entrySet()) {
+                Long millis;
+                try {
+                    millis = entry.getValue().get();
+                } catch (InterruptedException e) {
+                    throw new RepositoryException("Warm-up interrupted", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RepositoryException) {
+                        throw (RepositoryException) cause;
+                    }
+                    ThrowUnchecked.fire(cause);
+                    return null;
+                }
+                timings.put(entry.getKey(), millis);
+                if (log.isDebugEnabled()) {
+                    log.debug("Warmed up " + entry.getKey().getName() + " in " +
+                              millis + " milliseconds");
+                }
+            }
+
+            return Collections.unmodifiableMap(timings);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <S extends Storable> void warmup(Repository repo, Class<S> type,
+                                                    List<String> filters, Log log)
+        throws RepositoryException
+    {
+        Storage<S> storage = repo.storageFor(type);
+        storage.query();
+
+        if (filters.isEmpty()) {
+            return;
+        }
+
+        StringBuilder discard = new StringBuilder();
+        for (String filter : filters) {
+            Query<S> query = storage.query(filter);
+            try {
+                // Printing the native form builds and caches the query
+                // executor, and it doesn't access the storage layer.
+                query.printNative(discard);
+            } catch (RuntimeException e) {
+                // Printing failed after executor was built, probably because
+                // parameters are blank.
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to print query: " + query, e);
+                }
+            } catch (IOException e) {
+                // Not expected from a StringBuilder.
+            }
+            discard.setLength(0);
+        }
+    }
+
+    private static class WarmupThreadFactory implements ThreadFactory {
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        WarmupThreadFactory(Repository repo) {
+            mPrefix = "Carbonado warm-up " + repo.getName() + ' ';
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, mPrefix + mCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2026 Amazon Technologies, Inc. or its affiliates.
+ * Amazon, Amazon.com and Carbonado are trademarks or registered trademarks
+ * of Amazon Technologies, Inc. or its affiliates.  All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazon.carbonado.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent cache which optionally holds keys weakly and values
+ * softly. Lookups don't lock, and values are created on demand while holding
+ * a lock for just the requested key. Concurrent requests for other keys
+ * aren't blocked, and concurrent requests for the same key wait for the one
+ * value to be created.
+ *
+ * <p>Weakly held keys are compared by identity, which is appropriate for
+ * caches keyed by Class objects or canonical instances. Strongly held keys
+ * are compared by {@link Object#equals equals}. Null keys and values aren't
+ * supported.
+ *
+ * @author Brian S O'Neill
+ * @see AbstractWeakPool
+ * @since 1.2.6
+ */
+public class ConcurrentCache<K, V, E extends Exception> {
+    private final boolean mWeakKeys;
+    private final boolean mSoftValues;
+    private final ConcurrentMap<Object, Entry<V>> mEntries;
+    private final ReferenceQueue<Object> mRefQueue;
+
+    /**
+     * @param weakKeys when true, keys are weakly held and compared by identity
+     * @param softValues when true, values are softly held
+     */
+    public ConcurrentCache(boolean weakKeys, boolean softValues) {
+        mWeakKeys = weakKeys;
+        mSoftValues = softValues;
+        mEntries = new ConcurrentHashMap<Object, Entry<V>>();
+        mRefQueue = new ReferenceQueue<Object>();
+    }
+
+    /**
+     * Returns the cached value for the given key, or null if none. This
+     * method never locks and never creates values.
+     */
+    public V peek(K key) {
+        Entry<V> entry = mEntries.get(lookupKey(key));
+        return entry == null ? null : entry.get();
+    }
+
+    /**
+     * Returns the cached value for the given key, {@link #create creating}
+     * it if necessary. Only one thread creates a value for any given key at a
+     * time, and other threads requesting the same key wait for it. If the
+     * value cannot be created, then no value is cached and the exception is
+     * thrown to the caller which requested creation.
+     *
+     * @return value, or null if create returned null
+     */
+    public V get(K key) throws E {
+        V value = peek(key);
+        if (value != null) {
+            return value;
+        }
+
+        clean();
+
+        while (true) {
+            Entry<V> entry = obtainEntry(key);
+            synchronized (entry) {
+                if (entry.mRemoved) {
+                    // Raced with removal, so try again.
+                    continue;
+                }
+                value = entry.get();
+                if (value != null) {
+                    return value;
+                }
+                try {
+                    value = create(key);
+                } finally {
+                    if (value == null) {
+                        removeEntry(entry);
+                    }
+                }
+                if (value != null) {
+                    entry.set(value, mSoftValues ? mRefQueue : null);
+                }
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Caches the given value, replacing any existing one, and returns the
+     * old value. Values should generally be cached by the {@link #create
+     * create} method instead, unless caller has its own means of preventing
+     * redundant creation.
+     *
+     * @throws IllegalArgumentException if value is null
+     */
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value");
+        }
+
+        clean();
+
+        while (true) {
+            Entry<V> entry = obtainEntry(key);
+            synchronized (entry) {
+                if (entry.mRemoved) {
+                    continue;
+                }
+                V old = entry.get();
+                entry.set(value, mSoftValues ? mRefQueue : null);
+                return old;
+            }
+        }
+    }
+
+    /**
+     * Removes the cached value for the given key, returning the old value.
+     */
+    public V remove(K key) {
+        clean();
+
+        Entry<V> entry = mEntries.get(lookupKey(key));
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            V old = entry.get();
+            removeEntry(entry);
+            return old;
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void clear() {
+        for (Entry<V> entry : mEntries.values()) {
+            synchronized (entry) {
+                removeEntry(entry);
+            }
+        }
+        clean();
+    }
+
+    /**
+     * Called by the {@link #get get} method to return a new value for the
+     * given key, while holding the lock for the key. This implementation
+     * returns null, which indicates that no value can be created.
+     */
+    protected V create(K key) throws E {
+        return null;
+    }
+
+    private Object lookupKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null key");
+        }
+        return mWeakKeys ? new Lookup(key) : key;
+    }
+
+    private Entry<V> obtainEntry(K key) {
+        Object lookupKey = lookupKey(key);
+        Entry<V> entry = mEntries.get(lookupKey);
+        if (entry == null) {
+            Object entryKey = mWeakKeys ? new WeakKey(key, mRefQueue) : key;
+            Entry<V> newEntry = new Entry<V>(entryKey);
+            entry = mEntries.putIfAbsent(entryKey, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Caller must hold entry lock.
+     */
+    private void removeEntry(Entry<V> entry) {
+        if (!entry.mRemoved) {
+            entry.mRemoved = true;
+            // Note that the two argument remove method is called to ensure
+            // that what is being removed is not a new entry.
+            mEntries.remove(entry.mKey, entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void clean() {
+        // Clean out cleared keys and values.
+        Reference<?> ref;
+        while ((ref = mRefQueue.poll()) != null) {
+            if (ref instanceof WeakKey) {
+                Entry<V> entry = mEntries.remove(ref);
+                if (entry != null) {
+                    synchronized (entry) {
+                        entry.mRemoved = true;
+                    }
+                }
+            } else {
+                Entry<V> entry = ((ValueRef<V>) ref).mEntry;
+                synchronized (entry) {
+                    if (entry.mValue == ref) {
+                        removeEntry(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        // Is either the key itself or a WeakKey.
+        final Object mKey;
+
+        // Is either the value itself or a ValueRef.
+        volatile Object mValue;
+
+        // Is only accessed while holding the entry lock.
+        boolean mRemoved;
+
+        Entry(Object key) {
+            mKey = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get() {
+            Object value = mValue;
+            if (value instanceof ValueRef) {
+                return ((ValueRef<V>) value).get();
+            }
+            return (V) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(V value, ReferenceQueue<Object> queue) {
+            Object old = mValue;
+            if (old instanceof ValueRef) {
+                ((ValueRef<V>) old).clear();
+            }
+            mValue = queue == null ? value : new ValueRef<V>(value, queue, this);
+        }
+    }
+
+    private static class ValueRef<V> extends SoftReference<V> {
+        final Entry<V> mEntry;
+
+        ValueRef(V value, ReferenceQueue<Object> queue, Entry<V> entry) {
+            super(value, queue);
+            mEntry = entry;
+        }
+    }
+
+    /**
+     * Common interface for weak keys and transient lookup keys, which are
+     * compared by identity.
+     */
+    private static interface IdentityKey {
+        Object referent();
+    }
+
+    private static class WeakKey extends WeakReference<Object> implements IdentityKey {
+        private final int mHash;
+
+        WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            mHash = System.identityHashCode(key);
+        }
+
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof IdentityKey) {
+                Object key = get();
+                return key != null && key == ((IdentityKey) obj).referent();
+            }
+            return false;
+        }
+    }
+
+    private static class Lookup implements IdentityKey {
+        private final Object mKey;
+
+        Lookup(Object key) {
+            mKey = key;
+        }
+
+        public Object referent() {
+            return mKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mKey);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof IdentityKey) {
+                return mKey == ((IdentityKey) obj).referent();
+            }
+            return false;
+        }
+    }
+}